@@ -0,0 +1,88 @@
+package name.saak.contactmanager.config;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * H2-Trigger: Schreibt für jede eingefügte, geänderte oder gelöschte Zeile ihren Primärschlüssel in change_journal.
+ * Da der Trigger in der Datenbank sitzt, werden auch die nativen Bulk-Updates der Repositories erfasst.
+ * Ändert ein UPDATE den Schlüssel (z.B. beim Zusammenführen von Hashtags), werden alter und neuer Schlüssel erfasst.
+ *
+ * Wird vom DatabaseBackupService nur im inkrementellen Modus für contact, hashtag, hashtag_closure und
+ * contact_hashtag angelegt. Solange die Trigger bestehen, lässt sich die Datenbankdatei nur mit dieser Klasse im
+ * Classpath öffnen (H2-Konsole, H2-Tools).
+ */
+public class ChangeJournalTrigger implements Trigger {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO change_journal (table_name, row_id, ref_id, operation) VALUES (?, ?, ?, ?)";
+
+    private String tableName;
+    private int[] keyColumns;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) throws SQLException {
+        this.tableName = tableName.toLowerCase(Locale.ROOT);
+
+        DatabaseMetaData metaData = conn.getMetaData();
+        Map<String, Integer> columnIndexes = new HashMap<>();
+        try (ResultSet columns = metaData.getColumns(null, schemaName, tableName, null)) {
+            while (columns.next()) {
+                columnIndexes.put(columns.getString("COLUMN_NAME"), columns.getInt("ORDINAL_POSITION") - 1);
+            }
+        }
+
+        // Primärschlüsselspalten in Schlüsselreihenfolge (row_id, ref_id)
+        TreeMap<Short, Integer> keys = new TreeMap<>();
+        try (ResultSet primaryKeys = metaData.getPrimaryKeys(null, schemaName, tableName)) {
+            while (primaryKeys.next()) {
+                keys.put(primaryKeys.getShort("KEY_SEQ"), columnIndexes.get(primaryKeys.getString("COLUMN_NAME")));
+            }
+        }
+        if (keys.isEmpty() || keys.size() > 2) {
+            throw new SQLException("Change-Journal benötigt einen ein- oder zweispaltigen Primärschlüssel: " + tableName);
+        }
+        this.keyColumns = keys.values().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(INSERT_SQL)) {
+            if (newRow != null) {
+                addEntry(insert, newRow, oldRow == null ? "I" : "U");
+            }
+            if (oldRow != null && (newRow == null || !sameKey(oldRow, newRow))) {
+                addEntry(insert, oldRow, "D");
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private void addEntry(PreparedStatement insert, Object[] row, String operation) throws SQLException {
+        insert.setString(1, tableName);
+        insert.setLong(2, ((Number) row[keyColumns[0]]).longValue());
+        if (keyColumns.length > 1) {
+            insert.setLong(3, ((Number) row[keyColumns[1]]).longValue());
+        } else {
+            insert.setNull(3, Types.BIGINT);
+        }
+        insert.setString(4, operation);
+        insert.addBatch();
+    }
+
+    private boolean sameKey(Object[] oldRow, Object[] newRow) {
+        return Arrays.stream(keyColumns).allMatch(i -> oldRow[i].equals(newRow[i]));
+    }
+}
@@ -0,0 +1,144 @@
+package name.saak.contactmanager.config;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import name.saak.contactmanager.domain.ContactBusinessKey;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Liquibase-Migration: Befüllt die Spalte contact.business_key für bestehende Kontakte.
+ * Verwendet dieselbe Normalisierung wie die Anwendung, damit H2 und PostgreSQL identische Hashes erhalten.
+ *
+ * Der bisherige Unique-Constraint uk_contact_name_address unterscheidet Groß- und Kleinschreibung, der neue
+ * Schlüssel nicht. Kontakte, die sich nur darin unterscheiden, werden vor dem Anlegen von uk_contact_business_key
+ * in den ältesten zusammengeführt: Er übernimmt ihre Hashtags und füllt leere Felder aus ihnen auf, danach werden
+ * sie gelöscht.
+ */
+public class ContactBusinessKeyBackfill implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 500;
+
+    private int updatedRows;
+    private int mergedRows;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+
+        // Doppelter Kontakt -> ältester Kontakt mit demselben Schlüssel
+        Map<Long, Long> duplicates = new LinkedHashMap<>();
+        try (Statement select = connection.createStatement();
+             ResultSet rs = select.executeQuery(
+                 "SELECT id, vorname, nachname, strasse, postleitzahl, ort FROM contact ORDER BY id");
+             PreparedStatement update = connection.prepareStatement(
+                 "UPDATE contact SET business_key = ? WHERE id = ?")) {
+
+            Map<String, Long> firstIdByKey = new HashMap<>();
+            int pending = 0;
+            while (rs.next()) {
+                long id = rs.getLong("id");
+                String businessKey = ContactBusinessKey.of(
+                    rs.getString("vorname"),
+                    rs.getString("nachname"),
+                    rs.getString("strasse"),
+                    rs.getString("postleitzahl"),
+                    rs.getString("ort"));
+                Long firstId = firstIdByKey.putIfAbsent(businessKey, id);
+                if (firstId != null) {
+                    duplicates.put(id, firstId);
+                    continue;
+                }
+                update.setString(1, businessKey);
+                update.setLong(2, id);
+                update.addBatch();
+                updatedRows++;
+
+                if (++pending == BATCH_SIZE) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new CustomChangeException("Befüllen von contact.business_key fehlgeschlagen", e);
+        }
+
+        try {
+            mergeDuplicates(connection, duplicates);
+        } catch (SQLException e) {
+            throw new CustomChangeException("Zusammenführen doppelter Kontakte fehlgeschlagen", e);
+        }
+    }
+
+    /**
+     * Führt jeden doppelten Kontakt in den ältesten mit demselben Schlüssel zusammen. Das Löschen entfernt seine
+     * Hashtag-Zuordnungen über ON DELETE CASCADE.
+     */
+    private void mergeDuplicates(Connection connection, Map<Long, Long> duplicates) throws SQLException {
+        try (PreparedStatement moveHashtags = connection.prepareStatement(
+                 "INSERT INTO contact_hashtag (contact_id, hashtag_id) "
+                     + "SELECT ?, hashtag_id FROM contact_hashtag WHERE contact_id = ? AND hashtag_id NOT IN "
+                     + "(SELECT hashtag_id FROM contact_hashtag WHERE contact_id = ?)");
+             PreparedStatement fillFields = connection.prepareStatement(
+                 "UPDATE contact SET "
+                     + "anrede = COALESCE(anrede, (SELECT d.anrede FROM contact d WHERE d.id = ?)), "
+                     + "telefon1 = COALESCE(telefon1, (SELECT d.telefon1 FROM contact d WHERE d.id = ?)), "
+                     + "telefon2 = COALESCE(telefon2, (SELECT d.telefon2 FROM contact d WHERE d.id = ?)), "
+                     + "email = COALESCE(email, (SELECT d.email FROM contact d WHERE d.id = ?)), "
+                     + "firma = COALESCE(firma, (SELECT d.firma FROM contact d WHERE d.id = ?)), "
+                     + "bemerkung = COALESCE(bemerkung, (SELECT d.bemerkung FROM contact d WHERE d.id = ?)) "
+                     + "WHERE id = ?");
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM contact WHERE id = ?")) {
+
+            for (Map.Entry<Long, Long> duplicate : duplicates.entrySet()) {
+                long duplicateId = duplicate.getKey();
+                long keptId = duplicate.getValue();
+                moveHashtags.setLong(1, keptId);
+                moveHashtags.setLong(2, duplicateId);
+                moveHashtags.setLong(3, keptId);
+                moveHashtags.executeUpdate();
+                for (int parameter = 1; parameter <= 6; parameter++) {
+                    fillFields.setLong(parameter, duplicateId);
+                }
+                fillFields.setLong(7, keptId);
+                fillFields.executeUpdate();
+                delete.setLong(1, duplicateId);
+                delete.executeUpdate();
+                mergedRows++;
+            }
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "business_key für " + updatedRows + " Kontakt(e) berechnet, "
+            + mergedRows + " Duplikat(e) zusammengeführt";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
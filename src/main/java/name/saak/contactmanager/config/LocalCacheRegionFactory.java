@@ -0,0 +1,206 @@
+package name.saak.contactmanager.config;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Second-Level-Cache von Hibernate im Heap dieser Instanz (app.cache).
+ *
+ * Jede Region (Entity, Collection, Query-Ergebnisse) ist eine LRU-Map mit höchstens app.cache.max-entries
+ * Einträgen; Einträge verfallen nach app.cache.time-to-live. Die Region mit den Änderungszeitpunkten der Tabellen
+ * ist davon ausgenommen: Fehlt dort ein Eintrag, hielte Hibernate veraltete Query-Ergebnisse für gültig.
+ *
+ * Änderungen anderer Instanzen auf derselben Datenbank (AUTO_SERVER) sieht der Cache nicht; sie werden erst nach
+ * Ablauf der time-to-live sichtbar.
+ */
+public class LocalCacheRegionFactory extends RegionFactoryTemplate {
+
+    private final int maxEntries;
+    private final Duration timeToLive;
+    private final Map<String, RegionStorage> regions = new ConcurrentHashMap<>();
+
+    public LocalCacheRegionFactory(int maxEntries, Duration timeToLive) {
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Alle bisher angelegten Regionen nach Name.
+     */
+    public Map<String, RegionStorage> getRegions() {
+        return Collections.unmodifiableMap(regions);
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.values().forEach(RegionStorage::release);
+        regions.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                   DomainDataRegionBuildingContext buildingContext) {
+        return register(new RegionStorage(regionConfig.getRegionName(), maxEntries, timeToLive));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return register(new RegionStorage(regionName, maxEntries, timeToLive));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return register(new RegionStorage(regionName, 0, Duration.ZERO));
+    }
+
+    private RegionStorage register(RegionStorage storage) {
+        regions.put(storage.getName(), storage);
+        return storage;
+    }
+
+    /**
+     * Einträge einer Region mit Zählern für die Cache-Metriken.
+     */
+    public static final class RegionStorage implements DomainDataStorageAccess {
+
+        private final String name;
+        private final int maxEntries;
+        private final long timeToLiveNanos;
+        private final Map<Object, Entry> entries;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        private record Entry(Object value, long expiresAt) {
+        }
+
+        /**
+         * @param maxEntries 0 für unbegrenzt
+         * @param timeToLive {@link Duration#ZERO} für unbegrenzt
+         */
+        RegionStorage(String name, int maxEntries, Duration timeToLive) {
+            this.name = name;
+            this.maxEntries = maxEntries;
+            this.timeToLiveNanos = timeToLive.toNanos();
+            // Zugriffsreihenfolge: der älteste Eintrag ist der am längsten nicht gelesene
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                    if (RegionStorage.this.maxEntries > 0 && size() > RegionStorage.this.maxEntries) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            Entry entry;
+            synchronized (entries) {
+                entry = entries.get(key);
+                if (entry != null && isExpired(entry)) {
+                    entries.remove(key);
+                    evictions.increment();
+                    entry = null;
+                }
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value();
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            Entry entry = new Entry(value, timeToLiveNanos > 0 ? System.nanoTime() + timeToLiveNanos : 0);
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+            puts.increment();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            synchronized (entries) {
+                Entry entry = entries.get(key);
+                return entry != null && !isExpired(entry);
+            }
+        }
+
+        @Override
+        public void evictData() {
+            synchronized (entries) {
+                entries.clear();
+            }
+        }
+
+        @Override
+        public void evictData(Object key) {
+            synchronized (entries) {
+                entries.remove(key);
+            }
+        }
+
+        @Override
+        public void release() {
+            evictData();
+        }
+
+        public long size() {
+            synchronized (entries) {
+                return entries.size();
+            }
+        }
+
+        public long hitCount() {
+            return hits.sum();
+        }
+
+        public long missCount() {
+            return misses.sum();
+        }
+
+        public long putCount() {
+            return puts.sum();
+        }
+
+        /**
+         * Wegen der Größenbeschränkung verdrängte und abgelaufene Einträge.
+         */
+        public long evictionCount() {
+            return evictions.sum();
+        }
+
+        private boolean isExpired(Entry entry) {
+            return entry.expiresAt() != 0 && System.nanoTime() - entry.expiresAt() >= 0;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package name.saak.contactmanager.config;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.ObservationFilter;
+import name.saak.contactmanager.service.DatabaseBackupService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+	/**
+	 * Markiert http.server.requests mit dem Tag backup=true|false, damit sich die Request-Latenz
+	 * während laufender Backups mit der im Normalbetrieb vergleichen lässt.
+	 */
+	@Bean
+	ObservationFilter backupRequestObservationFilter(DatabaseBackupService backupService) {
+		return context -> {
+			if ("http.server.requests".equals(context.getName())) {
+				context.addLowCardinalityKeyValue(KeyValue.of("backup", String.valueOf(backupService.isBackupRunning())));
+			}
+			return context;
+		};
+	}
+}
@@ -0,0 +1,62 @@
+package name.saak.contactmanager.config;
+
+import name.saak.contactmanager.service.DatabaseBackupService;
+import name.saak.contactmanager.service.DatabaseRestoreService;
+import name.saak.contactmanager.service.HashtagService;
+import name.saak.contactmanager.service.JobService;
+import name.saak.contactmanager.service.OffsiteReplicationService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Zeitpläne der Jobs, die pro Datenbank nur einmal laufen dürfen. Die Trigger reichen die Jobs beim
+ * {@link JobService} ein; Lease, Verlauf und Metriken übernimmt dieser.
+ *
+ * Jobs, die nur den Zustand eines Knotens betreffen (Neuaufbau der In-Memory-Indizes, Aufräumen der Export-Dateien,
+ * Kompaktierung der eigenen H2-Datei), bleiben als @Scheduled an ihren Services.
+ */
+@Component
+public class ScheduledJobs {
+
+    private final JobService jobService;
+    private final DatabaseBackupService backupService;
+    private final DatabaseRestoreService restoreService;
+    private final OffsiteReplicationService offsiteReplicationService;
+    private final HashtagService hashtagService;
+
+    public ScheduledJobs(JobService jobService, DatabaseBackupService backupService,
+                         DatabaseRestoreService restoreService, OffsiteReplicationService offsiteReplicationService,
+                         HashtagService hashtagService) {
+        this.jobService = jobService;
+        this.backupService = backupService;
+        this.restoreService = restoreService;
+        this.offsiteReplicationService = offsiteReplicationService;
+        this.hashtagService = hashtagService;
+    }
+
+    @Scheduled(cron = "${app.backup.cron:0 0 2 * * *}")
+    public void backup() {
+        jobService.submit("backup", backupService::createScheduledBackup);
+    }
+
+    @Scheduled(cron = "${app.backup.full-cron:-}")
+    public void fullBackup() {
+        jobService.submit("full-backup", backupService::createScheduledFullBackup);
+    }
+
+    @Scheduled(cron = "${app.backup.restore-drill.cron:-}")
+    public void restoreDrill() {
+        jobService.submit("restore-drill", restoreService::runRestoreDrill);
+    }
+
+    @Scheduled(initialDelayString = "${app.backup.offsite.retry-interval:PT15M}",
+            fixedDelayString = "${app.backup.offsite.retry-interval:PT15M}")
+    public void offsiteReplication() {
+        jobService.submit("offsite-replication", offsiteReplicationService::retryPendingReplication);
+    }
+
+    @Scheduled(cron = "${app.hashtags.usage-reconcile-cron:0 45 3 * * *}")
+    public void hashtagUsageReconcile() {
+        jobService.submit("hashtag-usage-reconcile", hashtagService::reconcileUsageCounts);
+    }
+}
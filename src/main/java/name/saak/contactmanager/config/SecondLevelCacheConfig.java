@@ -0,0 +1,97 @@
+package name.saak.contactmanager.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.SharedCacheMode;
+import name.saak.contactmanager.config.LocalCacheRegionFactory.RegionStorage;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Second-Level- und Query-Cache von Hibernate (app.cache). Gecacht werden nur Entities und Collections mit
+ * {@link org.hibernate.annotations.Cache} sowie Queries mit dem Hint {@code org.hibernate.cacheable}.
+ *
+ * Native Updates in den Repositories nennen die betroffenen Tabellen per Hint {@code org.hibernate.query.native.spaces};
+ * Hibernate verwirft danach nur die Regionen und Query-Ergebnisse dieser Tabellen statt des ganzen Caches.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean
+    LocalCacheRegionFactory localCacheRegionFactory(
+            @Value("${app.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.cache.time-to-live:PT1H}") Duration timeToLive) {
+        return new LocalCacheRegionFactory(maxEntries, timeToLive);
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheProperties(
+            LocalCacheRegionFactory regionFactory,
+            @Value("${app.cache.enabled:true}") boolean enabled) {
+        return properties -> {
+            properties.put(AvailableSettings.JAKARTA_SHARED_CACHE_MODE, SharedCacheMode.ENABLE_SELECTIVE);
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, enabled);
+            if (enabled) {
+                properties.put(AvailableSettings.CACHE_REGION_FACTORY, regionFactory);
+            }
+        };
+    }
+
+    /**
+     * cache.gets, cache.puts, cache.evictions und cache.size je Region (Tag cache), abrufbar unter
+     * /actuator/metrics. In der Region der Query-Ergebnisse zählt auch ein Ergebnis als Treffer, das Hibernate
+     * danach als veraltet verwirft; die erneut ausgeführte Abfrage erscheint dann unter cache.puts.
+     */
+    @Bean
+    MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory,
+                                        LocalCacheRegionFactory regionFactory) {
+        // Die Regionen entstehen beim Aufbau der EntityManagerFactory
+        return registry -> regionFactory.getRegions().forEach((name, storage) ->
+                new RegionMetrics(storage, name).bindTo(registry));
+    }
+
+    private static final class RegionMetrics extends CacheMeterBinder<RegionStorage> {
+
+        RegionMetrics(RegionStorage storage, String name) {
+            super(storage, name, Tags.of("cacheManager", "hibernate"));
+        }
+
+        @Override
+        protected Long size() {
+            return getCache().size();
+        }
+
+        @Override
+        protected long hitCount() {
+            return getCache().hitCount();
+        }
+
+        @Override
+        protected Long missCount() {
+            return getCache().missCount();
+        }
+
+        @Override
+        protected Long evictionCount() {
+            return getCache().evictionCount();
+        }
+
+        @Override
+        protected long putCount() {
+            return getCache().putCount();
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        }
+    }
+}
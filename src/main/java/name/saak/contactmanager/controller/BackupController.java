@@ -0,0 +1,79 @@
+package name.saak.contactmanager.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import name.saak.contactmanager.service.DatabaseBackupService;
+import name.saak.contactmanager.service.DatabaseRestoreService;
+import name.saak.contactmanager.service.DatabaseRestoreService.RestoreResult;
+import name.saak.contactmanager.service.HashtagCache;
+import org.hibernate.Cache;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Wiederherstellung von Backups und Ergebnis des letzten Restore-Drills.
+ */
+@Controller
+@RequestMapping("/backups")
+public class BackupController {
+
+    private final DatabaseRestoreService restoreService;
+    private final DatabaseBackupService backupService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final HashtagCache hashtagCache;
+
+    public BackupController(DatabaseRestoreService restoreService, DatabaseBackupService backupService,
+                            EntityManagerFactory entityManagerFactory, HashtagCache hashtagCache) {
+        this.restoreService = restoreService;
+        this.backupService = backupService;
+        this.entityManagerFactory = entityManagerFactory;
+        this.hashtagCache = hashtagCache;
+    }
+
+    /**
+     * Stellt ein Backup in eine neue Datenbankdatei wieder her und prüft sie.
+     * Mit swap=true wird anschließend die laufende Datenbank ersetzt.
+     *
+     * @param backup Dateiname des Backups, ohne Angabe das neueste
+     */
+    @PostMapping("/restore")
+    @ResponseBody
+    public ResponseEntity<RestoreResult> restore(
+            @RequestParam(name = "backup", required = false) String backup,
+            @RequestParam(name = "swap", defaultValue = "false") boolean swap) throws IOException, SQLException {
+        try {
+            RestoreResult result = restoreService.restore(backup, swap);
+            if (swap) {
+                // Die Caches kennen noch den Stand der ersetzten Datenbank
+                entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+                hashtagCache.invalidate();
+                // Das Backup kann aus einer Zeit mit anderem Backup-Modus stammen
+                backupService.updateChangeJournalTriggers();
+            }
+            return ResponseEntity.ok(result);
+        } catch (DatabaseRestoreService.BackupNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (DatabaseRestoreService.RestoreVerificationException e) {
+            return ResponseEntity.unprocessableEntity().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Gibt das Ergebnis des letzten erfolgreichen Restore-Drills zurück.
+     */
+    @GetMapping("/restore/drill")
+    @ResponseBody
+    public ResponseEntity<RestoreResult> getLastDrill() {
+        return ResponseEntity.of(restoreService.getLastDrill());
+    }
+}
@@ -2,8 +2,12 @@ package name.saak.contactmanager.controller;
 
 import jakarta.validation.Valid;
 import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.repository.ContactListRow;
 import name.saak.contactmanager.service.ContactService;
-import name.saak.contactmanager.service.ExcelExportService;
+import name.saak.contactmanager.service.DuplicateCheckService;
+import name.saak.contactmanager.service.ContactExportService;
+import name.saak.contactmanager.service.ContactExportService.ExportRequest;
+import name.saak.contactmanager.service.ContactExportWriter;
 import name.saak.contactmanager.service.HashtagService;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -12,12 +16,11 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/contacts")
@@ -25,13 +28,15 @@ public class ContactController {
 
     private final ContactService contactService;
     private final HashtagService hashtagService;
-    private final ExcelExportService excelExportService;
+    private final ContactExportService contactExportService;
+    private final DuplicateCheckService duplicateCheckService;
 
     public ContactController(ContactService contactService, HashtagService hashtagService,
-                            ExcelExportService excelExportService) {
+                            ContactExportService contactExportService, DuplicateCheckService duplicateCheckService) {
         this.contactService = contactService;
         this.hashtagService = hashtagService;
-        this.excelExportService = excelExportService;
+        this.contactExportService = contactExportService;
+        this.duplicateCheckService = duplicateCheckService;
     }
 
     /**
@@ -43,16 +48,14 @@ public class ContactController {
             @RequestParam(name = "sort", required = false) String sortField,
             @RequestParam(name = "dir", required = false) String sortDir,
             Model model) {
-        List<Contact> contacts;
+        List<ContactListRow> contacts = contactService.findContactListRows(searchTerm, sortField, sortDir);
 
         if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            contacts = contactService.searchContacts(searchTerm, sortField, sortDir);
             model.addAttribute("searchTerm", searchTerm);
-        } else {
-            contacts = contactService.findAllContacts(sortField, sortDir);
         }
 
         model.addAttribute("contacts", contacts);
+        model.addAttribute("activeHashtagsById", hashtagService.findActiveHashtagsById());
         model.addAttribute("availableHashtags", hashtagService.findActiveHashtags());
 
         // Sort-Parameter für UI-State
@@ -105,6 +108,24 @@ public class ContactController {
         }
     }
 
+    /**
+     * Live-Duplikatprüfung für das Kontaktformular (JSON, wird während der Eingabe aufgerufen).
+     */
+    @GetMapping("/check-duplicate")
+    @ResponseBody
+    public DuplicateCheckService.DuplicateCheckResult checkDuplicate(
+            @RequestParam(name = "vorname", required = false) String vorname,
+            @RequestParam(name = "nachname", required = false) String nachname,
+            @RequestParam(name = "strasse", required = false) String strasse,
+            @RequestParam(name = "postleitzahl", required = false) String postleitzahl,
+            @RequestParam(name = "ort", required = false) String ort,
+            @RequestParam(name = "excludeId", required = false) Long excludeId) {
+        if (isBlank(vorname) || isBlank(nachname) || isBlank(strasse) || isBlank(postleitzahl) || isBlank(ort)) {
+            return new DuplicateCheckService.DuplicateCheckResult(false, false);
+        }
+        return duplicateCheckService.check(vorname, nachname, strasse, postleitzahl, ort, excludeId);
+    }
+
     /**
      * Zeigt das Formular zum Bearbeiten eines Kontakts.
      */
@@ -172,37 +193,34 @@ public class ContactController {
     }
 
     /**
-     * Exportiert ausgewählte Kontakte als Excel-Datei.
+     * Exportiert ausgewählte Kontakte als Excel-, CSV- oder vCard-Datei.
+     * Die Datei wird direkt in die Response geschrieben; ohne Auswahl wird der aktuelle Filter
+     * der Kontaktliste (Suche, Hashtags, Sortierung) per Datenbank-Cursor gestreamt.
      */
     @PostMapping("/export")
-    public ResponseEntity<byte[]> exportContacts(
-            @RequestParam(name = "contactIds", required = false) List<Long> contactIds) {
+    public ResponseEntity<StreamingResponseBody> exportContacts(
+            @RequestParam(name = "contactIds", required = false) List<Long> contactIds,
+            @RequestParam(name = "search", required = false) String searchTerm,
+            @RequestParam(name = "sort", required = false) String sortField,
+            @RequestParam(name = "dir", required = false) String sortDir,
+            @RequestParam(name = "format", defaultValue = "xlsx") String format) {
+        ContactExportWriter writer;
         try {
-            List<Contact> contacts;
-
-            if (contactIds != null && !contactIds.isEmpty()) {
-                // Exportiere nur ausgewählte Kontakte
-                contacts = contactIds.stream()
-                    .map(id -> contactService.findContactById(id).orElse(null))
-                    .filter(contact -> contact != null)
-                    .collect(Collectors.toList());
-            } else {
-                // Exportiere alle Kontakte wenn keine Auswahl
-                contacts = contactService.findAllContacts();
-            }
+            writer = contactExportService.getWriter(format);
+        } catch (ContactExportService.UnknownExportFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
 
-            byte[] excelData = excelExportService.exportContactsToExcel(contacts);
+        ExportRequest request = new ExportRequest(contactIds, searchTerm, sortField, sortDir);
+        StreamingResponseBody body = outputStream -> contactExportService.export(writer, request, outputStream);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "kontakte.xlsx");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(writer.getContentType()));
+        headers.setContentDispositionFormData("attachment", writer.getFileName());
 
-            return ResponseEntity.ok()
-                .headers(headers)
-                .body(excelData);
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
-        }
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(body);
     }
 
     /**
@@ -243,6 +261,10 @@ public class ContactController {
         return "redirect:/contacts";
     }
 
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
     /**
      * Exception handler für ContactNotFoundException.
      */
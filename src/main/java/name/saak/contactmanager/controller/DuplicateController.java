@@ -0,0 +1,65 @@
+package name.saak.contactmanager.controller;
+
+import name.saak.contactmanager.service.ContactService;
+import name.saak.contactmanager.service.DuplicateFinderService;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+@Controller
+@RequestMapping("/contacts/duplicates")
+public class DuplicateController {
+
+    private final DuplicateFinderService duplicateFinderService;
+
+    public DuplicateController(DuplicateFinderService duplicateFinderService) {
+        this.duplicateFinderService = duplicateFinderService;
+    }
+
+    /**
+     * Zeigt die Dubletten-Kandidaten der letzten Suche zur Prüfung an.
+     */
+    @GetMapping
+    public String showDuplicates(Model model) {
+        model.addAttribute("scanRunning", duplicateFinderService.isRunning());
+        model.addAttribute("result", duplicateFinderService.getLastResult());
+        return "contacts/duplicates";
+    }
+
+    /**
+     * Startet die Dublettensuche im Hintergrund.
+     */
+    @PostMapping("/scan")
+    public String startScan(RedirectAttributes redirectAttributes) {
+        if (duplicateFinderService.startScan()) {
+            redirectAttributes.addFlashAttribute("successMessage",
+                "Dublettensuche gestartet");
+        } else {
+            redirectAttributes.addFlashAttribute("errorMessage",
+                "Die Dublettensuche läuft bereits");
+        }
+        return "redirect:/contacts/duplicates";
+    }
+
+    /**
+     * Führt zwei Kontakte zusammen (Hashtags übernehmen, Dublette löschen).
+     */
+    @PostMapping("/merge")
+    public String mergeContacts(
+            @RequestParam(name = "keepId") Long keepId,
+            @RequestParam(name = "removeId") Long removeId,
+            RedirectAttributes redirectAttributes) {
+        try {
+            duplicateFinderService.mergeContacts(keepId, removeId);
+            redirectAttributes.addFlashAttribute("successMessage",
+                "Kontakte erfolgreich zusammengeführt");
+        } catch (ContactService.ContactNotFoundException | IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/contacts/duplicates";
+    }
+}
@@ -0,0 +1,95 @@
+package name.saak.contactmanager.controller;
+
+import name.saak.contactmanager.service.ContactExportService;
+import name.saak.contactmanager.service.ContactExportService.ExportRequest;
+import name.saak.contactmanager.service.ExportJobService;
+import name.saak.contactmanager.service.ExportJobService.ExportJobStatus;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Export-Jobs im Hintergrund: Starten, Fortschritt abfragen, Abbrechen und Herunterladen.
+ */
+@Controller
+@RequestMapping("/contacts/export/jobs")
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+
+    public ExportJobController(ExportJobService exportJobService) {
+        this.exportJobService = exportJobService;
+    }
+
+    /**
+     * Reiht einen Export ein und gibt den Job-Status zurück.
+     * Ohne Auswahl wird der aktuelle Filter der Kontaktliste (Suche, Hashtags, Sortierung) exportiert.
+     */
+    @PostMapping
+    @ResponseBody
+    public ResponseEntity<ExportJobStatus> startExport(
+            @RequestParam(name = "contactIds", required = false) List<Long> contactIds,
+            @RequestParam(name = "search", required = false) String searchTerm,
+            @RequestParam(name = "sort", required = false) String sortField,
+            @RequestParam(name = "dir", required = false) String sortDir,
+            @RequestParam(name = "format", defaultValue = "xlsx") String format,
+            Principal principal) {
+        ExportRequest request = new ExportRequest(contactIds, searchTerm, sortField, sortDir);
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(exportJobService.startExport(format, request, principal.getName()));
+        } catch (ContactExportService.UnknownExportFormatException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (ExportJobService.ExportQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Gibt den Fortschritt eines Jobs zurück.
+     */
+    @GetMapping("/{id}")
+    @ResponseBody
+    public ResponseEntity<ExportJobStatus> getStatus(@PathVariable String id, Principal principal) {
+        return ResponseEntity.of(exportJobService.getStatus(id, principal.getName()));
+    }
+
+    /**
+     * Bricht einen Job ab.
+     */
+    @PostMapping("/{id}/cancel")
+    @ResponseBody
+    public ResponseEntity<ExportJobStatus> cancel(@PathVariable String id, Principal principal) {
+        return ResponseEntity.of(exportJobService.cancel(id, principal.getName()));
+    }
+
+    /**
+     * Liefert die fertige Exportdatei gegen das Download-Token aus.
+     */
+    @GetMapping("/{id}/download")
+    public ResponseEntity<Resource> download(@PathVariable String id, @RequestParam(name = "token") String token) {
+        return exportJobService.getDownload(id, token)
+            .map(download -> {
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.parseMediaType(download.contentType()));
+                headers.setContentDispositionFormData("attachment", download.fileName());
+                return ResponseEntity.ok()
+                    .headers(headers)
+                    .<Resource>body(new FileSystemResource(download.file()));
+            })
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -2,7 +2,10 @@ package name.saak.contactmanager.controller;
 
 import jakarta.validation.Valid;
 import name.saak.contactmanager.domain.Hashtag;
+import name.saak.contactmanager.domain.HashtagView;
+import name.saak.contactmanager.repository.HashtagOverviewRow;
 import name.saak.contactmanager.service.HashtagService;
+import name.saak.contactmanager.service.HashtagSuggestionService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -10,37 +13,66 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/hashtags")
 public class HashtagController {
 
     private final HashtagService hashtagService;
+    private final HashtagSuggestionService hashtagSuggestionService;
 
-    public HashtagController(HashtagService hashtagService) {
+    public HashtagController(HashtagService hashtagService, HashtagSuggestionService hashtagSuggestionService) {
         this.hashtagService = hashtagService;
+        this.hashtagSuggestionService = hashtagSuggestionService;
     }
 
     /**
-     * Zeigt die Hashtag-Liste mit optionaler Suche.
+     * Zeigt die Hashtag-Liste mit optionaler Suche, Filter auf unbenutzte Hashtags
+     * und Sortierung nach Verwendung.
      */
     @GetMapping
     public String listHashtags(
             @RequestParam(name = "search", required = false) String searchTerm,
+            @RequestParam(name = "view", required = false) String view,
+            @RequestParam(name = "sort", required = false) String sort,
             Model model) {
-        List<Hashtag> hashtags;
+        List<HashtagOverviewRow> hashtags;
+        boolean unusedOnly = "unused".equals(view);
+        boolean sortByUsage = "usage".equals(sort);
 
         if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            hashtags = hashtagService.searchHashtags(searchTerm);
+            hashtags = hashtagService.searchHashtagsForOverview(searchTerm);
             model.addAttribute("searchTerm", searchTerm);
         } else {
-            hashtags = hashtagService.findAllHashtags();
+            hashtags = hashtagService.findHashtagsForOverview(unusedOnly, sortByUsage);
         }
 
+        List<HashtagView> allHashtags = hashtagService.findAllHashtags();
         model.addAttribute("hashtags", hashtags);
+        model.addAttribute("hashtagNamesById", allHashtags.stream()
+            .collect(Collectors.toMap(HashtagView::id, HashtagView::name)));
+        model.addAttribute("parentHashtagIds", allHashtags.stream()
+            .map(HashtagView::parentId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet()));
+        model.addAttribute("unusedOnly", unusedOnly);
+        model.addAttribute("sortByUsage", sortByUsage);
         return "hashtags/list";
     }
 
+    /**
+     * Hashtag-Vorschläge zu den gewählten Hashtags (JSON, für Kontaktformular und Zuweisungsdialog).
+     */
+    @GetMapping("/suggestions")
+    @ResponseBody
+    public List<HashtagSuggestionService.HashtagSuggestion> suggestHashtags(
+            @RequestParam(name = "hashtagIds", required = false) List<Long> hashtagIds) {
+        return hashtagSuggestionService.suggest(hashtagIds);
+    }
+
     /**
      * Zeigt das Formular zum Erstellen eines neuen Hashtags.
      */
@@ -48,6 +80,7 @@ public class HashtagController {
     public String showCreateForm(Model model) {
         model.addAttribute("hashtag", new Hashtag());
         model.addAttribute("isEdit", false);
+        addParentOptions(model, null, null);
         return "hashtags/form";
     }
 
@@ -58,22 +91,25 @@ public class HashtagController {
     public String createHashtag(
             @Valid @ModelAttribute("hashtag") Hashtag hashtag,
             BindingResult bindingResult,
+            @RequestParam(name = "parentId", required = false) Long parentId,
             Model model,
             RedirectAttributes redirectAttributes) {
 
         if (bindingResult.hasErrors()) {
             model.addAttribute("isEdit", false);
+            addParentOptions(model, null, parentId);
             return "hashtags/form";
         }
 
         try {
-            hashtagService.createHashtag(hashtag);
+            hashtagService.createHashtag(hashtag, parentId);
             redirectAttributes.addFlashAttribute("successMessage",
                 "Hashtag erfolgreich erstellt");
             return "redirect:/hashtags";
-        } catch (HashtagService.DuplicateHashtagException e) {
+        } catch (HashtagService.DuplicateHashtagException | HashtagService.HashtagNotFoundException e) {
             model.addAttribute("errorMessage", e.getMessage());
             model.addAttribute("isEdit", false);
+            addParentOptions(model, null, parentId);
             return "hashtags/form";
         }
     }
@@ -89,6 +125,10 @@ public class HashtagController {
 
         model.addAttribute("hashtag", hashtag);
         model.addAttribute("isEdit", true);
+        addParentOptions(model, id, hashtag.getParentId());
+        model.addAttribute("mergeTargets", hashtagService.findActiveHashtags().stream()
+            .filter(target -> !target.id().equals(id))
+            .toList());
         return "hashtags/form";
     }
 
@@ -100,24 +140,27 @@ public class HashtagController {
             @PathVariable Long id,
             @Valid @ModelAttribute("hashtag") Hashtag hashtag,
             BindingResult bindingResult,
+            @RequestParam(name = "parentId", required = false) Long parentId,
             Model model,
             RedirectAttributes redirectAttributes) {
 
         if (bindingResult.hasErrors()) {
             model.addAttribute("isEdit", true);
             hashtag.setId(id); // Preserve ID for form action
+            addParentOptions(model, id, parentId);
             return "hashtags/form";
         }
 
         try {
-            hashtagService.updateHashtag(id, hashtag);
+            hashtagService.updateHashtag(id, hashtag, parentId);
             redirectAttributes.addFlashAttribute("successMessage",
                 "Hashtag erfolgreich aktualisiert");
             return "redirect:/hashtags";
-        } catch (HashtagService.DuplicateHashtagException e) {
+        } catch (HashtagService.DuplicateHashtagException | IllegalArgumentException e) {
             model.addAttribute("errorMessage", e.getMessage());
             model.addAttribute("isEdit", true);
             hashtag.setId(id);
+            addParentOptions(model, id, parentId);
             return "hashtags/form";
         } catch (HashtagService.HashtagNotFoundException e) {
             redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
@@ -155,6 +198,59 @@ public class HashtagController {
         return "redirect:/hashtags";
     }
 
+    /**
+     * Sperrt ein Hashtag samt aller Unter-Hashtags.
+     */
+    @PostMapping("/{id}/lock-subtree")
+    public String lockSubtree(@PathVariable Long id, RedirectAttributes redirectAttributes) {
+        int count = hashtagService.lockSubtree(id);
+        redirectAttributes.addFlashAttribute("successMessage",
+            count + " Hashtag(s) erfolgreich gesperrt");
+        return "redirect:/hashtags";
+    }
+
+    /**
+     * Entsperrt ein Hashtag samt aller Unter-Hashtags.
+     */
+    @PostMapping("/{id}/unlock-subtree")
+    public String unlockSubtree(@PathVariable Long id, RedirectAttributes redirectAttributes) {
+        int count = hashtagService.unlockSubtree(id);
+        redirectAttributes.addFlashAttribute("successMessage",
+            count + " Hashtag(s) erfolgreich entsperrt");
+        return "redirect:/hashtags";
+    }
+
+    /**
+     * Führt ein Hashtag mit einem anderen zusammen.
+     */
+    @PostMapping("/{id}/merge")
+    public String mergeHashtag(
+            @PathVariable Long id,
+            @RequestParam("targetId") Long targetId,
+            @RequestParam(name = "deleteSource", defaultValue = "false") boolean deleteSource,
+            RedirectAttributes redirectAttributes) {
+        try {
+            HashtagService.MergeResult result = hashtagService.mergeHashtags(id, targetId, deleteSource);
+            redirectAttributes.addFlashAttribute("successMessage",
+                "Hashtags zusammengeführt: " + result.moved() + " Zuordnung(en) übernommen");
+        } catch (HashtagService.HashtagNotFoundException | IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/hashtags";
+    }
+
+    /**
+     * Stellt die möglichen übergeordneten Hashtags für das Formular bereit.
+     * Beim Bearbeiten sind das Hashtag selbst und sein Teilbaum ausgeschlossen (keine Zyklen).
+     */
+    private void addParentOptions(Model model, Long hashtagId, Long selectedParentId) {
+        Set<Long> excluded = hashtagId != null ? Set.copyOf(hashtagService.findSubtreeIds(hashtagId)) : Set.of();
+        model.addAttribute("parentOptions", hashtagService.findAllHashtags().stream()
+            .filter(option -> !excluded.contains(option.id()))
+            .toList());
+        model.addAttribute("selectedParentId", selectedParentId);
+    }
+
     /**
      * Exception handler für HashtagNotFoundException.
      */
@@ -4,17 +4,27 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "contact",
-       uniqueConstraints = @UniqueConstraint(
-           name = "uk_contact_name_address",
-           columnNames = {"vorname", "nachname", "strasse", "postleitzahl", "ort"}
-       ))
+       uniqueConstraints = {
+           @UniqueConstraint(
+               name = "uk_contact_name_address",
+               columnNames = {"vorname", "nachname", "strasse", "postleitzahl", "ort"}
+           ),
+           @UniqueConstraint(
+               name = "uk_contact_business_key",
+               columnNames = {"business_key"}
+           )
+       })
 public class Contact {
 
     @Id
@@ -70,6 +80,9 @@ public class Contact {
     @Column(name = "bemerkung", columnDefinition = "text")
     private String bemerkung;
 
+    @Column(name = "business_key", nullable = false, length = 64)
+    private String businessKey;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -77,6 +90,7 @@ public class Contact {
     private LocalDateTime updatedAt;
 
     @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(
         name = "contact_hashtag",
         joinColumns = @JoinColumn(name = "contact_id"),
@@ -87,12 +101,14 @@ public class Contact {
     // Lifecycle callbacks
     @PrePersist
     protected void onCreate() {
+        businessKey = ContactBusinessKey.of(this);
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
     }
 
     @PreUpdate
     protected void onUpdate() {
+        businessKey = ContactBusinessKey.of(this);
         updatedAt = LocalDateTime.now();
     }
 
@@ -205,6 +221,10 @@ public class Contact {
         this.bemerkung = bemerkung;
     }
 
+    public String getBusinessKey() {
+        return businessKey;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,63 @@
+package name.saak.contactmanager.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Normalisierter fachlicher Schlüssel eines Kontakts (Name + Adresse).
+ * Der SHA-256-Hash wird in der Spalte business_key gespeichert und ist eindeutig indiziert,
+ * damit die Duplikatprüfung ein einzelner Index-Zugriff ist.
+ */
+public final class ContactBusinessKey {
+
+    // Unit Separator: kommt in Namen und Adressen nicht vor
+    private static final char SEPARATOR = '\u001F';
+
+    private ContactBusinessKey() {
+    }
+
+    /**
+     * Berechnet den Schlüssel-Hash für einen Kontakt.
+     */
+    public static String of(Contact contact) {
+        return of(contact.getVorname(), contact.getNachname(), contact.getStrasse(),
+                  contact.getPostleitzahl(), contact.getOrt());
+    }
+
+    /**
+     * Berechnet den Schlüssel-Hash (64 Hex-Zeichen) für Name und Adresse.
+     */
+    public static String of(String vorname, String nachname, String strasse, String postleitzahl, String ort) {
+        return hash(normalize(vorname, nachname, strasse, postleitzahl, ort));
+    }
+
+    /**
+     * Normalisiert Name und Adresse (case-insensitive) zu einem einzigen String.
+     * Entspricht der bisherigen LOWER()-Prüfung auf allen fünf Spalten.
+     */
+    public static String normalize(String vorname, String nachname, String strasse, String postleitzahl, String ort) {
+        return new StringBuilder(128)
+            .append(lower(vorname)).append(SEPARATOR)
+            .append(lower(nachname)).append(SEPARATOR)
+            .append(lower(strasse)).append(SEPARATOR)
+            .append(lower(postleitzahl)).append(SEPARATOR)
+            .append(lower(ort))
+            .toString();
+    }
+
+    private static String lower(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String hash(String normalized) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nicht verfügbar", e);
+        }
+    }
+}
@@ -4,12 +4,16 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "hashtag")
 public class Hashtag {
 
@@ -30,6 +34,10 @@ public class Hashtag {
     @Column(name = "gesperrt", nullable = false)
     private boolean gesperrt = false;
 
+    // Übergeordnetes Hashtag, wird zusammen mit der Closure-Tabelle ausschließlich per SQL gepflegt
+    @Column(name = "parent_id", insertable = false, updatable = false)
+    private Long parentId;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -106,6 +114,10 @@ public class Hashtag {
         this.gesperrt = gesperrt;
     }
 
+    public Long getParentId() {
+        return parentId;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
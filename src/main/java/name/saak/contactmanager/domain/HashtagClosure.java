@@ -0,0 +1,74 @@
+package name.saak.contactmanager.domain;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Eintrag der Closure-Tabelle der Hashtag-Hierarchie: ancestor ist Vorfahr von descendant
+ * im Abstand depth (0 = Selbstbezug). Wird nur gelesen; gepflegt wird die Tabelle per SQL im HashtagService.
+ */
+@Entity
+@Immutable
+@Table(name = "hashtag_closure")
+@IdClass(HashtagClosure.Key.class)
+public class HashtagClosure {
+
+    @Id
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    protected HashtagClosure() {
+    }
+
+    public Long getAncestorId() {
+        return ancestorId;
+    }
+
+    public Long getDescendantId() {
+        return descendantId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Zusammengesetzter Primärschlüssel.
+     */
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 202610191200L;
+
+        private Long ancestorId;
+        private Long descendantId;
+
+        public Key() {
+        }
+
+        public Key(Long ancestorId, Long descendantId) {
+            this.ancestorId = ancestorId;
+            this.descendantId = descendantId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(ancestorId, key.ancestorId) && Objects.equals(descendantId, key.descendantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ancestorId, descendantId);
+        }
+    }
+}
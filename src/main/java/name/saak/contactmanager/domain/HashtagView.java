@@ -0,0 +1,13 @@
+package name.saak.contactmanager.domain;
+
+/**
+ * Unveränderliche Sicht auf ein Hashtag.
+ * Wird in Caches und Snapshots geteilt, ohne verwaltete Entities herauszugeben.
+ */
+public record HashtagView(Long id, String name, String beschreibung, boolean gesperrt, Long parentId) {
+
+    public static HashtagView of(Hashtag hashtag) {
+        return new HashtagView(hashtag.getId(), hashtag.getName(), hashtag.getBeschreibung(), hashtag.isGesperrt(),
+                               hashtag.getParentId());
+    }
+}
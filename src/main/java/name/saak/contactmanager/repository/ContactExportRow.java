@@ -0,0 +1,53 @@
+package name.saak.contactmanager.repository;
+
+/**
+ * Projektion auf die Spalten, die für Exporte benötigt werden.
+ * Wird nicht vom Persistence Context verwaltet und eignet sich daher für gestreamte Exporte.
+ * Die zusammengesetzten Spalten (Vorname_Name, PLZ/Ort) sind für alle Exportformate gleich definiert.
+ */
+public record ContactExportRow(
+    Long id,
+    String firma,
+    String anrede,
+    String vorname,
+    String nachname,
+    String strasse,
+    String postleitzahl,
+    String ort
+) {
+
+    /**
+     * Format: "Vorname Nachname" wenn Vorname existiert, sonst nur "Nachname".
+     */
+    public String vornameName() {
+        return appendVornameName(new StringBuilder()).toString();
+    }
+
+    /**
+     * Format: "PLZ Ort" wenn PLZ existiert, sonst nur "Ort".
+     */
+    public String plzOrt() {
+        return appendPlzOrt(new StringBuilder()).toString();
+    }
+
+    /**
+     * Hängt Vorname_Name an, ohne einen Zwischen-String zu erzeugen.
+     */
+    public StringBuilder appendVornameName(StringBuilder target) {
+        return appendJoined(target, vorname, nachname);
+    }
+
+    /**
+     * Hängt PLZ/Ort an, ohne einen Zwischen-String zu erzeugen.
+     */
+    public StringBuilder appendPlzOrt(StringBuilder target) {
+        return appendJoined(target, postleitzahl, ort);
+    }
+
+    private static StringBuilder appendJoined(StringBuilder target, String first, String second) {
+        if (first != null && !first.isEmpty()) {
+            target.append(first).append(' ');
+        }
+        return second != null ? target.append(second) : target;
+    }
+}
@@ -0,0 +1,10 @@
+package name.saak.contactmanager.repository;
+
+/**
+ * Projektion auf eine Zeile der Zuordnungstabelle contact_hashtag.
+ */
+public record ContactHashtagAssignment(
+    Long contactId,
+    Long hashtagId
+) {
+}
@@ -0,0 +1,55 @@
+package name.saak.contactmanager.repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Projektion einer Zeile der Kontaktliste.
+ * Statt verwalteter Hashtag-Entities trägt jede Zeile nur die IDs ihrer aktiven Hashtags;
+ * Namen werden in der View über den gemeinsamen Hashtag-Snapshot aufgelöst.
+ */
+public record ContactListRow(
+    Long id,
+    String anrede,
+    String vorname,
+    String nachname,
+    String firma,
+    String bemerkung,
+    String strasse,
+    String postleitzahl,
+    String ort,
+    String telefon1,
+    String telefon2,
+    String email,
+    List<Integer> hashtagIds
+) {
+
+    public ContactListRow {
+        hashtagIds = List.copyOf(hashtagIds);
+    }
+
+    /**
+     * Konstruktor für JPQL-Projektionen (Hashtags werden separat ergänzt).
+     */
+    public ContactListRow(Long id, String anrede, String vorname, String nachname, String firma, String bemerkung,
+                          String strasse, String postleitzahl, String ort,
+                          String telefon1, String telefon2, String email) {
+        this(id, anrede, vorname, nachname, firma, bemerkung, strasse, postleitzahl, ort,
+             telefon1, telefon2, email, List.of());
+    }
+
+    /**
+     * Gibt eine Kopie mit den angegebenen aktiven Hashtag-IDs zurück.
+     */
+    public ContactListRow withHashtagIds(List<Integer> activeHashtagIds) {
+        return new ContactListRow(id, anrede, vorname, nachname, firma, bemerkung, strasse, postleitzahl, ort,
+                                  telefon1, telefon2, email, activeHashtagIds);
+    }
+
+    /**
+     * Hashtag-IDs als kommagetrennte Liste (für data-Attribute).
+     */
+    public String hashtagIdList() {
+        return hashtagIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,15 @@
+package name.saak.contactmanager.repository;
+
+/**
+ * Schlanke Projektion auf Name und Adresse eines Kontakts.
+ * Wird für Massenauswertungen verwendet, bei denen keine verwalteten Entities benötigt werden.
+ */
+public record ContactNameAddress(
+    Long id,
+    String vorname,
+    String nachname,
+    String strasse,
+    String postleitzahl,
+    String ort
+) {
+}
@@ -1,14 +1,20 @@
 package name.saak.contactmanager.repository;
 
+import jakarta.persistence.QueryHint;
 import name.saak.contactmanager.domain.Contact;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ContactRepository extends JpaRepository<Contact, Long> {
@@ -16,7 +22,7 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
     /**
      * Sucht Kontakte anhand eines Suchbegriffs mit eager loading der Hashtags.
      * Durchsucht alle Felder mit SQL LIKE (case-insensitive).
-     * WICHTIG: Lädt ALLE Hashtags (auch gesperrte), Filterung erfolgt in der View.
+     * WICHTIG: Lädt ALLE Hashtags (auch gesperrte); die Kontaktliste nutzt stattdessen die ContactListRow-Projektionen.
      */
     @Query("SELECT DISTINCT c FROM Contact c " +
            "LEFT JOIN FETCH c.hashtags " +
@@ -36,7 +42,7 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
 
     /**
      * Findet alle Kontakte sortiert nach Nachname, dann Vorname mit eager loading der Hashtags.
-     * WICHTIG: Lädt ALLE Hashtags (auch gesperrte), Filterung erfolgt in der View.
+     * WICHTIG: Lädt ALLE Hashtags (auch gesperrte); die Kontaktliste nutzt stattdessen die ContactListRow-Projektionen.
      */
     @Query("SELECT DISTINCT c FROM Contact c " +
            "LEFT JOIN FETCH c.hashtags " +
@@ -44,22 +50,122 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
     List<Contact> findAllByOrderByNachnameAscVornameAsc();
 
     /**
-     * Prüft ob ein Kontakt mit der gleichen Name-Adresse-Kombination existiert.
-     * Wird für Unique-Constraint-Validierung vor dem Speichern verwendet.
-     */
-    @Query("SELECT c FROM Contact c WHERE " +
-           "LOWER(c.vorname) = LOWER(:vorname) AND " +
-           "LOWER(c.nachname) = LOWER(:nachname) AND " +
-           "LOWER(c.strasse) = LOWER(:strasse) AND " +
-           "LOWER(c.postleitzahl) = LOWER(:postleitzahl) AND " +
-           "LOWER(c.ort) = LOWER(:ort)")
-    Optional<Contact> findByNameAndAddress(
-        @Param("vorname") String vorname,
-        @Param("nachname") String nachname,
-        @Param("strasse") String strasse,
-        @Param("postleitzahl") String postleitzahl,
-        @Param("ort") String ort
-    );
+     * Streamt die Exportspalten aller Kontakte mit dynamischer Sortierung.
+     * Die Zeilen werden mit fester Fetch-Size vom Cursor gelesen und nicht im Persistence Context gehalten.
+     * WICHTIG: Nur innerhalb einer Transaktion verwenden und den Stream schließen (gilt für alle streamExportRows*).
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new name.saak.contactmanager.repository.ContactExportRow(" +
+           "c.id, c.firma, c.anrede, c.vorname, c.nachname, c.strasse, c.postleitzahl, c.ort) " +
+           "FROM Contact c")
+    Stream<ContactExportRow> streamExportRows(Sort sort);
+
+    /**
+     * Streamt die Exportspalten der Kontakte, die die Volltextsuche der Kontaktliste findet.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new name.saak.contactmanager.repository.ContactExportRow(" +
+           "c.id, c.firma, c.anrede, c.vorname, c.nachname, c.strasse, c.postleitzahl, c.ort) " +
+           "FROM Contact c " +
+           "WHERE " +
+           "LOWER(c.vorname) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.nachname) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.strasse) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.postleitzahl) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.ort) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.anrede, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.telefon1, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.telefon2, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.email, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.firma, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.bemerkung, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    Stream<ContactExportRow> streamExportRowsBySearch(@Param("searchTerm") String searchTerm, Sort sort);
+
+    /**
+     * Zählt die Kontakte, die die Volltextsuche der Kontaktliste findet.
+     */
+    @Query("SELECT COUNT(c) FROM Contact c " +
+           "WHERE " +
+           "LOWER(c.vorname) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.nachname) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.strasse) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.postleitzahl) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.ort) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.anrede, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.telefon1, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.telefon2, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.email, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.firma, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.bemerkung, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    long countBySearch(@Param("searchTerm") String searchTerm);
+
+    /**
+     * Streamt die Exportspalten der Kontakte mit ALLEN angegebenen aktiven Hashtags (inkl. Unter-Hashtags).
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new name.saak.contactmanager.repository.ContactExportRow(" +
+           "c.id, c.firma, c.anrede, c.vorname, c.nachname, c.strasse, c.postleitzahl, c.ort) " +
+           "FROM Contact c " +
+           "WHERE c.id IN (" +
+           "  SELECT c2.id FROM Contact c2 " +
+           "  JOIN c2.hashtags h " +
+           "  JOIN HashtagClosure hc ON hc.descendantId = h.id " +
+           "  JOIN Hashtag a ON a.id = hc.ancestorId " +
+           "  WHERE LOWER(a.name) IN :hashtagNames " +
+           "  AND a.gesperrt = false AND h.gesperrt = false " +
+           "  GROUP BY c2.id " +
+           "  HAVING COUNT(DISTINCT a.name) = :count" +
+           ")")
+    Stream<ContactExportRow> streamExportRowsByAllHashtags(
+        @Param("hashtagNames") List<String> hashtagNames,
+        @Param("count") long count,
+        Sort sort);
+
+    /**
+     * Zählt die Kontakte mit ALLEN angegebenen aktiven Hashtags (inkl. Unter-Hashtags).
+     */
+    @Query("SELECT COUNT(c) FROM Contact c " +
+           "WHERE c.id IN (" +
+           "  SELECT c2.id FROM Contact c2 " +
+           "  JOIN c2.hashtags h " +
+           "  JOIN HashtagClosure hc ON hc.descendantId = h.id " +
+           "  JOIN Hashtag a ON a.id = hc.ancestorId " +
+           "  WHERE LOWER(a.name) IN :hashtagNames " +
+           "  AND a.gesperrt = false AND h.gesperrt = false " +
+           "  GROUP BY c2.id " +
+           "  HAVING COUNT(DISTINCT a.name) = :count" +
+           ")")
+    long countByAllHashtags(@Param("hashtagNames") List<String> hashtagNames, @Param("count") long count);
+
+    /**
+     * Lädt die Exportspalten der angegebenen Kontakte (Reihenfolge unbestimmt).
+     */
+    @Query("SELECT new name.saak.contactmanager.repository.ContactExportRow(" +
+           "c.id, c.firma, c.anrede, c.vorname, c.nachname, c.strasse, c.postleitzahl, c.ort) " +
+           "FROM Contact c WHERE c.id IN :ids")
+    List<ContactExportRow> findExportRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Findet die ID des Kontakts mit dem angegebenen fachlichen Schlüssel.
+     * Einzelner Zugriff über den Unique-Index uk_contact_business_key.
+     */
+    @Query("SELECT c.id FROM Contact c WHERE c.businessKey = :businessKey")
+    Optional<Long> findIdByBusinessKey(@Param("businessKey") String businessKey);
+
+    /**
+     * Lädt die fachlichen Schlüssel aller Kontakte (für den Filter der Live-Duplikatprüfung).
+     */
+    @Query("SELECT c.businessKey FROM Contact c")
+    List<String> findAllBusinessKeys();
 
     /**
      * Findet Kontakte nach Ort.
@@ -68,17 +174,20 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
 
     /**
      * Findet Kontakte die ALLE angegebenen Hashtags haben (AND-Logik) mit eager loading.
-     * Nur aktive (nicht gesperrte) Hashtags werden berücksichtigt.
+     * Ein Hashtag gilt auch als vorhanden, wenn der Kontakt ein Unter-Hashtag davon trägt
+     * (einzelner Join über die Closure-Tabelle). Nur aktive (nicht gesperrte) Hashtags werden berücksichtigt.
      */
     @Query("SELECT DISTINCT c FROM Contact c " +
            "LEFT JOIN FETCH c.hashtags " +
            "WHERE c.id IN (" +
            "  SELECT c2.id FROM Contact c2 " +
            "  JOIN c2.hashtags h " +
-           "  WHERE LOWER(h.name) IN :hashtagNames " +
-           "  AND h.gesperrt = false " +
+           "  JOIN HashtagClosure hc ON hc.descendantId = h.id " +
+           "  JOIN Hashtag a ON a.id = hc.ancestorId " +
+           "  WHERE LOWER(a.name) IN :hashtagNames " +
+           "  AND a.gesperrt = false AND h.gesperrt = false " +
            "  GROUP BY c2.id " +
-           "  HAVING COUNT(DISTINCT h.name) = :count" +
+           "  HAVING COUNT(DISTINCT a.name) = :count" +
            ") " +
            "ORDER BY c.nachname ASC, c.vorname ASC")
     List<Contact> findByAllHashtags(
@@ -86,15 +195,6 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
         @Param("count") long count
     );
 
-    /**
-     * Findet einen Kontakt mit eager loading aller Hashtags.
-     * Verhindert N+1 Probleme beim Laden der Hashtags.
-     */
-    @Query("SELECT DISTINCT c FROM Contact c " +
-           "LEFT JOIN FETCH c.hashtags " +
-           "WHERE c.id = :id")
-    Optional<Contact> findByIdWithActiveHashtags(@Param("id") Long id);
-
     /**
      * Findet alle Kontakt-IDs mit dynamischer Sortierung (ohne JOIN für korrekte Sortierung).
      */
@@ -103,7 +203,7 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
 
     /**
      * Findet Kontakte anhand von IDs mit eager loading.
-     * WICHTIG: Lädt ALLE Hashtags (auch gesperrte), Filterung erfolgt in der View.
+     * WICHTIG: Lädt ALLE Hashtags (auch gesperrte); die Kontaktliste nutzt stattdessen die ContactListRow-Projektionen.
      */
     @Query("SELECT DISTINCT c FROM Contact c " +
            "LEFT JOIN FETCH c.hashtags " +
@@ -127,4 +227,122 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
            "LOWER(COALESCE(c.firma, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(COALESCE(c.bemerkung, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<Long> searchContactIds(@Param("searchTerm") String searchTerm, Sort sort);
+
+    /**
+     * Lädt Name und Adresse aller Kontakte als Projektion (ohne Hashtags, ohne Persistence Context).
+     * Grundlage für die Dublettensuche.
+     */
+    @Query("SELECT new name.saak.contactmanager.repository.ContactNameAddress(" +
+           "c.id, c.vorname, c.nachname, c.strasse, c.postleitzahl, c.ort) " +
+           "FROM Contact c")
+    List<ContactNameAddress> findAllNameAddresses();
+
+    /**
+     * Lädt alle Kontakte als Listen-Projektion (ohne Hashtags, ohne Persistence Context).
+     */
+    @Query("SELECT new name.saak.contactmanager.repository.ContactListRow(" +
+           "c.id, c.anrede, c.vorname, c.nachname, c.firma, c.bemerkung, c.strasse, c.postleitzahl, c.ort, " +
+           "c.telefon1, c.telefon2, c.email) " +
+           "FROM Contact c")
+    List<ContactListRow> findAllListRows(Sort sort);
+
+    /**
+     * Sucht Kontakte als Listen-Projektion mit dynamischer Sortierung.
+     * Durchsucht dieselben Felder wie {@link #searchContacts(String)}.
+     */
+    @Query("SELECT new name.saak.contactmanager.repository.ContactListRow(" +
+           "c.id, c.anrede, c.vorname, c.nachname, c.firma, c.bemerkung, c.strasse, c.postleitzahl, c.ort, " +
+           "c.telefon1, c.telefon2, c.email) " +
+           "FROM Contact c " +
+           "WHERE " +
+           "LOWER(c.vorname) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.nachname) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.strasse) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.postleitzahl) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.ort) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.anrede, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.telefon1, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.telefon2, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.email, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.firma, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(COALESCE(c.bemerkung, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    List<ContactListRow> searchListRows(@Param("searchTerm") String searchTerm, Sort sort);
+
+    /**
+     * Findet Kontakte mit ALLEN angegebenen aktiven Hashtags (AND-Logik, inkl. Unter-Hashtags)
+     * als Listen-Projektion.
+     */
+    @Query("SELECT new name.saak.contactmanager.repository.ContactListRow(" +
+           "c.id, c.anrede, c.vorname, c.nachname, c.firma, c.bemerkung, c.strasse, c.postleitzahl, c.ort, " +
+           "c.telefon1, c.telefon2, c.email) " +
+           "FROM Contact c " +
+           "WHERE c.id IN (" +
+           "  SELECT c2.id FROM Contact c2 " +
+           "  JOIN c2.hashtags h " +
+           "  JOIN HashtagClosure hc ON hc.descendantId = h.id " +
+           "  JOIN Hashtag a ON a.id = hc.ancestorId " +
+           "  WHERE LOWER(a.name) IN :hashtagNames " +
+           "  AND a.gesperrt = false AND h.gesperrt = false " +
+           "  GROUP BY c2.id " +
+           "  HAVING COUNT(DISTINCT a.name) = :count" +
+           ")")
+    List<ContactListRow> findListRowsByAllHashtags(
+        @Param("hashtagNames") List<String> hashtagNames,
+        @Param("count") long count,
+        Sort sort
+    );
+
+    /**
+     * Lädt die Zuordnungen aktiver Hashtags für die angegebenen Kontakte, je Kontakt nach Hashtag-Name sortiert.
+     * Gesperrte Hashtags werden bereits in der Abfrage ausgefiltert.
+     */
+    @Query("SELECT new name.saak.contactmanager.repository.ContactHashtagAssignment(c.id, h.id) " +
+           "FROM Contact c JOIN c.hashtags h " +
+           "WHERE c.id IN :ids AND h.gesperrt = false " +
+           "ORDER BY c.id, h.name")
+    List<ContactHashtagAssignment> findActiveHashtagAssignments(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Lädt die Zuordnungen aktiver Hashtags aller Kontakte, je Kontakt nach Hashtag-Name sortiert.
+     */
+    @Query("SELECT new name.saak.contactmanager.repository.ContactHashtagAssignment(c.id, h.id) " +
+           "FROM Contact c JOIN c.hashtags h " +
+           "WHERE h.gesperrt = false " +
+           "ORDER BY c.id, h.name")
+    List<ContactHashtagAssignment> findAllActiveHashtagAssignments();
+
+    /**
+     * Lädt alle Kontakt-Hashtag-Zuordnungen, sortiert nach Kontakt.
+     * Grundlage für den Aufbau des Co-Occurrence-Index.
+     */
+    @Query("SELECT new name.saak.contactmanager.repository.ContactHashtagAssignment(c.id, h.id) " +
+           "FROM Contact c JOIN c.hashtags h ORDER BY c.id")
+    List<ContactHashtagAssignment> findAllHashtagAssignments();
+
+    /**
+     * Überträgt alle Hashtag-Zuordnungen eines Kontakts mengenbasiert auf einen anderen.
+     * Bereits vorhandene Zuordnungen des Ziels werden übersprungen.
+     *
+     * @return Anzahl neu angelegter Zuordnungen
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_hashtag"))
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO contact_hashtag (contact_id, hashtag_id) " +
+                   "SELECT :targetId, ch.hashtag_id FROM contact_hashtag ch " +
+                   "WHERE ch.contact_id = :sourceId " +
+                   "AND NOT EXISTS (SELECT 1 FROM contact_hashtag t " +
+                   "  WHERE t.contact_id = :targetId AND t.hashtag_id = ch.hashtag_id)",
+           nativeQuery = true)
+    int copyHashtagAssignments(@Param("sourceId") Long sourceId, @Param("targetId") Long targetId);
+
+    /**
+     * Löscht einen Kontakt direkt per SQL; die Hashtag-Zuordnungen entfernt der Fremdschlüssel (ON DELETE CASCADE).
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact"),
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_hashtag")
+    })
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM contact WHERE id = :id", nativeQuery = true)
+    int deleteContactRow(@Param("id") Long id);
 }
@@ -0,0 +1,22 @@
+package name.saak.contactmanager.repository;
+
+import name.saak.contactmanager.domain.HashtagView;
+
+/**
+ * Projektion einer Zeile der Hashtag-Verwaltung.
+ * Verbindet das gecachte Hashtag mit seinem Verwendungszähler, der nicht zum Hashtag-Zustand gehört.
+ */
+public record HashtagOverviewRow(
+    Long id,
+    String name,
+    String beschreibung,
+    boolean gesperrt,
+    Long parentId,
+    int usageCount
+) {
+
+    public static HashtagOverviewRow of(HashtagView hashtag, int usageCount) {
+        return new HashtagOverviewRow(hashtag.id(), hashtag.name(), hashtag.beschreibung(),
+                                      hashtag.gesperrt(), hashtag.parentId(), usageCount);
+    }
+}
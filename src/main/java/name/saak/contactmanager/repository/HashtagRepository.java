@@ -1,30 +1,52 @@
 package name.saak.contactmanager.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import name.saak.contactmanager.domain.Hashtag;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Die Namens- und Listenabfragen laufen über den Query-Cache. Jede native Änderung nennt die Tabellen, die sie liest
+ * oder schreibt, als Query Spaces; Hibernate leert danach die Cache-Regionen und Query-Ergebnisse dieser Tabellen.
+ *
+ * Der Verwendungszähler (hashtag.usage_count) gehört nicht zum gecachten Hashtag; Updates des Zählers nennen statt
+ * hashtag den Space {@link #USAGE_COUNT_SPACE}, damit eine Zuordnung nicht die ganze Hashtag-Region verwirft.
+ */
 @Repository
 public interface HashtagRepository extends JpaRepository<Hashtag, Long> {
 
+    /**
+     * Query Space der Spalte hashtag.usage_count. Keine Entity und keine gecachte Abfrage hängt davon ab.
+     */
+    String USAGE_COUNT_SPACE = "hashtag_usage_count";
+
     /**
      * Findet ein Hashtag anhand seines Namens (case-insensitive).
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Hashtag> findByNameIgnoreCase(String name);
 
     /**
      * Findet alle aktiven (nicht gesperrten) Hashtags sortiert nach Name.
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Hashtag> findByGesperrtFalseOrderByNameAsc();
 
     /**
      * Findet alle Hashtags sortiert nach Name.
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Hashtag> findAllByOrderByNameAsc();
 
     /**
@@ -42,4 +64,207 @@ public interface HashtagRepository extends JpaRepository<Hashtag, Long> {
      * Wird für Unique-Constraint-Validierung beim Update verwendet.
      */
     boolean existsByNameIgnoreCaseAndIdNot(String name, Long id);
+
+    /**
+     * Gibt die IDs aller Hashtags eines Kontakts zurück, ohne Entities zu laden.
+     */
+    @Query("SELECT h.id FROM Contact c JOIN c.hashtags h WHERE c.id = :contactId")
+    List<Long> findIdsByContactId(@Param("contactId") Long contactId);
+
+    /**
+     * Liest die Verwendungszähler aller Hashtags (nicht gecacht, für die Verwaltungsseite).
+     */
+    @Query(value = "SELECT id AS hashtagId, usage_count AS usageCount FROM hashtag", nativeQuery = true)
+    List<HashtagUsageCount> findUsageCounts();
+
+    /**
+     * Ändert den Verwendungszähler der angegebenen Hashtags um delta.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = USAGE_COUNT_SPACE))
+    @Modifying
+    @Query(value = "UPDATE hashtag SET usage_count = usage_count + :delta WHERE id IN :ids", nativeQuery = true)
+    int adjustUsageCount(@Param("ids") Collection<Long> ids, @Param("delta") int delta);
+
+    /**
+     * Verringert den Verwendungszähler aller Hashtags eines Kontakts um 1 (vor dem Löschen des Kontakts).
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = USAGE_COUNT_SPACE),
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_hashtag")
+    })
+    @Modifying
+    @Query(value = "UPDATE hashtag SET usage_count = usage_count - 1 " +
+                   "WHERE id IN (SELECT ch.hashtag_id FROM contact_hashtag ch WHERE ch.contact_id = :contactId)",
+           nativeQuery = true)
+    int decrementUsageForContact(@Param("contactId") Long contactId);
+
+    /**
+     * Verringert den Verwendungszähler der Hashtags, die beide Kontakte tragen.
+     * Beim Zusammenführen entfällt für diese Hashtags eine Zuordnung, alle anderen werden nur umgehängt.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = USAGE_COUNT_SPACE),
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_hashtag")
+    })
+    @Modifying
+    @Query(value = "UPDATE hashtag SET usage_count = usage_count - 1 " +
+                   "WHERE id IN (SELECT ch.hashtag_id FROM contact_hashtag ch " +
+                   "  WHERE ch.contact_id = :sourceId " +
+                   "  AND EXISTS (SELECT 1 FROM contact_hashtag t " +
+                   "    WHERE t.contact_id = :targetId AND t.hashtag_id = ch.hashtag_id))",
+           nativeQuery = true)
+    int decrementUsageForSharedHashtags(@Param("sourceId") Long sourceId, @Param("targetId") Long targetId);
+
+    /**
+     * Gleicht alle Verwendungszähler mit contact_hashtag ab.
+     *
+     * @return Anzahl korrigierter Hashtags
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = USAGE_COUNT_SPACE),
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_hashtag")
+    })
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE hashtag SET usage_count = " +
+                   "(SELECT COUNT(*) FROM contact_hashtag ch WHERE ch.hashtag_id = hashtag.id) " +
+                   "WHERE usage_count <> (SELECT COUNT(*) FROM contact_hashtag ch WHERE ch.hashtag_id = hashtag.id)",
+           nativeQuery = true)
+    int reconcileUsageCounts();
+
+    /**
+     * Lädt ein Hashtag und sperrt die Zeile bis zum Ende der Transaktion (z.B. für das Zusammenführen und Verschieben).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM Hashtag h WHERE h.id = :id")
+    Optional<Hashtag> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Hängt alle Zuordnungen von sourceId auf targetId um, sofern der Kontakt targetId noch nicht trägt.
+     *
+     * @return Anzahl umgehängter Zuordnungen
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_hashtag"))
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE contact_hashtag SET hashtag_id = :targetId " +
+                   "WHERE hashtag_id = :sourceId " +
+                   "AND NOT EXISTS (SELECT 1 FROM contact_hashtag t " +
+                   "  WHERE t.contact_id = contact_hashtag.contact_id AND t.hashtag_id = :targetId)",
+           nativeQuery = true)
+    int repointAssignments(@Param("sourceId") Long sourceId, @Param("targetId") Long targetId);
+
+    /**
+     * Löscht alle Zuordnungen eines Hashtags.
+     *
+     * @return Anzahl gelöschter Zuordnungen
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_hashtag"))
+    @Modifying
+    @Query(value = "DELETE FROM contact_hashtag WHERE hashtag_id = :hashtagId", nativeQuery = true)
+    int deleteAssignments(@Param("hashtagId") Long hashtagId);
+
+    /**
+     * Sperrt ein zusammengeführtes Hashtag, das keine Zuordnungen mehr hat.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag"))
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE hashtag SET gesperrt = TRUE, usage_count = 0, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE id = :id",
+           nativeQuery = true)
+    int lockMergedHashtag(@Param("id") Long id);
+
+    /**
+     * Löscht ein Hashtag ohne Zuordnungen, ohne die Kontakt-Collection zu laden.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag"),
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_hashtag"),
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag_closure")
+    })
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM hashtag WHERE id = :id", nativeQuery = true)
+    int deleteHashtagRow(@Param("id") Long id);
+
+    /**
+     * Prüft, ob ein Hashtag Unter-Hashtags hat.
+     */
+    boolean existsByParentId(Long parentId);
+
+    /**
+     * Prüft, ob descendantId im Teilbaum von ancestorId liegt (inkl. ancestorId selbst).
+     */
+    @Query("SELECT COUNT(hc) > 0 FROM HashtagClosure hc " +
+           "WHERE hc.ancestorId = :ancestorId AND hc.descendantId = :descendantId")
+    boolean isInSubtree(@Param("ancestorId") Long ancestorId, @Param("descendantId") Long descendantId);
+
+    /**
+     * Gibt die IDs aller Hashtags im Teilbaum zurück (inkl. des Hashtags selbst).
+     */
+    @Query("SELECT hc.descendantId FROM HashtagClosure hc WHERE hc.ancestorId = :id")
+    List<Long> findSubtreeIds(@Param("id") Long id);
+
+    /**
+     * Legt den Selbstbezug eines neuen Hashtags in der Closure-Tabelle an.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag_closure"))
+    @Modifying
+    @Query(value = "INSERT INTO hashtag_closure (ancestor_id, descendant_id, depth) VALUES (:id, :id, 0)",
+           nativeQuery = true)
+    int insertClosureSelf(@Param("id") Long id);
+
+    /**
+     * Hängt den Teilbaum unter id unter parentId ein: jeder Vorfahr von parentId wird Vorfahr
+     * jedes Knotens im Teilbaum.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag_closure"))
+    @Modifying
+    @Query(value = "INSERT INTO hashtag_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT p.ancestor_id, s.descendant_id, p.depth + s.depth + 1 " +
+                   "FROM hashtag_closure p, hashtag_closure s " +
+                   "WHERE p.descendant_id = :parentId AND s.ancestor_id = :id",
+           nativeQuery = true)
+    int attachSubtree(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * Löst den Teilbaum unter id von allen bisherigen Vorfahren (die Pfade innerhalb des Teilbaums bleiben).
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag_closure"))
+    @Modifying
+    @Query(value = "DELETE FROM hashtag_closure " +
+                   "WHERE descendant_id IN (SELECT t.descendant_id FROM hashtag_closure t WHERE t.ancestor_id = :id) " +
+                   "AND ancestor_id NOT IN (SELECT t.descendant_id FROM hashtag_closure t WHERE t.ancestor_id = :id)",
+           nativeQuery = true)
+    int detachSubtree(@Param("id") Long id);
+
+    /**
+     * Setzt das übergeordnete Hashtag.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag"))
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE hashtag SET parent_id = :parentId, updated_at = CURRENT_TIMESTAMP WHERE id = :id",
+           nativeQuery = true)
+    int updateParentId(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * Entfernt das übergeordnete Hashtag (Hashtag wird zur Wurzel).
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag"))
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE hashtag SET parent_id = NULL, updated_at = CURRENT_TIMESTAMP WHERE id = :id",
+           nativeQuery = true)
+    int clearParentId(@Param("id") Long id);
+
+    /**
+     * Sperrt oder entsperrt ein Hashtag samt aller Unter-Hashtags.
+     *
+     * @return Anzahl geänderter Hashtags
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag"),
+        @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "hashtag_closure")
+    })
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE hashtag SET gesperrt = :gesperrt, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE id IN (SELECT hc.descendant_id FROM hashtag_closure hc WHERE hc.ancestor_id = :id)",
+           nativeQuery = true)
+    int updateGesperrtForSubtree(@Param("id") Long id, @Param("gesperrt") boolean gesperrt);
 }
@@ -0,0 +1,12 @@
+package name.saak.contactmanager.repository;
+
+/**
+ * Projektion auf den Verwendungszähler eines Hashtags (hashtag.usage_count).
+ * Als Interface, da Spring Data native Abfragen nur auf Interface-Projektionen abbildet.
+ */
+public interface HashtagUsageCount {
+
+    Long getHashtagId();
+
+    int getUsageCount();
+}
@@ -0,0 +1,225 @@
+package name.saak.contactmanager.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Persistenter Katalog der Backups im Backup-Verzeichnis (backup-catalog.tsv).
+ *
+ * Je Backup werden Typ, Zeitstempel, Größe, logische Größe und SHA-256 festgehalten, dazu der belegte Platz des
+ * Chunk-Speichers. Statistik, Bereinigung und Restore lesen den Katalog statt das Verzeichnis zu durchsuchen;
+ * Summen werden bei jeder Änderung fortgeschrieben. Fehlt die Datei (z.B. nach einem Update), wird sie einmalig
+ * aus dem Verzeichnisinhalt aufgebaut.
+ */
+final class BackupCatalog {
+
+    static final String FILE_NAME = "backup-catalog.tsv";
+    private static final String HEADER = "# contactdb-backup-catalog 1: datei, typ, zeitstempel, größe, logische größe, sha-256";
+    private static final Comparator<Entry> ORDER =
+        Comparator.comparing(Entry::timestamp).thenComparing(Entry::fileName);
+
+    /**
+     * Art des Backups: vollständiges Basis-Backup (Archiv oder Manifest) oder Delta.
+     */
+    enum BackupType {
+        FULL, INCREMENTAL
+    }
+
+    /**
+     * Ein Backup im Katalog.
+     *
+     * @param sizeBytes belegter Platz der Datei (bei Manifesten ohne Chunks)
+     * @param logicalSizeBytes Größe der gesicherten Daten
+     */
+    record Entry(String fileName, BackupType type, LocalDateTime timestamp, long sizeBytes, long logicalSizeBytes,
+                 String checksum) {
+    }
+
+    /**
+     * Inhalt für den erstmaligen Aufbau des Katalogs.
+     */
+    record Contents(List<Entry> entries, long chunkBytes) {
+    }
+
+    @FunctionalInterface
+    interface DirectoryScanner {
+        Contents scan() throws IOException;
+    }
+
+    private final Path file;
+    private final DirectoryScanner scanner;
+    private final TreeSet<Entry> entries = new TreeSet<>(ORDER);
+    private boolean loaded;
+    private long sizeBytes;
+    private long logicalSizeBytes;
+    private long chunkBytes;
+
+    BackupCatalog(Path backupDirectory, DirectoryScanner scanner) {
+        this.file = backupDirectory.resolve(FILE_NAME);
+        this.scanner = scanner;
+    }
+
+    /**
+     * Nimmt ein neues Backup auf.
+     *
+     * @param newChunkBytes dabei neu geschriebene Chunks
+     */
+    synchronized void add(Entry entry, long newChunkBytes) throws IOException {
+        load();
+        addEntry(entry);
+        chunkBytes += newChunkBytes;
+        save();
+    }
+
+    /**
+     * Entfernt Backups, deren Dateien gelöscht wurden.
+     *
+     * @param freedChunkBytes dabei freigegebene Chunks
+     */
+    synchronized void remove(Collection<Entry> removed, long freedChunkBytes) throws IOException {
+        load();
+        for (Entry entry : removed) {
+            if (entries.remove(entry)) {
+                sizeBytes -= entry.sizeBytes();
+                logicalSizeBytes -= entry.logicalSizeBytes();
+            }
+        }
+        chunkBytes = Math.max(0, chunkBytes - freedChunkBytes);
+        save();
+    }
+
+    /**
+     * Alle Backups, ältestes zuerst.
+     */
+    synchronized List<Entry> entries() throws IOException {
+        load();
+        return new ArrayList<>(entries);
+    }
+
+    synchronized Optional<Entry> newestFull() throws IOException {
+        load();
+        return entries.descendingSet().stream().filter(entry -> entry.type() == BackupType.FULL).findFirst();
+    }
+
+    synchronized int count() throws IOException {
+        load();
+        return entries.size();
+    }
+
+    synchronized Optional<Entry> newest() throws IOException {
+        load();
+        return entries.isEmpty() ? Optional.empty() : Optional.of(entries.last());
+    }
+
+    /**
+     * Belegter Platz aller Backups einschließlich Chunk-Speicher.
+     */
+    synchronized long totalSizeBytes() throws IOException {
+        load();
+        return sizeBytes + chunkBytes;
+    }
+
+    synchronized long logicalSizeBytes() throws IOException {
+        load();
+        return logicalSizeBytes;
+    }
+
+    /**
+     * SHA-256 einer Backup-Datei.
+     */
+    static String checksum(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        if (!Files.exists(file)) {
+            Contents contents = scanner.scan();
+            contents.entries().forEach(this::addEntry);
+            chunkBytes = contents.chunkBytes();
+            loaded = true;
+            if (Files.isDirectory(file.getParent())) {
+                save();
+            }
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields[0].equals("chunks")) {
+                    chunkBytes = Long.parseLong(fields[1]);
+                    continue;
+                }
+                if (fields.length != 6) {
+                    throw new IOException("Invalid backup catalog line: " + line);
+                }
+                addEntry(new Entry(fields[0], BackupType.valueOf(fields[1]), LocalDateTime.parse(fields[2]),
+                    Long.parseLong(fields[3]), Long.parseLong(fields[4]), fields[5]));
+            }
+        }
+        loaded = true;
+    }
+
+    private void addEntry(Entry entry) {
+        if (entries.add(entry)) {
+            sizeBytes += entry.sizeBytes();
+            logicalSizeBytes += entry.logicalSizeBytes();
+        }
+    }
+
+    /**
+     * Schreibt den Katalog atomar neu; er umfasst nur wenige hundert Zeilen.
+     */
+    private void save() throws IOException {
+        Path partFile = file.resolveSibling(FILE_NAME + ".part");
+        try {
+            try (Writer writer = Files.newBufferedWriter(partFile, StandardCharsets.UTF_8)) {
+                writer.write(HEADER + "\n");
+                writer.write("chunks\t" + chunkBytes + "\n");
+                for (Entry entry : entries) {
+                    writer.write(entry.fileName() + "\t" + entry.type() + "\t" + entry.timestamp() + "\t"
+                        + entry.sizeBytes() + "\t" + entry.logicalSizeBytes() + "\t" + entry.checksum() + "\n");
+                }
+            }
+            Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package name.saak.contactmanager.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Einstellungen des {@link DatabaseBackupService} (app.backup). Zeitpläne, Restore und Offsite-Replikation lesen
+ * ihre Schlüssel unter app.backup weiterhin selbst.
+ *
+ * @param directory Verzeichnis der Backups
+ * @param enabled geplante Backups ausführen
+ * @param incremental regulärer Lauf schreibt nur Deltas aus dem Change-Journal
+ * @param snapshotFirst erst SQL-Snapshot, Archiv danach ohne laufende Datenbank erstellen
+ * @param stagingDirectory Arbeitsverzeichnis für Snapshots, ohne Angabe java.io.tmpdir
+ * @param maxWriteRate Schreibrate pro Sekunde, 0 = unbegrenzt
+ * @param deduplicate Basis-Backups als Manifest mit deduplizierten Chunks statt als ZIP
+ * @param format native, logical oder auto (native nur bei H2)
+ * @param retention Aufbewahrung nach dem Großvater-Vater-Sohn-Prinzip
+ */
+@ConfigurationProperties("app.backup")
+public record BackupProperties(
+        @DefaultValue("./backup") String directory,
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("false") boolean incremental,
+        @DefaultValue("false") boolean snapshotFirst,
+        String stagingDirectory,
+        @DefaultValue("0") DataSize maxWriteRate,
+        @DefaultValue("false") boolean deduplicate,
+        @DefaultValue("auto") String format,
+        @DefaultValue Retention retention) {
+
+    public BackupProperties {
+        if (stagingDirectory == null) {
+            stagingDirectory = System.getProperty("java.io.tmpdir");
+        }
+    }
+
+    /**
+     * Je Zeitraum bleibt das neueste Backup (0 = Stufe aus), siehe {@link BackupRetentionPolicy}.
+     */
+    public record Retention(
+            @DefaultValue("24") int hourly,
+            @DefaultValue("7") int daily,
+            @DefaultValue("4") int weekly,
+            @DefaultValue("12") int monthly) {
+    }
+}
@@ -0,0 +1,102 @@
+package name.saak.contactmanager.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Großvater-Vater-Sohn-Aufbewahrung: Behalten wird je Stunde, Tag, Woche und Monat das neueste Backup, jeweils
+ * für die letzten n Stunden, Tage, Wochen bzw. Monate (Kalenderzeiträume einschließlich des laufenden).
+ * Stündliche Backups werden so mit der Zeit zu täglichen, wöchentlichen und monatlichen ausgedünnt.
+ *
+ * Ein behaltenes Delta ist nur mit seinem Basis-Backup und allen Deltas dazwischen wiederherstellbar; diese
+ * bleiben daher ebenfalls erhalten. Das neueste Backup bleibt immer erhalten.
+ */
+final class BackupRetentionPolicy {
+
+    private final int hourly;
+    private final int daily;
+    private final int weekly;
+    private final int monthly;
+
+    BackupRetentionPolicy(int hourly, int daily, int weekly, int monthly) {
+        this.hourly = hourly;
+        this.daily = daily;
+        this.weekly = weekly;
+        this.monthly = monthly;
+    }
+
+    /**
+     * Ermittelt die zu behaltenden Backups.
+     *
+     * @param entries alle Backups, ältestes zuerst
+     */
+    Set<BackupCatalog.Entry> retain(List<BackupCatalog.Entry> entries, LocalDateTime now) {
+        Set<BackupCatalog.Entry> selected = new LinkedHashSet<>();
+        if (entries.isEmpty()) {
+            return selected;
+        }
+        selected.add(entries.get(entries.size() - 1));
+        selectNewestPerPeriod(entries, selected, hourly, now,
+            time -> time.truncatedTo(ChronoUnit.HOURS), time -> time.minusHours(1));
+        selectNewestPerPeriod(entries, selected, daily, now,
+            time -> time.truncatedTo(ChronoUnit.DAYS), time -> time.minusDays(1));
+        selectNewestPerPeriod(entries, selected, weekly, now,
+            time -> time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+            time -> time.minusWeeks(1));
+        selectNewestPerPeriod(entries, selected, monthly, now,
+            time -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1), time -> time.minusMonths(1));
+
+        // Basis-Backup und vorangehende Deltas jedes behaltenen Deltas
+        Set<BackupCatalog.Entry> retained = new LinkedHashSet<>();
+        for (int i = 0; i < entries.size(); i++) {
+            BackupCatalog.Entry entry = entries.get(i);
+            if (!selected.contains(entry)) {
+                continue;
+            }
+            retained.add(entry);
+            for (int j = i - 1; j >= 0 && entry.type() == BackupCatalog.BackupType.INCREMENTAL; j--) {
+                retained.add(entries.get(j));
+                if (entries.get(j).type() == BackupCatalog.BackupType.FULL) {
+                    break;
+                }
+            }
+        }
+        return retained;
+    }
+
+    /**
+     * Wählt in jedem der letzten {@code periods} Zeiträume das neueste Backup.
+     *
+     * @param periodStart Beginn des Zeitraums eines Zeitpunkts
+     * @param previous Verschiebung um einen Zeitraum zurück
+     */
+    private static void selectNewestPerPeriod(List<BackupCatalog.Entry> entries, Set<BackupCatalog.Entry> selected,
+                                              int periods, LocalDateTime now, UnaryOperator<LocalDateTime> periodStart,
+                                              UnaryOperator<LocalDateTime> previous) {
+        if (periods <= 0) {
+            return;
+        }
+        LocalDateTime oldestPeriod = periodStart.apply(now);
+        for (int i = 1; i < periods; i++) {
+            oldestPeriod = periodStart.apply(previous.apply(oldestPeriod));
+        }
+
+        Map<LocalDateTime, BackupCatalog.Entry> newestPerPeriod = new HashMap<>();
+        for (BackupCatalog.Entry entry : entries) {
+            LocalDateTime period = periodStart.apply(entry.timestamp());
+            if (!period.isBefore(oldestPeriod)) {
+                // Aufsteigend sortiert: das letzte gewinnt
+                newestPerPeriod.put(period, entry);
+            }
+        }
+        selected.addAll(newestPerPeriod.values());
+    }
+}
@@ -0,0 +1,76 @@
+package name.saak.contactmanager.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-sicherer Bloom-Filter über fachliche Kontakt-Schlüssel (SHA-256 als Hex-String).
+ * Da die Schlüssel bereits gleichverteilte Hashes sind, werden die Bit-Positionen
+ * per Double Hashing direkt aus den ersten 128 Bit des Schlüssels abgeleitet.
+ */
+class BusinessKeyBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions erwartete Anzahl Schlüssel
+     * @param falsePositiveRate gewünschte Fehlerrate für "vielleicht vorhanden" (z.B. 0.01)
+     */
+    BusinessKeyBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, m);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Fügt einen Schlüssel hinzu.
+     */
+    void put(String businessKey) {
+        long h1 = Long.parseUnsignedLong(businessKey, 0, 16, 16);
+        long h2 = Long.parseUnsignedLong(businessKey, 16, 32, 16);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            setBit(index);
+        }
+    }
+
+    /**
+     * Prüft, ob ein Schlüssel vorhanden sein könnte.
+     *
+     * @return false = sicher nicht vorhanden, true = vielleicht vorhanden
+     */
+    boolean mightContain(String businessKey) {
+        long h1 = Long.parseUnsignedLong(businessKey, 0, 16, 16);
+        long h2 = Long.parseUnsignedLong(businessKey, 16, 32, 16);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+}
@@ -0,0 +1,419 @@
+package name.saak.contactmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delta eines inkrementellen Backups: die seit dem letzten Backup in change_journal erfassten Schlüssel.
+ *
+ * Geschrieben wird je geändertem Schlüssel der aktuelle Zeilenstand (MERGE) bzw. ein DELETE, wenn die Zeile
+ * nicht mehr existiert. Ein Delta ist dadurch idempotent und wird beim Restore per RUNSCRIPT in Reihenfolge
+ * auf das Basis-Backup angewendet. Journal und Zeilen müssen in derselben Snapshot-Transaktion gelesen werden.
+ */
+final class ChangeJournalDelta {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeJournalDelta.class);
+    private static final int BATCH_SIZE = 500;
+    private static final String TRIGGER_CLASS = "name.saak.contactmanager.config.ChangeJournalTrigger";
+    // Journal-Eintrag ohne Tabelle: Änderungen seit dem letzten Basis-Backup wurden nicht vollständig erfasst
+    private static final String BASE_BACKUP_MARKER = "*";
+
+    /**
+     * Erfasste Tabellen in Schreibreihenfolge: Stammdaten vor Zuordnungen (gelöscht wird umgekehrt).
+     */
+    private static final List<JournalTable> TABLES = List.of(
+        new JournalTable("hashtag", "id", null),
+        new JournalTable("contact", "id", null),
+        new JournalTable("hashtag_closure", "ancestor_id", "descendant_id"),
+        new JournalTable("contact_hashtag", "contact_id", "hashtag_id"));
+
+    private final List<Long> journalIds;
+    private final Map<JournalTable, Set<RowKey>> changedKeys;
+
+    private ChangeJournalDelta(List<Long> journalIds, Map<JournalTable, Set<RowKey>> changedKeys) {
+        this.journalIds = journalIds;
+        this.changedKeys = changedKeys;
+    }
+
+    /**
+     * Liest alle sichtbaren Journal-Einträge. Schlüssel, die mehrfach geändert wurden, erscheinen nur einmal.
+     */
+    static ChangeJournalDelta read(Connection connection) throws SQLException {
+        List<Long> journalIds = new ArrayList<>();
+        Map<JournalTable, Set<RowKey>> changedKeys = new LinkedHashMap<>();
+
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                 "SELECT id, table_name, row_id, ref_id FROM change_journal ORDER BY id")) {
+            while (rs.next()) {
+                journalIds.add(rs.getLong(1));
+                String tableName = rs.getString(2);
+                JournalTable table = TABLES.stream()
+                    .filter(t -> t.name().equals(tableName))
+                    .findFirst()
+                    .orElse(null);
+                if (BASE_BACKUP_MARKER.equals(tableName)) {
+                    continue;
+                }
+                if (table == null) {
+                    log.warn("Ignoring change journal entry for unknown table {}", tableName);
+                    continue;
+                }
+                long rowId = rs.getLong(3);
+                long refId = rs.getLong(4);
+                changedKeys.computeIfAbsent(table, t -> new LinkedHashSet<>())
+                    .add(new RowKey(rowId, rs.wasNull() ? null : refId));
+            }
+        }
+        return new ChangeJournalDelta(journalIds, changedKeys);
+    }
+
+    /**
+     * Legt fehlende Trigger auf den erfassten Tabellen an (nur H2). Fehlte mindestens einer, wurden Änderungen
+     * seit dem letzten Backup nicht erfasst; ein Marker im Journal verlangt dann ein neues Basis-Backup.
+     *
+     * @return ob Trigger angelegt wurden
+     */
+    static boolean installTriggers(Connection connection) throws SQLException {
+        Set<String> existing = existingTriggers(connection);
+        List<JournalTable> missing = TABLES.stream()
+            .filter(table -> !existing.contains(triggerName(table)))
+            .toList();
+        if (missing.isEmpty()) {
+            return false;
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (JournalTable table : missing) {
+                statement.execute("CREATE TRIGGER IF NOT EXISTS " + triggerName(table)
+                    + " AFTER INSERT, UPDATE, DELETE ON " + table.name()
+                    + " FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+            }
+            statement.execute("INSERT INTO change_journal (table_name, row_id, operation) VALUES ('"
+                + BASE_BACKUP_MARKER + "', 0, 'F')");
+        }
+        return true;
+    }
+
+    /**
+     * Entfernt die Trigger und leert das Journal, das ohne inkrementelle Backups niemand mehr bereinigt.
+     *
+     * @return ob Trigger entfernt wurden
+     */
+    static boolean dropTriggers(Connection connection) throws SQLException {
+        if (existingTriggers(connection).isEmpty()) {
+            return false;
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (JournalTable table : TABLES) {
+                statement.execute("DROP TRIGGER IF EXISTS " + triggerName(table));
+            }
+            statement.execute("TRUNCATE TABLE change_journal");
+        }
+        return true;
+    }
+
+    /**
+     * Gibt an, ob das Journal seit dem letzten Basis-Backup lückenhaft ist (siehe {@link #installTriggers}).
+     */
+    static boolean isBaseBackupRequired(Connection connection) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT COUNT(*) FROM change_journal WHERE table_name = ?")) {
+            query.setString(1, BASE_BACKUP_MARKER);
+            try (ResultSet rs = query.executeQuery()) {
+                rs.next();
+                return rs.getLong(1) > 0;
+            }
+        }
+    }
+
+    private static Set<String> existingTriggers(Connection connection) throws SQLException {
+        Set<String> triggers = new LinkedHashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT trigger_name FROM information_schema.triggers")) {
+            while (rs.next()) {
+                triggers.add(rs.getString(1).toLowerCase(Locale.ROOT));
+            }
+        }
+        triggers.retainAll(TABLES.stream().map(ChangeJournalDelta::triggerName).toList());
+        return triggers;
+    }
+
+    private static String triggerName(JournalTable table) {
+        return "trg_" + table.name() + "_journal";
+    }
+
+    /**
+     * Liest nur die IDs der sichtbaren Journal-Einträge (für das Aufräumen nach einem Basis-Backup).
+     */
+    static List<Long> readJournalIds(Connection connection) throws SQLException {
+        List<Long> journalIds = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id FROM change_journal ORDER BY id")) {
+            while (rs.next()) {
+                journalIds.add(rs.getLong(1));
+            }
+        }
+        return journalIds;
+    }
+
+    /**
+     * Löscht die übergebenen Journal-Einträge. Es wird bewusst nicht per ID-Bereich gelöscht: Einträge noch offener
+     * Transaktionen können kleinere IDs haben, waren beim Lesen aber nicht sichtbar und gehören ins nächste Delta.
+     */
+    static void prune(Connection connection, List<Long> journalIds) throws SQLException {
+        if (journalIds.isEmpty()) {
+            return;
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM change_journal WHERE id = ?")) {
+            int pending = 0;
+            for (Long id : journalIds) {
+                delete.setLong(1, id);
+                delete.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    delete.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                delete.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Nach dem Einspielen aller Deltas: Journal leeren und die Identity-Spalten hinter die höchste ID setzen,
+     * da MERGE mit expliziten IDs die Zähler nicht weiterschaltet.
+     */
+    static void finishRestore(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE change_journal");
+            for (JournalTable table : TABLES) {
+                if (table.refColumn() != null) {
+                    continue;
+                }
+                long next;
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT COALESCE(MAX(" + table.keyColumn() + "), 0) + 1 FROM " + table.name())) {
+                    rs.next();
+                    next = rs.getLong(1);
+                }
+                statement.execute("ALTER TABLE " + table.name() + " ALTER COLUMN " + table.keyColumn()
+                    + " RESTART WITH " + next);
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return journalIds.isEmpty();
+    }
+
+    List<Long> getJournalIds() {
+        return Collections.unmodifiableList(journalIds);
+    }
+
+    int getChangedRowCount() {
+        return changedKeys.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Schreibt das Delta als SQL-Skript.
+     */
+    void writeScript(Connection connection, Writer out) throws SQLException, IOException {
+        out.write("-- Inkrementelles Backup: " + journalIds.size() + " Journal-Einträge, "
+            + getChangedRowCount() + " Zeilen\n");
+        // Zwischenstände sind nicht zwingend referenziell konsistent, erst das Ergebnis aller Deltas
+        out.write("SET REFERENTIAL_INTEGRITY FALSE;\n");
+
+        // Erst löschen (Zuordnungen vor Stammdaten), dann schreiben: Ein gelöschter und mit gleichem eindeutigen
+        // Schlüssel (Name und Adresse, Hashtag-Name) neu angelegter Datensatz kollidiert sonst beim MERGE mit
+        // der alten Zeile. REFERENTIAL_INTEGRITY schaltet nur Fremdschlüssel ab, keine Unique-Constraints.
+        StringBuilder statement = new StringBuilder(128);
+        for (int i = TABLES.size() - 1; i >= 0; i--) {
+            JournalTable table = TABLES.get(i);
+            Set<RowKey> keys = changedKeys.get(table);
+            if (keys == null) {
+                continue;
+            }
+            for (RowKey key : findDeletedKeys(connection, table, keys)) {
+                statement.setLength(0);
+                appendDeletes(statement, table, key);
+                out.append(statement);
+            }
+        }
+
+        for (JournalTable table : TABLES) {
+            Set<RowKey> keys = changedKeys.get(table);
+            if (keys != null) {
+                writeMerges(connection, table, keys, out);
+            }
+        }
+
+        out.write("SET REFERENTIAL_INTEGRITY TRUE;\n");
+    }
+
+    /**
+     * Gibt die Schlüssel zurück, deren Zeile nicht mehr existiert.
+     */
+    private static List<RowKey> findDeletedKeys(Connection connection, JournalTable table, Set<RowKey> keys)
+            throws SQLException, IOException {
+        Set<RowKey> missing = new LinkedHashSet<>(keys);
+        String columns = table.refColumn() != null
+            ? table.keyColumn() + ", " + table.refColumn()
+            : table.keyColumn();
+        forEachRow(connection, table, columns, keys, rs -> missing.remove(rowKey(table, rs)));
+        return new ArrayList<>(missing);
+    }
+
+    /**
+     * Schreibt MERGE-Anweisungen für alle noch vorhandenen Zeilen.
+     */
+    private static void writeMerges(Connection connection, JournalTable table, Set<RowKey> keys, Writer out)
+            throws SQLException, IOException {
+        StringBuilder statement = new StringBuilder(512);
+        forEachRow(connection, table, "*", keys, rs -> {
+            // Bei Verknüpfungstabellen liefert die Abfrage auch unveränderte Zuordnungen
+            if (keys.contains(rowKey(table, rs))) {
+                statement.setLength(0);
+                appendMerge(statement, table, rs, rs.getMetaData());
+                out.append(statement);
+            }
+        });
+    }
+
+    /**
+     * Liest die Zeilen zu den Schlüsseln in Blöcken von {@value #BATCH_SIZE} Werten der ersten Schlüsselspalte.
+     */
+    private static void forEachRow(Connection connection, JournalTable table, String columns, Set<RowKey> keys,
+                                   RowHandler handler) throws SQLException, IOException {
+        List<Long> rowIds = keys.stream().map(RowKey::rowId).distinct().toList();
+        for (int from = 0; from < rowIds.size(); from += BATCH_SIZE) {
+            List<Long> batch = rowIds.subList(from, Math.min(rowIds.size(), from + BATCH_SIZE));
+            String sql = "SELECT " + columns + " FROM " + table.name() + " WHERE " + table.keyColumn() + " IN ("
+                + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")";
+
+            try (PreparedStatement select = connection.prepareStatement(sql)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    select.setLong(i + 1, batch.get(i));
+                }
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        handler.handle(rs);
+                    }
+                }
+            }
+        }
+    }
+
+    private static RowKey rowKey(JournalTable table, ResultSet rs) throws SQLException {
+        return new RowKey(rs.getLong(table.keyColumn()),
+            table.refColumn() != null ? rs.getLong(table.refColumn()) : null);
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private static void appendMerge(StringBuilder statement, JournalTable table, ResultSet rs,
+                                    ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        statement.append("MERGE INTO ").append(table.name()).append(" (");
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                statement.append(", ");
+            }
+            statement.append(metaData.getColumnName(i).toLowerCase(Locale.ROOT));
+        }
+        statement.append(") KEY (").append(table.keyColumn());
+        if (table.refColumn() != null) {
+            statement.append(", ").append(table.refColumn());
+        }
+        statement.append(") VALUES (");
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                statement.append(", ");
+            }
+            appendLiteral(statement, rs.getString(i), metaData.getColumnType(i));
+        }
+        statement.append(");\n");
+    }
+
+    /**
+     * Löscht die Zeile und - da das Skript ohne referenzielle Integrität läuft - auch abhängige Zuordnungen.
+     */
+    private static void appendDeletes(StringBuilder statement, JournalTable table, RowKey key) {
+        statement.append("DELETE FROM ").append(table.name())
+            .append(" WHERE ").append(table.keyColumn()).append(" = ").append(key.rowId());
+        if (table.refColumn() != null) {
+            statement.append(" AND ").append(table.refColumn()).append(" = ").append(key.refId());
+        }
+        statement.append(";\n");
+
+        switch (table.name()) {
+            case "contact" -> statement.append("DELETE FROM contact_hashtag WHERE contact_id = ")
+                .append(key.rowId()).append(";\n");
+            case "hashtag" -> statement
+                .append("DELETE FROM contact_hashtag WHERE hashtag_id = ").append(key.rowId()).append(";\n")
+                .append("DELETE FROM hashtag_closure WHERE ancestor_id = ").append(key.rowId())
+                .append(" OR descendant_id = ").append(key.rowId()).append(";\n");
+            default -> {
+                // Verknüpfungstabellen haben keine abhängigen Zeilen
+            }
+        }
+    }
+
+    private static void appendLiteral(StringBuilder statement, String value, int sqlType) {
+        if (value == null) {
+            statement.append("NULL");
+            return;
+        }
+        switch (sqlType) {
+            case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT, Types.DECIMAL, Types.NUMERIC,
+                 Types.DOUBLE, Types.FLOAT, Types.REAL, Types.BOOLEAN, Types.BIT -> statement.append(value);
+            default -> {
+                // Übrige Typen (Texte, Zeitstempel) als String-Literal; H2 konvertiert in den Spaltentyp
+                statement.append('\'');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '\'') {
+                        statement.append('\'');
+                    }
+                    statement.append(c);
+                }
+                statement.append('\'');
+            }
+        }
+    }
+
+    private record JournalTable(String name, String keyColumn, String refColumn) {
+    }
+
+    private record RowKey(long rowId, Long refId) {
+    }
+}
@@ -0,0 +1,107 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.repository.ContactExportRow;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service für Kontakt-Exporte in allen verfügbaren Formaten.
+ * Lädt die Exportzeilen (gefiltert und gestreamt oder als Auswahl) und übergibt sie dem Writer des gewünschten Formats.
+ */
+@Service
+public class ContactExportService {
+
+    private final ContactService contactService;
+    private final Map<String, ContactExportWriter> writers;
+
+    public ContactExportService(ContactService contactService, List<ContactExportWriter> writers) {
+        this.contactService = contactService;
+        this.writers = writers.stream()
+            .collect(Collectors.toUnmodifiableMap(ContactExportWriter::getFormat, Function.identity()));
+    }
+
+    /**
+     * Gibt den Writer für ein Format zurück.
+     *
+     * @param format Formatkürzel (xlsx, csv, vcf, pdf), optional mit Variante (z.B. pdf-3474),
+     *               Groß-/Kleinschreibung egal
+     * @throws UnknownExportFormatException wenn das Format nicht unterstützt wird
+     */
+    public ContactExportWriter getWriter(String format) {
+        ContactExportWriter writer = null;
+        if (format != null) {
+            String normalized = format.toLowerCase(Locale.ROOT);
+            int dash = normalized.indexOf('-');
+            writer = writers.get(dash < 0 ? normalized : normalized.substring(0, dash));
+            if (writer != null && dash >= 0) {
+                writer = writer.variant(normalized.substring(dash + 1)).orElse(null);
+            }
+        }
+        if (writer == null) {
+            throw new UnknownExportFormatException("Unbekanntes Exportformat: " + format);
+        }
+        return writer;
+    }
+
+    /**
+     * Exportiert die Kontakte einer Anfrage direkt in den Ausgabestrom.
+     * Eine Auswahl wird in Blöcken geladen; ein Filter (Suche, Hashtags, Sortierung der Kontaktliste)
+     * wird aus einer einzigen Abfrage per Datenbank-Cursor gestreamt.
+     */
+    @Transactional(readOnly = true)
+    public void export(ContactExportWriter writer, ExportRequest request, OutputStream outputStream) throws IOException {
+        if (request.isSelection()) {
+            writer.write(contactService.findExportRows(request.contactIds()).iterator(), outputStream);
+            return;
+        }
+        try (Stream<ContactExportRow> rows =
+                 contactService.streamExportRows(request.searchTerm(), request.sortField(), request.sortDir())) {
+            writer.write(rows.iterator(), outputStream);
+        }
+    }
+
+    /**
+     * Zählt die Zeilen, die ein Export der Anfrage liefern wird (für die Fortschrittsanzeige).
+     */
+    public long count(ExportRequest request) {
+        return request.isSelection()
+            ? request.contactIds().size()
+            : contactService.countExportRows(request.searchTerm());
+    }
+
+    /**
+     * Welche Kontakte exportiert werden sollen.
+     *
+     * @param contactIds ausgewählte Kontakte in Anzeigereihenfolge (hat Vorrang vor dem Filter)
+     * @param searchTerm Suchbegriff der Kontaktliste (mit # = Hashtag-Suche) oder null für alle
+     * @param sortField Sortierfeld der Kontaktliste oder null
+     * @param sortDir Sortierrichtung der Kontaktliste oder null
+     */
+    public record ExportRequest(List<Long> contactIds, String searchTerm, String sortField, String sortDir) {
+
+        public ExportRequest {
+            contactIds = contactIds != null ? List.copyOf(contactIds) : List.of();
+        }
+
+        public boolean isSelection() {
+            return !contactIds.isEmpty();
+        }
+    }
+
+    public static class UnknownExportFormatException extends RuntimeException {
+        private static final long serialVersionUID = 202610191210L;
+
+        public UnknownExportFormatException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.repository.ContactExportRow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Ein Exportformat für Kontakte.
+ * Implementierungen schreiben die Zeilen direkt in den Ausgabestrom und halten dabei
+ * unabhängig von der Anzahl Zeilen nur konstant viel Speicher.
+ */
+public interface ContactExportWriter {
+
+    /**
+     * Kürzel des Formats, wie es im Request übergeben wird (z.B. "xlsx").
+     */
+    String getFormat();
+
+    /**
+     * Dateiname für den Download.
+     */
+    String getFileName();
+
+    /**
+     * Content-Type der erzeugten Datei.
+     */
+    String getContentType();
+
+    /**
+     * Schreibt die Zeilen in den Ausgabestrom.
+     *
+     * @param rows zu exportierende Zeilen (werden genau einmal durchlaufen)
+     * @param outputStream Ziel; wird nicht geschlossen
+     * @throws IOException bei Fehlern beim Schreiben
+     */
+    void write(Iterator<ContactExportRow> rows, OutputStream outputStream) throws IOException;
+
+    /**
+     * Gibt eine Variante des Formats zurück (z.B. ein bestimmtes Etikettenlayout), falls unterstützt.
+     *
+     * @param name Name der Variante, wie er im Formatkürzel nach dem Bindestrich steht
+     */
+    default Optional<ContactExportWriter> variant(String name) {
+        return Optional.empty();
+    }
+}
@@ -1,32 +1,57 @@
 package name.saak.contactmanager.service;
 
 import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.domain.ContactBusinessKey;
 import name.saak.contactmanager.domain.Hashtag;
+import name.saak.contactmanager.repository.ContactExportRow;
+import name.saak.contactmanager.repository.ContactHashtagAssignment;
+import name.saak.contactmanager.repository.ContactListRow;
 import name.saak.contactmanager.repository.ContactRepository;
 import name.saak.contactmanager.repository.HashtagRepository;
+import org.hibernate.Hibernate;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ContactService {
 
+    /** Maximale Anzahl IDs pro IN-Abfrage beim Laden einer Auswahl. */
+    static final int EXPORT_BATCH_SIZE = 500;
+
+    private static final String DUPLICATE_MESSAGE = "Ein Kontakt mit diesem Namen und dieser Adresse existiert bereits";
+    /** Unique-Constraints auf contact, deren Verletzung ein Duplikat bedeutet (Migrationen 001 und 008). */
+    private static final Set<String> CONTACT_UNIQUE_CONSTRAINTS =
+        Set.of("uk_contact_business_key", "uk_contact_name_address");
+
     private final ContactRepository contactRepository;
     private final HashtagRepository hashtagRepository;
+    private final DuplicateCheckService duplicateCheckService;
+    private final HashtagSuggestionService hashtagSuggestionService;
 
-    public ContactService(ContactRepository contactRepository, HashtagRepository hashtagRepository) {
+    public ContactService(ContactRepository contactRepository, HashtagRepository hashtagRepository,
+                          DuplicateCheckService duplicateCheckService,
+                          HashtagSuggestionService hashtagSuggestionService) {
         this.contactRepository = contactRepository;
         this.hashtagRepository = hashtagRepository;
+        this.duplicateCheckService = duplicateCheckService;
+        this.hashtagSuggestionService = hashtagSuggestionService;
     }
 
     /**
@@ -64,11 +89,14 @@ public class ContactService {
     }
 
     /**
-     * Sucht einen Kontakt anhand der ID mit eager loading der Hashtags.
+     * Sucht einen Kontakt anhand der ID und lädt seine Hashtags.
+     * Kontakt, Zuordnungen und Hashtags kommen aus dem Second-Level-Cache, sofern dort vorhanden.
      */
     @Transactional(readOnly = true)
     public Optional<Contact> findContactById(Long id) {
-        return contactRepository.findByIdWithActiveHashtags(id);
+        Optional<Contact> contact = contactRepository.findById(id);
+        contact.ifPresent(found -> Hibernate.initialize(found.getHashtags()));
+        return contact;
     }
 
     /**
@@ -131,17 +159,121 @@ public class ContactService {
         return sortContactsByIds(contacts, ids);
     }
 
+    /**
+     * Lädt die Zeilen der Kontaktliste mit optionaler Volltext- oder Hashtag-Suche und Sortierung.
+     * Die Zeilen sind Projektionen ohne Entities; gesperrte Hashtags werden bereits in der Abfrage
+     * ausgefiltert und jede Zeile trägt nur die IDs ihrer aktiven Hashtags.
+     *
+     * @param searchTerm Suchbegriff (mit # = Hashtag-Suche) oder null
+     * @param sortField Sortierfeld oder null für Default
+     * @param sortDir Sortierrichtung oder null für Default
+     */
+    @Transactional(readOnly = true)
+    public List<ContactListRow> findContactListRows(String searchTerm, String sortField, String sortDir) {
+        Sort sort = createListSort(sortField, sortDir);
+        String trimmedSearchTerm = searchTerm != null ? searchTerm.trim() : "";
+
+        if (trimmedSearchTerm.isEmpty()) {
+            List<ContactListRow> rows = contactRepository.findAllListRows(sort);
+            return rows.isEmpty()
+                ? rows
+                : withActiveHashtagIds(rows, contactRepository.findAllActiveHashtagAssignments());
+        }
+
+        List<ContactListRow> rows;
+        if (trimmedSearchTerm.startsWith("#")) {
+            List<String> hashtagNames = parseHashtagNames(trimmedSearchTerm);
+            rows = hashtagNames.isEmpty()
+                ? List.of()
+                : contactRepository.findListRowsByAllHashtags(hashtagNames, hashtagNames.size(), sort);
+        } else {
+            rows = contactRepository.searchListRows(trimmedSearchTerm, sort);
+        }
+
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        List<Long> ids = rows.stream().map(ContactListRow::id).toList();
+        return withActiveHashtagIds(rows, contactRepository.findActiveHashtagAssignments(ids));
+    }
+
+    /**
+     * Streamt die Exportzeilen der Kontaktliste mit demselben Filter und derselben Sortierung
+     * wie {@link #findContactListRows(String, String, String)}, aus einer einzigen Abfrage.
+     * Muss innerhalb einer Transaktion aufgerufen werden; der Stream ist vom Aufrufer zu schließen.
+     *
+     * @param searchTerm Suchbegriff (mit # = Hashtag-Suche) oder null für alle
+     * @param sortField Sortierfeld oder null für Default
+     * @param sortDir Sortierrichtung oder null für Default
+     */
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public Stream<ContactExportRow> streamExportRows(String searchTerm, String sortField, String sortDir) {
+        Sort sort = createListSort(sortField, sortDir);
+        String trimmedSearchTerm = searchTerm != null ? searchTerm.trim() : "";
+
+        if (trimmedSearchTerm.isEmpty()) {
+            return contactRepository.streamExportRows(sort);
+        }
+        if (trimmedSearchTerm.startsWith("#")) {
+            List<String> hashtagNames = parseHashtagNames(trimmedSearchTerm);
+            return hashtagNames.isEmpty()
+                ? Stream.empty()
+                : contactRepository.streamExportRowsByAllHashtags(hashtagNames, hashtagNames.size(), sort);
+        }
+        return contactRepository.streamExportRowsBySearch(trimmedSearchTerm, sort);
+    }
+
+    /**
+     * Zählt die Kontakte, die {@link #streamExportRows(String, String, String)} liefert.
+     */
+    @Transactional(readOnly = true)
+    public long countExportRows(String searchTerm) {
+        String trimmedSearchTerm = searchTerm != null ? searchTerm.trim() : "";
+
+        if (trimmedSearchTerm.isEmpty()) {
+            return contactRepository.count();
+        }
+        if (trimmedSearchTerm.startsWith("#")) {
+            List<String> hashtagNames = parseHashtagNames(trimmedSearchTerm);
+            return hashtagNames.isEmpty() ? 0 : contactRepository.countByAllHashtags(hashtagNames, hashtagNames.size());
+        }
+        return contactRepository.countBySearch(trimmedSearchTerm);
+    }
+
+    /**
+     * Lädt die Exportspalten der ausgewählten Kontakte in der Reihenfolge der Auswahl.
+     * Die IDs werden in Blöcken zu je {@value #EXPORT_BATCH_SIZE} per IN-Abfrage geladen;
+     * doppelte und nicht (mehr) vorhandene IDs werden übersprungen.
+     *
+     * @param contactIds ausgewählte Kontakt-IDs in Anzeigereihenfolge
+     */
+    @Transactional(readOnly = true)
+    public List<ContactExportRow> findExportRows(List<Long> contactIds) {
+        List<Long> ids = contactIds.stream()
+            .filter(Objects::nonNull)
+            .distinct()
+            .toList();
+        Map<Long, ContactExportRow> rowsById = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += EXPORT_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + EXPORT_BATCH_SIZE, ids.size()));
+            contactRepository.findExportRowsByIdIn(batch)
+                .forEach(row -> rowsById.put(row.id(), row));
+        }
+
+        return ids.stream()
+            .map(rowsById::get)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
     /**
      * Sucht Kontakte anhand von Hashtags (AND-Logik).
      * Mehrere Hashtags können durch Leerzeichen getrennt werden.
+     * Ein Hashtag findet auch Kontakte mit seinen Unter-Hashtags (z.B. #familie auch #familie_nord).
      */
     @Transactional(readOnly = true)
     public List<Contact> searchByHashtags(String searchTerm) {
-        // Parse hashtag names from search term
-        List<String> hashtagNames = Arrays.stream(searchTerm.split("\\s+"))
-            .filter(term -> term.startsWith("#"))
-            .map(String::toLowerCase)
-            .collect(Collectors.toList());
+        List<String> hashtagNames = parseHashtagNames(searchTerm);
 
         if (hashtagNames.isEmpty()) {
             return List.of();
@@ -182,7 +314,9 @@ public class ContactService {
             hashtags.forEach(contact::addHashtag);
         }
 
-        return contactRepository.save(contact);
+        Contact saved = saveUnique(contact);
+        recordHashtagChange(saved.getId(), Set.of(), hashtagIdsOf(saved));
+        return saved;
     }
 
     /**
@@ -224,6 +358,7 @@ public class ContactService {
 
         // Update hashtags - properly manage bidirectional relationship
         // First, remove all existing hashtags using the helper method
+        Set<Long> previousHashtagIds = hashtagIdsOf(existing);
         Set<Hashtag> existingHashtags = new HashSet<>(existing.getHashtags());
         existingHashtags.forEach(existing::removeHashtag);
 
@@ -238,7 +373,9 @@ public class ContactService {
             hashtags.forEach(existing::addHashtag);
         }
 
-        return contactRepository.save(existing);
+        Contact saved = saveUnique(existing);
+        recordHashtagChange(saved.getId(), previousHashtagIds, hashtagIdsOf(saved));
+        return saved;
     }
 
     /**
@@ -248,9 +385,43 @@ public class ContactService {
         if (!contactRepository.existsById(id)) {
             throw new ContactNotFoundException("Kontakt mit ID " + id + " nicht gefunden");
         }
+        hashtagSuggestionService.recordChange(id, hashtagRepository.findIdsByContactId(id), Set.of());
+        hashtagRepository.decrementUsageForContact(id);
         contactRepository.deleteById(id);
     }
 
+    /**
+     * Führt zwei Kontakte zusammen: Die Hashtag-Zuordnungen des zu entfernenden Kontakts
+     * werden mengenbasiert auf den verbleibenden Kontakt übertragen, danach wird er gelöscht.
+     *
+     * @param keepId ID des verbleibenden Kontakts
+     * @param removeId ID des zu löschenden Kontakts
+     * @throws ContactNotFoundException wenn einer der Kontakte nicht existiert
+     */
+    public void mergeContacts(Long keepId, Long removeId) {
+        if (keepId.equals(removeId)) {
+            throw new IllegalArgumentException("Ein Kontakt kann nicht mit sich selbst zusammengeführt werden");
+        }
+        if (!contactRepository.existsById(keepId)) {
+            throw new ContactNotFoundException("Kontakt mit ID " + keepId + " nicht gefunden");
+        }
+        if (!contactRepository.existsById(removeId)) {
+            throw new ContactNotFoundException("Kontakt mit ID " + removeId + " nicht gefunden");
+        }
+
+        List<Long> keepHashtagIds = hashtagRepository.findIdsByContactId(keepId);
+        List<Long> removeHashtagIds = hashtagRepository.findIdsByContactId(removeId);
+        Set<Long> mergedHashtagIds = new HashSet<>(keepHashtagIds);
+        mergedHashtagIds.addAll(removeHashtagIds);
+        hashtagSuggestionService.recordChange(keepId, keepHashtagIds, mergedHashtagIds);
+        hashtagSuggestionService.recordChange(removeId, removeHashtagIds, Set.of());
+
+        // Doppelte Zuordnungen entfallen, alle übrigen werden nur umgehängt
+        hashtagRepository.decrementUsageForSharedHashtags(removeId, keepId);
+        contactRepository.copyHashtagAssignments(removeId, keepId);
+        contactRepository.deleteContactRow(removeId);
+    }
+
     /**
      * Normalisiert leere Felder zu null.
      * Konvertiert leere Strings für optionale Felder (Telefon, E-Mail, Firma, Bemerkung) zu null.
@@ -274,22 +445,50 @@ public class ContactService {
     }
 
     /**
-     * Validiert die Unique-Constraint-Regel.
+     * Validiert die Unique-Constraint-Regel über den indizierten fachlichen Schlüssel.
      */
     private void validateUniqueConstraint(Contact contact, Long excludeId) {
-        Optional<Contact> duplicate = contactRepository.findByNameAndAddress(
-            contact.getVorname(),
-            contact.getNachname(),
-            contact.getStrasse(),
-            contact.getPostleitzahl(),
-            contact.getOrt()
-        );
+        Optional<Long> duplicateId = contactRepository.findIdByBusinessKey(ContactBusinessKey.of(contact));
+
+        if (duplicateId.isPresent() && !duplicateId.get().equals(excludeId)) {
+            throw new DuplicateContactException(DUPLICATE_MESSAGE);
+        }
+    }
+
+    /**
+     * Speichert einen Kontakt und schreibt sofort in die Datenbank.
+     * Gleichzeitig angelegte Duplikate, die die Vorabprüfung passieren, scheitern am
+     * Unique-Index und werden in eine DuplicateContactException übersetzt.
+     * Der neue Schlüssel wird im Filter der Live-Duplikatprüfung registriert.
+     */
+    private Contact saveUnique(Contact contact) {
+        try {
+            Contact saved = contactRepository.save(contact);
+            contactRepository.flush();
+            duplicateCheckService.register(ContactBusinessKey.of(saved));
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            if (isContactUniqueKeyViolation(e)) {
+                throw new DuplicateContactException(DUPLICATE_MESSAGE);
+            }
+            throw e;
+        }
+    }
 
-        if (duplicate.isPresent() && !duplicate.get().getId().equals(excludeId)) {
-            throw new DuplicateContactException(
-                "Ein Kontakt mit diesem Namen und dieser Adresse existiert bereits"
-            );
+    /**
+     * Erkennt die Verletzung eines der Unique-Constraints von contact am Constraint-Namen, den Hibernate aus der
+     * Fehlermeldung der Datenbank liest. H2 liefert den Index dazu mit Schema und Suffix
+     * (PUBLIC.UK_CONTACT_BUSINESS_KEY_INDEX_6), PostgreSQL den Namen selbst.
+     */
+    private static boolean isContactUniqueKeyViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                String name = violation.getConstraintName().toLowerCase(Locale.ROOT);
+                String unqualified = name.substring(name.lastIndexOf('.') + 1);
+                return CONTACT_UNIQUE_CONSTRAINTS.stream().anyMatch(unqualified::startsWith);
+            }
         }
+        return false;
     }
 
     /**
@@ -309,17 +508,25 @@ public class ContactService {
         }
 
         // Lade alle Kontakte und füge Hashtag hinzu
+        int assigned = 0;
         for (Long contactId : contactIds) {
             Optional<Contact> optionalContact = contactRepository.findById(contactId);
             if (optionalContact.isPresent()) {
                 Contact contact = optionalContact.get();
                 // Füge Hashtag nur hinzu wenn er noch nicht zugewiesen ist
                 if (!contact.getHashtags().contains(hashtag)) {
+                    Set<Long> previousHashtagIds = hashtagIdsOf(contact);
                     contact.addHashtag(hashtag);
                     contactRepository.save(contact);
+                    hashtagSuggestionService.recordChange(contactId, previousHashtagIds, hashtagIdsOf(contact));
+                    assigned++;
                 }
             }
         }
+
+        if (assigned > 0) {
+            hashtagRepository.adjustUsageCount(Set.of(hashtagId), assigned);
+        }
     }
 
     /**
@@ -334,17 +541,59 @@ public class ContactService {
             .orElseThrow(() -> new IllegalArgumentException("Hashtag mit ID " + hashtagId + " nicht gefunden"));
 
         // Lade alle Kontakte und entferne Hashtag
+        int removed = 0;
         for (Long contactId : contactIds) {
             Optional<Contact> optionalContact = contactRepository.findById(contactId);
             if (optionalContact.isPresent()) {
                 Contact contact = optionalContact.get();
                 // Entferne Hashtag nur wenn er zugewiesen ist
                 if (contact.getHashtags().contains(hashtag)) {
+                    Set<Long> previousHashtagIds = hashtagIdsOf(contact);
                     contact.removeHashtag(hashtag);
                     contactRepository.save(contact);
+                    hashtagSuggestionService.recordChange(contactId, previousHashtagIds, hashtagIdsOf(contact));
+                    removed++;
                 }
             }
         }
+
+        if (removed > 0) {
+            hashtagRepository.adjustUsageCount(Set.of(hashtagId), -removed);
+        }
+    }
+
+    /**
+     * Pflegt Verwendungszähler und Vorschlags-Index anhand der Zuordnungen vor und nach einer Änderung.
+     */
+    private void recordHashtagChange(Long contactId, Set<Long> previousHashtagIds, Set<Long> currentHashtagIds) {
+        hashtagSuggestionService.recordChange(contactId, previousHashtagIds, currentHashtagIds);
+
+        Set<Long> added = new HashSet<>(currentHashtagIds);
+        added.removeAll(previousHashtagIds);
+        Set<Long> removed = new HashSet<>(previousHashtagIds);
+        removed.removeAll(currentHashtagIds);
+
+        if (!added.isEmpty()) {
+            hashtagRepository.adjustUsageCount(added, 1);
+        }
+        if (!removed.isEmpty()) {
+            hashtagRepository.adjustUsageCount(removed, -1);
+        }
+    }
+
+    private static Set<Long> hashtagIdsOf(Contact contact) {
+        return contact.getHashtags().stream()
+            .map(Hashtag::getId)
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Sortierung der Kontaktliste: ohne Sortierfeld nach Nachname, dann Vorname.
+     */
+    private Sort createListSort(String sortField, String sortDir) {
+        return sortField == null || sortField.isEmpty()
+            ? Sort.by(Sort.Direction.ASC, "nachname", "vorname")
+            : createSort(sortField, sortDir);
     }
 
     /**
@@ -368,6 +617,43 @@ public class ContactService {
         };
     }
 
+    /**
+     * Zerlegt einen Suchbegriff in Hashtag-Namen (durch Leerzeichen getrennt, kleingeschrieben).
+     */
+    private static List<String> parseHashtagNames(String searchTerm) {
+        return Arrays.stream(searchTerm.split("\\s+"))
+            .filter(term -> term.startsWith("#"))
+            .map(String::toLowerCase)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Ergänzt die Zeilen um die IDs ihrer aktiven Hashtags.
+     *
+     * @param assignments Zuordnungen aktiver Hashtags, nach Kontakt-ID gruppiert sortiert
+     */
+    private static List<ContactListRow> withActiveHashtagIds(List<ContactListRow> rows,
+                                                              List<ContactHashtagAssignment> assignments) {
+        Map<Long, List<Integer>> hashtagIdsByContact = new HashMap<>();
+        int start = 0;
+        for (int i = 1; i <= assignments.size(); i++) {
+            Long contactId = assignments.get(start).contactId();
+            if (i == assignments.size() || !assignments.get(i).contactId().equals(contactId)) {
+                hashtagIdsByContact.put(contactId, assignments.subList(start, i).stream()
+                    .map(assignment -> Math.toIntExact(assignment.hashtagId()))
+                    .toList());
+                start = i;
+            }
+        }
+
+        return rows.stream()
+            .map(row -> {
+                List<Integer> hashtagIds = hashtagIdsByContact.get(row.id());
+                return hashtagIds != null ? row.withHashtagIds(hashtagIds) : row;
+            })
+            .toList();
+    }
+
     /**
      * Sortiert eine Liste von Kontakten nach einer gegebenen ID-Reihenfolge.
      * Erforderlich, weil SQL IN clause die Sortierung nicht bewahrt.
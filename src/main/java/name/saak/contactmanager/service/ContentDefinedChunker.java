@@ -0,0 +1,65 @@
+package name.saak.contactmanager.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Zerlegt einen Datenstrom in inhaltsabhängige Chunks (Gear-Hash, wie FastCDC).
+ * Die Chunk-Grenzen hängen nur von den letzten 64 Bytes ab; wird in einer Datei etwas eingefügt oder gelöscht,
+ * ändern sich daher nur die betroffenen Chunks und nicht alle nachfolgenden.
+ */
+final class ContentDefinedChunker {
+
+    static final int MIN_CHUNK_SIZE = 8 * 1024;
+    static final int MAX_CHUNK_SIZE = 128 * 1024;
+    /** 15 Bit in den oberen Bits des Hashes: im Mittel eine Grenze alle 32 KB nach der Mindestgröße. */
+    private static final long BOUNDARY_MASK = ((1L << 15) - 1) << 49;
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Fester Seed: dieselben Daten müssen in jedem Lauf dieselben Grenzen ergeben
+        SplittableRandom random = new SplittableRandom(0x636f6e7461637473L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private ContentDefinedChunker() {
+    }
+
+    /**
+     * Empfänger der Chunks; der Puffer wird nach dem Aufruf wiederverwendet.
+     */
+    @FunctionalInterface
+    interface ChunkConsumer {
+        void accept(byte[] chunk, int length) throws IOException;
+    }
+
+    /**
+     * Liest den Strom vollständig und übergibt die Chunks in Reihenfolge.
+     */
+    static void split(InputStream in, ChunkConsumer consumer) throws IOException {
+        byte[] chunk = new byte[MAX_CHUNK_SIZE];
+        byte[] readBuffer = new byte[64 * 1024];
+        int length = 0;
+        long hash = 0;
+
+        int read;
+        while ((read = in.read(readBuffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                int b = readBuffer[i] & 0xff;
+                chunk[length++] = (byte) b;
+                hash = (hash << 1) + GEAR[b];
+                if ((length >= MIN_CHUNK_SIZE && (hash & BOUNDARY_MASK) == 0) || length == MAX_CHUNK_SIZE) {
+                    consumer.accept(chunk, length);
+                    length = 0;
+                    hash = 0;
+                }
+            }
+        }
+        if (length > 0) {
+            consumer.accept(chunk, length);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.repository.ContactExportRow;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Service für den CSV-Export (RFC 4180, Trennzeichen Semikolon, UTF-8 mit BOM für Excel).
+ * Jede Zeile wird in einem wiederverwendeten Puffer aufgebaut und über einen gepufferten Writer
+ * direkt in den Ausgabestrom geschrieben.
+ */
+@Service
+public class CsvExportService implements ContactExportWriter {
+
+    static final char SEPARATOR = ';';
+    private static final String HEADER = "Firma;Anrede;Vorname_Name;Straße;PLZ/Ort\r\n";
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    @Override
+    public String getFormat() {
+        return "csv";
+    }
+
+    @Override
+    public String getFileName() {
+        return "kontakte.csv";
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/csv;charset=UTF-8";
+    }
+
+    @Override
+    public void write(Iterator<ContactExportRow> rows, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write('\uFEFF');
+        writer.write(HEADER);
+
+        StringBuilder line = new StringBuilder(256);
+        char[] chars = new char[256];
+        while (rows.hasNext()) {
+            ContactExportRow contact = rows.next();
+            line.setLength(0);
+
+            appendField(line, contact.firma());
+            line.append(SEPARATOR);
+            appendField(line, contact.anrede());
+            line.append(SEPARATOR);
+            int start = line.length();
+            contact.appendVornameName(line);
+            quoteIfNeeded(line, start);
+            line.append(SEPARATOR);
+            appendField(line, contact.strasse());
+            line.append(SEPARATOR);
+            start = line.length();
+            contact.appendPlzOrt(line);
+            quoteIfNeeded(line, start);
+            line.append("\r\n");
+
+            // Writer.append(CharSequence) würde pro Zeile einen String erzeugen
+            if (chars.length < line.length()) {
+                chars = new char[line.length() * 2];
+            }
+            line.getChars(0, line.length(), chars, 0);
+            writer.write(chars, 0, line.length());
+        }
+        writer.flush();
+    }
+
+    private static void appendField(StringBuilder line, String value) {
+        if (value != null) {
+            int start = line.length();
+            line.append(value);
+            quoteIfNeeded(line, start);
+        }
+    }
+
+    /**
+     * Setzt das Feld ab {@code start} in Anführungszeichen, wenn es Trennzeichen,
+     * Anführungszeichen oder Zeilenumbrüche enthält; enthaltene Anführungszeichen werden verdoppelt.
+     * Beginnt es mit einem Zeichen, das Excel als Formel liest (=, +, -, @, Tab, CR), wird ein Apostroph
+     * vorangestellt und das Feld ebenfalls in Anführungszeichen gesetzt (CSV-Injection).
+     */
+    private static void quoteIfNeeded(StringBuilder line, int start) {
+        boolean needsQuotes = false;
+        if (start < line.length() && isFormulaStart(line.charAt(start))) {
+            line.insert(start, '\'');
+            needsQuotes = true;
+        }
+        for (int i = start; i < line.length() && !needsQuotes; i++) {
+            char c = line.charAt(i);
+            needsQuotes = c == SEPARATOR || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!needsQuotes) {
+            return;
+        }
+        for (int i = line.length() - 1; i >= start; i--) {
+            if (line.charAt(i) == '"') {
+                line.insert(i, '"');
+            }
+        }
+        line.insert(start, '"').append('"');
+    }
+
+    private static boolean isFormulaStart(char c) {
+        return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+    }
+}
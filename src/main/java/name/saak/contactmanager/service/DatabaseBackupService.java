@@ -1,142 +1,799 @@
 package name.saak.contactmanager.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
 import org.springframework.stereotype.Service;
 
-import javax.sql.DataSource;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Service für automatische Datenbank-Backups.
- * Erstellt täglich um 2:00 Uhr ein Backup und löscht Backups älter als 30 Tage.
+ * Erstellt täglich um 2:00 Uhr ein Backup und dünnt ältere Backups nach dem Großvater-Vater-Sohn-Prinzip aus
+ * (app.backup.retention, siehe {@link BackupRetentionPolicy}). Alle Backups stehen im {@link BackupCatalog};
+ * Statistik, Bereinigung und Restore lesen den Katalog statt das Backup-Verzeichnis.
+ *
+ * Im inkrementellen Modus (app.backup.incremental) schreibt der reguläre Lauf nur die seit dem letzten Backup
+ * im Change-Journal erfassten Änderungen als Delta und entfällt, wenn sich nichts geändert hat. Vollständige
+ * Basis-Backups laufen dann nach app.backup.full-cron. Wiederhergestellt wird mit dem
+ * {@link DatabaseRestoreService}. Der inkrementelle Modus setzt H2 und das native Format voraus; die Trigger des
+ * Change-Journals gibt es nur in diesem Modus.
+ *
+ * Geplante Backups startet der {@link JobService} (Jobs "backup" und "full-backup"); sie laufen auf einem eigenen
+ * Thread mit einer eigenen Verbindung außerhalb des Connection-Pools, damit Requests nicht auf sie warten.
+ * Mit app.backup.snapshot-first wird die Datenbank nur für einen unkomprimierten SQL-Snapshot gelesen; Aufbau und
+ * Komprimierung des Archivs folgen danach ohne die laufende Datenbank und mit begrenzter Schreibrate
+ * (app.backup.max-write-rate).
+ *
+ * Mit app.backup.deduplicate werden Basis-Backups nicht als Archiv, sondern im {@link DeduplicatingBackupStore}
+ * abgelegt: Unveränderte Teile der Datenbankdatei werden nur einmal gespeichert, je Backup bleibt ein Manifest.
+ *
+ * Mit app.backup.format=logical (Standard für Nicht-H2-Datenbanken wie PostgreSQL) entsteht statt des
+ * H2-Archivs ein datenbankunabhängiges {@link LogicalBackup}; Deduplizierung und Snapshot entfallen dann.
  */
 @Service
+@DependsOnDatabaseInitialization
 public class DatabaseBackupService {
 
     private static final Logger log = LoggerFactory.getLogger(DatabaseBackupService.class);
-    private static final DateTimeFormatter BACKUP_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
-    private static final int RETENTION_DAYS = 30;
+    // Millisekunden, damit Basis-Backup und Delta auch innerhalb derselben Sekunde eindeutig geordnet sind
+    private static final DateTimeFormatter BACKUP_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+    private static final DateTimeFormatter LEGACY_BACKUP_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final String BACKUP_PREFIX = "contactdb-backup-";
+    private static final String BACKUP_SUFFIX = ".zip";
+    private static final String DELTA_PREFIX = "contactdb-delta-";
+    private static final String DELTA_SUFFIX = ".sql.gz";
+    private static final String MANIFEST_SUFFIX = DeduplicatingBackupStore.MANIFEST_SUFFIX;
+    private static final String LOGICAL_SUFFIX = ".ndjson.gz";
 
-    private final DataSource dataSource;
+    private final DataSourceProperties dataSourceProperties;
+    private final MeterRegistry meterRegistry;
     private final String backupDirectory;
     private final boolean backupEnabled;
+    private final boolean incremental;
+    private final boolean snapshotFirst;
+    private final Path stagingDirectory;
+    private final long maxWriteRate;
+    private final boolean deduplicate;
+    private final boolean logical;
+    private final DeduplicatingBackupStore chunkStore;
+    private final BackupCatalog catalog;
+    private final BackupRetentionPolicy retentionPolicy;
+    private final ExecutorService backupExecutor;
+    private final AtomicBoolean scheduledBackupRunning = new AtomicBoolean();
+    private final AtomicInteger activeBackups = new AtomicInteger();
+    // Restores lesen Backup-Dateien, die die Bereinigung sonst währenddessen löschen könnte
+    private final ReentrantReadWriteLock backupFilesLock = new ReentrantReadWriteLock();
+    private final List<Consumer<Path>> backupListeners = new CopyOnWriteArrayList<>();
 
-    public DatabaseBackupService(
-            DataSource dataSource,
-            @Value("${app.backup.directory:./backup}") String backupDirectory,
-            @Value("${app.backup.enabled:true}") boolean backupEnabled) {
-        this.dataSource = dataSource;
-        this.backupDirectory = backupDirectory;
-        this.backupEnabled = backupEnabled;
+    public DatabaseBackupService(DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry,
+                                 BackupProperties properties) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.meterRegistry = meterRegistry;
+        this.backupDirectory = properties.directory();
+        this.backupEnabled = properties.enabled();
+        this.incremental = properties.incremental();
+        this.snapshotFirst = properties.snapshotFirst();
+        this.stagingDirectory = Paths.get(properties.stagingDirectory());
+        this.maxWriteRate = properties.maxWriteRate().toBytes();
+        this.deduplicate = properties.deduplicate();
+        this.logical = switch (properties.format()) {
+            case "logical" -> true;
+            case "native" -> false;
+            // BACKUP TO und SCRIPT gibt es nur bei H2
+            case "auto" -> !isH2();
+            default -> throw new IllegalArgumentException("Unknown app.backup.format: " + properties.format());
+        };
+        // Change-Journal und Delta-Skripte (MERGE, RUNSCRIPT) gibt es nur bei H2
+        if (incremental && (logical || !isH2())) {
+            throw new IllegalArgumentException(
+                    "app.backup.incremental requires an H2 database and app.backup.format native or auto");
+        }
+        // Auch ohne Deduplizierung: vorhandene Manifeste bleiben wiederherstellbar und werden aufgeräumt
+        this.chunkStore = new DeduplicatingBackupStore(Paths.get(backupDirectory));
+        this.catalog = new BackupCatalog(Paths.get(backupDirectory), this::scanBackupDirectory);
+        BackupProperties.Retention retention = properties.retention();
+        this.retentionPolicy = new BackupRetentionPolicy(retention.hourly(), retention.daily(), retention.weekly(),
+                retention.monthly());
+        this.backupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "database-backup");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        meterRegistry.gauge("backup.active", activeBackups);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        backupExecutor.shutdownNow();
+    }
+
+    /**
+     * Legt die Trigger des Change-Journals an, wenn inkrementelle Backups laufen, und entfernt sie sonst samt
+     * Journal: Ohne Deltas würde das Journal nie bereinigt, und jede Schreiboperation zahlte den Trigger umsonst.
+     * Waren die Trigger zuvor aus, ist das nächste inkrementelle Backup ein Basis-Backup.
+     */
+    @PostConstruct
+    public void updateChangeJournalTriggers() throws SQLException {
+        if (!isH2()) {
+            return;
+        }
+        try (Connection connection = openConnection()) {
+            if (backupEnabled && incremental) {
+                if (ChangeJournalDelta.installTriggers(connection)) {
+                    log.info("Installed change journal triggers, next incremental backup will be a full backup");
+                }
+            } else if (ChangeJournalDelta.dropTriggers(connection)) {
+                log.info("Incremental backup is disabled, removed change journal triggers");
+            }
+        }
     }
 
     /**
-     * Scheduled Task: Erstellt täglich um 2:00 Uhr ein Backup.
+     * Geplantes Backup (Job "backup", täglich um 2:00 Uhr), im inkrementellen Modus ein Delta.
      */
-    @Scheduled(cron = "${app.backup.cron:0 0 2 * * *}")
-    public void createScheduledBackup() {
+    public void createScheduledBackup() throws IOException, SQLException {
         if (!backupEnabled) {
             log.debug("Backup is disabled, skipping scheduled backup");
             return;
         }
+        runScheduledBackup(incremental ? "incremental" : "full", () -> {
+            if (incremental) {
+                createIncrementalBackup();
+            } else {
+                createBackup();
+            }
+        });
+    }
+
+    /**
+     * Geplantes Basis-Backup für den inkrementellen Modus (Job "full-backup", standardmäßig deaktiviert).
+     */
+    public void createScheduledFullBackup() throws IOException, SQLException {
+        if (!backupEnabled || !incremental) {
+            log.debug("Incremental backup is disabled, skipping scheduled full backup");
+            return;
+        }
+        runScheduledBackup("full", this::createBackup);
+    }
+
+    /**
+     * Gibt an, ob gerade ein Backup läuft (z.B. für die Auswertung von Request-Latenzen).
+     */
+    public boolean isBackupRunning() {
+        return activeBackups.get() > 0;
+    }
 
-        log.info("Starting scheduled database backup");
+    /**
+     * Führt ein geplantes Backup auf dem Backup-Thread aus und wartet darauf, damit Job-Verlauf und Lease die
+     * tatsächliche Dauer abdecken. Läuft das vorige noch (Basis-Backup und Delta überschneiden sich), entfällt
+     * dieser Lauf.
+     */
+    private void runScheduledBackup(String type, BackupTask task) throws IOException, SQLException {
+        if (!scheduledBackupRunning.compareAndSet(false, true)) {
+            log.warn("Previous backup still running, skipping scheduled {} backup", type);
+            return;
+        }
         try {
-            createBackup();
-            cleanupOldBackups();
-            log.info("Scheduled backup completed successfully");
-        } catch (Exception e) {
-            log.error("Scheduled backup failed", e);
+            backupExecutor.submit(() -> {
+                log.info("Starting scheduled {} database backup", type);
+                task.run();
+                cleanupOldBackups();
+                log.info("Scheduled {} backup completed successfully", type);
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Scheduled " + type + " backup interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } finally {
+            scheduledBackupRunning.set(false);
         }
     }
 
     /**
      * Erstellt ein Datenbank-Backup.
+     * Das Backup dient zugleich als Basis für folgende Deltas; die bis dahin erfassten Journal-Einträge werden entfernt.
      *
      * @return Path zum erstellten Backup
      * @throws IOException wenn der Backup-Ordner nicht erstellt werden kann
      * @throws SQLException wenn das Backup fehlschlägt
      */
-    public Path createBackup() throws IOException, SQLException {
+    public synchronized Path createBackup() throws IOException, SQLException {
+        Path backupDir = createBackupDirectory();
+
+        // Backup-Dateiname mit Zeitstempel
+        String timestamp = LocalDateTime.now().format(BACKUP_DATE_FORMAT);
+        String suffix = logical ? LOGICAL_SUFFIX : deduplicate ? MANIFEST_SUFFIX : BACKUP_SUFFIX;
+        Path backupFile = backupDir.resolve(BACKUP_PREFIX + timestamp + suffix);
+
+        Timer.Sample sample = startBackup();
+        String outcome = "failure";
+        try {
+            long bytesWritten = logical ? createLogicalBackup(backupFile)
+                    : snapshotFirst ? createSnapshotBackup(backupFile) : createOnlineBackup(backupFile);
+            if (logical || !deduplicate) {
+                register(backupFile, 0);
+            }
+            meterRegistry.counter("backup.bytes.written", "type", "full").increment(bytesWritten);
+            outcome = "success";
+
+            log.info("Database backup created: {} (size: {} bytes)",
+                    backupFile.toAbsolutePath(),
+                    Files.size(backupFile));
+            return backupFile;
+        } finally {
+            stopBackup(sample, "full", outcome);
+        }
+    }
+
+    /**
+     * Backup per H2 BACKUP TO; H2 schreibt das Archiv selbst, die Schreibrate ist daher nicht begrenzt.
+     * Bei Deduplizierung entsteht das Archiv im Staging-Verzeichnis und wird anschließend in Chunks zerlegt.
+     */
+    private long createOnlineBackup(Path backupFile) throws IOException, SQLException {
+        Path staging = deduplicate ? createStagingDirectory() : null;
+        try {
+            Path archive = deduplicate ? staging.resolve("backup.zip") : backupFile;
+            try (Connection connection = openConnection();
+                 Statement statement = connection.createStatement()) {
+
+                // Vor dem Backup lesen: alles, was diese Einträge beschreiben, ist im Backup enthalten
+                List<Long> journalIds = ChangeJournalDelta.readJournalIds(connection);
+
+                String sql = String.format("BACKUP TO %s", sqlString(archive.toAbsolutePath().toString()));
+                statement.execute(sql);
+
+                ChangeJournalDelta.prune(connection, journalIds);
+            }
+            if (!deduplicate) {
+                return Files.size(backupFile);
+            }
+
+            // Die Einträge unkomprimiert zerlegen, sonst ändert jede Änderung alle folgenden Chunks
+            DeduplicatingBackupStore.BackupWriter writer = chunkStore.newBackup(new WriteRateLimiter(maxWriteRate));
+            try (InputStream in = Files.newInputStream(archive);
+                 ZipInputStream zip = new ZipInputStream(in)) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (!entry.isDirectory()) {
+                        writer.addFile(entry.getName(), zip);
+                    }
+                }
+            }
+            return commitDeduplicated(writer, backupFile);
+        } finally {
+            if (staging != null) {
+                deleteRecursively(staging);
+            }
+        }
+    }
+
+    /**
+     * Backup in zwei Schritten: Die laufende Datenbank wird nur für einen unkomprimierten SQL-Snapshot gelesen
+     * (SCRIPT, konsistent in einer Anweisung). Danach wird der Snapshot im Staging-Verzeichnis in eine frische
+     * Datenbankdatei eingespielt und diese gedrosselt als Archiv im Format von BACKUP TO geschrieben, sodass
+     * der Restore unverändert bleibt. Bei verschlüsselter Datenbank ist auch der Snapshot verschlüsselt.
+     *
+     * @return Anzahl geschriebener Bytes
+     */
+    private long createSnapshotBackup(Path backupFile) throws IOException, SQLException {
+        Path staging = createStagingDirectory();
+        Path script = staging.resolve("snapshot.sql");
+        String databaseName = databaseName();
+        Path partFile = backupFile.resolveSibling(backupFile.getFileName() + ".part");
+
+        try {
+            long snapshotStart = System.nanoTime();
+            try (Connection connection = openConnection();
+                 Statement statement = connection.createStatement()) {
+                List<Long> journalIds = ChangeJournalDelta.readJournalIds(connection);
+                statement.execute("SCRIPT TO " + sqlString(script.toAbsolutePath().toString()) + scriptCipher());
+                ChangeJournalDelta.prune(connection, journalIds);
+            }
+            meterRegistry.timer("backup.snapshot.duration")
+                    .record(System.nanoTime() - snapshotStart, TimeUnit.NANOSECONDS);
+
+            // Ab hier ohne die laufende Datenbank
+            Path stagingDatabase = staging.resolve(databaseName);
+            try (Connection connection = DriverManager.getConnection(h2FileUrl(stagingDatabase, false),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("RUNSCRIPT FROM " + sqlString(script.toAbsolutePath().toString()) + scriptCipher());
+                statement.execute("SHUTDOWN");
+            }
+            Files.delete(script);
+
+            Path databaseFile = staging.resolve(databaseName + ".mv.db");
+            if (deduplicate) {
+                DeduplicatingBackupStore.BackupWriter writer =
+                        chunkStore.newBackup(new WriteRateLimiter(maxWriteRate));
+                try (InputStream in = Files.newInputStream(databaseFile)) {
+                    writer.addFile(databaseFile.getFileName().toString(), in);
+                }
+                return commitDeduplicated(writer, backupFile);
+            }
+
+            ThrottledOutputStream out = new ThrottledOutputStream(Files.newOutputStream(partFile), maxWriteRate);
+            try (ZipOutputStream zip = new ZipOutputStream(out)) {
+                zip.putNextEntry(new ZipEntry(databaseName + ".mv.db"));
+                Files.copy(databaseFile, zip);
+                zip.closeEntry();
+            }
+            Files.move(partFile, backupFile, StandardCopyOption.ATOMIC_MOVE);
+            return out.getBytesWritten();
+        } finally {
+            Files.deleteIfExists(partFile);
+            deleteRecursively(staging);
+        }
+    }
+
+    /**
+     * Logisches Backup als gzip-komprimiertes NDJSON. Alle Tabellen werden in einer Transaktion gelesen, damit
+     * Zuordnungen und Stammdaten zusammenpassen; die Zeilen gehen ohne Zwischenspeicher in die Datei.
+     *
+     * @return Anzahl geschriebener Bytes
+     */
+    private long createLogicalBackup(Path backupFile) throws IOException, SQLException {
+        Path partFile = backupFile.resolveSibling(backupFile.getFileName() + ".part");
+        try (Connection connection = openConnection()) {
+            List<Long> journalIds;
+            Map<String, Long> rowCounts;
+            long bytesWritten;
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (ThrottledOutputStream out = new ThrottledOutputStream(Files.newOutputStream(partFile), maxWriteRate)) {
+                journalIds = ChangeJournalDelta.readJournalIds(connection);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024)) {
+                    rowCounts = LogicalBackup.write(connection, gzip);
+                }
+                bytesWritten = out.getBytesWritten();
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            Files.move(partFile, backupFile, StandardCopyOption.ATOMIC_MOVE);
+
+            ChangeJournalDelta.prune(connection, journalIds);
+            meterRegistry.counter("backup.rows", "type", "logical")
+                    .increment(rowCounts.values().stream().mapToLong(Long::longValue).sum());
+            log.info("Logical backup rows: {}", rowCounts);
+            return bytesWritten;
+        } finally {
+            // Unvollständige Datei nach einem Fehler entfernen; nach dem Move existiert sie nicht mehr
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    /**
+     * Schreibt das Manifest eines deduplizierten Backups.
+     *
+     * @return Anzahl physisch geschriebener Bytes
+     */
+    private long commitDeduplicated(DeduplicatingBackupStore.BackupWriter writer, Path manifest) throws IOException {
+        writer.commit(manifest);
+        register(manifest, writer.getChunkBytes());
+        meterRegistry.counter("backup.chunks", "result", "new").increment(writer.getNewChunks());
+        meterRegistry.counter("backup.chunks", "result", "reused").increment(writer.getReusedChunks());
+        log.info("Deduplicated backup {}: {} new and {} reused chunks, {} of {} bytes written",
+                manifest.getFileName(), writer.getNewChunks(), writer.getReusedChunks(),
+                writer.getBytesWritten(), writer.getLogicalSize());
+        return writer.getBytesWritten();
+    }
+
+    /**
+     * Erstellt ein inkrementelles Backup mit den seit dem letzten Backup erfassten Änderungen.
+     * Existiert noch kein Basis-Backup, wird ein vollständiges Backup erstellt.
+     *
+     * @return Path zum erstellten Backup, leer wenn sich seit dem letzten Backup nichts geändert hat
+     * @throws IOException wenn das Delta nicht geschrieben werden kann
+     * @throws SQLException wenn das Lesen des Journals fehlschlägt
+     */
+    public synchronized Optional<Path> createIncrementalBackup() throws IOException, SQLException {
+        Path backupDir = createBackupDirectory();
+        if (catalog.newestFull().isEmpty()) {
+            log.info("No base backup found, creating full backup instead of delta");
+            return Optional.of(createBackup());
+        }
+        try (Connection connection = openConnection()) {
+            if (ChangeJournalDelta.isBaseBackupRequired(connection)) {
+                log.info("Change journal incomplete since last base backup, creating full backup instead of delta");
+                return Optional.of(createBackup());
+            }
+        }
+
+        String timestamp = LocalDateTime.now().format(BACKUP_DATE_FORMAT);
+        Path deltaFile = backupDir.resolve(DELTA_PREFIX + timestamp + DELTA_SUFFIX);
+        Path partFile = deltaFile.resolveSibling(deltaFile.getFileName() + ".part");
+
+        Timer.Sample sample = startBackup();
+        String outcome = "failure";
+        try (Connection connection = openConnection()) {
+            ChangeJournalDelta delta;
+            ThrottledOutputStream out;
+            // Journal und Zeilenstände aus demselben Snapshot lesen
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            try {
+                delta = ChangeJournalDelta.read(connection);
+                if (delta.isEmpty()) {
+                    log.info("Data unchanged since last backup, skipping incremental backup");
+                    outcome = "unchanged";
+                    return Optional.empty();
+                }
+                out = new ThrottledOutputStream(Files.newOutputStream(partFile), maxWriteRate);
+                try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8)) {
+                    delta.writeScript(connection, writer);
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            Files.move(partFile, deltaFile, StandardCopyOption.ATOMIC_MOVE);
+            register(deltaFile, 0);
+
+            ChangeJournalDelta.prune(connection, delta.getJournalIds());
+            meterRegistry.counter("backup.bytes.written", "type", "incremental").increment(out.getBytesWritten());
+            outcome = "success";
+
+            log.info("Incremental backup created: {} ({} changed rows, size: {} bytes)",
+                    deltaFile.toAbsolutePath(), delta.getChangedRowCount(), Files.size(deltaFile));
+            return Optional.of(deltaFile);
+        } finally {
+            Files.deleteIfExists(partFile);
+            stopBackup(sample, "incremental", outcome);
+        }
+    }
+
+    private Path createStagingDirectory() throws IOException {
+        return Files.createDirectories(stagingDirectory.resolve("contactdb-snapshot-" + System.nanoTime()));
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private Path createBackupDirectory() throws IOException {
         // Backup-Verzeichnis erstellen falls nicht vorhanden
         Path backupDir = Paths.get(backupDirectory);
         if (!Files.exists(backupDir)) {
             Files.createDirectories(backupDir);
             log.info("Created backup directory: {}", backupDir.toAbsolutePath());
         }
+        return backupDir;
+    }
 
-        // Backup-Dateiname mit Zeitstempel
-        String timestamp = LocalDateTime.now().format(BACKUP_DATE_FORMAT);
-        String backupFileName = String.format("contactdb-backup-%s.zip", timestamp);
-        Path backupFile = backupDir.resolve(backupFileName);
+    /**
+     * Meldet eine Funktion an, die nach jedem fertigen Backup mit dessen Datei aufgerufen wird (auf dem
+     * Backup-Thread, sie darf daher nicht blockieren).
+     */
+    public void addBackupListener(Consumer<Path> listener) {
+        backupListeners.add(listener);
+    }
 
-        // H2 BACKUP SQL ausführen
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement()) {
+    /**
+     * Nimmt ein fertig geschriebenes Backup in den Katalog auf und benachrichtigt die Listener.
+     *
+     * @param newChunkBytes dabei neu geschriebene Chunks
+     */
+    private void register(Path file, long newChunkBytes) throws IOException {
+        catalog.add(catalogEntry(file), newChunkBytes);
+        for (Consumer<Path> listener : backupListeners) {
+            try {
+                listener.accept(file);
+            } catch (RuntimeException e) {
+                log.warn("Backup listener failed for {}", file.getFileName(), e);
+            }
+        }
+    }
 
-            String sql = String.format("BACKUP TO '%s'", backupFile.toAbsolutePath());
-            statement.execute(sql);
+    /**
+     * Katalogeintrag für eine fertig geschriebene Backup-Datei.
+     */
+    private BackupCatalog.Entry catalogEntry(Path file) throws IOException {
+        long size = Files.size(file);
+        return new BackupCatalog.Entry(
+                file.getFileName().toString(),
+                isDelta(file) ? BackupCatalog.BackupType.INCREMENTAL : BackupCatalog.BackupType.FULL,
+                backupTime(file),
+                size,
+                isManifest(file) ? DeduplicatingBackupStore.logicalSize(file) : size,
+                BackupCatalog.checksum(file));
+    }
 
-            log.info("Database backup created: {} (size: {} bytes)",
-                    backupFile.toAbsolutePath(),
-                    Files.size(backupFile));
+    /**
+     * Baut den Katalog aus dem Verzeichnisinhalt auf, wenn noch keine Katalogdatei existiert.
+     */
+    private BackupCatalog.Contents scanBackupDirectory() throws IOException {
+        Path backupDir = Paths.get(backupDirectory);
+        if (!Files.exists(backupDir)) {
+            return new BackupCatalog.Contents(List.of(), 0);
+        }
+        List<BackupCatalog.Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(backupDir)) {
+            for (Path file : files.filter(DatabaseBackupService::isBackupFile).toList()) {
+                entries.add(catalogEntry(file));
+            }
+        }
+        log.info("Built backup catalog from {} files in {}", entries.size(), backupDir.toAbsolutePath());
+        return new BackupCatalog.Contents(entries, chunkStore.physicalSize());
+    }
 
-            return backupFile;
+    private Timer.Sample startBackup() {
+        activeBackups.incrementAndGet();
+        return Timer.start(meterRegistry);
+    }
+
+    private void stopBackup(Timer.Sample sample, String type, String outcome) {
+        sample.stop(meterRegistry.timer("backup.duration", "type", type, "outcome", outcome));
+        activeBackups.decrementAndGet();
+    }
+
+    private boolean isH2() {
+        return String.valueOf(dataSourceProperties.determineUrl()).startsWith("jdbc:h2:");
+    }
+
+    /**
+     * Eigene Verbindung außerhalb des Connection-Pools, damit ein Backup keine Request-Verbindung belegt.
+     */
+    Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    /**
+     * Verbindung zu einer wiederhergestellten Datenbank mit Optionen und Zugangsdaten der laufenden.
+     */
+    Connection openDatabase(Path database) throws SQLException {
+        return DriverManager.getConnection(h2FileUrl(database, true),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    /**
+     * Datei der laufenden Datenbank (ohne Endung), leer bei In-Memory- oder Server-Datenbanken.
+     */
+    Optional<Path> liveDatabase() {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith("jdbc:h2:")) {
+            return Optional.empty();
+        }
+        String path = url.substring("jdbc:h2:".length());
+        path = path.contains(";") ? path.substring(0, path.indexOf(';')) : path;
+        if (path.startsWith("mem:") || path.startsWith("tcp:") || path.startsWith("ssl:")) {
+            return Optional.empty();
+        }
+        path = path.startsWith("file:") ? path.substring("file:".length()) : path;
+        if (path.startsWith("~")) {
+            path = System.getProperty("user.home") + path.substring(1);
+        }
+        return Optional.of(Paths.get(path).toAbsolutePath().normalize());
+    }
+
+    Path backupDirectory() {
+        return Paths.get(backupDirectory);
+    }
+
+    BackupCatalog catalog() {
+        return catalog;
+    }
+
+    DeduplicatingBackupStore chunkStore() {
+        return chunkStore;
+    }
+
+    /**
+     * Schützt die Backup-Dateien während eines Restores vor der Bereinigung.
+     */
+    Lock backupFilesReadLock() {
+        return backupFilesLock.readLock();
+    }
+
+    /**
+     * Optionen der laufenden Datenbank-URL (z.B. CIPHER, MODE) ohne AUTO_SERVER.
+     */
+    private List<String> urlOptions() {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || url.indexOf(';') < 0) {
+            return List.of();
+        }
+        return Arrays.stream(url.substring(url.indexOf(';') + 1).split(";"))
+                .filter(option -> !option.isBlank())
+                .filter(option -> !option.toUpperCase(Locale.ROOT).startsWith("AUTO_SERVER"))
+                .toList();
+    }
+
+    /**
+     * Name der laufenden Datenbank, wie er in den Dateinamen erscheint (z.B. contact_manager).
+     */
+    private String databaseName() {
+        String url = dataSourceProperties.determineUrl();
+        String path = url.contains(";") ? url.substring(0, url.indexOf(';')) : url;
+        path = path.substring(path.lastIndexOf(':') + 1);
+        return path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+    }
+
+    /**
+     * JDBC-URL für eine Datenbankdatei außerhalb des laufenden Betriebs (Staging, Restore) mit den Optionen der
+     * laufenden Datenbank.
+     */
+    private String h2FileUrl(Path database, boolean mustExist) {
+        return "jdbc:h2:file:" + database.toAbsolutePath()
+                + urlOptions().stream().map(option -> ";" + option).collect(Collectors.joining())
+                + (mustExist ? ";IFEXISTS=TRUE" : "");
+    }
+
+    /**
+     * Verschlüsselt den SQL-Snapshot, wenn die Datenbank verschlüsselt ist.
+     */
+    private String scriptCipher() {
+        return urlOptions().stream()
+                .filter(option -> option.toUpperCase(Locale.ROOT).startsWith("CIPHER="))
+                .findFirst()
+                .map(option -> " CIPHER " + option.substring("CIPHER=".length())
+                        + " PASSWORD " + sqlString(dataSourceProperties.determinePassword()))
+                .orElse("");
+    }
+
+    private static boolean isBaseBackup(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(BACKUP_PREFIX)
+                && (name.endsWith(BACKUP_SUFFIX) || name.endsWith(MANIFEST_SUFFIX) || name.endsWith(LOGICAL_SUFFIX));
+    }
+
+    static boolean isLogical(String fileName) {
+        return fileName.startsWith(BACKUP_PREFIX) && fileName.endsWith(LOGICAL_SUFFIX);
+    }
+
+    private static boolean isManifest(Path path) {
+        return isBaseBackup(path) && path.getFileName().toString().endsWith(MANIFEST_SUFFIX);
+    }
+
+    private static boolean isDelta(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(DELTA_PREFIX) && name.endsWith(DELTA_SUFFIX);
+    }
+
+    private static boolean isBackupFile(Path path) {
+        return isBaseBackup(path) || isDelta(path);
+    }
+
+    private static String backupTimestamp(Path path) {
+        String name = path.getFileName().toString();
+        if (isDelta(path)) {
+            return name.substring(DELTA_PREFIX.length(), name.length() - DELTA_SUFFIX.length());
         }
+        String suffix = isManifest(path) ? MANIFEST_SUFFIX : isLogical(name) ? LOGICAL_SUFFIX : BACKUP_SUFFIX;
+        return name.substring(BACKUP_PREFIX.length(), name.length() - suffix.length());
     }
 
     /**
-     * Löscht Backups, die älter als 30 Tage sind.
+     * Erstellungszeit aus dem Dateinamen; Backups älterer Versionen haben Sekunden-Zeitstempel.
      */
-    public void cleanupOldBackups() {
+    private static LocalDateTime backupTime(Path path) throws IOException {
+        String timestamp = backupTimestamp(path);
+        for (DateTimeFormatter format : List.of(BACKUP_DATE_FORMAT, LEGACY_BACKUP_DATE_FORMAT)) {
+            try {
+                return LocalDateTime.parse(timestamp, format);
+            } catch (DateTimeParseException e) {
+                // nächstes Format
+            }
+        }
+        return LocalDateTime.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
+    }
+
+    static String sqlString(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * Dünnt Backups und Deltas nach der Aufbewahrungsregel aus und löscht danach nicht mehr referenzierte Chunks.
+     * Synchronisiert mit den Backups, da Chunks eines laufenden Backups noch in keinem Manifest stehen.
+     */
+    public synchronized void cleanupOldBackups() {
         Path backupDir = Paths.get(backupDirectory);
         if (!Files.exists(backupDir)) {
             log.debug("Backup directory does not exist, skipping cleanup");
             return;
         }
+        // Die Bereinigung darf warten, ein laufender Restore nicht
+        if (!backupFilesLock.writeLock().tryLock()) {
+            log.info("Restore in progress, postponing backup cleanup");
+            return;
+        }
 
-        LocalDateTime cutoffDate = LocalDateTime.now().minus(RETENTION_DAYS, ChronoUnit.DAYS);
-        log.info("Cleaning up backups older than {} days (before {})",
-                RETENTION_DAYS, cutoffDate.format(BACKUP_DATE_FORMAT));
+        try {
+            List<BackupCatalog.Entry> entries = catalog.entries();
+            Set<BackupCatalog.Entry> retained = retentionPolicy.retain(entries, LocalDateTime.now());
+            log.info("Cleaning up backups: keeping {} of {}", retained.size(), entries.size());
 
-        try (Stream<Path> files = Files.list(backupDir)) {
-            files.filter(path -> path.toString().endsWith(".zip"))
-                 .filter(path -> path.getFileName().toString().startsWith("contactdb-backup-"))
-                 .forEach(path -> {
-                     try {
-                         LocalDateTime fileTime = Files.getLastModifiedTime(path)
-                                 .toInstant()
-                                 .atZone(java.time.ZoneId.systemDefault())
-                                 .toLocalDateTime();
-
-                         if (fileTime.isBefore(cutoffDate)) {
-                             Files.delete(path);
-                             log.info("Deleted old backup: {}", path.getFileName());
-                         }
-                     } catch (IOException e) {
-                         log.error("Failed to delete old backup: {}", path.getFileName(), e);
-                     }
-                 });
+            List<BackupCatalog.Entry> deleted = new ArrayList<>();
+            for (BackupCatalog.Entry entry : entries) {
+                if (retained.contains(entry)) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(backupDir.resolve(entry.fileName()));
+                    deleted.add(entry);
+                    log.info("Deleted old backup: {}", entry.fileName());
+                } catch (IOException e) {
+                    log.error("Failed to delete old backup: {}", entry.fileName(), e);
+                }
+            }
+
+            // Chunks nur prüfen, wenn ein Manifest gelöscht wurde
+            long freedChunkBytes = 0;
+            if (deleted.stream().anyMatch(entry -> entry.fileName().endsWith(MANIFEST_SUFFIX))) {
+                freedChunkBytes = chunkStore.collectGarbage(retained.stream()
+                        .map(entry -> backupDir.resolve(entry.fileName()))
+                        .filter(DatabaseBackupService::isManifest)
+                        .toList());
+                log.info("Deleted unreferenced backup chunks ({} bytes)", freedChunkBytes);
+            }
+            catalog.remove(deleted, freedChunkBytes);
         } catch (IOException e) {
             log.error("Failed to cleanup old backups", e);
+        } finally {
+            backupFilesLock.writeLock().unlock();
         }
     }
 
     /**
-     * Gibt Statistiken über vorhandene Backups zurück.
+     * Gibt Statistiken über vorhandene Backups aus dem Katalog zurück.
+     * Die logische Größe zählt deduplizierte Backups mit ihrer vollen Größe, die physische den belegten Platz.
      */
     public BackupStatistics getBackupStatistics() {
         Path backupDir = Paths.get(backupDirectory);
@@ -144,50 +801,55 @@ public class DatabaseBackupService {
             return new BackupStatistics(0, 0, null);
         }
 
-        try (Stream<Path> files = Files.list(backupDir)) {
-            var backups = files.filter(path -> path.toString().endsWith(".zip"))
-                              .filter(path -> path.getFileName().toString().startsWith("contactdb-backup-"))
-                              .toList();
-
-            long totalSize = backups.stream()
-                                   .mapToLong(path -> {
-                                       try {
-                                           return Files.size(path);
-                                       } catch (IOException e) {
-                                           return 0;
-                                       }
-                                   })
-                                   .sum();
-
-            Path newestBackup = backups.stream()
-                                      .max((p1, p2) -> {
-                                          try {
-                                              return Files.getLastModifiedTime(p1)
-                                                         .compareTo(Files.getLastModifiedTime(p2));
-                                          } catch (IOException e) {
-                                              return 0;
-                                          }
-                                      })
-                                      .orElse(null);
-
-            return new BackupStatistics(backups.size(), totalSize, newestBackup);
+        try {
+            Path newestBackup = catalog.newest().map(entry -> backupDir.resolve(entry.fileName())).orElse(null);
+            return new BackupStatistics(catalog.count(), catalog.totalSizeBytes(), catalog.logicalSizeBytes(),
+                    newestBackup);
         } catch (IOException e) {
             log.error("Failed to get backup statistics", e);
             return new BackupStatistics(0, 0, null);
         }
     }
 
+    @FunctionalInterface
+    private interface BackupTask {
+        void run() throws IOException, SQLException;
+    }
+
     /**
      * Backup-Statistiken.
      */
-    public record BackupStatistics(int count, long totalSizeBytes, Path newestBackup) {
+    public record BackupStatistics(int count, long totalSizeBytes, long logicalSizeBytes, Path newestBackup) {
+
+        /**
+         * Statistik ohne deduplizierte Backups: logische und physische Größe sind gleich.
+         */
+        public BackupStatistics(int count, long totalSizeBytes, Path newestBackup) {
+            this(count, totalSizeBytes, totalSizeBytes, newestBackup);
+        }
+
         public String getFormattedSize() {
-            if (totalSizeBytes < 1024) {
-                return totalSizeBytes + " B";
-            } else if (totalSizeBytes < 1024 * 1024) {
-                return String.format("%.2f KB", totalSizeBytes / 1024.0);
+            return formatSize(totalSizeBytes);
+        }
+
+        public String getFormattedLogicalSize() {
+            return formatSize(logicalSizeBytes);
+        }
+
+        /**
+         * Verhältnis logischer zu physischer Größe (1.0 ohne Deduplizierung).
+         */
+        public double getDeduplicationRatio() {
+            return totalSizeBytes > 0 ? (double) logicalSizeBytes / totalSizeBytes : 1.0;
+        }
+
+        private static String formatSize(long bytes) {
+            if (bytes < 1024) {
+                return bytes + " B";
+            } else if (bytes < 1024 * 1024) {
+                return String.format("%.2f KB", bytes / 1024.0);
             } else {
-                return String.format("%.2f MB", totalSizeBytes / (1024.0 * 1024.0));
+                return String.format("%.2f MB", bytes / (1024.0 * 1024.0));
             }
         }
     }
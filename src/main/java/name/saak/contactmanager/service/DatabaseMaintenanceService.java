@@ -0,0 +1,316 @@
+package name.saak.contactmanager.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pflege der H2-Datenbankdatei (app.database.maintenance).
+ *
+ * Der MVStore schreibt Änderungen immer in neue Chunks; alte Chunks werden erst frei, wenn ihr Inhalt veraltet ist,
+ * und die Datei wächst mit jeder Bearbeitung und Löschung. Der Job misst regelmäßig Dateigröße, Füllgrad der
+ * Chunks (Anteil noch gültiger Daten) und Chunk-Anzahl. Liegt der Füllgrad unter app.database.maintenance.min-fill-rate
+ * oder die Chunk-Anzahl über max-chunks, wird die Datenbank im Ruhefenster (quiet-window) mit SHUTDOWN COMPACT
+ * geschlossen und kompaktiert. Wie beim Austausch durch einen Restore wird der Pool dafür angehalten; laufende Anfragen
+ * schlagen fehl, neue warten bis zum Wiederöffnen. Lässt sich der Pool nicht anhalten oder reicht die Kompaktierung
+ * nicht aus, wird die Datenbank beim Herunterfahren mit SHUTDOWN DEFRAG neu geschrieben. Instanzen, die über
+ * AUTO_SERVER mit der Datenbank einer anderen verbunden sind, messen nur; kompaktiert wird von der Instanz, in der die
+ * Datenbank läuft. Der Job läuft auf einem eigenen Thread, damit er den gemeinsamen Scheduler nicht blockiert.
+ *
+ * Nur für dateibasierte H2-Datenbanken; bei In-Memory- und Server-Datenbanken tut der Job nichts.
+ */
+@Service
+public class DatabaseMaintenanceService {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseMaintenanceService.class);
+
+    private final DataSource dataSource;
+    private final DatabaseBackupService backupService;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final LocalTime quietStart;
+    private final LocalTime quietEnd;
+    private final int minFillRate;
+    private final int maxChunks;
+    private final boolean defragOnShutdown;
+    private final Clock clock;
+    private final ExecutorService maintenanceExecutor;
+    private final AtomicBoolean maintenanceRunning = new AtomicBoolean();
+    private final AtomicLong fileSize = new AtomicLong();
+    private final AtomicLong fillRate = new AtomicLong(100);
+    private final AtomicLong chunkCount = new AtomicLong();
+    private volatile boolean defragRequested;
+
+    /**
+     * Füllgrad und Größe der Datenbankdatei laut INFORMATION_SCHEMA.SETTINGS.
+     *
+     * @param fillRate Anteil gültiger Daten in den Chunks in Prozent
+     */
+    public record StoreStatistics(long fileSize, int fillRate, int chunkCount) {
+    }
+
+    @Autowired
+    public DatabaseMaintenanceService(
+            DataSource dataSource,
+            DatabaseBackupService backupService,
+            MeterRegistry meterRegistry,
+            @Value("${app.database.maintenance.enabled:true}") boolean enabled,
+            @Value("${app.database.maintenance.quiet-window:02:00-05:00}") String quietWindow,
+            @Value("${app.database.maintenance.min-fill-rate:50}") int minFillRate,
+            @Value("${app.database.maintenance.max-chunks:1000}") int maxChunks,
+            @Value("${app.database.maintenance.defrag-on-shutdown:true}") boolean defragOnShutdown) {
+        this(dataSource, backupService, meterRegistry, enabled, quietWindow, minFillRate, maxChunks, defragOnShutdown,
+                Clock.systemDefaultZone());
+    }
+
+    DatabaseMaintenanceService(DataSource dataSource, DatabaseBackupService backupService, MeterRegistry meterRegistry,
+                               boolean enabled, String quietWindow, int minFillRate, int maxChunks,
+                               boolean defragOnShutdown, Clock clock) {
+        String[] window = quietWindow.split("-");
+        if (window.length != 2) {
+            throw new IllegalArgumentException("Invalid quiet window (expected HH:mm-HH:mm): " + quietWindow);
+        }
+        this.dataSource = dataSource;
+        this.backupService = backupService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.quietStart = LocalTime.parse(window[0].trim());
+        this.quietEnd = LocalTime.parse(window[1].trim());
+        this.minFillRate = minFillRate;
+        this.maxChunks = maxChunks;
+        this.defragOnShutdown = defragOnShutdown;
+        this.clock = clock;
+        this.maintenanceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "database-maintenance");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        meterRegistry.gauge("database.file.size", fileSize);
+        meterRegistry.gauge("database.fill.rate", fillRate, rate -> rate.get() / 100.0);
+        meterRegistry.gauge("database.chunks", chunkCount);
+    }
+
+    /**
+     * Scheduled Task: Übergibt die Pflege an den eigenen Thread; läuft die vorige noch, entfällt dieser Lauf.
+     */
+    @Scheduled(initialDelayString = "${app.database.maintenance.check-interval:PT15M}",
+            fixedDelayString = "${app.database.maintenance.check-interval:PT15M}")
+    public void scheduleMaintenance() {
+        if (!maintenanceRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            maintenanceExecutor.execute(() -> {
+                try {
+                    runMaintenance();
+                } finally {
+                    maintenanceRunning.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            maintenanceRunning.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Misst die Datenbankdatei und kompaktiert sie bei Bedarf im Ruhefenster.
+     */
+    public void runMaintenance() {
+        if (!enabled || backupService.liveDatabase().isEmpty()) {
+            return;
+        }
+        try {
+            Optional<StoreStatistics> statistics = measure();
+            if (statistics.isEmpty() || !needsCompaction(statistics.get())) {
+                return;
+            }
+            if (!isQuietTime()) {
+                log.debug("Database fill rate {}% with {} chunks, waiting for quiet window {}-{}",
+                        statistics.get().fillRate(), statistics.get().chunkCount(), quietStart, quietEnd);
+                return;
+            }
+            if (backupService.isBackupRunning()) {
+                log.info("Backup running, postponing database compaction");
+                return;
+            }
+            compact(statistics.get());
+        } catch (SQLException e) {
+            log.error("Database maintenance failed", e);
+        }
+    }
+
+    /**
+     * Liest Dateigröße, Füllgrad und Chunk-Anzahl und aktualisiert die Metriken.
+     *
+     * @return leer, wenn die Datenbank keine Datei hat
+     */
+    public Optional<StoreStatistics> measure() throws SQLException {
+        Map<String, Long> info = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT SETTING_NAME, SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS "
+                             + "WHERE SETTING_NAME IN ('info.FILE_SIZE', 'info.CHUNKS_FILL_RATE', 'info.CHUNK_COUNT')");
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                info.put(rs.getString(1), Long.parseLong(rs.getString(2)));
+            }
+        }
+        if (info.size() < 3) {
+            return Optional.empty();
+        }
+        StoreStatistics statistics = new StoreStatistics(info.get("info.FILE_SIZE"),
+                Math.toIntExact(info.get("info.CHUNKS_FILL_RATE")), Math.toIntExact(info.get("info.CHUNK_COUNT")));
+        fileSize.set(statistics.fileSize());
+        fillRate.set(statistics.fillRate());
+        chunkCount.set(statistics.chunkCount());
+        return Optional.of(statistics);
+    }
+
+    /**
+     * Setzt die Datei beim Herunterfahren neu auf, wenn die Online-Kompaktierung nicht ausgereicht hat.
+     */
+    @PreDestroy
+    void shutdown() {
+        maintenanceExecutor.shutdownNow();
+        if (!enabled || !defragOnShutdown || !defragRequested) {
+            return;
+        }
+        log.info("Defragmenting database file before shutdown");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try (Connection connection = dataSource.getConnection()) {
+            // Nach SHUTDOWN ist die Verbindung geschlossen, das Zurückgeben an den Pool schlägt dann fehl
+            connection.createStatement().execute("SHUTDOWN DEFRAG");
+            defragRequested = false;
+            outcome = "success";
+        } catch (SQLException e) {
+            if (defragRequested) {
+                log.error("Database defragmentation failed", e);
+            }
+        } finally {
+            sample.stop(meterRegistry.timer("database.compaction.duration", "mode", "defrag", "outcome", outcome));
+        }
+    }
+
+    boolean isDefragRequested() {
+        return defragRequested;
+    }
+
+    private boolean needsCompaction(StoreStatistics statistics) {
+        return statistics.fillRate() < minFillRate || statistics.chunkCount() > maxChunks;
+    }
+
+    /**
+     * Ob die aktuelle Uhrzeit im Ruhefenster liegt; das Fenster darf über Mitternacht reichen, gleiche Start- und
+     * Endzeit bedeuten den ganzen Tag.
+     */
+    boolean isQuietTime() {
+        LocalTime now = LocalTime.now(clock);
+        if (quietStart.equals(quietEnd)) {
+            return true;
+        }
+        if (quietStart.isBefore(quietEnd)) {
+            return !now.isBefore(quietStart) && now.isBefore(quietEnd);
+        }
+        return !now.isBefore(quietStart) || now.isBefore(quietEnd);
+    }
+
+    /**
+     * Schließt die eingebettete Datenbank mit SHUTDOWN COMPACT: H2 schreibt die gültigen Daten dabei in eine
+     * kompakte Datei um. Der Pool ist währenddessen angehalten, die nächste Verbindung öffnet die Datei neu.
+     */
+    private void compact(StoreStatistics before) throws SQLException {
+        if (!isEmbedded()) {
+            // SHUTDOWN würde hier die Datenbank der anderen Instanz schließen
+            log.debug("Database is not embedded in this process, leaving compaction to its owner");
+            return;
+        }
+        HikariPoolMXBean pool = suspendablePool();
+        if (pool == null) {
+            log.info("Connection pool cannot be suspended (spring.datasource.hikari.allow-pool-suspension), "
+                    + "database will be defragmented at shutdown instead");
+            defragRequested = defragOnShutdown;
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        // Kein Backup darf währenddessen die Datenbank lesen
+        synchronized (backupService) {
+            pool.suspendPool();
+            try {
+                pool.softEvictConnections();
+                try (Connection connection = backupService.openConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("SHUTDOWN COMPACT");
+                }
+                outcome = "success";
+            } finally {
+                pool.softEvictConnections();
+                pool.resumePool();
+                sample.stop(meterRegistry.timer("database.compaction.duration", "mode", "compact",
+                        "outcome", outcome));
+            }
+        }
+
+        Optional<StoreStatistics> after = measure();
+        if (after.isPresent()) {
+            log.info("Database compacted: {} -> {} bytes, fill rate {}% -> {}%, {} -> {} chunks",
+                    before.fileSize(), after.get().fileSize(), before.fillRate(), after.get().fillRate(),
+                    before.chunkCount(), after.get().chunkCount());
+            if (needsCompaction(after.get()) && defragOnShutdown) {
+                log.info("Compaction insufficient, database will be defragmented at shutdown");
+                defragRequested = true;
+            }
+        }
+    }
+
+    /**
+     * Ob die Datenbank in diesem Prozess läuft und nicht über AUTO_SERVER in einer anderen Instanz.
+     */
+    private boolean isEmbedded() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.unwrap(JdbcConnection.class).getSession() instanceof SessionLocal;
+        }
+    }
+
+    /**
+     * Der Pool muss angehalten werden können, sonst öffnet eine neue Verbindung die Datei während SHUTDOWN COMPACT.
+     *
+     * @return {@code null}, wenn der Pool das Anhalten nicht erlaubt
+     */
+    private HikariPoolMXBean suspendablePool() {
+        if (!(dataSource instanceof HikariDataSource hikari) || !hikari.isAllowPoolSuspension()) {
+            return null;
+        }
+        return hikari.getHikariPoolMXBean();
+    }
+}
@@ -0,0 +1,595 @@
+package name.saak.contactmanager.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Wiederherstellung von Backups in eine frische H2-Datenbankdatei.
+ *
+ * Ein Basis-Backup wird direkt eingespielt, ein Delta zusammen mit seinem Basis-Backup und allen Deltas dazwischen.
+ * Die SHA-256-Prüfsummen aus dem {@link BackupCatalog} werden parallel zum Entpacken geprüft; danach folgt eine
+ * Integritätsprüfung (Zeilenzahlen, Fremdschlüssel von contact_hashtag). Optional ersetzt das Ergebnis die laufende
+ * Datenbank. Der Restore-Drill (Job "restore-drill", app.backup.restore-drill.cron) stellt regelmäßig das neueste
+ * Backup im Hintergrund wieder her und misst, wie lange das dauert.
+ *
+ * Logische Backups ({@link LogicalBackup}) werden stattdessen mit {@link #restoreLogical(String, DataSource)} in
+ * eine leere, bereits migrierte Datenbank beliebigen Typs eingespielt.
+ */
+@Service
+public class DatabaseRestoreService {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseRestoreService.class);
+    private static final DateTimeFormatter RESTORE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+
+    private final DatabaseBackupService backupService;
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path restoreDirectory;
+    private final ExecutorService verifyExecutor;
+    private final AtomicLong lastDrillMillis = new AtomicLong(-1);
+    private volatile RestoreResult lastDrill;
+
+    public DatabaseRestoreService(
+            DatabaseBackupService backupService,
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.backup.restore-directory:${java.io.tmpdir}}") String restoreDirectory,
+            @Value("${app.backup.restore-parallelism:0}") int parallelism) {
+        this.backupService = backupService;
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        this.restoreDirectory = Paths.get(restoreDirectory);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.verifyExecutor = Executors.newFixedThreadPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "restore-verify-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        meterRegistry.gauge("backup.restore.drill.last.duration", lastDrillMillis, millis -> millis.get() / 1000.0);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        verifyExecutor.shutdownNow();
+    }
+
+    /**
+     * Stellt ein Backup in ein neues Verzeichnis unter app.backup.restore-directory wieder her; mit {@code swap}
+     * neben der laufenden Datenbank, die anschließend ersetzt wird. Nach dem Austausch wird ein
+     * {@link DatabaseRestoredEvent} veröffentlicht.
+     *
+     * @param backupName Dateiname des Backups aus dem Katalog, {@code null} für das neueste
+     * @param swap laufende Datenbank durch das geprüfte Ergebnis ersetzen
+     * @throws BackupNotFoundException wenn das Backup nicht im Katalog steht
+     * @throws RestoreVerificationException wenn Prüfsummen oder Integritätsprüfung fehlschlagen
+     * @throws IllegalStateException wenn die laufende Datenbank nicht ersetzt werden kann
+     */
+    public RestoreResult restore(String backupName, boolean swap) throws IOException, SQLException {
+        String directoryName = "contactdb-restore-" + LocalDateTime.now().format(RESTORE_DATE_FORMAT);
+        if (!swap) {
+            return restore(backupName, restoreDirectory.resolve(directoryName));
+        }
+
+        // Neben der laufenden Datenbank, damit der Austausch ein Umbenennen im selben Dateisystem ist
+        Path liveDatabase = backupService.liveDatabase()
+                .orElseThrow(() -> new IllegalStateException("Only file-based databases can be replaced"));
+        HikariPoolMXBean pool = suspendablePool();
+        RestoreResult result = restore(backupName, liveDatabase.resolveSibling(directoryName));
+        // Kein Backup darf währenddessen die Datenbank lesen
+        synchronized (backupService) {
+            swapInto(result.database(), liveDatabase, pool);
+        }
+        RestoreResult swapped = result.swappedInto(liveDatabase);
+        eventPublisher.publishEvent(new DatabaseRestoredEvent(swapped));
+        return swapped;
+    }
+
+    /**
+     * Stellt ein Backup in das angegebene Verzeichnis wieder her und prüft das Ergebnis.
+     *
+     * @param backupName Dateiname des Backups aus dem Katalog, {@code null} für das neueste
+     * @param targetDirectory leeres Zielverzeichnis
+     */
+    public RestoreResult restore(String backupName, Path targetDirectory) throws IOException, SQLException {
+        return restore(backupName, targetDirectory, "false");
+    }
+
+    /**
+     * Spielt ein logisches Backup per Batch-Insert in eine leere Datenbank mit dem Schema der Anwendung ein
+     * (H2 oder PostgreSQL). Deltas danach werden nur in H2 eingespielt. Prüfsumme und Integrität werden vor dem
+     * Commit geprüft; schlägt etwas fehl, bleibt die Zieldatenbank leer.
+     *
+     * @param backupName Dateiname des Backups aus dem Katalog, {@code null} für das neueste
+     * @param target Zieldatenbank, deren Tabellen leer sind
+     * @return Ergebnis ohne Datenbankdatei
+     * @throws IllegalStateException wenn das Backup nicht logisch oder die Zieldatenbank nicht leer ist
+     */
+    public RestoreResult restoreLogical(String backupName, DataSource target) throws IOException, SQLException {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        Lock lock = backupService.backupFilesReadLock();
+        lock.lock();
+        try (Connection connection = target.getConnection()) {
+            List<BackupCatalog.Entry> chain = restoreChain(backupName);
+            BackupCatalog.Entry base = chain.get(0);
+            if (!DatabaseBackupService.isLogical(base.fileName())) {
+                throw new IllegalStateException("Backup " + base.fileName() + " is not a logical backup");
+            }
+            boolean h2 = connection.getMetaData().getDatabaseProductName().equals("H2");
+            if (chain.size() > 1 && !h2) {
+                throw new IllegalStateException("Incremental backups can only be restored into H2");
+            }
+            if (LogicalBackup.countRows(connection) > 0) {
+                throw new IllegalStateException("Restore target is not empty");
+            }
+
+            boolean autoCommit = connection.getAutoCommit();
+            Map<String, Long> rowCounts;
+            IntegrityReport integrity;
+            try {
+                rowCounts = loadLogical(chain, connection);
+                integrity = checkIntegrity(connection);
+                if (!integrity.isConsistent()) {
+                    throw new RestoreVerificationException("Restored database is inconsistent: " + integrity);
+                }
+                connection.commit();
+            } catch (IOException | SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            finishLogicalRestore(connection, h2);
+            outcome = "success";
+
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            String backup = chain.get(chain.size() - 1).fileName();
+            log.info("Logical backup {} ({} incremental backups) restored in {} ms: {}, {}",
+                    backup, chain.size() - 1, durationMillis, rowCounts, integrity);
+            return new RestoreResult(backup, chain.size() - 1, null, durationMillis, integrity, false);
+        } finally {
+            lock.unlock();
+            meterRegistry.timer("backup.restore.duration", "drill", "false", "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Ergebnis des letzten erfolgreichen Restore-Drills.
+     */
+    public Optional<RestoreResult> getLastDrill() {
+        return Optional.ofNullable(lastDrill);
+    }
+
+    /**
+     * Probe-Restore (Job "restore-drill", standardmäßig deaktiviert): Stellt das neueste Backup wieder her, prüft es
+     * und löscht es anschließend.
+     */
+    public RestoreResult runRestoreDrill() throws IOException, SQLException {
+        Path target = restoreDirectory.resolve("contactdb-drill-" + LocalDateTime.now().format(RESTORE_DATE_FORMAT));
+        try {
+            RestoreResult result = restore(null, target, "true");
+            lastDrill = result;
+            lastDrillMillis.set(result.durationMillis());
+            log.info("Restore drill of {} completed in {} ms", result.backup(), result.durationMillis());
+            return result;
+        } finally {
+            try {
+                if (Files.exists(target)) {
+                    DatabaseBackupService.deleteRecursively(target);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to delete restore drill directory {}", target, e);
+            }
+        }
+    }
+
+    private RestoreResult restore(String backupName, Path targetDirectory, String drill)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            Lock lock = backupService.backupFilesReadLock();
+            lock.lock();
+            List<BackupCatalog.Entry> chain;
+            Path database;
+            try {
+                chain = restoreChain(backupName);
+                database = restoreChain(chain, targetDirectory);
+            } finally {
+                lock.unlock();
+            }
+
+            IntegrityReport integrity = checkIntegrity(database);
+            if (!integrity.isConsistent()) {
+                throw new RestoreVerificationException("Restored database is inconsistent: " + integrity);
+            }
+            outcome = "success";
+
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            String backup = chain.get(chain.size() - 1).fileName();
+            log.info("Database restored to {} from {} ({} incremental backups) in {} ms: {}",
+                    database.toAbsolutePath(), backup, chain.size() - 1, durationMillis, integrity);
+            return new RestoreResult(backup, chain.size() - 1, database, durationMillis, integrity, false);
+        } finally {
+            meterRegistry.timer("backup.restore.duration", "drill", drill, "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Fügt die Zeilen des logischen Basis-Backups ein und spielt die Deltas per RUNSCRIPT ein, ohne zu committen.
+     * Die Prüfsumme des Basis-Backups wird beim Lesen berechnet, die der Deltas parallel dazu.
+     */
+    private Map<String, Long> loadLogical(List<BackupCatalog.Entry> chain, Connection connection)
+            throws IOException, SQLException {
+        Path backupDir = backupService.backupDirectory();
+        BackupCatalog.Entry base = chain.get(0);
+        Map<BackupCatalog.Entry, Future<String>> checksums = submitChecksums(chain.subList(1, chain.size()));
+        try {
+            Map<String, Long> rowCounts;
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(backupDir.resolve(base.fileName())), digest)) {
+                rowCounts = LogicalBackup.read(new GZIPInputStream(in, 64 * 1024), connection);
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            verifyChecksum(base, HexFormat.of().formatHex(digest.digest()));
+            awaitChecksums(checksums);
+
+            try (Statement statement = connection.createStatement()) {
+                for (BackupCatalog.Entry delta : chain.subList(1, chain.size())) {
+                    statement.execute(runScript(backupDir.resolve(delta.fileName())));
+                }
+            }
+            return rowCounts;
+        } finally {
+            checksums.values().forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Journal leeren und Identity-Spalten hinter die höchste eingespielte ID setzen.
+     */
+    private static void finishLogicalRestore(Connection connection, boolean h2) throws SQLException {
+        if (h2) {
+            ChangeJournalDelta.finishRestore(connection);
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM change_journal");
+            for (String table : List.of("hashtag", "contact")) {
+                statement.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), "
+                        + "COALESCE((SELECT MAX(id) FROM " + table + "), 0) + 1, false)");
+            }
+        }
+    }
+
+    /**
+     * Basis-Backup und Deltas bis einschließlich des gewählten Backups, in Einspielreihenfolge.
+     */
+    private List<BackupCatalog.Entry> restoreChain(String backupName) throws IOException {
+        List<BackupCatalog.Entry> entries = backupService.catalog().entries();
+        int target = entries.size() - 1;
+        if (backupName != null) {
+            target = -1;
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i).fileName().equals(backupName)) {
+                    target = i;
+                }
+            }
+        }
+        if (target < 0) {
+            throw new BackupNotFoundException(backupName != null
+                    ? "Backup " + backupName + " nicht gefunden"
+                    : "Kein Backup vorhanden");
+        }
+
+        int base = target;
+        while (base >= 0 && entries.get(base).type() != BackupCatalog.BackupType.FULL) {
+            base--;
+        }
+        if (base < 0) {
+            throw new BackupNotFoundException("Kein Basis-Backup für " + entries.get(target).fileName());
+        }
+        return new ArrayList<>(entries.subList(base, target + 1));
+    }
+
+    /**
+     * Spielt Basis-Backup und Deltas ein; die Prüfsummen der Deltas (bzw. des Manifests) werden währenddessen
+     * parallel geprüft, die des Basis-Archivs beim Entpacken.
+     */
+    private Path restoreChain(List<BackupCatalog.Entry> chain, Path targetDirectory) throws IOException, SQLException {
+        Path backupDir = backupService.backupDirectory();
+        BackupCatalog.Entry base = chain.get(0);
+        if (DatabaseBackupService.isLogical(base.fileName())) {
+            throw new IllegalStateException("Logical backup " + base.fileName()
+                    + " has no database file, restore it with restoreLogical");
+        }
+        boolean deduplicated = base.fileName().endsWith(DeduplicatingBackupStore.MANIFEST_SUFFIX);
+
+        Map<BackupCatalog.Entry, Future<String>> checksums =
+                submitChecksums(deduplicated ? chain : chain.subList(1, chain.size()));
+        Path database;
+        try {
+            // Chunks werden beim Zusammensetzen einzeln gegen ihren Hash geprüft
+            database = deduplicated
+                    ? restoreDeduplicated(backupDir.resolve(base.fileName()), targetDirectory)
+                    : extractBackup(backupDir.resolve(base.fileName()), base.checksum(), targetDirectory);
+            awaitChecksums(checksums);
+        } finally {
+            checksums.values().forEach(future -> future.cancel(true));
+        }
+
+        try (Connection connection = backupService.openDatabase(database);
+             Statement statement = connection.createStatement()) {
+            for (BackupCatalog.Entry delta : chain.subList(1, chain.size())) {
+                statement.execute(runScript(backupDir.resolve(delta.fileName())));
+            }
+            ChangeJournalDelta.finishRestore(connection);
+        }
+        return database;
+    }
+
+    private Map<BackupCatalog.Entry, Future<String>> submitChecksums(List<BackupCatalog.Entry> entries) {
+        Path backupDir = backupService.backupDirectory();
+        Map<BackupCatalog.Entry, Future<String>> checksums = new LinkedHashMap<>();
+        for (BackupCatalog.Entry entry : entries) {
+            Path file = backupDir.resolve(entry.fileName());
+            checksums.put(entry, verifyExecutor.submit(() -> BackupCatalog.checksum(file)));
+        }
+        return checksums;
+    }
+
+    private static void awaitChecksums(Map<BackupCatalog.Entry, Future<String>> checksums) throws IOException {
+        try {
+            for (Map.Entry<BackupCatalog.Entry, Future<String>> checksum : checksums.entrySet()) {
+                verifyChecksum(checksum.getKey(), checksum.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Restore interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    private static String runScript(Path delta) {
+        return "RUNSCRIPT FROM " + DatabaseBackupService.sqlString(delta.toAbsolutePath().toString())
+                + " COMPRESSION GZIP CHARSET 'UTF-8'";
+    }
+
+    /**
+     * Entpackt die Datenbankdateien eines BACKUP-TO-Archivs und prüft dabei dessen Prüfsumme.
+     */
+    private Path extractBackup(Path backup, String expectedChecksum, Path targetDirectory) throws IOException {
+        Files.createDirectories(targetDirectory);
+        Path target = targetDirectory.toAbsolutePath().normalize();
+        Path database = null;
+        MessageDigest digest = sha256();
+
+        try (InputStream in = new DigestInputStream(Files.newInputStream(backup), digest);
+             ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                Path file = target.resolve(entry.getName()).normalize();
+                if (!file.startsWith(target)) {
+                    throw new IOException("Invalid entry in backup " + backup.getFileName() + ": " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(file);
+                    continue;
+                }
+                if (Files.exists(file)) {
+                    throw new IOException("Restore target already exists: " + file);
+                }
+                Files.createDirectories(file.getParent());
+                Files.copy(zip, file);
+                if (file.getFileName().toString().endsWith(".mv.db")) {
+                    database = file.resolveSibling(file.getFileName().toString().replace(".mv.db", ""));
+                }
+            }
+            // Rest des Archivs (zentrales Verzeichnis) für die Prüfsumme lesen
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+
+        String checksum = HexFormat.of().formatHex(digest.digest());
+        if (!checksum.equals(expectedChecksum)) {
+            throw new RestoreVerificationException("Checksum mismatch in " + backup.getFileName());
+        }
+        if (database == null) {
+            throw new IOException("Backup " + backup.getFileName() + " contains no database file");
+        }
+        return database;
+    }
+
+    /**
+     * Setzt die Datenbankdateien eines deduplizierten Backups aus dem Chunk-Speicher zusammen.
+     */
+    private Path restoreDeduplicated(Path manifest, Path targetDirectory) throws IOException {
+        return backupService.chunkStore().restore(manifest, targetDirectory).stream()
+                .filter(file -> file.getFileName().toString().endsWith(".mv.db"))
+                .findFirst()
+                .map(file -> file.resolveSibling(file.getFileName().toString().replace(".mv.db", "")))
+                .orElseThrow(() -> new IOException("Backup " + manifest.getFileName() + " contains no database file"));
+    }
+
+    private static void verifyChecksum(BackupCatalog.Entry entry, String checksum) {
+        if (!checksum.equals(entry.checksum())) {
+            throw new RestoreVerificationException("Checksum mismatch in " + entry.fileName());
+        }
+    }
+
+    /**
+     * Zeilenzahlen und Zuordnungen von contact_hashtag ohne Kontakt oder Hashtag.
+     */
+    private IntegrityReport checkIntegrity(Path database) throws SQLException {
+        try (Connection connection = backupService.openDatabase(database)) {
+            return checkIntegrity(connection);
+        }
+    }
+
+    private static IntegrityReport checkIntegrity(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            return new IntegrityReport(
+                    count(statement, "SELECT COUNT(*) FROM contact"),
+                    count(statement, "SELECT COUNT(*) FROM hashtag"),
+                    count(statement, "SELECT COUNT(*) FROM contact_hashtag"),
+                    count(statement, "SELECT COUNT(*) FROM hashtag_closure"),
+                    count(statement, """
+                            SELECT COUNT(*) FROM contact_hashtag ch
+                            WHERE NOT EXISTS (SELECT 1 FROM contact c WHERE c.id = ch.contact_id)
+                               OR NOT EXISTS (SELECT 1 FROM hashtag h WHERE h.id = ch.hashtag_id)
+                            """));
+        }
+    }
+
+    private static long count(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Der Pool muss angehalten werden können, sonst öffnet eine neue Verbindung die Datei während des Austauschs.
+     */
+    private HikariPoolMXBean suspendablePool() {
+        if (!(dataSource instanceof HikariDataSource hikari) || !hikari.isAllowPoolSuspension()
+                || hikari.getHikariPoolMXBean() == null) {
+            throw new IllegalStateException("Replacing the database requires spring.datasource.hikari.allow-pool-suspension");
+        }
+        return hikari.getHikariPoolMXBean();
+    }
+
+    /**
+     * Ersetzt die laufende Datenbank: Pool anhalten, Datenbank schließen, alte Datei beiseite und neue an ihre
+     * Stelle umbenennen (jeweils atomar), Pool fortsetzen. Laufende Anfragen schlagen dabei fehl.
+     */
+    private void swapInto(Path restoredDatabase, Path liveDatabase, HikariPoolMXBean pool)
+            throws IOException, SQLException {
+        Path restoredFile = restoredDatabase.resolveSibling(restoredDatabase.getFileName() + ".mv.db");
+        Path liveFile = liveDatabase.resolveSibling(liveDatabase.getFileName() + ".mv.db");
+        Path previousFile = liveDatabase.resolveSibling(liveDatabase.getFileName() + ".mv.db.before-restore-"
+                + LocalDateTime.now().format(RESTORE_DATE_FORMAT));
+
+        pool.suspendPool();
+        try {
+            pool.softEvictConnections();
+            try (Connection connection = backupService.openConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+            Files.move(liveFile, previousFile, StandardCopyOption.ATOMIC_MOVE);
+            try {
+                Files.move(restoredFile, liveFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(previousFile, liveFile, StandardCopyOption.ATOMIC_MOVE);
+                throw e;
+            }
+        } finally {
+            pool.softEvictConnections();
+            pool.resumePool();
+        }
+        DatabaseBackupService.deleteRecursively(restoredDatabase.getParent());
+        log.warn("Live database {} replaced by restored backup, previous file kept as {}", liveFile, previousFile);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Ergebnis eines Restores.
+     *
+     * @param backup wiederhergestelltes Backup
+     * @param deltas Anzahl eingespielter Deltas
+     * @param database wiederhergestellte Datenbank (ohne Dateiendung, wie in der JDBC-URL), {@code null} bei
+     *                 logischen Backups
+     * @param durationMillis Dauer bis einschließlich Integritätsprüfung
+     * @param swapped ob die laufende Datenbank ersetzt wurde
+     */
+    public record RestoreResult(String backup, int deltas, Path database, long durationMillis,
+                                IntegrityReport integrity, boolean swapped) {
+
+        RestoreResult swappedInto(Path liveDatabase) {
+            return new RestoreResult(backup, deltas, liveDatabase, durationMillis, integrity, true);
+        }
+    }
+
+    /**
+     * Ergebnis der Integritätsprüfung.
+     */
+    public record IntegrityReport(long contacts, long hashtags, long contactHashtags, long hashtagClosures,
+                                  long orphanedContactHashtags) {
+
+        public boolean isConsistent() {
+            return orphanedContactHashtags == 0;
+        }
+    }
+
+    public static class BackupNotFoundException extends RuntimeException {
+        private static final long serialVersionUID = 202610191530L;
+
+        public BackupNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    public static class RestoreVerificationException extends RuntimeException {
+        private static final long serialVersionUID = 202610191531L;
+
+        public RestoreVerificationException(String message) {
+            super(message);
+        }
+    }
+}
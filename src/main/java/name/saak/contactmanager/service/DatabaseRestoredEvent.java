@@ -0,0 +1,10 @@
+package name.saak.contactmanager.service;
+
+/**
+ * Wird veröffentlicht, nachdem ein Restore die laufende Datenbank ersetzt hat. In-Memory-Indizes über den
+ * Datenbestand sind danach veraltet und werden neu aufgebaut.
+ *
+ * @param result Ergebnis des Restores
+ */
+public record DatabaseRestoredEvent(DatabaseRestoreService.RestoreResult result) {
+}
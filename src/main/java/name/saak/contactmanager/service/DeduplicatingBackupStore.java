@@ -0,0 +1,341 @@
+package name.saak.contactmanager.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deduplizierender Backup-Speicher im Backup-Verzeichnis.
+ *
+ * Jede Datei eines Backups wird in inhaltsabhängige Chunks zerlegt ({@link ContentDefinedChunker}); jeder Chunk
+ * wird nur einmal unter seinem SHA-256 abgelegt (chunks/ab/abcd…) und mit der schnellsten Deflate-Stufe
+ * komprimiert, sofern das etwas bringt (verschlüsselte Datenbanken lassen sich nicht komprimieren).
+ * Pro Backup bleibt nur ein kleines Manifest mit der Chunk-Liste. Beim Löschen von Backups werden nur Manifeste
+ * entfernt; nicht mehr referenzierte Chunks räumt {@link #collectGarbage(Collection)} ab.
+ *
+ * Nicht threadsicher; Schreiben, Restore und Garbage Collection dürfen nicht gleichzeitig laufen.
+ */
+final class DeduplicatingBackupStore {
+
+    static final String MANIFEST_SUFFIX = ".manifest";
+    private static final String MANIFEST_HEADER = "contactdb-manifest 1";
+    private static final byte STORED = 0;
+    private static final byte DEFLATED = 1;
+
+    private final Path chunkDirectory;
+
+    DeduplicatingBackupStore(Path backupDirectory) {
+        this.chunkDirectory = backupDirectory.resolve("chunks");
+    }
+
+    /**
+     * Beginnt ein neues Backup.
+     *
+     * @param limiter Schreibrate für Chunks und Manifest
+     */
+    BackupWriter newBackup(WriteRateLimiter limiter) {
+        return new BackupWriter(limiter);
+    }
+
+    /**
+     * Setzt die Dateien eines Backups im Zielverzeichnis zusammen und prüft dabei jeden Chunk gegen seinen Hash.
+     *
+     * @return die wiederhergestellten Dateien
+     */
+    List<Path> restore(Path manifest, Path targetDirectory) throws IOException {
+        Path target = targetDirectory.toAbsolutePath().normalize();
+        Files.createDirectories(target);
+        List<Path> files = new ArrayList<>();
+        MessageDigest digest = sha256();
+        Inflater inflater = new Inflater();
+        byte[] chunk = new byte[ContentDefinedChunker.MAX_CHUNK_SIZE];
+
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            readHeader(reader, manifest);
+            OutputStream out = null;
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("file ")) {
+                        if (out != null) {
+                            out.close();
+                        }
+                        String name = line.substring(line.indexOf(' ', "file ".length()) + 1);
+                        Path file = target.resolve(name).normalize();
+                        if (!file.startsWith(target) || Files.exists(file)) {
+                            throw new IOException("Invalid restore target for " + name + ": " + file);
+                        }
+                        out = Files.newOutputStream(file);
+                        files.add(file);
+                        continue;
+                    }
+                    String[] parts = line.split(" ");
+                    int length = Integer.parseInt(parts[1]);
+                    readChunk(parts[0], length, chunk, inflater);
+                    digest.update(chunk, 0, length);
+                    if (!HexFormat.of().formatHex(digest.digest()).equals(parts[0])) {
+                        throw new IOException("Checksum mismatch in chunk " + parts[0]);
+                    }
+                    out.write(chunk, 0, length);
+                }
+            } finally {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return files;
+    }
+
+    /**
+     * Liest die logische Größe (Summe der gesicherten Dateien) aus dem Manifest-Kopf.
+     */
+    static long logicalSize(Path manifest) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            return readHeader(reader, manifest);
+        }
+    }
+
+    /**
+     * Belegter Platz aller Chunks.
+     */
+    long physicalSize() throws IOException {
+        if (!Files.exists(chunkDirectory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(chunkDirectory)) {
+            return files.filter(Files::isRegularFile).mapToLong(DeduplicatingBackupStore::sizeOf).sum();
+        }
+    }
+
+    /**
+     * Löscht alle Chunks, die von keinem der Manifeste referenziert werden.
+     *
+     * @return freigegebene Bytes
+     */
+    long collectGarbage(Collection<Path> manifests) throws IOException {
+        if (!Files.exists(chunkDirectory)) {
+            return 0;
+        }
+        Set<String> referenced = new HashSet<>();
+        for (Path manifest : manifests) {
+            referenced.addAll(chunkHashes(manifest));
+        }
+
+        long freed = 0;
+        try (Stream<Path> files = Files.walk(chunkDirectory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                if (!referenced.contains(file.getFileName().toString())) {
+                    freed += sizeOf(file);
+                    Files.delete(file);
+                }
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * Hashes aller Chunks, die ein Manifest referenziert, ohne Duplikate.
+     */
+    static Set<String> chunkHashes(Path manifest) throws IOException {
+        Set<String> hashes = new LinkedHashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            readHeader(reader, manifest);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("file ")) {
+                    hashes.add(line.substring(0, line.indexOf(' ')));
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Ablageort eines Chunks, relativ zum Backup-Verzeichnis chunks/ab/abcd….
+     */
+    Path chunkPath(String hash) {
+        return chunkDirectory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private void readChunk(String hash, int length, byte[] chunk, Inflater inflater) throws IOException {
+        byte[] stored = Files.readAllBytes(chunkPath(hash));
+        if (stored.length == 0) {
+            throw new IOException("Empty chunk " + hash);
+        }
+        if (stored[0] == STORED) {
+            if (stored.length - 1 != length) {
+                throw new IOException("Unexpected length of chunk " + hash);
+            }
+            System.arraycopy(stored, 1, chunk, 0, length);
+            return;
+        }
+        inflater.reset();
+        inflater.setInput(stored, 1, stored.length - 1);
+        try {
+            if (inflater.inflate(chunk, 0, length) != length || !inflater.finished()) {
+                throw new IOException("Unexpected length of chunk " + hash);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chunk " + hash, e);
+        }
+    }
+
+    private static long readHeader(BufferedReader reader, Path manifest) throws IOException {
+        String size = reader.readLine();
+        if (!MANIFEST_HEADER.equals(size) || (size = reader.readLine()) == null || !size.startsWith("size ")) {
+            throw new IOException("Invalid backup manifest: " + manifest);
+        }
+        return Long.parseLong(size.substring("size ".length()));
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Schreibt die Chunks eines Backups; das Manifest entsteht erst mit {@link #commit(Path)}.
+     */
+    final class BackupWriter {
+
+        private final WriteRateLimiter limiter;
+        private final MessageDigest digest = sha256();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final byte[] compressed = new byte[ContentDefinedChunker.MAX_CHUNK_SIZE + 1024];
+        private final StringBuilder entries = new StringBuilder();
+        private long logicalSize;
+        private long bytesWritten;
+        private long chunkBytes;
+        private int newChunks;
+        private int reusedChunks;
+
+        private BackupWriter(WriteRateLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        /**
+         * Zerlegt eine Datei in Chunks und legt neue Chunks ab.
+         *
+         * @param name Dateiname im Backup (z.B. contact_manager.mv.db)
+         */
+        void addFile(String name, InputStream content) throws IOException {
+            StringBuilder chunks = new StringBuilder();
+            long[] fileSize = {0};
+            ContentDefinedChunker.split(content, (chunk, length) -> {
+                digest.update(chunk, 0, length);
+                String hash = HexFormat.of().formatHex(digest.digest());
+                storeChunk(hash, chunk, length);
+                chunks.append(hash).append(' ').append(length).append('\n');
+                fileSize[0] += length;
+            });
+            entries.append("file ").append(fileSize[0]).append(' ').append(name).append('\n').append(chunks);
+            logicalSize += fileSize[0];
+        }
+
+        /**
+         * Schreibt das Manifest atomar; erst danach gehört das Backup zum Bestand.
+         */
+        void commit(Path manifest) throws IOException {
+            deflater.end();
+            byte[] content = (MANIFEST_HEADER + "\nsize " + logicalSize + "\n" + entries)
+                .getBytes(StandardCharsets.UTF_8);
+            Path partFile = manifest.resolveSibling(manifest.getFileName() + ".part");
+            try {
+                try (OutputStream out = new ThrottledOutputStream(Files.newOutputStream(partFile), limiter)) {
+                    out.write(content);
+                }
+                Files.move(partFile, manifest, StandardCopyOption.ATOMIC_MOVE);
+                bytesWritten += content.length;
+            } finally {
+                Files.deleteIfExists(partFile);
+            }
+        }
+
+        long getLogicalSize() {
+            return logicalSize;
+        }
+
+        /**
+         * Physisch geschriebene Bytes (neue Chunks und Manifest).
+         */
+        long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * Physisch geschriebene Bytes neuer Chunks.
+         */
+        long getChunkBytes() {
+            return chunkBytes;
+        }
+
+        int getNewChunks() {
+            return newChunks;
+        }
+
+        int getReusedChunks() {
+            return reusedChunks;
+        }
+
+        private void storeChunk(String hash, byte[] chunk, int length) throws IOException {
+            Path file = chunkPath(hash);
+            if (Files.exists(file)) {
+                reusedChunks++;
+                return;
+            }
+
+            deflater.reset();
+            deflater.setInput(chunk, 0, length);
+            deflater.finish();
+            int compressedLength = deflater.deflate(compressed);
+            boolean useCompressed = deflater.finished() && compressedLength < length;
+
+            Files.createDirectories(file.getParent());
+            Path partFile = file.resolveSibling(hash + ".part");
+            try {
+                try (OutputStream out = new ThrottledOutputStream(Files.newOutputStream(partFile), limiter)) {
+                    out.write(useCompressed ? DEFLATED : STORED);
+                    out.write(useCompressed ? compressed : chunk, 0, useCompressed ? compressedLength : length);
+                }
+                Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partFile);
+            }
+            chunkBytes += 1 + (useCompressed ? compressedLength : length);
+            bytesWritten += 1 + (useCompressed ? compressedLength : length);
+            newChunks++;
+        }
+    }
+}
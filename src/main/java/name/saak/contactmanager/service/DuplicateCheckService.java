@@ -0,0 +1,199 @@
+package name.saak.contactmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import name.saak.contactmanager.domain.ContactBusinessKey;
+import name.saak.contactmanager.repository.ContactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service für die Live-Duplikatprüfung im Kontaktformular.
+ * Ein In-Memory-Bloom-Filter über alle fachlichen Schlüssel beantwortet "sicher neu" ohne Datenbankzugriff;
+ * nur bei "vielleicht vorhanden" wird der Unique-Index abgefragt.
+ * Der Filter wird bei jedem Speichern ergänzt und regelmäßig im Hintergrund neu aufgebaut
+ * (gelöschte oder geänderte Schlüssel können nicht entfernt werden), außerdem nach einem Restore mit Austausch.
+ * Der geplante Neuaufbau läuft auf einem eigenen Thread, damit er den gemeinsamen Scheduler nicht blockiert.
+ */
+@Service
+public class DuplicateCheckService {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateCheckService.class);
+    private static final long MIN_CAPACITY = 10_000;
+
+    private final ContactRepository contactRepository;
+    private final double falsePositiveRate;
+    private final Counter bloomNegativeCounter;
+    private final Counter databaseHitCounter;
+    private final Counter databaseMissCounter;
+
+    private final ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final Object rebuildLock = new Object();
+    /** Schützt Ergänzen und Austausch des Filters, damit kein Schlüssel zwischen altem und neuem Filter fehlt. */
+    private final Object filterLock = new Object();
+
+    private volatile BusinessKeyBloomFilter filter;
+    private List<String> keysAddedDuringRebuild;
+
+    public DuplicateCheckService(
+            ContactRepository contactRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.duplicate-check.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.contactRepository = contactRepository;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomNegativeCounter = meterRegistry.counter("contacts.duplicate.check", "result", "bloom_negative");
+        this.databaseHitCounter = meterRegistry.counter("contacts.duplicate.check", "result", "database_duplicate");
+        this.databaseMissCounter = meterRegistry.counter("contacts.duplicate.check", "result", "database_new");
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "duplicate-check-rebuild");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Prüft, ob ein Kontakt mit diesem Namen und dieser Adresse bereits existiert.
+     *
+     * @param excludeId ID des gerade bearbeiteten Kontakts (oder null)
+     */
+    public DuplicateCheckResult check(String vorname, String nachname, String strasse,
+                                      String postleitzahl, String ort, Long excludeId) {
+        String businessKey = ContactBusinessKey.of(vorname, nachname, strasse, postleitzahl, ort);
+
+        BusinessKeyBloomFilter current = filter;
+        if (current != null && !current.mightContain(businessKey)) {
+            bloomNegativeCounter.increment();
+            return new DuplicateCheckResult(false, false);
+        }
+
+        Optional<Long> existingId = contactRepository.findIdByBusinessKey(businessKey);
+        boolean duplicate = existingId.isPresent() && !existingId.get().equals(excludeId);
+        (duplicate ? databaseHitCounter : databaseMissCounter).increment();
+        return new DuplicateCheckResult(duplicate, true);
+    }
+
+    /**
+     * Registriert einen gespeicherten Schlüssel nach dem Commit im Filter.
+     * Erst dann ist er für einen gleichzeitigen Neuaufbau entweder im gelesenen Bestand oder in dessen
+     * Warteschlange; vorher registriert, fehlte er im neuen Filter, wenn der Commit nach dem Lesen liegt.
+     */
+    public void register(String businessKey) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(businessKey);
+                }
+            });
+        } else {
+            put(businessKey);
+        }
+    }
+
+    private void put(String businessKey) {
+        synchronized (filterLock) {
+            if (filter != null) {
+                filter.put(businessKey);
+            }
+            if (keysAddedDuringRebuild != null) {
+                keysAddedDuringRebuild.add(businessKey);
+            }
+        }
+    }
+
+    /**
+     * Scheduled Task: Übergibt den Neuaufbau beim Start und danach regelmäßig an den eigenen Thread;
+     * läuft der vorige noch, entfällt dieser Lauf.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.duplicate-check.rebuild-interval:PT1H}")
+    public void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } finally {
+                    rebuildScheduled.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            rebuildScheduled.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Baut den Filter aus allen gespeicherten Schlüsseln neu auf und tauscht ihn aus.
+     * Schlüssel, die währenddessen gespeichert werden, werden gesammelt und unter derselben Sperre wie
+     * {@link #put} in den neuen Filter übernommen, bevor er den alten ersetzt.
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (filterLock) {
+                keysAddedDuringRebuild = new ArrayList<>();
+            }
+            try {
+                List<String> keys = contactRepository.findAllBusinessKeys();
+                BusinessKeyBloomFilter rebuilt = new BusinessKeyBloomFilter(
+                    Math.max(MIN_CAPACITY, keys.size() * 2L), falsePositiveRate);
+                keys.forEach(rebuilt::put);
+
+                synchronized (filterLock) {
+                    keysAddedDuringRebuild.forEach(rebuilt::put);
+                    filter = rebuilt;
+                    keysAddedDuringRebuild = null;
+                }
+
+                log.info("Duplicate check filter rebuilt with {} keys in {} ms",
+                        keys.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                synchronized (filterLock) {
+                    keysAddedDuringRebuild = null;
+                }
+                log.error("Failed to rebuild duplicate check filter", e);
+            }
+        }
+    }
+
+    /**
+     * Baut den Filter neu auf, nachdem ein Restore die laufende Datenbank ersetzt hat; sonst fehlten die
+     * wiederhergestellten Schlüssel und die Prüfung meldete "sicher neu".
+     */
+    @EventListener
+    public void onDatabaseRestored(DatabaseRestoredEvent event) {
+        rebuild();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Ergebnis der Duplikatprüfung.
+     *
+     * @param duplicate true wenn ein anderer Kontakt mit gleichem Schlüssel existiert
+     * @param databaseChecked true wenn die Datenbank befragt werden musste
+     */
+    public record DuplicateCheckResult(boolean duplicate, boolean databaseChecked) {
+    }
+}
@@ -0,0 +1,276 @@
+package name.saak.contactmanager.service;
+
+import jakarta.annotation.PreDestroy;
+import name.saak.contactmanager.repository.ContactNameAddress;
+import name.saak.contactmanager.repository.ContactRepository;
+import org.apache.commons.codec.language.ColognePhonetic;
+import org.apache.commons.text.similarity.JaroWinklerSimilarity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Service für die unscharfe Dublettensuche.
+ * Kontakte werden nach PLZ und Kölner Phonetik des Nachnamens in Blöcke gruppiert;
+ * nur innerhalb eines Blocks werden Paare per Jaro-Winkler-Ähnlichkeit bewertet.
+ * Die Blöcke werden parallel auf einem eigenen Fork-Join-Pool verarbeitet.
+ */
+@Service
+public class DuplicateFinderService {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateFinderService.class);
+
+    private static final Pattern STREET_ABBREVIATION = Pattern.compile("str\\.?(?=\\s|\\d|$)");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9 ]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Gewichtung der Felder für den Gesamt-Score
+    private static final double WEIGHT_NACHNAME = 0.35;
+    private static final double WEIGHT_VORNAME = 0.25;
+    private static final double WEIGHT_STRASSE = 0.30;
+    private static final double WEIGHT_ORT = 0.10;
+
+    // Fenstergröße für sehr große Blöcke (Sorted Neighbourhood statt aller Paare)
+    private static final int NEIGHBOURHOOD_WINDOW = 50;
+
+    private final ContactRepository contactRepository;
+    private final ContactService contactService;
+    private final ForkJoinPool pool;
+    private final double threshold;
+    private final int maxBlockSize;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicReference<ScanResult> lastResult = new AtomicReference<>(ScanResult.empty());
+
+    public DuplicateFinderService(
+            ContactRepository contactRepository,
+            ContactService contactService,
+            @Value("${app.duplicates.parallelism:0}") int parallelism,
+            @Value("${app.duplicates.threshold:0.9}") double threshold,
+            @Value("${app.duplicates.max-block-size:200}") int maxBlockSize) {
+        this.contactRepository = contactRepository;
+        this.contactService = contactService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.threshold = threshold;
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Scheduled Task: Startet die Dublettensuche (standardmäßig deaktiviert).
+     */
+    @Scheduled(cron = "${app.duplicates.cron:-}")
+    public void scheduledScan() {
+        startScan();
+    }
+
+    /**
+     * Startet die Dublettensuche im Hintergrund.
+     *
+     * @return false wenn bereits eine Suche läuft
+     */
+    public boolean startScan() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Duplicate scan already running, ignoring request");
+            return false;
+        }
+
+        pool.execute(() -> {
+            LocalDateTime startedAt = LocalDateTime.now();
+            try {
+                List<ContactNameAddress> contacts = contactRepository.findAllNameAddresses();
+                List<DuplicatePair> pairs = findDuplicates(contacts);
+                LocalDateTime finishedAt = LocalDateTime.now();
+                lastResult.set(new ScanResult(startedAt, finishedAt, contacts.size(), pairs));
+                log.info("Duplicate scan finished: {} contacts, {} candidate pairs in {} ms",
+                        contacts.size(), pairs.size(), Duration.between(startedAt, finishedAt).toMillis());
+            } catch (Exception e) {
+                log.error("Duplicate scan failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Gibt an, ob gerade eine Suche läuft.
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Gibt das Ergebnis der letzten abgeschlossenen Suche zurück.
+     */
+    public ScanResult getLastResult() {
+        return lastResult.get();
+    }
+
+    /**
+     * Führt zwei Kontakte zusammen und entfernt alle Paare des gelöschten Kontakts aus dem Ergebnis.
+     */
+    public void mergeContacts(Long keepId, Long removeId) {
+        contactService.mergeContacts(keepId, removeId);
+        lastResult.updateAndGet(result -> result.without(removeId));
+    }
+
+    /**
+     * Sucht Dubletten-Kandidaten in der übergebenen Kontaktliste.
+     * Ergebnis ist absteigend nach Score sortiert.
+     */
+    public List<DuplicatePair> findDuplicates(List<ContactNameAddress> contacts) {
+        Map<String, List<Candidate>> blocks = pool.submit(() -> contacts.parallelStream()
+                .map(Candidate::new)
+                .collect(Collectors.groupingByConcurrent(Candidate::blockKey)))
+            .join();
+
+        return pool.submit(() -> blocks.values().parallelStream()
+                .filter(block -> block.size() > 1)
+                .flatMap(block -> scoreBlock(block).stream())
+                .sorted(Comparator.comparingDouble(DuplicatePair::score).reversed())
+                .toList())
+            .join();
+    }
+
+    /**
+     * Bewertet alle Paare eines Blocks. Sehr große Blöcke werden sortiert
+     * und nur innerhalb eines gleitenden Fensters verglichen.
+     */
+    private List<DuplicatePair> scoreBlock(List<Candidate> block) {
+        JaroWinklerSimilarity similarity = new JaroWinklerSimilarity();
+        List<Candidate> sorted = new ArrayList<>(block);
+        sorted.sort(Comparator.comparing(Candidate::sortKey));
+        int window = block.size() > maxBlockSize ? NEIGHBOURHOOD_WINDOW : block.size();
+
+        List<DuplicatePair> pairs = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            Candidate a = sorted.get(i);
+            int end = Math.min(sorted.size(), i + window);
+            for (int j = i + 1; j < end; j++) {
+                Candidate b = sorted.get(j);
+                double score = score(similarity, a, b);
+                if (score >= threshold) {
+                    pairs.add(new DuplicatePair(a.contact(), b.contact(), score));
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static double score(JaroWinklerSimilarity similarity, Candidate a, Candidate b) {
+        return WEIGHT_NACHNAME * similarity.apply(a.nachname(), b.nachname())
+             + WEIGHT_VORNAME * similarity.apply(a.vorname(), b.vorname())
+             + WEIGHT_STRASSE * similarity.apply(a.strasse(), b.strasse())
+             + WEIGHT_ORT * similarity.apply(a.ort(), b.ort());
+    }
+
+    /**
+     * Normalisiert einen Text für den Vergleich: Kleinschreibung, Umlaute ausgeschrieben,
+     * Sonderzeichen entfernt, Leerzeichen zusammengefasst.
+     */
+    static String normalizeText(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = value.toLowerCase(Locale.GERMAN)
+            .replace("ß", "ss")
+            .replace("ä", "ae")
+            .replace("ö", "oe")
+            .replace("ü", "ue");
+        normalized = NON_ALPHANUMERIC.matcher(normalized).replaceAll(" ");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    /**
+     * Normalisiert eine Straße: "Str.", "Str" und "Straße" werden vereinheitlicht.
+     */
+    static String normalizeStreet(String value) {
+        if (value == null) {
+            return "";
+        }
+        String lower = value.toLowerCase(Locale.GERMAN).replace("ß", "ss");
+        return normalizeText(STREET_ABBREVIATION.matcher(lower).replaceAll("strasse "));
+    }
+
+    /**
+     * Vorberechnete Vergleichswerte eines Kontakts.
+     */
+    private record Candidate(ContactNameAddress contact, String blockKey, String sortKey,
+                             String vorname, String nachname, String strasse, String ort) {
+
+        private static final ColognePhonetic PHONETIC = new ColognePhonetic();
+
+        Candidate(ContactNameAddress contact) {
+            this(contact,
+                 blockKey(contact),
+                 normalizeText(contact.vorname()) + " " + normalizeStreet(contact.strasse()),
+                 normalizeText(contact.vorname()),
+                 normalizeText(contact.nachname()),
+                 normalizeStreet(contact.strasse()),
+                 normalizeText(contact.ort()));
+        }
+
+        private static String blockKey(ContactNameAddress contact) {
+            String plz = contact.postleitzahl() != null ? contact.postleitzahl().replaceAll("\\s", "") : "";
+            return plz + "|" + PHONETIC.encode(normalizeText(contact.nachname()));
+        }
+    }
+
+    /**
+     * Dubletten-Kandidat: zwei Kontakte mit Ähnlichkeits-Score zwischen 0 und 1.
+     */
+    public record DuplicatePair(ContactNameAddress first, ContactNameAddress second, double score) {
+
+        public int getScorePercent() {
+            return (int) Math.round(score * 100);
+        }
+
+        boolean involves(Long contactId) {
+            return first.id().equals(contactId) || second.id().equals(contactId);
+        }
+    }
+
+    /**
+     * Ergebnis einer Dublettensuche.
+     */
+    public record ScanResult(LocalDateTime startedAt, LocalDateTime finishedAt, int contactCount,
+                             List<DuplicatePair> pairs) {
+
+        static ScanResult empty() {
+            return new ScanResult(null, null, 0, List.of());
+        }
+
+        public long getDurationMillis() {
+            return startedAt != null && finishedAt != null
+                ? Duration.between(startedAt, finishedAt).toMillis()
+                : 0;
+        }
+
+        ScanResult without(Long contactId) {
+            List<DuplicatePair> remaining = pairs.stream()
+                .filter(pair -> !pair.involves(contactId))
+                .toList();
+            return new ScanResult(startedAt, finishedAt, contactCount, remaining);
+        }
+    }
+}
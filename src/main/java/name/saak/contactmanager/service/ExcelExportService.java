@@ -1,71 +1,106 @@
 package name.saak.contactmanager.service;
 
-import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.repository.ContactExportRow;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.List;
-
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Service für den Excel-Export (XLSX).
+ * Geschrieben wird per SXSSF: Nur ein gleitendes Fenster von Zeilen liegt im Speicher,
+ * ältere Zeilen werden in eine temporäre Datei ausgelagert. Die Spaltenbreiten werden
+ * beim Schreiben aus den Zeichenlängen berechnet statt per autoSizeColumn gemessen.
+ */
 @Service
-public class ExcelExportService {
+public class ExcelExportService implements ContactExportWriter {
+
+    private static final String[] HEADERS = {"Firma", "Anrede", "Vorname_Name", "Straße", "PLZ/Ort"};
+    private static final int MAX_COLUMN_CHARS = 60;
+
+    private final int rowWindow;
+
+    public ExcelExportService(@Value("${app.export.xlsx.row-window:100}") int rowWindow) {
+        this.rowWindow = rowWindow;
+    }
+
+    @Override
+    public String getFormat() {
+        return "xlsx";
+    }
+
+    @Override
+    public String getFileName() {
+        return "kontakte.xlsx";
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    }
+
+    @Override
+    public void write(Iterator<ContactExportRow> rows, OutputStream outputStream) throws IOException {
+        writeContactsToExcel(rows, outputStream);
+    }
 
     /**
-     * Exportiert eine Liste von Kontakten als Excel-Datei (XLSX).
+     * Schreibt die Exportzeilen als Excel-Datei in den Ausgabestrom.
      *
-     * @param contacts Liste der zu exportierenden Kontakte
-     * @return Byte-Array der Excel-Datei
-     * @throws IOException bei Fehlern beim Erstellen der Excel-Datei
+     * @param rows zu exportierende Zeilen (werden genau einmal durchlaufen)
+     * @param outputStream Ziel; wird nicht geschlossen
+     * @throws IOException bei Fehlern beim Schreiben
      */
-    public byte[] exportContactsToExcel(List<Contact> contacts) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
+    public void writeContactsToExcel(Iterator<ContactExportRow> rows, OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
             Sheet sheet = workbook.createSheet("Kontakte");
 
             // Header-Zeile erstellen
             Row headerRow = sheet.createRow(0);
             CellStyle headerStyle = createHeaderStyle(workbook);
+            int[] columnChars = new int[HEADERS.length];
 
-            String[] headers = {"Firma", "Anrede", "Vorname_Name", "Straße", "PLZ/Ort"};
-            for (int i = 0; i < headers.length; i++) {
+            for (int i = 0; i < HEADERS.length; i++) {
                 Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
+                cell.setCellValue(HEADERS[i]);
                 cell.setCellStyle(headerStyle);
+                columnChars[i] = HEADERS[i].length();
             }
 
             // Datenzeilen erstellen
             int rowNum = 1;
-            for (Contact contact : contacts) {
+            while (rows.hasNext()) {
+                ContactExportRow contact = rows.next();
                 Row row = sheet.createRow(rowNum++);
 
-                // Firma
-                row.createCell(0).setCellValue(contact.getFirma() != null ? contact.getFirma() : "");
-
-                // Anrede
-                row.createCell(1).setCellValue(contact.getAnrede() != null ? contact.getAnrede() : "");
-
-                // Vorname_Name
-                String vornameName = buildVornameName(contact);
-                row.createCell(2).setCellValue(vornameName);
-
-                // Straße
-                row.createCell(3).setCellValue(contact.getStrasse() != null ? contact.getStrasse() : "");
-
-                // PLZ/Ort
-                String plzOrt = buildPlzOrt(contact);
-                row.createCell(4).setCellValue(plzOrt);
+                String[] values = {
+                    nullToEmpty(contact.firma()),
+                    nullToEmpty(contact.anrede()),
+                    contact.vornameName(),
+                    nullToEmpty(contact.strasse()),
+                    contact.plzOrt()
+                };
+                for (int i = 0; i < values.length; i++) {
+                    row.createCell(i).setCellValue(values[i]);
+                    columnChars[i] = Math.max(columnChars[i], values[i].length());
+                }
             }
 
-            // Spaltenbreite automatisch anpassen
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
+            // Spaltenbreite aus der längsten Zeichenkette (Einheit: 1/256 Zeichenbreite)
+            for (int i = 0; i < HEADERS.length; i++) {
+                sheet.setColumnWidth(i, (Math.min(columnChars[i], MAX_COLUMN_CHARS) + 2) * 256);
             }
 
             workbook.write(outputStream);
-            return outputStream.toByteArray();
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
 
@@ -86,25 +121,7 @@ public class ExcelExportService {
         return style;
     }
 
-    /**
-     * Baut den Vorname_Name String.
-     * Format: "Vorname Nachname" wenn Vorname existiert, sonst nur "Nachname"
-     */
-    private String buildVornameName(Contact contact) {
-        if (contact.getVorname() != null && !contact.getVorname().isEmpty()) {
-            return contact.getVorname() + " " + contact.getNachname();
-        }
-        return contact.getNachname();
-    }
-
-    /**
-     * Baut den PLZ/Ort String.
-     * Format: "PLZ Ort" wenn PLZ existiert, sonst nur "Ort"
-     */
-    private String buildPlzOrt(Contact contact) {
-        if (contact.getPostleitzahl() != null && !contact.getPostleitzahl().isEmpty()) {
-            return contact.getPostleitzahl() + " " + contact.getOrt();
-        }
-        return contact.getOrt();
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
     }
 }
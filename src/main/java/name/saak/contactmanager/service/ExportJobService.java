@@ -0,0 +1,374 @@
+package name.saak.contactmanager.service;
+
+import jakarta.annotation.PreDestroy;
+import name.saak.contactmanager.repository.ContactExportRow;
+import name.saak.contactmanager.service.ContactExportService.ExportRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service für Export-Jobs im Hintergrund.
+ * Ein Job wird in einen begrenzten Executor eingereiht und schreibt seine Datei in ein Arbeitsverzeichnis;
+ * der Fortschritt kann abgefragt und der Job abgebrochen werden. Fertige Dateien werden nur gegen
+ * das Download-Token des Jobs ausgeliefert und nach Ablauf der Aufbewahrungszeit gelöscht.
+ * Jeder laufende Job hält eine Datenbankverbindung; max-concurrent muss daher deutlich unter
+ * der Größe des Connection-Pools liegen.
+ */
+@Service
+public class ExportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportJobService.class);
+    private static final String PART_SUFFIX = ".part";
+
+    private final ContactExportService contactExportService;
+    private final Path directory;
+    private final Duration retention;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    public ExportJobService(
+            ContactExportService contactExportService,
+            @Value("${app.export.jobs.directory:${java.io.tmpdir}/contactmanager-exports}") String directory,
+            @Value("${app.export.jobs.max-concurrent:2}") int maxConcurrent,
+            @Value("${app.export.jobs.queue-capacity:10}") int queueCapacity,
+            @Value("${app.export.jobs.retention:PT1H}") Duration retention) {
+        this.contactExportService = contactExportService;
+        this.directory = Paths.get(directory);
+        this.retention = retention;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "export-job-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(job -> job.cancelled = true);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Reiht einen Export-Job ein.
+     *
+     * @param format Formatkürzel (xlsx, csv, vcf)
+     * @param request Auswahl oder Filter der zu exportierenden Kontakte
+     * @param owner Benutzer, dem der Job gehört
+     * @return Status des eingereihten Jobs
+     * @throws ContactExportService.UnknownExportFormatException wenn das Format nicht unterstützt wird
+     * @throws ExportQueueFullException wenn bereits zu viele Jobs warten
+     */
+    public ExportJobStatus startExport(String format, ExportRequest request, String owner) {
+        ContactExportWriter writer = contactExportService.getWriter(format);
+
+        Job job = new Job(UUID.randomUUID().toString(), owner, writer, newToken());
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job, request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new ExportQueueFullException("Zu viele Exporte in Bearbeitung, bitte später erneut versuchen");
+        }
+        log.info("Export job {} ({}) queued by {}", job.id, writer.getFormat(), owner);
+        return job.toStatus();
+    }
+
+    /**
+     * Gibt den Status eines Jobs zurück (nur für den Besitzer).
+     */
+    public Optional<ExportJobStatus> getStatus(String jobId, String owner) {
+        return findOwnedJob(jobId, owner).map(Job::toStatus);
+    }
+
+    /**
+     * Bricht einen Job ab. Wartende Jobs starten nicht mehr, laufende Jobs enden nach der aktuellen Zeile.
+     */
+    public Optional<ExportJobStatus> cancel(String jobId, String owner) {
+        return findOwnedJob(jobId, owner).map(job -> {
+            job.cancelled = true;
+            Future<?> future = job.future;
+            if (job.state == ExportJobState.QUEUED && future != null && future.cancel(false)) {
+                // Noch nicht gestartet: run() wird nie aufgerufen (laufende Jobs prüfen das Flag selbst)
+                job.finish(ExportJobState.CANCELLED, null);
+                executor.purge();
+            }
+            return job.toStatus();
+        });
+    }
+
+    /**
+     * Gibt die fertige Exportdatei zurück, wenn das Download-Token stimmt.
+     */
+    public Optional<ExportDownload> getDownload(String jobId, String token) {
+        Job job = jobs.get(jobId);
+        if (job == null || token == null || job.state != ExportJobState.COMPLETED
+                || !MessageDigest.isEqual(job.downloadToken.getBytes(StandardCharsets.US_ASCII),
+                                          token.getBytes(StandardCharsets.US_ASCII))) {
+            return Optional.empty();
+        }
+        return Optional.of(new ExportDownload(job.file, job.writer.getFileName(), job.writer.getContentType()));
+    }
+
+    /**
+     * Scheduled Task: Entfernt abgeschlossene Jobs nach Ablauf der Aufbewahrungszeit samt Datei
+     * sowie verwaiste Dateien (z.B. aus einem früheren Lauf der Anwendung).
+     */
+    @Scheduled(fixedDelayString = "${app.export.jobs.cleanup-interval:PT10M}")
+    public void cleanupExpiredJobs() {
+        Instant threshold = Instant.now().minus(retention);
+
+        jobs.values().removeIf(job -> {
+            Instant finishedAt = job.finishedAt;
+            if (finishedAt == null || finishedAt.isAfter(threshold)) {
+                return false;
+            }
+            deleteQuietly(job.file);
+            return true;
+        });
+
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Set<Path> referenced = jobs.values().stream()
+            .flatMap(job -> Stream.of(job.file, job.partFile))
+            .filter(file -> file != null)
+            .collect(Collectors.toSet());
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> !referenced.contains(file))
+                .filter(file -> isOlderThan(file, threshold))
+                .forEach(ExportJobService::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Failed to clean up export directory {}", directory.toAbsolutePath(), e);
+        }
+    }
+
+    private void run(Job job, ExportRequest request) {
+        if (job.cancelled) {
+            job.finish(ExportJobState.CANCELLED, null);
+            return;
+        }
+        job.state = ExportJobState.RUNNING;
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(directory);
+            job.partFile = Files.createTempFile(directory, "export-" + job.id + "-", PART_SUFFIX);
+            job.total = contactExportService.count(request);
+
+            ContactExportWriter progressWriter = new ProgressTrackingWriter(job);
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(job.partFile))) {
+                contactExportService.export(progressWriter, request, outputStream);
+            }
+
+            Path file = directory.resolve(job.id + "-" + job.writer.getFileName());
+            Files.move(job.partFile, file, StandardCopyOption.REPLACE_EXISTING);
+            job.file = file;
+            job.partFile = null;
+            job.finish(ExportJobState.COMPLETED, null);
+            log.info("Export job {} wrote {} rows in {} ms", job.id, job.written.get(),
+                    System.currentTimeMillis() - start);
+        } catch (ExportCancelledException e) {
+            deleteQuietly(job.partFile);
+            job.finish(ExportJobState.CANCELLED, null);
+            log.info("Export job {} cancelled after {} rows", job.id, job.written.get());
+        } catch (Exception e) {
+            deleteQuietly(job.partFile);
+            job.finish(ExportJobState.FAILED, "Export fehlgeschlagen");
+            log.error("Export job {} failed", job.id, e);
+        }
+    }
+
+    private Optional<Job> findOwnedJob(String jobId, String owner) {
+        Job job = jobs.get(jobId);
+        return job != null && job.owner.equals(owner) ? Optional.of(job) : Optional.empty();
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static boolean isOlderThan(Path file, Instant threshold) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(threshold);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete export file {}", file, e);
+        }
+    }
+
+    /**
+     * Zustand eines Export-Jobs.
+     */
+    public enum ExportJobState {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * Status eines Export-Jobs.
+     *
+     * @param id Job-ID
+     * @param format Formatkürzel
+     * @param state aktueller Zustand
+     * @param written bisher geschriebene Zeilen
+     * @param total erwartete Zeilen (0 solange unbekannt)
+     * @param downloadToken Token für den Download (nur bei COMPLETED)
+     * @param error Fehlermeldung (nur bei FAILED)
+     */
+    public record ExportJobStatus(String id, String format, ExportJobState state, long written, long total,
+                                  String downloadToken, String error) {
+
+        public int getPercent() {
+            if (state == ExportJobState.COMPLETED) {
+                return 100;
+            }
+            return total > 0 ? (int) Math.min(99, written * 100 / total) : 0;
+        }
+    }
+
+    /**
+     * Eine fertige Exportdatei.
+     */
+    public record ExportDownload(Path file, String fileName, String contentType) {
+    }
+
+    private static final class Job {
+        final String id;
+        final String owner;
+        final ContactExportWriter writer;
+        final String downloadToken;
+        final AtomicLong written = new AtomicLong();
+        volatile ExportJobState state = ExportJobState.QUEUED;
+        volatile long total;
+        volatile boolean cancelled;
+        volatile Future<?> future;
+        volatile Path partFile;
+        volatile Path file;
+        volatile Instant finishedAt;
+        volatile String error;
+
+        Job(String id, String owner, ContactExportWriter writer, String downloadToken) {
+            this.id = id;
+            this.owner = owner;
+            this.writer = writer;
+            this.downloadToken = downloadToken;
+        }
+
+        void finish(ExportJobState finalState, String errorMessage) {
+            error = errorMessage;
+            state = finalState;
+            finishedAt = Instant.now();
+        }
+
+        ExportJobStatus toStatus() {
+            ExportJobState current = state;
+            return new ExportJobStatus(id, writer.getFormat(), current, written.get(), total,
+                current == ExportJobState.COMPLETED ? downloadToken : null, error);
+        }
+    }
+
+    /**
+     * Reicht die Zeilen an den eigentlichen Writer durch, zählt sie mit und bricht bei Abbruch ab.
+     */
+    private record ProgressTrackingWriter(Job job) implements ContactExportWriter {
+
+        @Override
+        public String getFormat() {
+            return job.writer.getFormat();
+        }
+
+        @Override
+        public String getFileName() {
+            return job.writer.getFileName();
+        }
+
+        @Override
+        public String getContentType() {
+            return job.writer.getContentType();
+        }
+
+        @Override
+        public void write(Iterator<ContactExportRow> rows, OutputStream outputStream) throws IOException {
+            job.writer.write(new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    if (job.cancelled) {
+                        throw new ExportCancelledException();
+                    }
+                    return rows.hasNext();
+                }
+
+                @Override
+                public ContactExportRow next() {
+                    ContactExportRow row = rows.next();
+                    job.written.incrementAndGet();
+                    return row;
+                }
+            }, outputStream);
+        }
+    }
+
+    private static class ExportCancelledException extends RuntimeException {
+        private static final long serialVersionUID = 202610191220L;
+    }
+
+    public static class ExportQueueFullException extends RuntimeException {
+        private static final long serialVersionUID = 202610191221L;
+
+        public ExportQueueFullException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package name.saak.contactmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import name.saak.contactmanager.domain.HashtagView;
+import name.saak.contactmanager.repository.HashtagRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-Process-Cache der Hashtag-Listen (aktive und alle), die bei jedem Seitenaufbau benötigt werden.
+ * Die Listen werden als unveränderliche Snapshots veröffentlicht und nach jedem Commit,
+ * der Hashtags ändert, verworfen und beim nächsten Zugriff neu geladen.
+ */
+@Component
+public class HashtagCache {
+
+    private final HashtagRepository hashtagRepository;
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter invalidationCounter;
+
+    private volatile Snapshot snapshot;
+
+    public HashtagCache(HashtagRepository hashtagRepository, MeterRegistry meterRegistry) {
+        this.hashtagRepository = hashtagRepository;
+        this.hitCounter = meterRegistry.counter("hashtags.cache.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("hashtags.cache.requests", "result", "miss");
+        this.invalidationCounter = meterRegistry.counter("hashtags.cache.invalidations");
+        Gauge.builder("hashtags.cache.size", this, cache -> cache.sizeOf(false))
+            .tag("list", "all")
+            .register(meterRegistry);
+        Gauge.builder("hashtags.cache.size", this, cache -> cache.sizeOf(true))
+            .tag("list", "active")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Gibt die aktiven (nicht gesperrten) Hashtags sortiert nach Name zurück.
+     */
+    public List<HashtagView> getActive() {
+        return current().active();
+    }
+
+    /**
+     * Gibt die aktiven Hashtags nach ID zurück (zum Auflösen der kompakten ID-Arrays der Kontaktliste).
+     */
+    public Map<Integer, HashtagView> getActiveById() {
+        return current().activeById();
+    }
+
+    /**
+     * Gibt alle Hashtags sortiert nach Name zurück.
+     */
+    public List<HashtagView> getAll() {
+        return current().all();
+    }
+
+    /**
+     * Verwirft den Snapshot nach dem Commit der laufenden Transaktion
+     * (oder sofort, wenn keine Transaktion aktiv ist).
+     */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Verwirft den Snapshot sofort.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+        invalidationCounter.increment();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            hitCounter.increment();
+            return current;
+        }
+        missCounter.increment();
+        return reload();
+    }
+
+    private synchronized Snapshot reload() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        long loadedGeneration = generation.get();
+        List<HashtagView> all = hashtagRepository.findAllByOrderByNameAsc().stream()
+            .map(HashtagView::of)
+            .toList();
+        List<HashtagView> active = all.stream()
+            .filter(hashtag -> !hashtag.gesperrt())
+            .toList();
+        Map<Integer, HashtagView> activeById = active.stream()
+            .collect(Collectors.toUnmodifiableMap(hashtag -> Math.toIntExact(hashtag.id()), Function.identity()));
+        Snapshot loaded = new Snapshot(active, all, activeById);
+
+        // Nur veröffentlichen, wenn während des Ladens keine Änderung committet wurde
+        if (generation.get() == loadedGeneration) {
+            snapshot = loaded;
+        }
+        return loaded;
+    }
+
+    private double sizeOf(boolean activeOnly) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return 0;
+        }
+        return activeOnly ? current.active().size() : current.all().size();
+    }
+
+    private record Snapshot(List<HashtagView> active, List<HashtagView> all, Map<Integer, HashtagView> activeById) {
+    }
+}
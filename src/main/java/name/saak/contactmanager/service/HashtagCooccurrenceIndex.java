@@ -0,0 +1,70 @@
+package name.saak.contactmanager.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dünn besetzte Co-Occurrence-Matrix über Hashtags.
+ * Gespeichert werden nur Paare, die mindestens einmal gemeinsam an einem Kontakt vorkommen;
+ * Einträge, deren Zähler auf 0 fällt, werden entfernt. Alle Operationen sind thread-sicher.
+ */
+class HashtagCooccurrenceIndex {
+
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Integer>> pairCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> tagCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Zählt einen Kontakt mit den angegebenen Hashtags hinzu.
+     */
+    void addContact(Collection<Long> hashtagIds) {
+        apply(hashtagIds, 1);
+    }
+
+    /**
+     * Nimmt einen Kontakt mit den angegebenen Hashtags wieder heraus.
+     */
+    void removeContact(Collection<Long> hashtagIds) {
+        apply(hashtagIds, -1);
+    }
+
+    /**
+     * Anzahl Kontakte mit diesem Hashtag.
+     */
+    int count(Long hashtagId) {
+        return tagCounts.getOrDefault(hashtagId, 0);
+    }
+
+    /**
+     * Hashtags, die gemeinsam mit hashtagId vorkommen, mit der Anzahl gemeinsamer Kontakte.
+     */
+    Map<Long, Integer> neighbours(Long hashtagId) {
+        Map<Long, Integer> row = pairCounts.get(hashtagId);
+        return row != null ? row : Map.of();
+    }
+
+    /**
+     * Anzahl gespeicherter (gerichteter) Paare.
+     */
+    long pairCount() {
+        return pairCounts.values().stream().mapToLong(Map::size).sum();
+    }
+
+    private void apply(Collection<Long> hashtagIds, int delta) {
+        for (Long a : hashtagIds) {
+            increment(tagCounts, a, delta);
+            for (Long b : hashtagIds) {
+                if (!a.equals(b)) {
+                    increment(pairCounts.computeIfAbsent(a, key -> new ConcurrentHashMap<>()), b, delta);
+                }
+            }
+        }
+    }
+
+    private static void increment(ConcurrentHashMap<Long, Integer> counts, Long key, int delta) {
+        counts.compute(key, (k, current) -> {
+            int updated = (current != null ? current : 0) + delta;
+            return updated > 0 ? updated : null;
+        });
+    }
+}
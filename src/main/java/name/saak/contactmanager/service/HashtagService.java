@@ -1,37 +1,64 @@
 package name.saak.contactmanager.service;
 
 import name.saak.contactmanager.domain.Hashtag;
+import name.saak.contactmanager.domain.HashtagView;
+import name.saak.contactmanager.repository.HashtagOverviewRow;
 import name.saak.contactmanager.repository.HashtagRepository;
+import name.saak.contactmanager.repository.HashtagUsageCount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class HashtagService {
 
+    private static final Logger log = LoggerFactory.getLogger(HashtagService.class);
+
     private final HashtagRepository hashtagRepository;
+    private final HashtagCache hashtagCache;
+    private final HashtagSuggestionService hashtagSuggestionService;
 
-    public HashtagService(HashtagRepository hashtagRepository) {
+    public HashtagService(HashtagRepository hashtagRepository, HashtagCache hashtagCache,
+                          HashtagSuggestionService hashtagSuggestionService) {
         this.hashtagRepository = hashtagRepository;
+        this.hashtagCache = hashtagCache;
+        this.hashtagSuggestionService = hashtagSuggestionService;
     }
 
     /**
-     * Gibt alle Hashtags sortiert zurück.
+     * Gibt alle Hashtags sortiert zurück (aus dem Cache, ohne eigene Transaktion).
      */
-    @Transactional(readOnly = true)
-    public List<Hashtag> findAllHashtags() {
-        return hashtagRepository.findAllByOrderByNameAsc();
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<HashtagView> findAllHashtags() {
+        return hashtagCache.getAll();
     }
 
     /**
-     * Gibt nur aktive (nicht gesperrte) Hashtags sortiert zurück.
+     * Gibt nur aktive (nicht gesperrte) Hashtags sortiert zurück (aus dem Cache, ohne eigene Transaktion).
      */
-    @Transactional(readOnly = true)
-    public List<Hashtag> findActiveHashtags() {
-        return hashtagRepository.findByGesperrtFalseOrderByNameAsc();
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<HashtagView> findActiveHashtags() {
+        return hashtagCache.getActive();
+    }
+
+    /**
+     * Gibt die aktiven Hashtags nach ID zurück (aus dem Cache, ohne eigene Transaktion).
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Map<Integer, HashtagView> findActiveHashtagsById() {
+        return hashtagCache.getActiveById();
     }
 
     /**
@@ -47,11 +74,60 @@ public class HashtagService {
      * Gibt alle Hashtags zurück wenn der Suchbegriff leer ist.
      */
     @Transactional(readOnly = true)
-    public List<Hashtag> searchHashtags(String searchTerm) {
+    public List<HashtagView> searchHashtags(String searchTerm) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return findAllHashtags();
         }
-        return hashtagRepository.searchHashtags(searchTerm.trim());
+        return hashtagRepository.searchHashtags(searchTerm.trim()).stream()
+            .map(HashtagView::of)
+            .toList();
+    }
+
+    /**
+     * Gibt die Hashtags für die Verwaltungsseite inklusive Verwendungszähler zurück.
+     * Die Hashtags kommen nach Name sortiert aus dem Cache; Filter und Sortierung nach Verwendung folgen danach.
+     *
+     * @param unusedOnly nur Hashtags ohne zugeordnete Kontakte
+     * @param sortByUsage nach Verwendung (häufigste zuerst) statt nach Name sortieren
+     */
+    @Transactional(readOnly = true)
+    public List<HashtagOverviewRow> findHashtagsForOverview(boolean unusedOnly, boolean sortByUsage) {
+        Stream<HashtagOverviewRow> rows = withUsageCounts(findAllHashtags()).stream();
+        if (unusedOnly) {
+            rows = rows.filter(row -> row.usageCount() == 0);
+        } else if (sortByUsage) {
+            // Stabil: bei gleicher Verwendung bleibt die Sortierung nach Name
+            rows = rows.sorted(Comparator.comparingInt(HashtagOverviewRow::usageCount).reversed());
+        }
+        return rows.toList();
+    }
+
+    /**
+     * Sucht Hashtags für die Verwaltungsseite (siehe {@link #searchHashtags(String)}) inklusive Verwendungszähler.
+     */
+    @Transactional(readOnly = true)
+    public List<HashtagOverviewRow> searchHashtagsForOverview(String searchTerm) {
+        return withUsageCounts(searchHashtags(searchTerm));
+    }
+
+    private List<HashtagOverviewRow> withUsageCounts(List<HashtagView> hashtags) {
+        Map<Long, Integer> usageCounts = hashtagRepository.findUsageCounts().stream()
+            .collect(Collectors.toMap(HashtagUsageCount::getHashtagId, HashtagUsageCount::getUsageCount));
+        return hashtags.stream()
+            .map(hashtag -> HashtagOverviewRow.of(hashtag, usageCounts.getOrDefault(hashtag.id(), 0)))
+            .toList();
+    }
+
+    /**
+     * Gleicht die Verwendungszähler mit den tatsächlichen Zuordnungen ab (Job "hashtag-usage-reconcile", nächtlich).
+     */
+    public void reconcileUsageCounts() {
+        int corrected = hashtagRepository.reconcileUsageCounts();
+        if (corrected > 0) {
+            log.warn("Corrected usage count of {} hashtag(s)", corrected);
+        } else {
+            log.debug("Hashtag usage counts are consistent");
+        }
     }
 
     /**
@@ -60,9 +136,31 @@ public class HashtagService {
      * @throws DuplicateHashtagException wenn ein Hashtag mit gleichem Namen existiert
      */
     public Hashtag createHashtag(Hashtag hashtag) {
+        return createHashtag(hashtag, null);
+    }
+
+    /**
+     * Speichert ein neues Hashtag unterhalb eines übergeordneten Hashtags.
+     *
+     * @param parentId ID des übergeordneten Hashtags (optional)
+     * @throws HashtagNotFoundException wenn das übergeordnete Hashtag nicht gefunden wird
+     * @throws DuplicateHashtagException wenn ein Hashtag mit gleichem Namen existiert
+     */
+    public Hashtag createHashtag(Hashtag hashtag, Long parentId) {
         validateUniqueHashtagName(hashtag.getName(), null);
         normalizeEmptyFields(hashtag);
-        return hashtagRepository.save(hashtag);
+        if (parentId != null) {
+            requireHashtag(parentId);
+        }
+
+        Hashtag saved = hashtagRepository.save(hashtag);
+        hashtagRepository.insertClosureSelf(saved.getId());
+        if (parentId != null) {
+            hashtagRepository.attachSubtree(saved.getId(), parentId);
+            hashtagRepository.updateParentId(saved.getId(), parentId);
+        }
+        hashtagCache.invalidateAfterCommit();
+        return saved;
     }
 
     /**
@@ -82,7 +180,67 @@ public class HashtagService {
         existing.setName(updatedHashtag.getName());
         existing.setBeschreibung(updatedHashtag.getBeschreibung());
 
-        return hashtagRepository.save(existing);
+        Hashtag saved = hashtagRepository.save(existing);
+        hashtagCache.invalidateAfterCommit();
+        return saved;
+    }
+
+    /**
+     * Aktualisiert ein bestehendes Hashtag und hängt es bei Bedarf um.
+     *
+     * @param parentId neues übergeordnetes Hashtag (null = Wurzel)
+     * @throws HashtagNotFoundException wenn ein Hashtag nicht gefunden wird
+     * @throws DuplicateHashtagException wenn ein Hashtag mit gleichem Namen existiert
+     * @throws IllegalArgumentException wenn das Umhängen einen Zyklus erzeugen würde
+     */
+    public Hashtag updateHashtag(Long id, Hashtag updatedHashtag, Long parentId) {
+        Hashtag saved = updateHashtag(id, updatedHashtag);
+        if (!Objects.equals(saved.getParentId(), parentId)) {
+            moveHashtag(id, parentId);
+        }
+        return saved;
+    }
+
+    /**
+     * Hängt ein Hashtag samt Teilbaum unter ein anderes Hashtag (oder macht es zur Wurzel).
+     * Die Closure-Tabelle wird mit zwei mengenbasierten Statements angepasst. Hashtag und neues übergeordnetes
+     * Hashtag werden vorher gesperrt, damit zwei gegenläufige Verschiebungen keinen Zyklus erzeugen.
+     *
+     * @param parentId neues übergeordnetes Hashtag (null = Wurzel)
+     * @throws HashtagNotFoundException wenn ein Hashtag nicht gefunden wird
+     * @throws IllegalArgumentException wenn parentId im Teilbaum von id liegt
+     */
+    public void moveHashtag(Long id, Long parentId) {
+        if (parentId != null) {
+            // In fester Reihenfolge sperren, gegen Deadlocks bei gegenläufigen Verschiebungen
+            Hashtag first = requireHashtagForUpdate(Math.min(id, parentId));
+            Hashtag second = requireHashtagForUpdate(Math.max(id, parentId));
+            Hashtag hashtag = first.getId().equals(id) ? first : second;
+            Hashtag parent = first.getId().equals(parentId) ? first : second;
+            if (hashtagRepository.isInSubtree(id, parentId)) {
+                throw new IllegalArgumentException("'" + parent.getName() + "' liegt unterhalb von '"
+                    + hashtag.getName() + "' und kann nicht übergeordnet werden");
+            }
+        } else {
+            requireHashtagForUpdate(id);
+        }
+
+        hashtagRepository.detachSubtree(id);
+        if (parentId != null) {
+            hashtagRepository.attachSubtree(id, parentId);
+            hashtagRepository.updateParentId(id, parentId);
+        } else {
+            hashtagRepository.clearParentId(id);
+        }
+        hashtagCache.invalidateAfterCommit();
+    }
+
+    /**
+     * Gibt die IDs eines Hashtags und aller Unter-Hashtags zurück.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findSubtreeIds(Long id) {
+        return hashtagRepository.findSubtreeIds(id);
     }
 
     /**
@@ -96,6 +254,33 @@ public class HashtagService {
 
         hashtag.setGesperrt(true);
         hashtagRepository.save(hashtag);
+        hashtagCache.invalidateAfterCommit();
+    }
+
+    /**
+     * Sperrt ein Hashtag samt aller Unter-Hashtags.
+     *
+     * @return Anzahl gesperrter Hashtags
+     * @throws HashtagNotFoundException wenn das Hashtag nicht gefunden wird
+     */
+    public int lockSubtree(Long id) {
+        requireHashtag(id);
+        int updated = hashtagRepository.updateGesperrtForSubtree(id, true);
+        hashtagCache.invalidateAfterCommit();
+        return updated;
+    }
+
+    /**
+     * Entsperrt ein Hashtag samt aller Unter-Hashtags.
+     *
+     * @return Anzahl entsperrter Hashtags
+     * @throws HashtagNotFoundException wenn das Hashtag nicht gefunden wird
+     */
+    public int unlockSubtree(Long id) {
+        requireHashtag(id);
+        int updated = hashtagRepository.updateGesperrtForSubtree(id, false);
+        hashtagCache.invalidateAfterCommit();
+        return updated;
     }
 
     /**
@@ -109,6 +294,68 @@ public class HashtagService {
 
         hashtag.setGesperrt(false);
         hashtagRepository.save(hashtag);
+        hashtagCache.invalidateAfterCommit();
+    }
+
+    /**
+     * Führt ein Hashtag mit einem anderen zusammen (z.B. #kunde in #kunden).
+     * Alle Zuordnungen werden per SQL umgehängt, Kontakte mit beiden Hashtags behalten nur das Ziel.
+     * Die Anzahl der Datenbank-Aufrufe ist unabhängig von der Anzahl betroffener Kontakte.
+     *
+     * @param sourceId Hashtag, das aufgelöst wird
+     * @param targetId Hashtag, das alle Zuordnungen übernimmt
+     * @param deleteSource true = Quell-Hashtag löschen, false = Quell-Hashtag sperren
+     * @throws HashtagNotFoundException wenn eines der Hashtags nicht gefunden wird
+     * @throws IllegalArgumentException wenn Quelle und Ziel identisch sind, das Ziel gesperrt ist oder die Quelle Unter-Hashtags hat
+     */
+    public MergeResult mergeHashtags(Long sourceId, Long targetId, boolean deleteSource) {
+        if (sourceId.equals(targetId)) {
+            throw new IllegalArgumentException("Ein Hashtag kann nicht mit sich selbst zusammengeführt werden");
+        }
+
+        // Beide Zeilen sperren, in fester Reihenfolge gegen Deadlocks bei gegenläufigen Merges
+        Long firstId = Math.min(sourceId, targetId);
+        Long secondId = Math.max(sourceId, targetId);
+        Hashtag first = requireHashtagForUpdate(firstId);
+        Hashtag second = requireHashtagForUpdate(secondId);
+        Hashtag target = firstId.equals(targetId) ? first : second;
+
+        Hashtag source = firstId.equals(sourceId) ? first : second;
+        if (hashtagRepository.existsByParentId(sourceId)) {
+            throw new IllegalArgumentException("Das Hashtag '" + source.getName()
+                + "' hat Unter-Hashtags und kann nicht zusammengeführt werden");
+        }
+        if (target.isGesperrt()) {
+            throw new IllegalArgumentException("Das Ziel-Hashtag '" + target.getName() + "' ist gesperrt");
+        }
+
+        int moved = hashtagRepository.repointAssignments(sourceId, targetId);
+        int dropped = hashtagRepository.deleteAssignments(sourceId);
+        if (moved > 0) {
+            hashtagRepository.adjustUsageCount(Set.of(targetId), moved);
+        }
+
+        if (deleteSource) {
+            hashtagRepository.deleteHashtagRow(sourceId);
+        } else {
+            hashtagRepository.lockMergedHashtag(sourceId);
+        }
+        hashtagCache.invalidateAfterCommit();
+        hashtagSuggestionService.rebuildAfterCommit();
+
+        log.info("Merged hashtag {} into {}: {} assignment(s) moved, {} duplicate(s) dropped, source {}",
+                sourceId, targetId, moved, dropped, deleteSource ? "deleted" : "locked");
+        return new MergeResult(moved, dropped);
+    }
+
+    private Hashtag requireHashtag(Long id) {
+        return hashtagRepository.findById(id)
+            .orElseThrow(() -> new HashtagNotFoundException("Hashtag mit ID " + id + " nicht gefunden"));
+    }
+
+    private Hashtag requireHashtagForUpdate(Long id) {
+        return hashtagRepository.findByIdForUpdate(id)
+            .orElseThrow(() -> new HashtagNotFoundException("Hashtag mit ID " + id + " nicht gefunden"));
     }
 
     /**
@@ -150,6 +397,15 @@ public class HashtagService {
         }
     }
 
+    /**
+     * Ergebnis einer Zusammenführung.
+     *
+     * @param moved Anzahl umgehängter Zuordnungen
+     * @param duplicatesDropped Anzahl entfernter Zuordnungen von Kontakten, die bereits das Ziel trugen
+     */
+    public record MergeResult(int moved, int duplicatesDropped) {
+    }
+
     /**
      * Exception für nicht gefundene Hashtags.
      */
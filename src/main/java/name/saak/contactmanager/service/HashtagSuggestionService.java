@@ -0,0 +1,307 @@
+package name.saak.contactmanager.service;
+
+import jakarta.annotation.PreDestroy;
+import name.saak.contactmanager.domain.HashtagView;
+import name.saak.contactmanager.repository.ContactHashtagAssignment;
+import name.saak.contactmanager.repository.ContactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service für Hashtag-Vorschläge ("Kontakte mit #familie haben meist auch #weihnachten").
+ * Grundlage ist eine In-Memory-Co-Occurrence-Matrix, die bei jeder Zuordnungsänderung nach dem Commit
+ * fortgeschrieben und regelmäßig sowie nach einem Restore mit Austausch parallel aus contact_hashtag neu
+ * aufgebaut wird. Der Neuaufbau läuft auf einem eigenen Thread; der ForkJoin-Pool zählt nur die Kontakte
+ * parallel ein.
+ * Vorschläge werden ausschließlich aus dem Speicher berechnet, ohne Datenbankabfrage.
+ */
+@Service
+public class HashtagSuggestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(HashtagSuggestionService.class);
+
+    private final ContactRepository contactRepository;
+    private final HashtagCache hashtagCache;
+    private final ForkJoinPool pool;
+    private final ExecutorService rebuildExecutor;
+    private final int limit;
+    private final double minConfidence;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    // Fortschreiben, Nachtragen und Austausch des Index schließen sich gegenseitig aus
+    private final Object indexLock = new Object();
+
+    private volatile HashtagCooccurrenceIndex index;
+    private volatile Queue<Change> changesDuringRebuild;
+
+    public HashtagSuggestionService(
+            ContactRepository contactRepository,
+            HashtagCache hashtagCache,
+            @Value("${app.hashtags.suggestions.parallelism:0}") int parallelism,
+            @Value("${app.hashtags.suggestions.limit:5}") int limit,
+            @Value("${app.hashtags.suggestions.min-confidence:0.1}") double minConfidence) {
+        this.contactRepository = contactRepository;
+        this.hashtagCache = hashtagCache;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hashtag-suggestion-rebuild");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.limit = limit;
+        this.minConfidence = minConfidence;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuildExecutor.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Liefert Vorschläge zu den bereits gewählten Hashtags, absteigend nach Konfidenz.
+     * Berücksichtigt werden nur aktive Hashtags; bereits gewählte werden nicht vorgeschlagen.
+     */
+    public List<HashtagSuggestion> suggest(Collection<Long> selectedHashtagIds) {
+        HashtagCooccurrenceIndex current = index;
+        if (current == null || selectedHashtagIds == null || selectedHashtagIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, HashtagView> active = hashtagCache.getActive().stream()
+            .collect(Collectors.toMap(HashtagView::id, Function.identity()));
+        Set<Long> selected = new LinkedHashSet<>(selectedHashtagIds);
+
+        // Pro Kandidat die beste Regel "selected -> candidate" merken
+        Map<Long, HashtagSuggestion> best = new HashMap<>();
+        for (Long source : selected) {
+            HashtagView sourceView = active.get(source);
+            int sourceCount = current.count(source);
+            if (sourceView == null || sourceCount == 0) {
+                continue;
+            }
+            current.neighbours(source).forEach((candidate, together) -> {
+                HashtagView candidateView = active.get(candidate);
+                if (candidateView == null || selected.contains(candidate)) {
+                    return;
+                }
+                double confidence = (double) together / sourceCount;
+                if (confidence < minConfidence) {
+                    return;
+                }
+                HashtagSuggestion suggestion = new HashtagSuggestion(
+                    candidate, candidateView.name(), sourceView.name(), confidence, together);
+                best.merge(candidate, suggestion, (a, b) -> SUGGESTION_ORDER.compare(a, b) <= 0 ? a : b);
+            });
+        }
+
+        return best.values().stream()
+            .sorted(SUGGESTION_ORDER)
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * Schreibt eine Zuordnungsänderung eines Kontakts nach dem Commit in den Index fort.
+     *
+     * @param contactId betroffener Kontakt
+     * @param previousHashtagIds Hashtags vor der Änderung (leer bei neuen Kontakten)
+     * @param currentHashtagIds Hashtags nach der Änderung (leer bei gelöschten Kontakten)
+     */
+    public void recordChange(Long contactId, Collection<Long> previousHashtagIds,
+                             Collection<Long> currentHashtagIds) {
+        Change change = new Change(contactId, Set.copyOf(previousHashtagIds), Set.copyOf(currentHashtagIds));
+        if (change.previous().equals(change.current())) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    /**
+     * Stößt nach dem Commit einen Neuaufbau im Hintergrund an
+     * (für Massenänderungen per SQL, z.B. das Zusammenführen von Hashtags).
+     */
+    public void rebuildAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scheduleRebuild();
+                }
+            });
+        } else {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Scheduled Task: Übergibt den Neuaufbau beim Start und danach regelmäßig an den eigenen Thread,
+     * damit er den gemeinsamen Scheduler nicht blockiert.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.hashtags.suggestions.rebuild-interval:PT6H}")
+    public void scheduleRebuild() {
+        rebuildExecutor.execute(this::rebuild);
+    }
+
+    /**
+     * Baut den Index aus contact_hashtag neu auf und tauscht ihn aus.
+     * Die Zuordnungen werden pro Kontakt gruppiert und parallel in den neuen Index eingezählt.
+     *
+     * Ob eine während des Aufbaus committete Änderung schon im gelesenen Stand enthalten ist, lässt sich an ihr
+     * nicht ablesen. Statt die Änderungen nachzuspielen, wird daher jeder betroffene Kontakt vom gelesenen auf
+     * seinen letzten bekannten Stand gebracht; das ist unabhängig davon, ob der Commit vor oder nach dem Lesen lag.
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            log.debug("Hashtag co-occurrence rebuild already running");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Queue<Change> pending = new ConcurrentLinkedQueue<>();
+        changesDuringRebuild = pending;
+        try {
+            Map<Long, List<Long>> hashtagsPerContact = groupByContact(contactRepository.findAllHashtagAssignments());
+            HashtagCooccurrenceIndex rebuilt = new HashtagCooccurrenceIndex();
+            pool.submit(() -> hashtagsPerContact.values().parallelStream()
+                .filter(hashtagIds -> !hashtagIds.isEmpty())
+                .forEach(rebuilt::addContact))
+                .get();
+
+            synchronized (indexLock) {
+                // Kontakte, die während des Aufbaus geändert wurden, auf ihren letzten Stand bringen
+                Map<Long, Set<Long>> latest = new LinkedHashMap<>();
+                pending.forEach(change -> latest.put(change.contactId(), change.current()));
+                latest.forEach((contactId, current) -> applyTo(rebuilt, new Change(contactId,
+                    Set.copyOf(hashtagsPerContact.getOrDefault(contactId, List.of())), current)));
+                index = rebuilt;
+                changesDuringRebuild = null;
+            }
+
+            log.info("Hashtag co-occurrence index rebuilt from {} contacts ({} pairs) in {} ms",
+                    hashtagsPerContact.size(), rebuilt.pairCount(), System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            discardPending();
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            discardPending();
+            log.error("Failed to rebuild hashtag co-occurrence index", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Baut den Index neu auf, nachdem ein Restore die laufende Datenbank ersetzt hat.
+     */
+    @EventListener
+    public void onDatabaseRestored(DatabaseRestoredEvent event) {
+        scheduleRebuild();
+    }
+
+    private void apply(Change change) {
+        synchronized (indexLock) {
+            HashtagCooccurrenceIndex current = index;
+            if (current != null) {
+                applyTo(current, change);
+            }
+            Queue<Change> pending = changesDuringRebuild;
+            if (pending != null) {
+                pending.add(change);
+            }
+        }
+    }
+
+    private void discardPending() {
+        synchronized (indexLock) {
+            changesDuringRebuild = null;
+        }
+    }
+
+    private static void applyTo(HashtagCooccurrenceIndex target, Change change) {
+        if (change.previous().equals(change.current())) {
+            return;
+        }
+        if (!change.previous().isEmpty()) {
+            target.removeContact(change.previous());
+        }
+        if (!change.current().isEmpty()) {
+            target.addContact(change.current());
+        }
+    }
+
+    /**
+     * Fasst die nach Kontakt sortierten Zuordnungen zu einer Hashtag-Liste pro Kontakt zusammen.
+     */
+    private static Map<Long, List<Long>> groupByContact(List<ContactHashtagAssignment> assignments) {
+        Map<Long, List<Long>> result = new HashMap<>();
+        Long currentContact = null;
+        List<Long> currentHashtags = null;
+        for (ContactHashtagAssignment assignment : assignments) {
+            if (!assignment.contactId().equals(currentContact)) {
+                currentContact = assignment.contactId();
+                currentHashtags = new ArrayList<>();
+                result.put(currentContact, currentHashtags);
+            }
+            currentHashtags.add(assignment.hashtagId());
+        }
+        return result;
+    }
+
+    private static final Comparator<HashtagSuggestion> SUGGESTION_ORDER =
+        Comparator.comparingDouble(HashtagSuggestion::confidence).reversed()
+            .thenComparing(Comparator.comparingInt(HashtagSuggestion::together).reversed())
+            .thenComparing(HashtagSuggestion::name);
+
+    private record Change(Long contactId, Set<Long> previous, Set<Long> current) {
+    }
+
+    /**
+     * Ein Hashtag-Vorschlag.
+     *
+     * @param id ID des vorgeschlagenen Hashtags
+     * @param name Name des vorgeschlagenen Hashtags
+     * @param basedOn Name des gewählten Hashtags, aus dem sich der Vorschlag ergibt
+     * @param confidence Anteil der Kontakte mit basedOn, die auch dieses Hashtag tragen (0..1)
+     * @param together Anzahl Kontakte mit beiden Hashtags
+     */
+    public record HashtagSuggestion(Long id, String name, String basedOn, double confidence, int together) {
+
+        public int getConfidencePercent() {
+            return (int) Math.round(confidence * 100);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package name.saak.contactmanager.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Führt geplante Jobs auf einem eigenen Worker-Pool aus (app.jobs).
+ *
+ * Der Scheduler-Thread reicht einen Job nur ein und ist sofort wieder frei. Läuft derselbe Job auf diesem Knoten
+ * noch, entfällt der neue Lauf. Vor dem Start holt sich der Knoten eine Lease in job_lock; hält ein anderer Knoten
+ * sie (mehrere Instanzen auf derselben Datenbank, z.B. über AUTO_SERVER), entfällt der Lauf ebenfalls. Die Lease
+ * gilt app.jobs.lease-time und wird verlängert, solange der Job läuft; stürzt ein Knoten ab, läuft sie aus. Hat ein
+ * anderer Knoten die Lease inzwischen übernommen (z.B. nach einer langen GC-Pause), wird der Job unterbrochen und
+ * als FAILURE verbucht. Die Zeitstempel stammen von den Knoten, deren Uhren daher synchron laufen müssen.
+ *
+ * Jeder Lauf steht mit Knoten, Dauer und Ergebnis in job_run; ältere Einträge als app.jobs.history-retention
+ * werden beim nächsten Lauf desselben Jobs gelöscht.
+ */
+@Service
+public class JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobService.class);
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String node;
+    private final Duration leaseTime;
+    private final Duration historyRetention;
+    private final Clock clock;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService leaseRenewal;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicLong> lastSuccess = new ConcurrentHashMap<>();
+    private final AtomicInteger activeJobs = new AtomicInteger();
+
+    /**
+     * Arbeit eines Jobs; Ausnahmen werden als FAILURE im Verlauf festgehalten.
+     */
+    @FunctionalInterface
+    public interface JobTask {
+        void run() throws Exception;
+    }
+
+    /**
+     * Ein Eintrag aus dem Verlauf.
+     *
+     * @param finishedAt {@code null}, solange der Lauf andauert oder wenn der Knoten dabei abgestürzt ist
+     */
+    public record JobRun(long id, String job, String node, Instant startedAt, Instant finishedAt,
+                         Long durationMillis, String outcome, String message) {
+    }
+
+    @Autowired
+    public JobService(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.jobs.pool-size:2}") int poolSize,
+            @Value("${app.jobs.node-id:}") String nodeId,
+            @Value("${app.jobs.lease-time:PT10M}") Duration leaseTime,
+            @Value("${app.jobs.history-retention:P30D}") Duration historyRetention) {
+        this(jdbcTemplate, meterRegistry, poolSize, nodeId, leaseTime, historyRetention, Clock.systemUTC());
+    }
+
+    JobService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, int poolSize, String nodeId,
+               Duration leaseTime, Duration historyRetention, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        // JVM-Name ist pid@host und damit je Instanz eindeutig
+        this.node = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        this.leaseTime = leaseTime;
+        this.historyRetention = historyRetention;
+        this.clock = clock;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.leaseRenewal = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        meterRegistry.gauge("jobs.active", activeJobs);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+        leaseRenewal.shutdownNow();
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * Reiht einen Job auf dem Worker-Pool ein, ohne auf ihn zu warten.
+     *
+     * @return {@code false}, wenn derselbe Job auf diesem Knoten noch läuft oder wartet
+     */
+    public boolean submit(String job, JobTask task) {
+        if (!running.add(job)) {
+            log.warn("Job {} still running, skipping", job);
+            meterRegistry.counter("jobs.skipped", "job", job, "reason", "running").increment();
+            return false;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    execute(job, task);
+                } finally {
+                    running.remove(job);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            running.remove(job);
+            throw e;
+        }
+    }
+
+    /**
+     * Letzte Läufe eines Jobs, neueste zuerst.
+     */
+    public List<JobRun> getHistory(String job, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, job_name, node, started_at, finished_at, duration_ms, outcome, message FROM job_run "
+                        + "WHERE job_name = ? ORDER BY started_at DESC, id DESC FETCH FIRST " + limit + " ROWS ONLY",
+                (rs, rowNum) -> {
+                    Timestamp finishedAt = rs.getTimestamp("finished_at");
+                    return new JobRun(rs.getLong("id"), rs.getString("job_name"), rs.getString("node"),
+                            rs.getTimestamp("started_at").toInstant(),
+                            finishedAt != null ? finishedAt.toInstant() : null,
+                            rs.getObject("duration_ms", Long.class), rs.getString("outcome"), rs.getString("message"));
+                },
+                job);
+    }
+
+    /**
+     * Führt einen Job aus, sofern dieser Knoten die Lease erhält.
+     *
+     * @return {@code false}, wenn ein anderer Knoten den Job gerade ausführt
+     */
+    boolean execute(String job, JobTask task) {
+        if (!acquireLease(job)) {
+            log.info("Job {} is running on another node, skipping", job);
+            meterRegistry.counter("jobs.skipped", "job", job, "reason", "locked").increment();
+            return false;
+        }
+        long leaseMillis = leaseTime.toMillis();
+        LeaseWatch watch = new LeaseWatch(Thread.currentThread());
+        ScheduledFuture<?> renewal = leaseRenewal.scheduleAtFixedRate(() -> {
+            if (!renewLease(job)) {
+                watch.lose();
+            }
+        }, leaseMillis / 3, leaseMillis / 3, TimeUnit.MILLISECONDS);
+        activeJobs.incrementAndGet();
+        Instant started = clock.instant();
+        long start = System.nanoTime();
+        String outcome = "FAILURE";
+        String message = null;
+        long runId = startRun(job, started);
+        try {
+            log.debug("Starting job {}", job);
+            task.run();
+            outcome = "SUCCESS";
+        } catch (Exception e) {
+            log.error("Job {} failed", job, e);
+            message = e.toString();
+        } finally {
+            long durationNanos = System.nanoTime() - start;
+            renewal.cancel(false);
+            if (watch.finish()) {
+                log.error("Job {} lost its lease to another node and was interrupted", job);
+                outcome = "FAILURE";
+                message = "Lease lost to another node" + (message != null ? ": " + message : "");
+            }
+            activeJobs.decrementAndGet();
+            meterRegistry.timer("jobs.duration", "job", job, "outcome", outcome.toLowerCase(Locale.ROOT))
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
+            if ("SUCCESS".equals(outcome)) {
+                lastSuccess.computeIfAbsent(job, name ->
+                        meterRegistry.gauge("jobs.last.success", Tags.of("job", name), new AtomicLong()))
+                        .set(clock.instant().getEpochSecond());
+            }
+            finishRun(job, runId, started, TimeUnit.NANOSECONDS.toMillis(durationNanos), outcome, message);
+            releaseLease(job);
+        }
+        return true;
+    }
+
+    /**
+     * Übernimmt die Lease, wenn sie frei oder abgelaufen ist; die erste Ausführung eines Jobs legt die Zeile an.
+     */
+    private boolean acquireLease(String job) {
+        Instant now = clock.instant();
+        Timestamp until = Timestamp.from(now.plus(leaseTime));
+        try {
+            int updated = jdbcTemplate.update(
+                    "UPDATE job_lock SET owner = ?, locked_at = ?, locked_until = ? "
+                            + "WHERE job_name = ? AND (locked_until <= ? OR owner = ?)",
+                    node, Timestamp.from(now), until, job, Timestamp.from(now), node);
+            if (updated > 0) {
+                return true;
+            }
+            jdbcTemplate.update("INSERT INTO job_lock (job_name, owner, locked_at, locked_until) VALUES (?, ?, ?, ?)",
+                    job, node, Timestamp.from(now), until);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Verlängert die Lease.
+     *
+     * @return {@code false}, wenn ein anderer Knoten sie übernommen hat; ein Datenbankfehler zählt nicht als
+     *         Verlust, der nächste Versuch folgt nach einem Drittel der Lease-Zeit
+     */
+    private boolean renewLease(String job) {
+        try {
+            int updated = jdbcTemplate.update("UPDATE job_lock SET locked_until = ? WHERE job_name = ? AND owner = ?",
+                    Timestamp.from(clock.instant().plus(leaseTime)), job, node);
+            if (updated == 0) {
+                log.warn("Lease of job {} was taken over by another node", job);
+                return false;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to renew lease of job {}", job, e);
+        }
+        return true;
+    }
+
+    private void releaseLease(String job) {
+        try {
+            jdbcTemplate.update("UPDATE job_lock SET locked_until = ? WHERE job_name = ? AND owner = ?",
+                    Timestamp.from(clock.instant()), job, node);
+        } catch (DataAccessException e) {
+            log.warn("Failed to release lease of job {}, it expires after {}", job, leaseTime, e);
+        }
+    }
+
+    /**
+     * Verbindet die Lease-Verlängerung mit dem Worker-Thread eines Laufs: Geht die Lease verloren, wird der Thread
+     * unterbrochen, aber nur solange der Lauf noch andauert, damit die Unterbrechung nicht den nächsten Job trifft.
+     */
+    private static final class LeaseWatch {
+
+        private final Thread worker;
+        private boolean lost;
+        private boolean finished;
+
+        LeaseWatch(Thread worker) {
+            this.worker = worker;
+        }
+
+        synchronized void lose() {
+            if (!finished && !lost) {
+                lost = true;
+                worker.interrupt();
+            }
+        }
+
+        /**
+         * Beendet die Überwachung auf dem Worker-Thread und löscht eine noch anstehende Unterbrechung.
+         *
+         * @return ob die Lease während des Laufs verloren ging
+         */
+        synchronized boolean finish() {
+            finished = true;
+            if (lost) {
+                Thread.interrupted();
+            }
+            return lost;
+        }
+    }
+
+    private long startRun(String job, Instant started) {
+        try {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO job_run (job_name, node, started_at, outcome) VALUES (?, ?, ?, 'RUNNING')",
+                        new String[] {"id"});
+                statement.setString(1, job);
+                statement.setString(2, node);
+                statement.setTimestamp(3, Timestamp.from(started));
+                return statement;
+            }, keyHolder);
+            return keyHolder.getKey().longValue();
+        } catch (DataAccessException e) {
+            // Der Job läuft trotzdem, es fehlt nur der Verlaufseintrag
+            log.warn("Failed to record start of job {}", job, e);
+            return -1;
+        }
+    }
+
+    private void finishRun(String job, long runId, Instant started, long durationMillis, String outcome,
+                           String message) {
+        try {
+            if (runId >= 0) {
+                jdbcTemplate.update(
+                        "UPDATE job_run SET finished_at = ?, duration_ms = ?, outcome = ?, message = ? WHERE id = ?",
+                        Timestamp.from(clock.instant()), durationMillis, outcome,
+                        message != null && message.length() > MAX_MESSAGE_LENGTH
+                                ? message.substring(0, MAX_MESSAGE_LENGTH) : message,
+                        runId);
+            }
+            jdbcTemplate.update("DELETE FROM job_run WHERE job_name = ? AND started_at < ?",
+                    job, Timestamp.from(started.minus(historyRetention)));
+        } catch (DataAccessException e) {
+            log.warn("Failed to record result of job {}", job, e);
+        }
+    }
+}
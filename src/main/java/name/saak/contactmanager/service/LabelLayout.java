@@ -0,0 +1,96 @@
+package name.saak.contactmanager.service;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Gängige Etikettenbögen (A4) für den Adressetiketten-Export. Alle Maße in Millimetern.
+ */
+public enum LabelLayout {
+
+    ZWECKFORM_3474("3474", "Zweckform 3474 (70 × 37 mm, 24 pro Bogen)", 3, 8, 70, 37, 0, 0.5, 0, 0),
+    ZWECKFORM_3475("3475", "Zweckform 3475 (70 × 36 mm, 24 pro Bogen)", 3, 8, 70, 36, 0, 4.5, 0, 0),
+    ZWECKFORM_3422("3422", "Zweckform 3422 (70 × 35 mm, 24 pro Bogen)", 3, 8, 70, 35, 0, 8.5, 0, 0),
+    AVERY_L7163("l7163", "Avery L7163 (99,1 × 38,1 mm, 14 pro Bogen)", 2, 7, 99.1, 38.1, 4.65, 15.15, 2.5, 0);
+
+    static final double PAGE_WIDTH_MM = 210;
+    static final double PAGE_HEIGHT_MM = 297;
+
+    private final String code;
+    private final String description;
+    private final int columns;
+    private final int rows;
+    private final double labelWidth;
+    private final double labelHeight;
+    private final double marginLeft;
+    private final double marginTop;
+    private final double gapX;
+    private final double gapY;
+
+    LabelLayout(String code, String description, int columns, int rows, double labelWidth, double labelHeight,
+                double marginLeft, double marginTop, double gapX, double gapY) {
+        this.code = code;
+        this.description = description;
+        this.columns = columns;
+        this.rows = rows;
+        this.labelWidth = labelWidth;
+        this.labelHeight = labelHeight;
+        this.marginLeft = marginLeft;
+        this.marginTop = marginTop;
+        this.gapX = gapX;
+        this.gapY = gapY;
+    }
+
+    /**
+     * Sucht ein Layout anhand seines Kürzels (z.B. "3474"), Groß-/Kleinschreibung egal.
+     */
+    public static Optional<LabelLayout> fromCode(String code) {
+        return Arrays.stream(values())
+            .filter(layout -> layout.code.equalsIgnoreCase(code))
+            .findFirst();
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getLabelsPerPage() {
+        return columns * rows;
+    }
+
+    public double getLabelWidth() {
+        return labelWidth;
+    }
+
+    public double getLabelHeight() {
+        return labelHeight;
+    }
+
+    public double getMarginLeft() {
+        return marginLeft;
+    }
+
+    public double getMarginTop() {
+        return marginTop;
+    }
+
+    public double getGapX() {
+        return gapX;
+    }
+
+    public double getGapY() {
+        return gapY;
+    }
+}
@@ -0,0 +1,313 @@
+package name.saak.contactmanager.service;
+
+import jakarta.annotation.PreDestroy;
+import name.saak.contactmanager.repository.ContactExportRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+
+/**
+ * Service für den Export als Bogen mit Adressetiketten (PDF, A4).
+ * Die Etiketten enthalten dieselben Adresszeilen wie der Excel-Export (Firma, Anrede, Vorname_Name, Straße, PLZ/Ort).
+ * Die Zeilen werden in Blöcken zu je pages-per-chunk Seiten gelesen; die Seiten eines Blocks werden parallel
+ * gerendert und komprimiert und anschließend in Reihenfolge geschrieben. Dadurch bleibt der Speicherbedarf
+ * unabhängig von der Anzahl Etiketten.
+ */
+@Service
+public class LabelPdfService implements ContactExportWriter {
+
+    private static final double POINTS_PER_MM = 72 / 25.4;
+    private static final double FONT_SIZE = 10;
+    private static final double LEADING = 12;
+    private static final double PADDING_X_MM = 5;
+    private static final double PADDING_Y_MM = 2;
+    private static final Charset WIN_ANSI = Charset.forName("windows-1252");
+
+    /** Zeichenbreiten von Helvetica für ASCII 32..126 (1/1000 der Schriftgröße). */
+    private static final short[] HELVETICA_WIDTHS = {
+        278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+        556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+        1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+        667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+        333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+        556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+
+    private final ForkJoinPool pool;
+    private final int pagesPerChunk;
+    private final LabelLayout defaultLayout;
+
+    public LabelPdfService(
+            @Value("${app.export.labels.parallelism:0}") int parallelism,
+            @Value("${app.export.labels.pages-per-chunk:32}") int pagesPerChunk,
+            @Value("${app.export.labels.layout:3474}") String defaultLayout) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.pagesPerChunk = Math.max(1, pagesPerChunk);
+        this.defaultLayout = LabelLayout.fromCode(defaultLayout)
+            .orElseThrow(() -> new IllegalArgumentException("Unbekanntes Etikettenlayout: " + defaultLayout));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String getFormat() {
+        return "pdf";
+    }
+
+    @Override
+    public String getFileName() {
+        return "etiketten.pdf";
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/pdf";
+    }
+
+    @Override
+    public void write(Iterator<ContactExportRow> rows, OutputStream outputStream) throws IOException {
+        writeLabels(rows, defaultLayout, outputStream);
+    }
+
+    /**
+     * Varianten sind die Etikettenlayouts, z.B. "pdf-3475" oder "pdf-l7163".
+     */
+    @Override
+    public Optional<ContactExportWriter> variant(String name) {
+        return LabelLayout.fromCode(name).map(LayoutWriter::new);
+    }
+
+    /**
+     * Schreibt die Etikettenbögen als PDF in den Ausgabestrom.
+     *
+     * @param rows zu druckende Adressen (werden genau einmal durchlaufen)
+     * @param layout Etikettenbogen
+     * @param outputStream Ziel; wird nicht geschlossen
+     * @throws IOException bei Fehlern beim Schreiben
+     */
+    public void writeLabels(Iterator<ContactExportRow> rows, LabelLayout layout, OutputStream outputStream)
+            throws IOException {
+        PdfDocumentWriter pdf = new PdfDocumentWriter(outputStream,
+            LabelLayout.PAGE_WIDTH_MM * POINTS_PER_MM, LabelLayout.PAGE_HEIGHT_MM * POINTS_PER_MM);
+        int chunkSize = layout.getLabelsPerPage() * pagesPerChunk;
+        List<ContactExportRow> chunk = new ArrayList<>(chunkSize);
+
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == chunkSize) {
+                writeChunk(pdf, chunk, layout);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty() || pdf.getPageCount() == 0) {
+            writeChunk(pdf, chunk, layout);
+        }
+        pdf.finish();
+    }
+
+    /**
+     * Rendert die Seiten eines Blocks parallel und hängt sie in Reihenfolge an (ein leerer Block ergibt eine leere Seite).
+     */
+    private void writeChunk(PdfDocumentWriter pdf, List<ContactExportRow> chunk, LabelLayout layout)
+            throws IOException {
+        int labelsPerPage = layout.getLabelsPerPage();
+        int pageCount = Math.max(1, (chunk.size() + labelsPerPage - 1) / labelsPerPage);
+
+        List<byte[]> pages;
+        try {
+            pages = pool.submit(() -> IntStream.range(0, pageCount).parallel()
+                .mapToObj(page -> renderPage(
+                    chunk.subList(page * labelsPerPage, Math.min(chunk.size(), (page + 1) * labelsPerPage)), layout))
+                .toList())
+                .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Etikettenexport unterbrochen");
+        } catch (ExecutionException e) {
+            throw new IOException("Etikettenseite konnte nicht erzeugt werden", e.getCause());
+        }
+
+        for (byte[] page : pages) {
+            pdf.addPage(page);
+        }
+    }
+
+    /**
+     * Erzeugt den komprimierten Content-Stream einer Seite.
+     */
+    static byte[] renderPage(List<ContactExportRow> labels, LabelLayout layout) {
+        double pageHeight = LabelLayout.PAGE_HEIGHT_MM * POINTS_PER_MM;
+        double labelHeight = layout.getLabelHeight() * POINTS_PER_MM;
+        double maxTextWidth = (layout.getLabelWidth() - 2 * PADDING_X_MM) * POINTS_PER_MM;
+        int maxLines = Math.max(1, (int) ((labelHeight - 2 * PADDING_Y_MM * POINTS_PER_MM - FONT_SIZE) / LEADING) + 1);
+
+        StringBuilder content = new StringBuilder(labels.size() * 160);
+        content.append("BT /F1 ").append(PdfDocumentWriter.format(FONT_SIZE))
+            .append(" Tf ").append(PdfDocumentWriter.format(LEADING)).append(" TL\n");
+
+        for (int i = 0; i < labels.size(); i++) {
+            int column = i % layout.getColumns();
+            int row = i / layout.getColumns();
+            List<String> lines = labelLines(labels.get(i), maxLines);
+            if (lines.isEmpty()) {
+                continue;
+            }
+
+            double x = (layout.getMarginLeft() + column * (layout.getLabelWidth() + layout.getGapX()) + PADDING_X_MM)
+                * POINTS_PER_MM;
+            double top = pageHeight - (layout.getMarginTop() + row * (layout.getLabelHeight() + layout.getGapY()))
+                * POINTS_PER_MM;
+            // Textblock vertikal zentrieren; die erste Grundlinie liegt eine Versalhöhe unter der Blockoberkante
+            double blockHeight = (lines.size() - 1) * LEADING + FONT_SIZE;
+            double baseline = top - (labelHeight - blockHeight) / 2 - FONT_SIZE * 0.75;
+
+            content.append("1 0 0 1 ").append(PdfDocumentWriter.format(x)).append(' ')
+                .append(PdfDocumentWriter.format(baseline)).append(" Tm\n");
+            for (String line : lines) {
+                content.append('(');
+                appendPdfString(content, fitToWidth(line, maxTextWidth));
+                content.append(") Tj T*\n");
+            }
+        }
+        content.append("ET\n");
+
+        return deflate(content.toString().getBytes(WIN_ANSI));
+    }
+
+    /**
+     * Adresszeilen eines Etiketts; passt nicht alles auf das Etikett, entfallen zuerst Firma und Anrede.
+     */
+    static List<String> labelLines(ContactExportRow contact, int maxLines) {
+        List<String> lines = new ArrayList<>(5);
+        addIfPresent(lines, contact.firma());
+        addIfPresent(lines, contact.anrede());
+        addIfPresent(lines, contact.vornameName());
+        addIfPresent(lines, contact.strasse());
+        addIfPresent(lines, contact.plzOrt());
+        while (lines.size() > maxLines) {
+            lines.remove(0);
+        }
+        return lines;
+    }
+
+    /**
+     * Kürzt eine Zeile mit "…", wenn sie breiter als das Etikett ist.
+     */
+    static String fitToWidth(String text, double maxWidth) {
+        double limit = maxWidth * 1000 / FONT_SIZE;
+        double width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            double charWidth = charWidth(text.charAt(i));
+            if (width + charWidth > limit) {
+                int end = i;
+                while (end > 0 && width + charWidth('…') > limit) {
+                    end--;
+                    width -= charWidth(text.charAt(end));
+                }
+                return text.substring(0, end) + '…';
+            }
+            width += charWidth;
+        }
+        return text;
+    }
+
+    private static double charWidth(char c) {
+        if (c >= 32 && c <= 126) {
+            return HELVETICA_WIDTHS[c - 32];
+        }
+        return switch (c) {
+            case 'Ä' -> 667;
+            case 'Ö' -> 778;
+            case 'Ü' -> 722;
+            case 'ß' -> 611;
+            case '…' -> 1000;
+            default -> 556;
+        };
+    }
+
+    private static void addIfPresent(List<String> lines, String value) {
+        if (value != null && !value.isBlank()) {
+            lines.add(value.strip());
+        }
+    }
+
+    /**
+     * Hängt Text als Inhalt eines PDF-Strings an (Klammern und Backslash maskiert, Steuerzeichen als Leerzeichen).
+     */
+    private static void appendPdfString(StringBuilder content, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                content.append('\\').append(c);
+            } else if (c < 32) {
+                content.append(' ');
+            } else {
+                content.append(c);
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream result = new ByteArrayOutputStream(data.length / 3 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                result.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Etikettenexport mit festem Layout (Variante des Formats "pdf").
+     */
+    private class LayoutWriter implements ContactExportWriter {
+
+        private final LabelLayout layout;
+
+        LayoutWriter(LabelLayout layout) {
+            this.layout = layout;
+        }
+
+        @Override
+        public String getFormat() {
+            return "pdf-" + layout.getCode();
+        }
+
+        @Override
+        public String getFileName() {
+            return "etiketten-" + layout.getCode() + ".pdf";
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/pdf";
+        }
+
+        @Override
+        public void write(Iterator<ContactExportRow> rows, OutputStream outputStream) throws IOException {
+            writeLabels(rows, layout, outputStream);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package name.saak.contactmanager.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.JDBCType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Logisches Backup: datenbankunabhängiger Abzug von hashtag, contact, hashtag_closure und contact_hashtag als
+ * zeilenweises JSON (NDJSON).
+ *
+ * Aufbau: eine Kopfzeile, je Tabelle eine Zeile mit Spalten und JDBC-Typen, eine JSON-Liste pro Datenzeile und
+ * eine Abschlusszeile mit der Zeilenzahl. Gelesen wird mit Forward-only-Cursorn und großer Fetch-Size, geschrieben
+ * wird mit Batch-Inserts; beides hält nie mehr als einen Batch im Speicher. Hashtags stehen nach Tiefe in der
+ * Hierarchie sortiert, damit Eltern vor ihren Kindern eingefügt werden.
+ *
+ * Die Komprimierung übernimmt der Aufrufer (GZIP um den Stream).
+ */
+final class LogicalBackup {
+
+    static final String FORMAT = "contactdb-logical";
+    static final int VERSION = 1;
+    private static final int FETCH_SIZE = 5000;
+    private static final int BATCH_SIZE = 1000;
+    // Streams schließt der Aufrufer; beim Restore wird danach noch der Rest für die Prüfsumme gelesen
+    private static final JsonFactory JSON = JsonFactory.builder()
+        .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .build();
+
+    /**
+     * Gesicherte Tabellen in Einfügereihenfolge: Stammdaten vor Zuordnungen.
+     */
+    private static final List<DumpTable> TABLES = List.of(
+        new DumpTable("hashtag", "COALESCE((SELECT MAX(c.depth) FROM hashtag_closure c "
+            + "WHERE c.descendant_id = t.id), 0), t.id"),
+        new DumpTable("contact", "t.id"),
+        new DumpTable("hashtag_closure", "t.ancestor_id, t.descendant_id"),
+        new DumpTable("contact_hashtag", "t.contact_id, t.hashtag_id"));
+
+    private LogicalBackup() {
+    }
+
+    /**
+     * Schreibt alle Tabellen. Für einen konsistenten Stand muss die Verbindung in einer Transaktion mit
+     * Snapshot-Isolation laufen; bei PostgreSQL wirkt die Fetch-Size ohnehin nur ohne Auto-Commit.
+     *
+     * @return Zeilenzahl je Tabelle
+     */
+    static Map<String, Long> write(Connection connection, OutputStream out) throws IOException, SQLException {
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
+        try (JsonGenerator generator = JSON.createGenerator(out)) {
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            generator.writeStartObject();
+            generator.writeStringField("format", FORMAT);
+            generator.writeNumberField("version", VERSION);
+            generator.writeStringField("database", connection.getMetaData().getDatabaseProductName());
+            generator.writeStringField("created", LocalDateTime.now().toString());
+            generator.writeEndObject();
+
+            for (DumpTable table : TABLES) {
+                rowCounts.put(table.name(), writeTable(connection, table, generator));
+            }
+            generator.writeRaw('\n');
+        }
+        return rowCounts;
+    }
+
+    private static long writeTable(Connection connection, DumpTable table, JsonGenerator generator)
+            throws IOException, SQLException {
+        long rows = 0;
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT t.* FROM " + table.name() + " t ORDER BY " + table.orderBy())) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                int[] types = new int[columnCount];
+
+                generator.writeStartObject();
+                generator.writeStringField("table", table.name());
+                generator.writeArrayFieldStart("columns");
+                for (int i = 1; i <= columnCount; i++) {
+                    generator.writeString(metaData.getColumnName(i).toLowerCase(Locale.ROOT));
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("types");
+                for (int i = 1; i <= columnCount; i++) {
+                    types[i - 1] = metaData.getColumnType(i);
+                    generator.writeString(typeName(types[i - 1]));
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+
+                while (rs.next()) {
+                    generator.writeStartArray();
+                    for (int i = 1; i <= columnCount; i++) {
+                        writeValue(rs, i, types[i - 1], generator);
+                    }
+                    generator.writeEndArray();
+                    rows++;
+                }
+            }
+        }
+
+        generator.writeStartObject();
+        generator.writeStringField("end", table.name());
+        generator.writeNumberField("rows", rows);
+        generator.writeEndObject();
+        return rows;
+    }
+
+    private static void writeValue(ResultSet rs, int column, int type, JsonGenerator generator)
+            throws IOException, SQLException {
+        switch (type) {
+            case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT -> {
+                long value = rs.getLong(column);
+                if (rs.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+            }
+            case Types.BOOLEAN, Types.BIT -> {
+                boolean value = rs.getBoolean(column);
+                if (rs.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeBoolean(value);
+                }
+            }
+            case Types.DECIMAL, Types.NUMERIC, Types.REAL, Types.FLOAT, Types.DOUBLE -> {
+                BigDecimal value = rs.getBigDecimal(column);
+                if (value == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+            }
+            case Types.TIMESTAMP -> {
+                Timestamp value = rs.getTimestamp(column);
+                generator.writeString(value == null ? null : value.toLocalDateTime().toString());
+            }
+            case Types.TIMESTAMP_WITH_TIMEZONE -> {
+                OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+                generator.writeString(value == null ? null : value.toString());
+            }
+            case Types.DATE -> {
+                Date value = rs.getDate(column);
+                generator.writeString(value == null ? null : value.toLocalDate().toString());
+            }
+            default -> generator.writeString(rs.getString(column));
+        }
+    }
+
+    /**
+     * Liest ein logisches Backup und fügt die Zeilen per Batch-Insert ein. Die Zieltabellen müssen existieren
+     * und leer sein. Es wird nicht committet; der Aufrufer prüft das Ergebnis und schließt die Transaktion ab.
+     *
+     * @return Zeilenzahl je Tabelle
+     * @throws IOException bei unbekanntem Format oder unvollständigem Backup
+     */
+    static Map<String, Long> read(InputStream in, Connection connection) throws IOException, SQLException {
+        connection.setAutoCommit(false);
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
+        try (JsonParser parser = JSON.createParser(in)) {
+            readHeader(parser);
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT || !"table".equals(nextField(parser))) {
+                    throw new IOException("Invalid logical backup: table header expected");
+                }
+                String tableName = parser.nextTextValue();
+                TABLES.stream()
+                    .filter(table -> table.name().equals(tableName))
+                    .findFirst()
+                    .orElseThrow(() -> new IOException("Unknown table in logical backup: " + tableName));
+                List<String> columns = readStrings(parser, "columns");
+                List<String> typeNames = readStrings(parser, "types");
+                skipToEndObject(parser);
+                rowCounts.put(tableName, readTable(parser, connection, tableName, columns, typeNames));
+            }
+        }
+
+        List<String> missing = TABLES.stream()
+            .map(DumpTable::name)
+            .filter(name -> !rowCounts.containsKey(name))
+            .toList();
+        if (!missing.isEmpty()) {
+            throw new IOException("Incomplete logical backup, missing tables " + missing);
+        }
+        return rowCounts;
+    }
+
+    /**
+     * Anzahl vorhandener Zeilen in den gesicherten Tabellen (vor einem Restore muss sie 0 sein).
+     */
+    static long countRows(Connection connection) throws SQLException {
+        long rows = 0;
+        try (Statement statement = connection.createStatement()) {
+            for (DumpTable table : TABLES) {
+                try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table.name())) {
+                    rs.next();
+                    rows += rs.getLong(1);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static long readTable(JsonParser parser, Connection connection, String tableName, List<String> columns,
+                                  List<String> typeNames) throws IOException, SQLException {
+        int[] types = typeNames.stream().mapToInt(name -> JDBCType.valueOf(name).getVendorTypeNumber()).toArray();
+        String sql = "INSERT INTO " + tableName + " (" + String.join(", ", columns) + ") VALUES ("
+            + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+
+        long rows = 0;
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            int pending = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_ARRAY) {
+                for (int i = 0; i < types.length; i++) {
+                    bindValue(insert, i + 1, types[i], parser.nextToken(), parser);
+                }
+                if (parser.nextToken() != JsonToken.END_ARRAY) {
+                    throw new IOException("Invalid row in logical backup of " + tableName);
+                }
+                insert.addBatch();
+                rows++;
+                if (++pending == BATCH_SIZE) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insert.executeBatch();
+            }
+
+            if (token != JsonToken.START_OBJECT || !"end".equals(nextField(parser))
+                    || !tableName.equals(parser.nextTextValue())) {
+                throw new IOException("Incomplete logical backup of " + tableName);
+            }
+            if (!"rows".equals(nextField(parser)) || parser.nextToken() != JsonToken.VALUE_NUMBER_INT
+                    || parser.getLongValue() != rows) {
+                throw new IOException("Row count mismatch in logical backup of " + tableName);
+            }
+            skipToEndObject(parser);
+        }
+        return rows;
+    }
+
+    private static void bindValue(PreparedStatement insert, int index, int type, JsonToken token, JsonParser parser)
+            throws IOException, SQLException {
+        if (token == JsonToken.VALUE_NULL) {
+            insert.setNull(index, Types.NULL);
+            return;
+        }
+        switch (type) {
+            case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT -> insert.setLong(index, parser.getLongValue());
+            case Types.BOOLEAN, Types.BIT -> insert.setBoolean(index, parser.getBooleanValue());
+            case Types.DECIMAL, Types.NUMERIC, Types.REAL, Types.FLOAT, Types.DOUBLE ->
+                insert.setBigDecimal(index, parser.getDecimalValue());
+            case Types.TIMESTAMP -> insert.setTimestamp(index, Timestamp.valueOf(LocalDateTime.parse(parser.getText())));
+            case Types.TIMESTAMP_WITH_TIMEZONE -> insert.setObject(index, OffsetDateTime.parse(parser.getText()));
+            case Types.DATE -> insert.setDate(index, Date.valueOf(LocalDate.parse(parser.getText())));
+            default -> insert.setString(index, parser.getText());
+        }
+    }
+
+    private static void readHeader(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Invalid logical backup: header expected");
+        }
+        String format = null;
+        int version = -1;
+        String field;
+        while ((field = nextField(parser)) != null) {
+            JsonToken value = parser.nextToken();
+            if (field.equals("format")) {
+                format = parser.getText();
+            } else if (field.equals("version") && value == JsonToken.VALUE_NUMBER_INT) {
+                version = parser.getIntValue();
+            }
+            parser.skipChildren();
+        }
+        if (!FORMAT.equals(format) || version != VERSION) {
+            throw new IOException("Unsupported logical backup format " + format + " " + version);
+        }
+    }
+
+    private static List<String> readStrings(JsonParser parser, String field) throws IOException {
+        if (!field.equals(nextField(parser)) || parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Invalid logical backup: " + field + " expected");
+        }
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.VALUE_STRING) {
+            values.add(parser.getText());
+        }
+        if (parser.currentToken() != JsonToken.END_ARRAY) {
+            throw new IOException("Invalid logical backup: " + field + " expected");
+        }
+        return values;
+    }
+
+    /**
+     * Name des nächsten Feldes im aktuellen Objekt, {@code null} am Objektende.
+     */
+    private static String nextField(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_OBJECT) {
+            return null;
+        }
+        if (token != JsonToken.FIELD_NAME) {
+            throw new IOException("Invalid logical backup: field expected");
+        }
+        return parser.currentName();
+    }
+
+    private static void skipToEndObject(JsonParser parser) throws IOException {
+        while (nextField(parser) != null) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+
+    private static String typeName(int type) {
+        try {
+            return JDBCType.valueOf(type).getName();
+        } catch (IllegalArgumentException e) {
+            // Herstellerspezifische Typen als Text
+            return JDBCType.VARCHAR.getName();
+        }
+    }
+
+    private record DumpTable(String name, String orderBy) {
+    }
+}
@@ -0,0 +1,439 @@
+package name.saak.contactmanager.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Repliziert Backups in einen S3-kompatiblen Objektspeicher (app.backup.offsite).
+ *
+ * Nach jedem Backup wird ein Replikationslauf angestoßen, der auf eigenen Threads läuft; das Backup und damit
+ * auch das nächste geplante Backup warten nicht darauf. Ein Lauf lädt alle Backups aus dem Katalog hoch, die noch
+ * nicht repliziert sind, bei deduplizierten Backups zuerst die noch fehlenden Chunks. Dateien werden als
+ * Multipart-Upload in Parts von app.backup.offsite.part-size parallel hochgeladen. Bricht ein Lauf ab, setzt der
+ * nächste den offenen Upload fort und lädt nur Parts, die der Speicher noch nicht bestätigt hat. Jeder Part wird
+ * über seinen MD5 (ETag) geprüft, das fertige Objekt über Größe, zusammengesetzten ETag und den SHA-256 aus dem
+ * Katalog. Bei SSE-KMS, SSE-C und manchen S3-kompatiblen Speichern ist der ETag kein MD5; mit
+ * app.backup.offsite.verify-etag=false entfällt dessen Prüfung, es bleiben Größe und SHA-256.
+ *
+ * Unter der Lesesperre der Backup-Dateien werden nur die Datei und die fehlenden Chunks per Hardlink in ein
+ * Snapshot-Verzeichnis übernommen; der Upload läuft danach ohne Sperre, damit die Bereinigung nicht auf ihn wartet.
+ *
+ * Bereits replizierte Backups stehen in offsite-state.tsv im Backup-Verzeichnis. Gelöschte Backups bleiben im
+ * Objektspeicher; dort regelt eine Lifecycle-Regel die Aufbewahrung.
+ */
+@Service
+public class OffsiteReplicationService {
+
+    private static final Logger log = LoggerFactory.getLogger(OffsiteReplicationService.class);
+    static final String STATE_FILE = "offsite-state.tsv";
+    static final String SNAPSHOT_DIRECTORY = "offsite-snapshot";
+
+    private final DatabaseBackupService backupService;
+    private final OffsiteStore store;
+    private final MeterRegistry meterRegistry;
+    private final String prefix;
+    private final int partSize;
+    private final boolean verifyEtag;
+    private final ExecutorService replicationExecutor;
+    private final ExecutorService uploadExecutor;
+    private final AtomicBoolean replicationQueued = new AtomicBoolean();
+    private final AtomicInteger pendingBackups = new AtomicInteger();
+    private final Set<String> knownChunks = new HashSet<>();
+    private Set<String> replicated;
+
+    @Autowired
+    public OffsiteReplicationService(
+            DatabaseBackupService backupService,
+            MeterRegistry meterRegistry,
+            @Value("${app.backup.offsite.enabled:false}") boolean enabled,
+            @Value("${app.backup.offsite.endpoint:}") String endpoint,
+            @Value("${app.backup.offsite.bucket:}") String bucket,
+            @Value("${app.backup.offsite.region:us-east-1}") String region,
+            @Value("${app.backup.offsite.access-key:}") String accessKey,
+            @Value("${app.backup.offsite.secret-key:}") String secretKey,
+            @Value("${app.backup.offsite.prefix:contactdb/}") String prefix,
+            @Value("${app.backup.offsite.part-size:8MB}") DataSize partSize,
+            @Value("${app.backup.offsite.parallelism:4}") int parallelism,
+            @Value("${app.backup.offsite.verify-etag:true}") boolean verifyEtag) {
+        this(backupService, enabled ? new S3OffsiteStore(endpoint, bucket, region, accessKey, secretKey) : null,
+                meterRegistry, prefix, partSize, parallelism, verifyEtag);
+    }
+
+    /**
+     * @param store Objektspeicher, {@code null} wenn die Replikation deaktiviert ist
+     * @param verifyEtag ETags als MD5 des Inhalts prüfen
+     */
+    OffsiteReplicationService(DatabaseBackupService backupService, OffsiteStore store, MeterRegistry meterRegistry,
+                              String prefix, DataSize partSize, int parallelism, boolean verifyEtag) {
+        this.backupService = backupService;
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        this.prefix = prefix;
+        this.partSize = Math.toIntExact(partSize.toBytes());
+        this.verifyEtag = verifyEtag;
+        this.replicationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "offsite-replication");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.uploadExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "offsite-upload-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        meterRegistry.gauge("backup.offsite.pending", pendingBackups);
+        if (store != null) {
+            backupService.addBackupListener(file -> requestReplication());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        replicationExecutor.shutdownNow();
+        uploadExecutor.shutdownNow();
+    }
+
+    /**
+     * Holt fehlgeschlagene oder abgebrochene Uploads nach (Job "offsite-replication"); ohne ausstehende Backups
+     * kostet der Lauf keinen Request.
+     */
+    public void retryPendingReplication() throws IOException {
+        if (store != null) {
+            replicate();
+        }
+    }
+
+    /**
+     * Stößt einen Replikationslauf an, ohne auf ihn zu warten. Läuft gerade einer, folgt genau ein weiterer.
+     */
+    public void requestReplication() {
+        if (store == null || !replicationQueued.compareAndSet(false, true)) {
+            return;
+        }
+        replicationExecutor.execute(() -> {
+            replicationQueued.set(false);
+            try {
+                replicate();
+            } catch (Exception e) {
+                log.error("Offsite replication failed, retrying later", e);
+            }
+        });
+    }
+
+    /**
+     * Wartet, bis alle bisher angestoßenen Läufe beendet sind.
+     */
+    void awaitReplication() throws InterruptedException, ExecutionException {
+        replicationExecutor.submit(() -> { }).get();
+    }
+
+    /**
+     * Lädt alle noch nicht replizierten Backups hoch.
+     *
+     * @return Anzahl hochgeladener Backups
+     */
+    synchronized int replicate() throws IOException {
+        Path backupDir = backupService.backupDirectory();
+        List<BackupCatalog.Entry> entries = backupService.catalog().entries();
+        Set<String> done = replicated();
+        List<BackupCatalog.Entry> pending = entries.stream()
+                .filter(entry -> !done.contains(entry.fileName()))
+                .toList();
+        pendingBackups.set(pending.size());
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        int uploaded = 0;
+        try {
+            for (BackupCatalog.Entry entry : pending) {
+                Path snapshot = backupDir.resolve(SNAPSHOT_DIRECTORY);
+                if (Files.exists(snapshot)) {
+                    DatabaseBackupService.deleteRecursively(snapshot);
+                }
+                List<Path> chunks;
+                // Die Bereinigung wartet nur, bis die Dateien verlinkt sind
+                Lock lock = backupService.backupFilesReadLock();
+                lock.lock();
+                try {
+                    Path file = backupDir.resolve(entry.fileName());
+                    if (!Files.exists(file)) {
+                        continue;
+                    }
+                    chunks = entry.fileName().endsWith(DeduplicatingBackupStore.MANIFEST_SUFFIX)
+                            ? snapshotChunks(file, snapshot) : List.of();
+                    link(file, snapshot.resolve(entry.fileName()));
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    replicateChunks(snapshot, chunks);
+                    replicateFile(snapshot.resolve(entry.fileName()), entry.checksum());
+                } finally {
+                    DatabaseBackupService.deleteRecursively(snapshot);
+                }
+                done.add(entry.fileName());
+                saveState(entries);
+                pendingBackups.decrementAndGet();
+                uploaded++;
+            }
+            if (uploaded > 0) {
+                // Katalog mitsichern, damit die Offsite-Kopie ohne das Backup-Verzeichnis lesbar ist
+                store.putObject(prefix + BackupCatalog.FILE_NAME,
+                        Files.readAllBytes(backupDir.resolve(BackupCatalog.FILE_NAME)));
+                log.info("Replicated {} backups to offsite storage", uploaded);
+            }
+            outcome = "success";
+            return uploaded;
+        } finally {
+            sample.stop(meterRegistry.timer("backup.offsite.duration", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Verlinkt die noch nicht replizierten Chunks eines Manifests in den Snapshot, mit demselben relativen Pfad
+     * wie im Backup-Verzeichnis.
+     *
+     * @return die verlinkten Chunks
+     */
+    private List<Path> snapshotChunks(Path manifest, Path snapshot) throws IOException {
+        DeduplicatingBackupStore chunkStore = backupService.chunkStore();
+        Path backupDir = backupService.backupDirectory();
+        List<Path> chunks = new ArrayList<>();
+        for (String hash : DeduplicatingBackupStore.chunkHashes(manifest)) {
+            if (!knownChunks.contains(hash)) {
+                Path chunk = chunkStore.chunkPath(hash);
+                Path target = snapshot.resolve(backupDir.relativize(chunk));
+                link(chunk, target);
+                chunks.add(target);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Hardlink statt Kopie, damit der Snapshot auch bei großen Backups nichts kostet; wo das Dateisystem keine
+     * Hardlinks kennt, wird kopiert.
+     */
+    private static void link(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, target);
+        }
+    }
+
+    /**
+     * Lädt die Chunks aus dem Snapshot hoch, die im Objektspeicher noch fehlen.
+     */
+    private void replicateChunks(Path snapshot, List<Path> chunks) throws IOException {
+        for (Path chunk : chunks) {
+            String key = prefix + snapshot.relativize(chunk).toString().replace('\\', '/');
+            byte[] data = Files.readAllBytes(chunk);
+            Optional<OffsiteStore.ObjectInfo> existing = store.head(key);
+            if (existing.isEmpty() || existing.get().size() != data.length) {
+                String etag = store.putObject(key, data);
+                if (verifyEtag) {
+                    verifyEtag(key, etag, md5Hex(data, data.length));
+                } else if (store.head(key).map(OffsiteStore.ObjectInfo::size).orElse(-1L) != data.length) {
+                    throw new IOException("Verification of uploaded object " + key + " failed");
+                }
+                meterRegistry.counter("backup.offsite.objects", "type", "chunk").increment();
+                meterRegistry.counter("backup.offsite.bytes").increment(data.length);
+            }
+            knownChunks.add(chunk.getFileName().toString());
+        }
+    }
+
+    /**
+     * Lädt eine Backup-Datei als Multipart-Upload hoch bzw. setzt einen offenen Upload fort.
+     */
+    private void replicateFile(Path file, String checksum) throws IOException {
+        String key = prefix + file.getFileName();
+        long size = Files.size(file);
+        Optional<OffsiteStore.ObjectInfo> existing = store.head(key);
+        if (existing.isPresent() && existing.get().size() == size && checksum.equals(existing.get().sha256())) {
+            return;
+        }
+
+        int partCount = (int) Math.max(1, (size + partSize - 1) / partSize);
+        Optional<String> openUpload = store.findUpload(key);
+        String uploadId = openUpload.isPresent() ? openUpload.get() : store.createUpload(key, checksum);
+        Map<Integer, String> acknowledged = openUpload.isPresent() ? store.listParts(key, uploadId) : Map.of();
+        if (!acknowledged.isEmpty()) {
+            log.info("Resuming offsite upload of {} ({} of {} parts acknowledged)",
+                    file.getFileName(), acknowledged.size(), partCount);
+        }
+
+        List<Future<String>> parts = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                int number = partNumber;
+                parts.add(uploadExecutor.submit(() ->
+                        uploadPart(channel, key, uploadId, number, size, acknowledged.get(number))));
+            }
+            SortedMap<Integer, String> etags = new TreeMap<>();
+            for (int i = 0; i < parts.size(); i++) {
+                etags.put(i + 1, parts.get(i).get());
+            }
+
+            String etag = store.completeUpload(key, uploadId, etags);
+            if (verifyEtag) {
+                verifyEtag(key, etag, multipartEtag(etags.values()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Offsite upload interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } finally {
+            parts.forEach(part -> part.cancel(true));
+        }
+
+        OffsiteStore.ObjectInfo uploaded = store.head(key)
+                .orElseThrow(() -> new IOException("Uploaded object " + key + " not found"));
+        if (uploaded.size() != size || !checksum.equals(uploaded.sha256())) {
+            throw new IOException("Verification of uploaded object " + key + " failed");
+        }
+        meterRegistry.counter("backup.offsite.objects", "type", "backup").increment();
+        log.info("Backup {} replicated to offsite storage ({} parts)", file.getFileName(), partCount);
+    }
+
+    /**
+     * Liest einen Part und lädt ihn hoch, sofern der Speicher ihn nicht schon mit demselben MD5 bestätigt hat.
+     *
+     * @return ETag des Parts
+     */
+    private String uploadPart(FileChannel channel, String key, String uploadId, int partNumber, long size,
+                              String acknowledgedEtag) throws IOException {
+        long position = (long) (partNumber - 1) * partSize;
+        int length = (int) Math.min(partSize, size - position);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + key);
+            }
+        }
+        byte[] data = buffer.array();
+        String md5 = md5Hex(data, length);
+        if (md5.equalsIgnoreCase(acknowledgedEtag)) {
+            meterRegistry.counter("backup.offsite.parts", "result", "resumed").increment();
+            return acknowledgedEtag;
+        }
+
+        String etag = store.uploadPart(key, uploadId, partNumber, data, length);
+        if (verifyEtag) {
+            verifyEtag(key + " part " + partNumber, etag, md5);
+        }
+        meterRegistry.counter("backup.offsite.parts", "result", "uploaded").increment();
+        meterRegistry.counter("backup.offsite.bytes").increment(length);
+        return etag;
+    }
+
+    private Set<String> replicated() throws IOException {
+        if (replicated == null) {
+            replicated = new LinkedHashSet<>();
+            Path state = backupService.backupDirectory().resolve(STATE_FILE);
+            if (Files.exists(state)) {
+                for (String line : Files.readAllLines(state, StandardCharsets.UTF_8)) {
+                    if (line.startsWith("backup\t")) {
+                        replicated.add(line.substring("backup\t".length()));
+                    }
+                }
+            }
+        }
+        return replicated;
+    }
+
+    /**
+     * Schreibt die replizierten Backups atomar; nicht mehr im Katalog stehende fallen heraus.
+     */
+    private void saveState(List<BackupCatalog.Entry> entries) throws IOException {
+        Set<String> names = new HashSet<>();
+        entries.forEach(entry -> names.add(entry.fileName()));
+        replicated.retainAll(names);
+
+        StringBuilder content = new StringBuilder("# contactdb-offsite-state 1\n");
+        replicated.forEach(name -> content.append("backup\t").append(name).append('\n'));
+        Path state = backupService.backupDirectory().resolve(STATE_FILE);
+        Path partFile = state.resolveSibling(STATE_FILE + ".part");
+        try {
+            Files.writeString(partFile, content, StandardCharsets.UTF_8);
+            Files.move(partFile, state, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    private static void verifyEtag(String object, String etag, String expected) throws IOException {
+        if (!expected.equalsIgnoreCase(etag)) {
+            throw new IOException("Checksum mismatch for " + object + ": expected " + expected + ", got " + etag);
+        }
+    }
+
+    /**
+     * ETag eines zusammengesetzten Objekts: MD5 über die aneinandergereihten Part-MD5s und die Part-Anzahl.
+     */
+    static String multipartEtag(Iterable<String> partEtags) {
+        MessageDigest md5 = md5();
+        int count = 0;
+        for (String etag : partEtags) {
+            md5.update(HexFormat.of().parseHex(etag.toLowerCase(Locale.ROOT)));
+            count++;
+        }
+        return HexFormat.of().formatHex(md5.digest()) + "-" + count;
+    }
+
+    private static String md5Hex(byte[] data, int length) {
+        MessageDigest md5 = md5();
+        md5.update(data, 0, length);
+        return HexFormat.of().formatHex(md5.digest());
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package name.saak.contactmanager.service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+
+/**
+ * Objektspeicher für die Offsite-Kopie der Backups mit der Semantik von S3-Multipart-Uploads.
+ *
+ * ETags von Parts und einfachen Objekten sind der MD5 des Inhalts (hex), der eines zusammengesetzten Objekts der
+ * MD5 der Part-MD5s mit angehängter Part-Anzahl; der {@link OffsiteReplicationService} prüft sie gegen die
+ * lokal berechneten Werte.
+ */
+interface OffsiteStore {
+
+    /**
+     * Metadaten eines vorhandenen Objekts.
+     *
+     * @param sha256 beim Anlegen übergebene Prüfsumme, {@code null} wenn keine gesetzt wurde
+     */
+    record ObjectInfo(long size, String etag, String sha256) {
+    }
+
+    Optional<ObjectInfo> head(String key) throws IOException;
+
+    /**
+     * Legt ein kleines Objekt in einem Request ab.
+     *
+     * @return ETag des Objekts
+     */
+    String putObject(String key, byte[] data) throws IOException;
+
+    /**
+     * Offener Multipart-Upload für den Schlüssel, z.B. nach einem abgebrochenen Lauf.
+     */
+    Optional<String> findUpload(String key) throws IOException;
+
+    /**
+     * Beginnt einen Multipart-Upload.
+     *
+     * @param sha256 Prüfsumme der vollständigen Datei, wird als Metadatum gespeichert
+     * @return Upload-ID
+     */
+    String createUpload(String key, String sha256) throws IOException;
+
+    /**
+     * Bereits bestätigte Parts eines offenen Uploads.
+     *
+     * @return ETag je Part-Nummer
+     */
+    Map<Integer, String> listParts(String key, String uploadId) throws IOException;
+
+    /**
+     * @return ETag des Parts
+     */
+    String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length) throws IOException;
+
+    /**
+     * Setzt die Parts zum Objekt zusammen.
+     *
+     * @param parts ETag je Part-Nummer
+     * @return ETag des Objekts
+     */
+    String completeUpload(String key, String uploadId, SortedMap<Integer, String> parts) throws IOException;
+}
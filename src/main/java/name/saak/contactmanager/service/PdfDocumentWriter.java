@@ -0,0 +1,142 @@
+package name.saak.contactmanager.service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Minimaler PDF-1.4-Writer für reine Textseiten mit der Standardschrift Helvetica (WinAnsiEncoding).
+ * Seiten werden einzeln und in Reihenfolge als fertige, komprimierte Content-Streams angehängt;
+ * im Speicher bleiben nur die Objekt-Offsets für die Cross-Reference-Tabelle.
+ *
+ * Objektnummern: 1 = Catalog, 2 = Pages, 3 = Font, danach je Seite Content-Stream und Page.
+ */
+class PdfDocumentWriter {
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT = 3;
+
+    private final CountingOutputStream out;
+    private final String mediaBox;
+    private long[] offsets = new long[64];
+    private int objectCount = FONT;
+    private int pageCount;
+
+    /**
+     * @param outputStream Ziel; wird nicht geschlossen
+     * @param pageWidth Seitenbreite in Punkt
+     * @param pageHeight Seitenhöhe in Punkt
+     */
+    PdfDocumentWriter(OutputStream outputStream, double pageWidth, double pageHeight) throws IOException {
+        this.out = new CountingOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+        this.mediaBox = "[0 0 " + format(pageWidth) + " " + format(pageHeight) + "]";
+
+        // Binärkommentar kennzeichnet die Datei für Übertragungsprogramme als binär
+        write("%PDF-1.4\n%âãÏÓ\n");
+        beginObject(FONT);
+        write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\n");
+        endObject();
+    }
+
+    /**
+     * Hängt eine Seite an.
+     *
+     * @param deflatedContent mit Deflate komprimierter Content-Stream der Seite (Font-Ressource /F1)
+     */
+    void addPage(byte[] deflatedContent) throws IOException {
+        int contentObject = ++objectCount;
+        beginObject(contentObject);
+        write("<< /Length " + deflatedContent.length + " /Filter /FlateDecode >>\nstream\n");
+        out.write(deflatedContent);
+        write("\nendstream\n");
+        endObject();
+
+        beginObject(++objectCount);
+        write("<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox " + mediaBox
+            + " /Resources << /Font << /F1 " + FONT + " 0 R >> >> /Contents " + contentObject + " 0 R >>\n");
+        endObject();
+        pageCount++;
+    }
+
+    /**
+     * Schreibt Seitenbaum, Catalog, Cross-Reference-Tabelle und Trailer und leert den Puffer.
+     */
+    void finish() throws IOException {
+        beginObject(PAGES);
+        StringBuilder kids = new StringBuilder(pageCount * 8);
+        for (int i = 0; i < pageCount; i++) {
+            // Page-Objekte folgen jeweils auf ihren Content-Stream
+            kids.append(FONT + 2 + 2 * i).append(" 0 R ");
+        }
+        write("<< /Type /Pages /Count " + pageCount + " /Kids [" + kids + "] >>\n");
+        endObject();
+
+        beginObject(CATALOG);
+        write("<< /Type /Catalog /Pages " + PAGES + " 0 R >>\n");
+        endObject();
+
+        long xref = out.count;
+        StringBuilder table = new StringBuilder(20 * (objectCount + 1) + 16);
+        table.append("xref\n0 ").append(objectCount + 1).append('\n');
+        table.append("0000000000 65535 f \n");
+        for (int i = 1; i <= objectCount; i++) {
+            table.append(String.format(Locale.ROOT, "%010d 00000 n \n", offsets[i]));
+        }
+        write(table.toString());
+        write("trailer\n<< /Size " + (objectCount + 1) + " /Root " + CATALOG + " 0 R >>\nstartxref\n"
+            + xref + "\n%%EOF\n");
+        out.flush();
+    }
+
+    int getPageCount() {
+        return pageCount;
+    }
+
+    private void beginObject(int number) throws IOException {
+        if (number >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(number + 1, offsets.length * 2));
+        }
+        offsets[number] = out.count;
+        write(number + " 0 obj\n");
+    }
+
+    private void endObject() throws IOException {
+        write("endobj\n");
+    }
+
+    private void write(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Formatiert eine Koordinate mit höchstens zwei Nachkommastellen.
+     */
+    static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package name.saak.contactmanager.service;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link OffsiteStore} für S3-kompatible Objektspeicher (AWS S3, MinIO, Ceph) über die REST-API.
+ *
+ * Requests werden mit AWS Signature Version 4 signiert; der SHA-256 des Inhalts ist Teil der Signatur und wird
+ * vom Server geprüft, zusätzlich sendet jeder Upload Content-MD5. Adressiert wird im Path-Style
+ * (endpoint/bucket/key), den alle kompatiblen Speicher unterstützen.
+ */
+final class S3OffsiteStore implements OffsiteStore {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SHA256_METADATA = "x-amz-meta-sha256";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private final URI endpoint;
+    private final String bucket;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final HttpClient httpClient;
+
+    S3OffsiteStore(String endpoint, String bucket, String region, String accessKey, String secretKey) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30)).build();
+    }
+
+    @Override
+    public Optional<ObjectInfo> head(String key) throws IOException {
+        HttpResponse<byte[]> response = send("HEAD", key, Map.of(), Map.of(), new byte[0], 0, 404);
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        return Optional.of(new ObjectInfo(
+            response.headers().firstValueAsLong("Content-Length").orElse(-1),
+            unquote(response.headers().firstValue("ETag").orElse("")),
+            response.headers().firstValue(SHA256_METADATA).orElse(null)));
+    }
+
+    @Override
+    public String putObject(String key, byte[] data) throws IOException {
+        HttpResponse<byte[]> response = send("PUT", key, Map.of(), Map.of(), data, data.length);
+        return unquote(response.headers().firstValue("ETag").orElse(""));
+    }
+
+    @Override
+    public Optional<String> findUpload(String key) throws IOException {
+        HttpResponse<byte[]> response = send("GET", "", Map.of("uploads", "", "prefix", key), Map.of(),
+            new byte[0], 0);
+        NodeList uploads = parse(response.body()).getElementsByTagName("Upload");
+        String uploadId = null;
+        for (int i = 0; i < uploads.getLength(); i++) {
+            Element upload = (Element) uploads.item(i);
+            if (key.equals(text(upload, "Key"))) {
+                uploadId = text(upload, "UploadId");
+            }
+        }
+        return Optional.ofNullable(uploadId);
+    }
+
+    @Override
+    public String createUpload(String key, String sha256) throws IOException {
+        HttpResponse<byte[]> response = send("POST", key, Map.of("uploads", ""), Map.of(SHA256_METADATA, sha256),
+            new byte[0], 0);
+        return text(parse(response.body()).getDocumentElement(), "UploadId");
+    }
+
+    @Override
+    public Map<Integer, String> listParts(String key, String uploadId) throws IOException {
+        Map<Integer, String> parts = new HashMap<>();
+        String marker = "0";
+        boolean truncated = true;
+        while (truncated) {
+            HttpResponse<byte[]> response = send("GET", key,
+                Map.of("uploadId", uploadId, "part-number-marker", marker), Map.of(), new byte[0], 0);
+            Element result = parse(response.body()).getDocumentElement();
+            NodeList list = result.getElementsByTagName("Part");
+            for (int i = 0; i < list.getLength(); i++) {
+                Element part = (Element) list.item(i);
+                parts.put(Integer.parseInt(text(part, "PartNumber")), unquote(text(part, "ETag")));
+            }
+            truncated = "true".equals(text(result, "IsTruncated"));
+            marker = text(result, "NextPartNumberMarker");
+        }
+        return parts;
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length)
+            throws IOException {
+        HttpResponse<byte[]> response = send("PUT", key,
+            Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId), Map.of(), data, length);
+        return unquote(response.headers().firstValue("ETag").orElse(""));
+    }
+
+    @Override
+    public String completeUpload(String key, String uploadId, SortedMap<Integer, String> parts) throws IOException {
+        String body = parts.entrySet().stream()
+            .map(part -> "<Part><PartNumber>" + part.getKey() + "</PartNumber><ETag>\"" + part.getValue()
+                + "\"</ETag></Part>")
+            .collect(Collectors.joining("", "<CompleteMultipartUpload>", "</CompleteMultipartUpload>"));
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        HttpResponse<byte[]> response = send("POST", key, Map.of("uploadId", uploadId), Map.of(), data, data.length);
+        // S3 meldet Fehler beim Zusammensetzen auch mit Status 200
+        Element result = parse(response.body()).getDocumentElement();
+        if (result.getTagName().equals("Error")) {
+            throw new IOException("Completing upload of " + key + " failed: " + text(result, "Code"));
+        }
+        return unquote(text(result, "ETag"));
+    }
+
+    private HttpResponse<byte[]> send(String method, String key, Map<String, String> query,
+                                      Map<String, String> headers, byte[] data, int length, int... allowedStatus)
+            throws IOException {
+        String path = "/" + bucket + (key.isEmpty() ? "" : "/" + encodePath(key));
+        String canonicalQuery = canonicalQuery(query);
+        URI uri = URI.create(endpoint + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+
+        MessageDigest sha256 = digest("SHA-256");
+        sha256.update(data, 0, length);
+        Map<String, String> signed = new TreeMap<>();
+        headers.forEach((name, value) -> signed.put(name.toLowerCase(Locale.ROOT), value));
+        signed.put("host", uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort());
+        signed.put("x-amz-content-sha256", HexFormat.of().formatHex(sha256.digest()));
+        signed.put("x-amz-date", ZonedDateTime.now(ZoneOffset.UTC).format(AMZ_DATE));
+        if (length > 0) {
+            MessageDigest md5 = digest("MD5");
+            md5.update(data, 0, length);
+            signed.put("content-md5", Base64.getEncoder().encodeToString(md5.digest()));
+        }
+        String authorization = authorization(method, path, canonicalQuery, signed);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+            .timeout(Duration.ofMinutes(5))
+            .method(method, length > 0
+                ? HttpRequest.BodyPublishers.ofByteArray(data, 0, length)
+                : HttpRequest.BodyPublishers.noBody())
+            .header("Authorization", authorization);
+        signed.forEach((name, value) -> {
+            if (!name.equals("host")) {
+                request.header(name, value);
+            }
+        });
+
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during " + method + " " + path, e);
+        }
+        int status = response.statusCode();
+        if (status / 100 != 2 && Arrays.stream(allowedStatus).noneMatch(allowed -> allowed == status)) {
+            String body = new String(response.body(), StandardCharsets.UTF_8);
+            throw new IOException(method + " " + path + " failed with status " + status + ": "
+                + body.substring(0, Math.min(body.length(), 500)));
+        }
+        return response;
+    }
+
+    /**
+     * Authorization-Header nach AWS Signature Version 4.
+     *
+     * @param headers zu signierende Header, Namen klein geschrieben; enthält host, x-amz-date und
+     *                x-amz-content-sha256
+     */
+    String authorization(String method, String path, String canonicalQuery, Map<String, String> headers) {
+        SortedMap<String, String> sorted = new TreeMap<>(headers);
+        String signedHeaders = String.join(";", sorted.keySet());
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n"
+            + sorted.entrySet().stream()
+                .map(header -> header.getKey() + ":" + header.getValue().trim() + "\n")
+                .collect(Collectors.joining())
+            + "\n" + signedHeaders + "\n" + sorted.get("x-amz-content-sha256");
+
+        String amzDate = sorted.get("x-amz-date");
+        String scope = amzDate.substring(0, 8) + "/" + region + "/s3/aws4_request";
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n"
+            + HexFormat.of().formatHex(digest("SHA-256").digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), amzDate.substring(0, 8));
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        return ALGORITHM + " Credential=" + accessKey + "/" + scope + ", SignedHeaders=" + signedHeaders
+            + ", Signature=" + signature;
+    }
+
+    private static String canonicalQuery(Map<String, String> query) {
+        return new TreeMap<>(query).entrySet().stream()
+            .map(parameter -> encode(parameter.getKey()) + "=" + encode(parameter.getValue()))
+            .collect(Collectors.joining("&"));
+    }
+
+    private static String encodePath(String key) {
+        return Arrays.stream(key.split("/", -1))
+            .map(S3OffsiteStore::encode)
+            .collect(Collectors.joining("/"));
+    }
+
+    /**
+     * URI-Kodierung nach RFC 3986, wie sie die Signatur verlangt.
+     */
+    private static String encode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static Document parse(byte[] xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Invalid response from object store", e);
+        }
+    }
+
+    private static String text(Element element, String tagName) {
+        NodeList nodes = element.getElementsByTagName(tagName);
+        return nodes.getLength() > 0 ? nodes.item(0).getTextContent() : null;
+    }
+
+    private static String unquote(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package name.saak.contactmanager.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Ausgabestrom mit begrenzter Schreibrate, der die geschriebenen Bytes zählt.
+ * Geschrieben wird in Stücken von höchstens 64 KB, nach jedem Stück wird der {@link WriteRateLimiter} befragt.
+ */
+final class ThrottledOutputStream extends FilterOutputStream {
+
+    private static final int SLICE_SIZE = 64 * 1024;
+
+    private final WriteRateLimiter limiter;
+    private long bytesWritten;
+
+    /**
+     * @param out Ziel
+     * @param bytesPerSecond maximale Schreibrate, 0 oder negativ für unbegrenzt
+     */
+    ThrottledOutputStream(OutputStream out, long bytesPerSecond) {
+        this(out, new WriteRateLimiter(bytesPerSecond));
+    }
+
+    /**
+     * @param out Ziel
+     * @param limiter gemeinsames Limit, z.B. für alle Dateien eines Backups
+     */
+    ThrottledOutputStream(OutputStream out, WriteRateLimiter limiter) {
+        super(out);
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        bytesWritten++;
+        if (bytesWritten % SLICE_SIZE == 0) {
+            limiter.written(SLICE_SIZE);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int slice = Math.min(len, SLICE_SIZE);
+            out.write(b, off, slice);
+            bytesWritten += slice;
+            off += slice;
+            len -= slice;
+            limiter.written(slice);
+        }
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+}
@@ -0,0 +1,131 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.repository.ContactExportRow;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Service für den vCard-Export (vCard 4.0 nach RFC 6350, eine Karte pro Kontakt).
+ * FN entspricht der Spalte Vorname_Name der anderen Formate; Name und Adresse werden
+ * zusätzlich strukturiert (N, ADR) ausgegeben. Jede Inhaltszeile wird in einem wiederverwendeten
+ * Puffer aufgebaut und beim Schreiben nach 75 Oktetten gefaltet.
+ */
+@Service
+public class VCardExportService implements ContactExportWriter {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_LINE_OCTETS = 75;
+
+    @Override
+    public String getFormat() {
+        return "vcf";
+    }
+
+    @Override
+    public String getFileName() {
+        return "kontakte.vcf";
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/vcard;charset=UTF-8";
+    }
+
+    @Override
+    public void write(Iterator<ContactExportRow> rows, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        StringBuilder line = new StringBuilder(256);
+        StringBuilder value = new StringBuilder(128);
+
+        while (rows.hasNext()) {
+            ContactExportRow contact = rows.next();
+            writer.write("BEGIN:VCARD\r\nVERSION:4.0\r\n");
+
+            // FN: Vorname_Name, bei Kontakten ohne Namen die Firma
+            value.setLength(0);
+            contact.appendVornameName(value);
+            if (value.isEmpty() && contact.firma() != null) {
+                value.append(contact.firma());
+            }
+            line.setLength(0);
+            appendEscaped(line.append("FN:"), value);
+            writeFolded(writer, line);
+
+            // N: Nachname;Vorname;weitere Vornamen;Anrede;Namenszusatz
+            line.setLength(0);
+            line.append("N:");
+            appendEscaped(line, contact.nachname()).append(';');
+            appendEscaped(line, contact.vorname()).append(";;");
+            appendEscaped(line, contact.anrede()).append(';');
+            writeFolded(writer, line);
+
+            if (contact.firma() != null && !contact.firma().isEmpty()) {
+                line.setLength(0);
+                appendEscaped(line.append("ORG:"), contact.firma());
+                writeFolded(writer, line);
+            }
+
+            // ADR: Postfach;Adresszusatz;Straße;Ort;Region;PLZ;Land
+            line.setLength(0);
+            line.append("ADR:;;");
+            appendEscaped(line, contact.strasse()).append(';');
+            appendEscaped(line, contact.ort()).append(";;");
+            appendEscaped(line, contact.postleitzahl()).append(';');
+            writeFolded(writer, line);
+
+            writer.write("END:VCARD\r\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Hängt einen Textwert an und maskiert dabei Backslash, Komma, Semikolon und Zeilenumbrüche.
+     */
+    private static StringBuilder appendEscaped(StringBuilder line, CharSequence value) {
+        if (value == null) {
+            return line;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\', ',', ';' -> line.append('\\').append(c);
+                case '\n' -> line.append("\\n");
+                case '\r' -> {
+                    // CRLF wird als ein Zeilenumbruch ausgegeben
+                }
+                default -> line.append(c);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Schreibt eine Inhaltszeile mit CRLF und faltet sie, sobald eine Zeile 75 Oktette (UTF-8) überschreiten würde.
+     * Surrogatpaare werden nicht getrennt.
+     */
+    private static void writeFolded(Writer writer, StringBuilder line) throws IOException {
+        int octets = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            boolean pair = Character.isHighSurrogate(c) && i + 1 < line.length();
+            int length = pair ? 4 : c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            if (octets + length > MAX_LINE_OCTETS) {
+                writer.write("\r\n ");
+                octets = 1;
+            }
+            writer.write(c);
+            if (pair) {
+                writer.write(line.charAt(++i));
+            }
+            octets += length;
+        }
+        writer.write("\r\n");
+    }
+}
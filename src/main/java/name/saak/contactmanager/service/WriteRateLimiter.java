@@ -0,0 +1,43 @@
+package name.saak.contactmanager.service;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Begrenzt die durchschnittliche Schreibrate über mehrere Ausgabeströme hinweg (z.B. alle Chunks eines Backups).
+ * Nach jedem gemeldeten Schreibvorgang wird so lange gewartet, bis die Rate seit dem Anlegen wieder unter dem
+ * Limit liegt.
+ */
+final class WriteRateLimiter {
+
+    private final long bytesPerSecond;
+    private final long startNanos = System.nanoTime();
+    private long bytesWritten;
+
+    /**
+     * @param bytesPerSecond maximale Schreibrate, 0 oder negativ für unbegrenzt
+     */
+    WriteRateLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Meldet geschriebene Bytes und wartet, falls die Rate überschritten ist.
+     */
+    synchronized void written(long bytes) throws InterruptedIOException {
+        bytesWritten += bytes;
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        long targetNanos = (long) (bytesWritten * 1_000_000_000.0 / bytesPerSecond);
+        long waitNanos = targetNanos - (System.nanoTime() - startNanos);
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Backup interrupted while throttling");
+            }
+        }
+    }
+}
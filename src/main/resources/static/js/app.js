@@ -18,6 +18,18 @@ document.addEventListener('DOMContentLoaded', function() {
             checkboxes.forEach(cb => {
                 cb.checked = this.checked;
             });
+            this.indeterminate = false;
+        });
+
+        // Abgewählte Einzelzeilen heben "Alle auswählen" wieder auf
+        document.addEventListener('change', function(event) {
+            if (!event.target.classList.contains('contact-checkbox')) {
+                return;
+            }
+            const checkboxes = document.querySelectorAll('.contact-checkbox');
+            const checked = document.querySelectorAll('.contact-checkbox:checked').length;
+            selectAllCheckbox.checked = checkboxes.length > 0 && checked === checkboxes.length;
+            selectAllCheckbox.indeterminate = checked > 0 && checked < checkboxes.length;
         });
     }
 
@@ -55,6 +67,18 @@ document.addEventListener('DOMContentLoaded', function() {
             const infoText = document.getElementById('selectedContactsInfo');
             infoText.textContent = `${checkedBoxes.length} Kontakt(e) ausgewählt`;
 
+            // Vorschläge auf Basis der Hashtags der ausgewählten Kontakte
+            const suggestions = hashtagModal.querySelector('.hashtag-suggestions');
+            if (suggestions) {
+                const selectedHashtagIds = new Set();
+                checkedBoxes.forEach(cb => {
+                    (cb.dataset.hashtagIds || '').split(',').filter(id => id).forEach(id => selectedHashtagIds.add(id));
+                });
+                loadHashtagSuggestions(suggestions, Array.from(selectedHashtagIds), function(suggestion) {
+                    document.getElementById('hashtagSelect').value = suggestion.id;
+                });
+            }
+
             // Show modal
             hashtagModal.style.display = 'flex';
         });
@@ -213,4 +237,212 @@ document.addEventListener('DOMContentLoaded', function() {
             });
         });
     }
+
+    // Live-Duplikatprüfung im Kontaktformular
+    const contactForm = document.getElementById('contactForm');
+    const duplicateWarning = document.getElementById('duplicateWarning');
+
+    if (contactForm && duplicateWarning) {
+        const keyFields = ['vorname', 'nachname', 'strasse', 'postleitzahl', 'ort'];
+        let debounceTimer = null;
+        let lastQuery = null;
+
+        const checkDuplicate = function() {
+            const params = new URLSearchParams();
+            for (const name of keyFields) {
+                const value = document.getElementById(name).value;
+                if (!value.trim()) {
+                    // Erst prüfen, wenn Name und Adresse vollständig sind
+                    lastQuery = null;
+                    duplicateWarning.style.display = 'none';
+                    return;
+                }
+                params.append(name, value);
+            }
+            if (contactForm.dataset.contactId) {
+                params.append('excludeId', contactForm.dataset.contactId);
+            }
+
+            const query = params.toString();
+            if (query === lastQuery) {
+                return;
+            }
+            lastQuery = query;
+
+            fetch(contactForm.dataset.checkUrl + '?' + query, { headers: { 'Accept': 'application/json' } })
+                .then(response => response.ok ? response.json() : null)
+                .then(result => {
+                    // Veraltete Antworten ignorieren
+                    if (result && query === lastQuery) {
+                        duplicateWarning.style.display = result.duplicate ? 'block' : 'none';
+                    }
+                })
+                .catch(() => {
+                    // Prüfung ist nur ein Hinweis, der Server validiert beim Speichern erneut
+                });
+        };
+
+        keyFields.forEach(name => {
+            const input = document.getElementById(name);
+            if (input) {
+                input.addEventListener('input', function() {
+                    clearTimeout(debounceTimer);
+                    debounceTimer = setTimeout(checkDuplicate, 400);
+                });
+            }
+        });
+    }
+
+    // Hashtag-Vorschläge im Kontaktformular
+    const formSuggestions = contactForm ? contactForm.querySelector('.hashtag-suggestions') : null;
+
+    if (formSuggestions) {
+        const hashtagCheckboxes = contactForm.querySelectorAll('input[name="hashtagIds"]');
+
+        const refreshSuggestions = function() {
+            const selectedIds = Array.from(hashtagCheckboxes).filter(cb => cb.checked).map(cb => cb.value);
+            loadHashtagSuggestions(formSuggestions, selectedIds, function(suggestion) {
+                const checkbox = document.getElementById('hashtag-' + suggestion.id);
+                if (checkbox) {
+                    checkbox.checked = true;
+                    refreshSuggestions();
+                }
+            });
+        };
+
+        hashtagCheckboxes.forEach(cb => cb.addEventListener('change', refreshSuggestions));
+        refreshSuggestions();
+    }
+
+    // Export als Hintergrund-Job: Job starten, Fortschritt anzeigen, danach herunterladen
+    const exportForm = document.getElementById('exportForm');
+    const exportJobStatus = document.getElementById('exportJobStatus');
+
+    if (exportForm && exportForm.dataset.jobsUrl && exportJobStatus) {
+        const jobsUrl = exportForm.dataset.jobsUrl;
+        const statusText = exportJobStatus.querySelector('.export-job-text');
+        const cancelButton = exportJobStatus.querySelector('.export-job-cancel');
+        const csrfInput = exportForm.querySelector('input[type="hidden"]');
+        let currentJobId = null;
+
+        // Formular-kodiert senden, damit das CSRF-Token als Parameter mitgeht
+        const postForm = function(url, params) {
+            if (csrfInput && !params.has(csrfInput.name)) {
+                params.append(csrfInput.name, csrfInput.value);
+            }
+            return fetch(url, { method: 'POST', headers: { 'Accept': 'application/json' }, body: params });
+        };
+
+        const showStatus = function(text, cancellable) {
+            statusText.textContent = text;
+            cancelButton.style.display = cancellable ? 'inline-block' : 'none';
+            exportJobStatus.style.display = 'flex';
+        };
+
+        const pollJob = function(jobId) {
+            fetch(jobsUrl + '/' + encodeURIComponent(jobId), { headers: { 'Accept': 'application/json' } })
+                .then(response => response.ok ? response.json() : null)
+                .then(job => {
+                    if (!job || jobId !== currentJobId) {
+                        return;
+                    }
+                    if (job.state === 'COMPLETED') {
+                        currentJobId = null;
+                        showStatus('Export fertig, Download startet …', false);
+                        window.location.href = jobsUrl + '/' + encodeURIComponent(job.id)
+                            + '/download?token=' + encodeURIComponent(job.downloadToken);
+                    } else if (job.state === 'FAILED') {
+                        currentJobId = null;
+                        showStatus(job.error || 'Export fehlgeschlagen', false);
+                    } else if (job.state === 'CANCELLED') {
+                        currentJobId = null;
+                        showStatus('Export abgebrochen', false);
+                    } else {
+                        showStatus(job.state === 'QUEUED'
+                            ? 'Export wartet …'
+                            : 'Export läuft: ' + job.percent + ' % (' + job.written + ' von ' + job.total + ')', true);
+                        setTimeout(() => pollJob(jobId), 1000);
+                    }
+                })
+                .catch(() => setTimeout(() => pollJob(jobId), 3000));
+        };
+
+        exportForm.addEventListener('submit', function(event) {
+            event.preventDefault();
+            if (currentJobId) {
+                return;
+            }
+            const params = new URLSearchParams(new FormData(exportForm));
+            // "Alle auswählen" exportiert den Filter serverseitig statt tausender IDs,
+            // aber nur, wenn tatsächlich keine Zeile abgewählt ist
+            const selectAll = document.getElementById('selectAll');
+            const checkboxes = document.querySelectorAll('.contact-checkbox');
+            if (selectAll && selectAll.checked && checkboxes.length > 0
+                    && Array.from(checkboxes).every(cb => cb.checked)) {
+                params.delete('contactIds');
+            }
+            postForm(jobsUrl, params)
+                .then(response => {
+                    if (response.status === 503) {
+                        showStatus('Zu viele Exporte in Bearbeitung, bitte später erneut versuchen', false);
+                        return null;
+                    }
+                    return response.ok ? response.json() : null;
+                })
+                .then(job => {
+                    if (job) {
+                        currentJobId = job.id;
+                        showStatus('Export wartet …', true);
+                        pollJob(job.id);
+                    }
+                })
+                .catch(() => showStatus('Export konnte nicht gestartet werden', false));
+        });
+
+        cancelButton.addEventListener('click', function() {
+            if (currentJobId) {
+                postForm(jobsUrl + '/' + encodeURIComponent(currentJobId) + '/cancel', new URLSearchParams());
+            }
+        });
+    }
+
+    // Lädt Hashtag-Vorschläge und zeigt sie als anklickbare Buttons im Container an
+    function loadHashtagSuggestions(container, selectedIds, onPick) {
+        container.style.display = 'none';
+        container.replaceChildren();
+        if (selectedIds.length === 0) {
+            return;
+        }
+
+        const params = new URLSearchParams();
+        selectedIds.forEach(id => params.append('hashtagIds', id));
+        const query = params.toString();
+        container.dataset.query = query;
+
+        fetch(container.dataset.suggestUrl + '?' + query, { headers: { 'Accept': 'application/json' } })
+            .then(response => response.ok ? response.json() : [])
+            .then(suggestions => {
+                // Veraltete Antworten ignorieren
+                if (container.dataset.query !== query || suggestions.length === 0) {
+                    return;
+                }
+                const label = document.createElement('span');
+                label.textContent = 'Vorschläge:';
+                container.appendChild(label);
+                suggestions.forEach(suggestion => {
+                    const button = document.createElement('button');
+                    button.type = 'button';
+                    button.className = 'hashtag-suggestion';
+                    button.textContent = suggestion.name;
+                    button.title = suggestion.confidencePercent + ' % der Kontakte mit ' + suggestion.basedOn
+                        + ' haben auch ' + suggestion.name;
+                    button.addEventListener('click', () => onPick(suggestion));
+                    container.appendChild(button);
+                });
+                container.style.display = 'flex';
+            })
+            .catch(() => {
+                // Vorschläge sind optional
+            });
+    }
 });
@@ -0,0 +1,65 @@
+package name.saak.contactmanager.config;
+
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import name.saak.contactmanager.domain.ContactBusinessKey;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactBusinessKeyBackfillTest {
+
+    @Test
+    @DisplayName("Should merge contacts that differ only in case before the unique key is added")
+    void testMergeCaseOnlyDuplicates() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:backfill", "sa", "")) {
+            // Given: Stand vor Migration 008, zwei Kontakte unterscheiden sich nur in der Schreibweise
+            JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            jdbc.execute("CREATE TABLE contact (id BIGINT PRIMARY KEY, anrede VARCHAR(20), vorname VARCHAR(100), "
+                + "nachname VARCHAR(100), strasse VARCHAR(200), postleitzahl VARCHAR(10), ort VARCHAR(100), "
+                + "telefon1 VARCHAR(50), telefon2 VARCHAR(50), email VARCHAR(200), firma VARCHAR(200), "
+                + "bemerkung CLOB, business_key VARCHAR(64))");
+            jdbc.execute("CREATE TABLE hashtag (id BIGINT PRIMARY KEY, name VARCHAR(50))");
+            jdbc.execute("CREATE TABLE contact_hashtag (contact_id BIGINT NOT NULL REFERENCES contact (id) "
+                + "ON DELETE CASCADE, hashtag_id BIGINT NOT NULL REFERENCES hashtag (id), "
+                + "PRIMARY KEY (contact_id, hashtag_id))");
+            jdbc.update("INSERT INTO contact (id, vorname, nachname, strasse, postleitzahl, ort, telefon1) "
+                + "VALUES (1, 'Max', 'Mustermann', 'Hauptstraße 1', '12345', 'Berlin', '030 1234')");
+            jdbc.update("INSERT INTO contact (id, vorname, nachname, strasse, postleitzahl, ort, telefon1, email) "
+                + "VALUES (2, 'MAX', 'mustermann', 'Hauptstraße 1', '12345', 'BERLIN', '0170 9999', "
+                + "'max@example.com')");
+            jdbc.update("INSERT INTO contact (id, vorname, nachname, strasse, postleitzahl, ort) "
+                + "VALUES (3, 'Erika', 'Muster', 'Weg 2', '54321', 'Köln')");
+            jdbc.update("INSERT INTO hashtag VALUES (1, '#familie'), (2, '#verein')");
+            jdbc.update("INSERT INTO contact_hashtag VALUES (1, 1), (2, 1), (2, 2)");
+            Database database = DatabaseFactory.getInstance()
+                .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+
+            // When
+            ContactBusinessKeyBackfill backfill = new ContactBusinessKeyBackfill();
+            backfill.execute(database);
+
+            // Then: der älteste bleibt mit allen Hashtags und ergänzten Feldern, der Schlüssel ist eindeutig
+            assertThat(jdbc.queryForList("SELECT id FROM contact ORDER BY id", Long.class)).containsExactly(1L, 3L);
+            Map<String, Object> kept = jdbc.queryForMap("SELECT * FROM contact WHERE id = 1");
+            assertThat(kept.get("TELEFON1")).isEqualTo("030 1234");
+            assertThat(kept.get("EMAIL")).isEqualTo("max@example.com");
+            assertThat(kept.get("BUSINESS_KEY"))
+                .isEqualTo(ContactBusinessKey.of("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin"));
+            assertThat(jdbc.queryForList("SELECT hashtag_id FROM contact_hashtag WHERE contact_id = 1 "
+                + "ORDER BY hashtag_id", Long.class)).containsExactly(1L, 2L);
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM contact WHERE business_key IS NULL", Integer.class))
+                .isZero();
+            assertThat(backfill.getConfirmationMessage()).contains("1 Duplikat(e) zusammengeführt");
+            jdbc.execute("ALTER TABLE contact ADD CONSTRAINT uk_contact_business_key UNIQUE (business_key)");
+        }
+    }
+}
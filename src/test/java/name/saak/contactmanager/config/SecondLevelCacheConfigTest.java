@@ -0,0 +1,186 @@
+package name.saak.contactmanager.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import name.saak.contactmanager.config.LocalCacheRegionFactory.RegionStorage;
+import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.domain.Hashtag;
+import name.saak.contactmanager.repository.HashtagRepository;
+import name.saak.contactmanager.service.ContactService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ohne @Transactional: Hibernate füllt den Cache erst nach dem Commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SecondLevelCacheConfigTest {
+
+    private static final String QUERY_REGION = "default-query-results-region";
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private LocalCacheRegionFactory regionFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> createdContactIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        createdContactIds.forEach(contactService::deleteContact);
+    }
+
+    @Test
+    @DisplayName("Should serve a contact with its hashtags from the second-level cache")
+    void testContactServedFromCache() {
+        // Given
+        Hashtag freunde = hashtagRepository.findByNameIgnoreCase("#freunde").orElseThrow();
+        Contact contact = createContact("Cache", "Treffer", Set.of(freunde.getId()));
+        contactService.findContactById(contact.getId());
+        long contactHits = region(Contact.class.getName()).hitCount();
+        long collectionHits = region(Contact.class.getName() + ".hashtags").hitCount();
+        long hashtagHits = region(Hashtag.class.getName()).hitCount();
+
+        // When
+        Contact cached = contactService.findContactById(contact.getId()).orElseThrow();
+
+        // Then
+        assertThat(cached.getHashtags()).extracting(Hashtag::getName).containsExactly("#freunde");
+        assertThat(region(Contact.class.getName()).hitCount()).isGreaterThan(contactHits);
+        assertThat(region(Contact.class.getName() + ".hashtags").hitCount()).isGreaterThan(collectionHits);
+        assertThat(region(Hashtag.class.getName()).hitCount()).isGreaterThan(hashtagHits);
+        assertThat(meterRegistry.get("cache.gets")
+            .tags("cache", Contact.class.getName(), "result", "hit").functionCounter().count()).isPositive();
+        assertThat(meterRegistry.get("cache.size").tag("cache", Hashtag.class.getName()).gauge().value())
+            .isPositive();
+    }
+
+    @Test
+    @DisplayName("Should keep hashtags and their queries cached when a tag assignment changes usage counts")
+    void testTagAssignmentKeepsHashtagsCached() {
+        // Given: Kontakt, Hashtags und Namensabfrage im Cache
+        Hashtag freunde = hashtagRepository.findByNameIgnoreCase("#freunde").orElseThrow();
+        Hashtag familie = hashtagRepository.findByNameIgnoreCase("#familie").orElseThrow();
+        Contact contact = createContact("Cache", "Bulk", Set.of(freunde.getId()));
+        contactService.findContactById(contact.getId());
+        hashtagRepository.findById(familie.getId());
+        int usageBefore = usageCount(familie.getId());
+        hashtagRepository.findByNameIgnoreCase("#familie");
+        Cache cache = entityManagerFactory.getCache();
+        assertThat(cache.contains(Hashtag.class, freunde.getId())).isTrue();
+        assertThat(cache.contains(Hashtag.class, familie.getId())).isTrue();
+
+        // When: Zuordnung per Massenaktion, Zähler per nativem UPDATE
+        contactService.assignHashtagToContacts(List.of(contact.getId()), familie.getId());
+
+        // Then: Hashtags und ihre Abfragen bleiben im Cache, der Zähler ist trotzdem aktuell
+        assertThat(cache.contains(Hashtag.class, freunde.getId())).isTrue();
+        assertThat(cache.contains(Hashtag.class, familie.getId())).isTrue();
+        assertThat(cache.contains(Contact.class, contact.getId())).isTrue();
+        long queryHits = region(QUERY_REGION).hitCount();
+        long queryPuts = region(QUERY_REGION).putCount();
+        hashtagRepository.findByNameIgnoreCase("#familie");
+        assertThat(region(QUERY_REGION).hitCount()).isGreaterThan(queryHits);
+        assertThat(region(QUERY_REGION).putCount()).isEqualTo(queryPuts);
+        assertThat(usageCount(familie.getId())).isEqualTo(usageBefore + 1);
+        assertThat(contactService.findContactById(contact.getId()).orElseThrow().getHashtags())
+            .extracting(Hashtag::getName).containsExactlyInAnyOrder("#freunde", "#familie");
+    }
+
+    @Test
+    @DisplayName("Should evict only the regions of the tables a native update touches")
+    void testNativeUpdateInvalidation() {
+        // Given
+        Hashtag freunde = hashtagRepository.findByNameIgnoreCase("#freunde").orElseThrow();
+        Contact contact = createContact("Cache", "Sperre", Set.of(freunde.getId()));
+        contactService.findContactById(contact.getId());
+        hashtagRepository.findByNameIgnoreCase("#freunde");
+        Cache cache = entityManagerFactory.getCache();
+        assertThat(cache.contains(Hashtag.class, freunde.getId())).isTrue();
+
+        try {
+            // When: natives UPDATE auf hashtag, das den gecachten Zustand ändert
+            transactionTemplate.executeWithoutResult(status ->
+                hashtagRepository.updateGesperrtForSubtree(freunde.getId(), true));
+
+            // Then: Hashtags und ihre Abfragen sind verworfen, Kontakte bleiben im Cache
+            assertThat(cache.contains(Hashtag.class, freunde.getId())).isFalse();
+            assertThat(cache.contains(Contact.class, contact.getId())).isTrue();
+            long queryPuts = region(QUERY_REGION).putCount();
+            assertThat(hashtagRepository.findByNameIgnoreCase("#freunde").orElseThrow().isGesperrt()).isTrue();
+            assertThat(region(QUERY_REGION).putCount()).isGreaterThan(queryPuts);
+        } finally {
+            transactionTemplate.executeWithoutResult(status ->
+                hashtagRepository.updateGesperrtForSubtree(freunde.getId(), false));
+        }
+    }
+
+    @Test
+    @DisplayName("Should bound each region and expire old entries")
+    void testBoundedRegion() throws InterruptedException {
+        // Given
+        RegionStorage storage = new RegionStorage("test", 2, Duration.ofMillis(200));
+        storage.putIntoCache("a", "A", null);
+        storage.putIntoCache("b", "B", null);
+        storage.getFromCache("a", null);
+
+        // When: dritter Eintrag verdrängt den am längsten nicht gelesenen
+        storage.putIntoCache("c", "C", null);
+
+        // Then
+        assertThat(storage.contains("a")).isTrue();
+        assertThat(storage.contains("b")).isFalse();
+        assertThat(storage.size()).isEqualTo(2);
+        assertThat(storage.evictionCount()).isEqualTo(1);
+
+        Thread.sleep(250);
+        assertThat(storage.getFromCache("c", null)).isNull();
+        assertThat(storage.evictionCount()).isEqualTo(2);
+        assertThat(storage.hitCount()).isEqualTo(1);
+        assertThat(storage.missCount()).isEqualTo(1);
+    }
+
+    private Contact createContact(String vorname, String nachname, Set<Long> hashtagIds) {
+        Contact contact = contactService.createContact(
+            new Contact(vorname, nachname, "Cachestr. 1", "12345", "Ort"), hashtagIds);
+        createdContactIds.add(contact.getId());
+        return contact;
+    }
+
+    private int usageCount(Long hashtagId) {
+        return hashtagRepository.findUsageCounts().stream()
+            .filter(usage -> usage.getHashtagId().equals(hashtagId))
+            .findFirst().orElseThrow().getUsageCount();
+    }
+
+    private RegionStorage region(String name) {
+        return regionFactory.getRegions().get(name);
+    }
+}
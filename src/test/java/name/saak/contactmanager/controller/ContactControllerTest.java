@@ -1,7 +1,13 @@
 package name.saak.contactmanager.controller;
 
 import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.domain.Hashtag;
+import name.saak.contactmanager.repository.ContactListRow;
+import name.saak.contactmanager.repository.HashtagRepository;
 import name.saak.contactmanager.service.ContactService;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -9,8 +15,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -29,6 +41,9 @@ class ContactControllerTest {
     @Autowired
     private ContactService contactService;
 
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
     @Test
     @WithMockUser
     void shouldDisplayContactListPage() throws Exception {
@@ -115,6 +130,56 @@ class ContactControllerTest {
                 containsString("existiert bereits")));
     }
 
+    @Test
+    @WithMockUser
+    void shouldReportExistingContactInLiveDuplicateCheck() throws Exception {
+        // Given: Test data from Liquibase (Max Mustermann)
+
+        // When/Then
+        mockMvc.perform(get("/contacts/check-duplicate")
+                .param("vorname", "max")
+                .param("nachname", "Mustermann")
+                .param("strasse", "Hauptstraße 1")
+                .param("postleitzahl", "12345")
+                .param("ort", "Berlin"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.duplicate").value(true))
+            .andExpect(jsonPath("$.databaseChecked").value(true));
+    }
+
+    @Test
+    @WithMockUser
+    void shouldReportNewContactInLiveDuplicateCheck() throws Exception {
+        mockMvc.perform(get("/contacts/check-duplicate")
+                .param("vorname", "Neu")
+                .param("nachname", "Niemand")
+                .param("strasse", "Leerweg 1")
+                .param("postleitzahl", "00000")
+                .param("ort", "Nirgendwo"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.duplicate").value(false));
+    }
+
+    @Test
+    @WithMockUser
+    void shouldIgnoreOwnContactInLiveDuplicateCheck() throws Exception {
+        // Given
+        Contact contact = contactService.createContact(
+            new Contact("Self", "Check", "Str 1", "12345", "City")
+        );
+
+        // When/Then
+        mockMvc.perform(get("/contacts/check-duplicate")
+                .param("vorname", "Self")
+                .param("nachname", "Check")
+                .param("strasse", "Str 1")
+                .param("postleitzahl", "12345")
+                .param("ort", "City")
+                .param("excludeId", contact.getId().toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.duplicate").value(false));
+    }
+
     @Test
     @WithMockUser
     void shouldDisplayEditContactForm() throws Exception {
@@ -209,6 +274,15 @@ class ContactControllerTest {
             .andExpect(flash().attributeExists("errorMessage"));
     }
 
+    @Test
+    @WithMockUser
+    void shouldDisplayDuplicatesPage() throws Exception {
+        mockMvc.perform(get("/contacts/duplicates"))
+            .andExpect(status().isOk())
+            .andExpect(view().name("contacts/duplicates"))
+            .andExpect(model().attributeExists("result", "scanRunning"));
+    }
+
     @Test
     void shouldRequireAuthenticationForContactPages() throws Exception {
         mockMvc.perform(get("/contacts"))
@@ -231,4 +305,99 @@ class ContactControllerTest {
             .andExpect(view().name("contacts/form"))
             .andExpect(model().attributeHasFieldErrors("contact", "email"));
     }
+
+    @Test
+    @WithMockUser
+    void shouldListOnlyActiveHashtagIdsPerRow() throws Exception {
+        // Given
+        Hashtag familie = hashtagRepository.findByNameIgnoreCase("#familie").orElseThrow();
+        Hashtag freunde = hashtagRepository.findByNameIgnoreCase("#freunde").orElseThrow();
+        Contact contact = contactService.createContact(
+            new Contact("Zeile", "Aktiv", "Str 1", "12345", "City"), Set.of(familie.getId(), freunde.getId()));
+        freunde.setGesperrt(true);
+        hashtagRepository.save(freunde);
+
+        // When
+        MvcResult result = mockMvc.perform(get("/contacts").param("search", "Zeile"))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("activeHashtagsById"))
+            .andExpect(content().string(containsString("#familie")))
+            .andReturn();
+
+        // Then
+        @SuppressWarnings("unchecked")
+        List<ContactListRow> rows = (List<ContactListRow>) result.getModelAndView().getModel().get("contacts");
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.id()).isEqualTo(contact.getId());
+            assertThat(row.hashtagIds()).containsExactly(Math.toIntExact(familie.getId()));
+        });
+    }
+
+    @Test
+    @WithMockUser
+    void shouldStreamExcelExportOfAllContacts() throws Exception {
+        // When
+        MvcResult asyncResult = mockMvc.perform(post("/contacts/export").with(csrf()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", containsString("kontakte.xlsx")))
+            .andReturn();
+
+        // Then
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            Sheet sheet = workbook.getSheet("Kontakte");
+            assertThat(sheet.getPhysicalNumberOfRows()).isEqualTo(4);
+            assertThat(sheet.getRow(1).getCell(2).getStringCellValue()).isEqualTo("Erika Musterfrau");
+        }
+    }
+
+    @Test
+    @WithMockUser
+    void shouldExportSelectionAsCsvInSelectionOrder() throws Exception {
+        // Given
+        List<Long> ids = contactService.findAllContacts().stream().map(Contact::getId).toList();
+
+        // When
+        MvcResult asyncResult = mockMvc.perform(post("/contacts/export").with(csrf())
+                .param("format", "csv")
+                .param("contactIds", String.valueOf(ids.get(2)), String.valueOf(ids.get(0))))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", containsString("kontakte.csv")))
+            .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        // Then
+        assertThat(csv.split("\r\n")).hasSize(3);
+        assertThat(csv.split("\r\n")[1]).contains("Hans Schmidt");
+        assertThat(csv.split("\r\n")[2]).contains("Erika Musterfrau");
+    }
+
+    @Test
+    @WithMockUser
+    void shouldRejectUnknownExportFormat() throws Exception {
+        mockMvc.perform(post("/contacts/export").with(csrf()).param("format", "docx"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void shouldExportCurrentSearchWithoutPostingIds() throws Exception {
+        // When
+        MvcResult asyncResult = mockMvc.perform(post("/contacts/export").with(csrf())
+                .param("format", "csv")
+                .param("search", "Schmidt"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        // Then
+        assertThat(csv.split("\\r\\n")).hasSize(2);
+        assertThat(csv).contains("Hans Schmidt").doesNotContain("Muster");
+    }
 }
@@ -0,0 +1,75 @@
+package name.saak.contactmanager.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExportJobControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @WithMockUser
+    void shouldRunExportJobAndServeDownloadWithToken() throws Exception {
+        // Given
+        String started = mockMvc.perform(post("/contacts/export/jobs").with(csrf()).param("format", "csv"))
+            .andExpect(status().isAccepted())
+            .andReturn().getResponse().getContentAsString();
+        String jobId = objectMapper.readTree(started).get("id").asText();
+
+        // When
+        JsonNode job = objectMapper.readTree(started);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!"COMPLETED".equals(job.get("state").asText()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            job = objectMapper.readTree(mockMvc.perform(get("/contacts/export/jobs/" + jobId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        }
+
+        // Then
+        assertThat(job.get("state").asText()).isEqualTo("COMPLETED");
+        assertThat(job.get("percent").asInt()).isEqualTo(100);
+
+        String csv = mockMvc.perform(get("/contacts/export/jobs/" + jobId + "/download")
+                .param("token", job.get("downloadToken").asText()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", containsString("kontakte.csv")))
+            .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertThat(csv).contains("Erika Musterfrau");
+
+        mockMvc.perform(get("/contacts/export/jobs/" + jobId + "/download").param("token", "falsch"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/contacts/export/jobs/" + jobId).with(user("jemand-anderes")))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    void shouldRejectUnknownFormat() throws Exception {
+        mockMvc.perform(post("/contacts/export/jobs").with(csrf()).param("format", "docx"))
+            .andExpect(status().isBadRequest());
+    }
+}
@@ -1,16 +1,19 @@
 package name.saak.contactmanager.repository;
 
 import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.domain.ContactBusinessKey;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 @ActiveProfiles("test")
@@ -104,12 +107,12 @@ class ContactRepositoryTest {
     }
 
     @Test
-    void shouldFindByNameAndAddress() {
-        // Given (using test data from Liquibase)
+    void shouldFindIdByBusinessKeyCaseInsensitive() {
+        // Given (using test data from Liquibase, business_key via Migration befüllt)
 
         // When
-        Optional<Contact> found = contactRepository.findByNameAndAddress(
-            "Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin"
+        Optional<Long> found = contactRepository.findIdByBusinessKey(
+            ContactBusinessKey.of("max", "MUSTERMANN", "hauptstraße 1", "12345", "berlin")
         );
 
         // Then
@@ -117,16 +120,13 @@ class ContactRepositoryTest {
     }
 
     @Test
-    void shouldFindByNameAndAddressCaseInsensitive() {
-        // Given (using test data from Liquibase)
+    void shouldRejectDuplicateBusinessKey() {
+        // Given: Gleicher Kontakt in anderer Schreibweise
+        Contact duplicate = new Contact("MAX", "mustermann", "Hauptstraße 1", "12345", "BERLIN");
 
-        // When
-        Optional<Contact> found = contactRepository.findByNameAndAddress(
-            "max", "MUSTERMANN", "hauptstraße 1", "12345", "berlin"
-        );
-
-        // Then
-        assertThat(found).isPresent();
+        // When/Then
+        assertThatThrownBy(() -> contactRepository.saveAndFlush(duplicate))
+            .isInstanceOf(DataIntegrityViolationException.class);
     }
 
     @Test
@@ -0,0 +1,61 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.domain.ContactBusinessKey;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BusinessKeyBloomFilterTest {
+
+    @Test
+    @DisplayName("Should size the filter for the expected insertions and false-positive rate")
+    void testSizing() {
+        // When
+        BusinessKeyBloomFilter filter = new BusinessKeyBloomFilter(1_000, 0.01);
+
+        // Then: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        assertThat(filter.bitCount()).isEqualTo(9_586);
+        assertThat(filter.hashCount()).isEqualTo(7);
+        assertThat(new BusinessKeyBloomFilter(0, 0.01).bitCount()).isEqualTo(64);
+    }
+
+    @Test
+    @DisplayName("Should never report an inserted key as absent")
+    void testNoFalseNegatives() {
+        // Given
+        BusinessKeyBloomFilter filter = new BusinessKeyBloomFilter(10_000, 0.01);
+        List<String> keys = keys("vorhanden", 10_000);
+
+        // When
+        keys.forEach(filter::put);
+
+        // Then
+        assertThat(keys).allMatch(filter::mightContain);
+    }
+
+    @Test
+    @DisplayName("Should keep the false-positive rate within the configured bound")
+    void testFalsePositiveRate() {
+        // Given
+        BusinessKeyBloomFilter filter = new BusinessKeyBloomFilter(10_000, 0.01);
+        keys("vorhanden", 10_000).forEach(filter::put);
+
+        // When
+        long falsePositives = keys("neu", 100_000).stream().filter(filter::mightContain).count();
+
+        // Then: 1 % Soll, Spielraum für die Streuung
+        assertThat(falsePositives / 100_000.0).isLessThan(0.015);
+    }
+
+    private static List<String> keys(String prefix, int count) {
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(ContactBusinessKey.of(prefix, "Nachname " + i, "Straße " + i, "12345", "Ort"));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,107 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.domain.Hashtag;
+import name.saak.contactmanager.repository.HashtagRepository;
+import name.saak.contactmanager.service.ContactExportService.ExportRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ContactExportServiceTest {
+
+    @Autowired
+    private ContactExportService contactExportService;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private HashtagService hashtagService;
+
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
+    @Test
+    void shouldExportSearchResultInRequestedSortOrder() throws IOException {
+        // When
+        List<String> lines = exportCsv(new ExportRequest(null, "muster", "vorname", "desc"));
+
+        // Then
+        assertThat(lines).containsExactly(
+            ";Herr;Max Mustermann;Hauptstraße 1;12345 Berlin",
+            ";Frau;Erika Musterfrau;Nebenstraße 5;54321 München");
+        assertThat(contactExportService.count(new ExportRequest(null, "muster", "vorname", "desc"))).isEqualTo(2);
+    }
+
+    @Test
+    void shouldExportHashtagFilterIncludingSubHashtags() throws IOException {
+        // Given
+        Hashtag familie = hashtagRepository.findByNameIgnoreCase("#familie").orElseThrow();
+        Hashtag nord = hashtagService.createHashtag(new Hashtag("#familie_export_nord", null), familie.getId());
+        contactService.createContact(
+            new Contact("Anna", "Zeta", "Weg 1", "11111", "Kiel"), Set.of(nord.getId()));
+        contactService.createContact(
+            new Contact("Bert", "Alpha", "Weg 2", "22222", "Bonn"), Set.of(familie.getId()));
+        contactService.createContact(
+            new Contact("Carl", "Ohne", "Weg 3", "33333", "Köln"), Set.of());
+        ExportRequest request = new ExportRequest(null, "#familie", null, null);
+
+        // When
+        List<String> lines = exportCsv(request);
+
+        // Then
+        assertThat(lines).containsExactly(
+            ";;Bert Alpha;Weg 2;22222 Bonn",
+            ";;Anna Zeta;Weg 1;11111 Kiel");
+        assertThat(contactExportService.count(request)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldPreferSelectionOverFilter() throws IOException {
+        // Given
+        List<Long> ids = contactService.findAllContacts().stream().map(Contact::getId).toList();
+
+        // When
+        List<String> lines = exportCsv(new ExportRequest(List.of(ids.get(2), ids.get(0)), "muster", null, null));
+
+        // Then
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("Hans Schmidt");
+        assertThat(lines.get(1)).contains("Erika Musterfrau");
+    }
+
+    @Test
+    void shouldRejectUnknownFormat() {
+        assertThatThrownBy(() -> contactExportService.getWriter("docx"))
+            .isInstanceOf(ContactExportService.UnknownExportFormatException.class);
+        assertThatThrownBy(() -> contactExportService.getWriter("pdf-9999"))
+            .isInstanceOf(ContactExportService.UnknownExportFormatException.class);
+        assertThat(contactExportService.getWriter("PDF-3475").getFileName()).isEqualTo("etiketten-3475.pdf");
+    }
+
+    /**
+     * Exportiert als CSV und gibt die Datenzeilen (ohne BOM und Header) zurück.
+     */
+    private List<String> exportCsv(ExportRequest request) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        contactExportService.export(contactExportService.getWriter("csv"), request, outputStream);
+        List<String> lines = Arrays.asList(outputStream.toString(StandardCharsets.UTF_8).split("\r\n"));
+        return lines.subList(1, lines.size());
+    }
+}
@@ -1,14 +1,22 @@
 package name.saak.contactmanager.service;
 
 import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.domain.ContactBusinessKey;
+import name.saak.contactmanager.repository.ContactExportRow;
 import name.saak.contactmanager.repository.ContactRepository;
+import name.saak.contactmanager.repository.HashtagRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.hibernate.exception.ConstraintViolationException;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +31,15 @@ class ContactServiceTest {
     @Mock
     private ContactRepository contactRepository;
 
+    @Mock
+    private HashtagRepository hashtagRepository;
+
+    @Mock
+    private DuplicateCheckService duplicateCheckService;
+
+    @Mock
+    private HashtagSuggestionService hashtagSuggestionService;
+
     @InjectMocks
     private ContactService contactService;
 
@@ -53,7 +70,7 @@ class ContactServiceTest {
     @Test
     void shouldFindContactById() {
         // Given
-        when(contactRepository.findByIdWithActiveHashtags(1L)).thenReturn(Optional.of(testContact));
+        when(contactRepository.findById(1L)).thenReturn(Optional.of(testContact));
 
         // When
         Optional<Contact> found = contactService.findContactById(1L);
@@ -61,7 +78,35 @@ class ContactServiceTest {
         // Then
         assertThat(found).isPresent();
         assertThat(found.get().getVorname()).isEqualTo("Max");
-        verify(contactRepository).findByIdWithActiveHashtags(1L);
+        verify(contactRepository).findById(1L);
+    }
+
+    @Test
+    void shouldLoadExportRowsInBatchesPreservingSelectionOrder() {
+        // Given - mehr IDs als ein Block, in absteigender Reihenfolge, mit Duplikat und fehlender ID
+        List<Long> selection = new ArrayList<>();
+        for (long id = ContactService.EXPORT_BATCH_SIZE + 10; id >= 1; id--) {
+            selection.add(id);
+        }
+        selection.add(5L);
+        when(contactRepository.findExportRowsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream()
+                .filter(id -> id != 7L)
+                .sorted()
+                .map(id -> new ContactExportRow(id, null, null, "V" + id, "N" + id, "S", "12345", "Ort"))
+                .toList();
+        });
+
+        // When
+        List<ContactExportRow> rows = contactService.findExportRows(selection);
+
+        // Then
+        verify(contactRepository, times(2)).findExportRowsByIdIn(anyCollection());
+        assertThat(rows).hasSize(ContactService.EXPORT_BATCH_SIZE + 9);
+        assertThat(rows.get(0).id()).isEqualTo(ContactService.EXPORT_BATCH_SIZE + 10L);
+        assertThat(rows.get(rows.size() - 1).id()).isEqualTo(1L);
+        assertThat(rows).extracting(ContactExportRow::id).doesNotContain(7L);
     }
 
     @Test
@@ -97,8 +142,8 @@ class ContactServiceTest {
     void shouldCreateContact() {
         // Given
         Contact newContact = new Contact("Anna", "Schmidt", "Nebenstraße 5", "54321", "München");
-        when(contactRepository.findByNameAndAddress(
-            "Anna", "Schmidt", "Nebenstraße 5", "54321", "München"
+        when(contactRepository.findIdByBusinessKey(
+            ContactBusinessKey.of("Anna", "Schmidt", "Nebenstraße 5", "54321", "München")
         )).thenReturn(Optional.empty());
         when(contactRepository.save(any(Contact.class))).thenReturn(newContact);
 
@@ -107,8 +152,8 @@ class ContactServiceTest {
 
         // Then
         assertThat(created).isNotNull();
-        verify(contactRepository).findByNameAndAddress(
-            "Anna", "Schmidt", "Nebenstraße 5", "54321", "München"
+        verify(contactRepository).findIdByBusinessKey(
+            ContactBusinessKey.of("Anna", "Schmidt", "Nebenstraße 5", "54321", "München")
         );
         verify(contactRepository).save(newContact);
     }
@@ -116,9 +161,9 @@ class ContactServiceTest {
     @Test
     void shouldThrowExceptionWhenCreatingDuplicateContact() {
         // Given
-        when(contactRepository.findByNameAndAddress(
-            "Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin"
-        )).thenReturn(Optional.of(testContact));
+        when(contactRepository.findIdByBusinessKey(
+            ContactBusinessKey.of("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin")
+        )).thenReturn(Optional.of(testContact.getId()));
 
         // When/Then
         assertThatThrownBy(() -> contactService.createContact(testContact))
@@ -128,6 +173,39 @@ class ContactServiceTest {
         verify(contactRepository, never()).save(any());
     }
 
+    @Test
+    void shouldTranslateUniqueKeyViolationOnConcurrentCreate() {
+        // Given: Vorabprüfung findet nichts, der Unique-Index schlägt beim Flush zu
+        Contact newContact = new Contact("Anna", "Schmidt", "Nebenstraße 5", "54321", "München");
+        when(contactRepository.findIdByBusinessKey(anyString())).thenReturn(Optional.empty());
+        when(contactRepository.save(any(Contact.class))).thenReturn(newContact);
+        doThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", new SQLException("Unique index"),
+                    "PUBLIC.UK_CONTACT_BUSINESS_KEY_INDEX_6")))
+            .when(contactRepository).flush();
+
+        // When/Then
+        assertThatThrownBy(() -> contactService.createContact(newContact))
+            .isInstanceOf(ContactService.DuplicateContactException.class)
+            .hasMessageContaining("existiert bereits");
+    }
+
+    @Test
+    void shouldRethrowOtherConstraintViolations() {
+        // Given: Meldung erwähnt uk_contact_, verletzt ist aber ein anderer Constraint
+        Contact newContact = new Contact("Anna", "Schmidt", "Nebenstraße 5", "54321", "München");
+        when(contactRepository.findIdByBusinessKey(anyString())).thenReturn(Optional.empty());
+        when(contactRepository.save(any(Contact.class))).thenReturn(newContact);
+        doThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("value for uk_contact_x too long", new SQLException("Value too long"),
+                    "PUBLIC.CONSTRAINT_8")))
+            .when(contactRepository).flush();
+
+        // When/Then
+        assertThatThrownBy(() -> contactService.createContact(newContact))
+            .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
     @Test
     void shouldUpdateContact() {
         // Given
@@ -135,8 +213,8 @@ class ContactServiceTest {
         updatedData.setEmail("new@example.com");
 
         when(contactRepository.findById(1L)).thenReturn(Optional.of(testContact));
-        when(contactRepository.findByNameAndAddress(
-            "Max", "Mustermann-Neu", "Hauptstraße 2", "12345", "Berlin"
+        when(contactRepository.findIdByBusinessKey(
+            ContactBusinessKey.of("Max", "Mustermann-Neu", "Hauptstraße 2", "12345", "Berlin")
         )).thenReturn(Optional.empty());
         when(contactRepository.save(any(Contact.class))).thenAnswer(inv -> inv.getArgument(0));
 
@@ -157,9 +235,9 @@ class ContactServiceTest {
         updatedData.setEmail("updated@example.com");
 
         when(contactRepository.findById(1L)).thenReturn(Optional.of(testContact));
-        when(contactRepository.findByNameAndAddress(
-            "Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin"
-        )).thenReturn(Optional.of(testContact)); // Same contact
+        when(contactRepository.findIdByBusinessKey(
+            ContactBusinessKey.of("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin")
+        )).thenReturn(Optional.of(testContact.getId())); // Same contact
         when(contactRepository.save(any(Contact.class))).thenAnswer(inv -> inv.getArgument(0));
 
         // When
@@ -177,9 +255,9 @@ class ContactServiceTest {
         otherContact.setId(2L);
 
         when(contactRepository.findById(1L)).thenReturn(Optional.of(testContact));
-        when(contactRepository.findByNameAndAddress(
-            "Anna", "Schmidt", "Andere Str", "99999", "Hamburg"
-        )).thenReturn(Optional.of(otherContact));
+        when(contactRepository.findIdByBusinessKey(
+            ContactBusinessKey.of("Anna", "Schmidt", "Andere Str", "99999", "Hamburg")
+        )).thenReturn(Optional.of(otherContact.getId()));
 
         Contact updatedData = new Contact("Anna", "Schmidt", "Andere Str", "99999", "Hamburg");
 
@@ -212,6 +290,7 @@ class ContactServiceTest {
 
         // Then
         verify(contactRepository).existsById(1L);
+        verify(hashtagRepository).decrementUsageForContact(1L);
         verify(contactRepository).deleteById(1L);
     }
 
@@ -251,8 +330,8 @@ class ContactServiceTest {
         updatedContact.setBemerkung("Wichtiger Kunde");
 
         when(contactRepository.findById(1L)).thenReturn(Optional.of(existingContact));
-        when(contactRepository.findByNameAndAddress(anyString(), anyString(), anyString(), anyString(), anyString()))
-            .thenReturn(Optional.of(existingContact));
+        when(contactRepository.findIdByBusinessKey(anyString()))
+            .thenReturn(Optional.of(existingContact.getId()));
         when(contactRepository.save(any(Contact.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
@@ -276,7 +355,7 @@ class ContactServiceTest {
         contact.setFirma("   "); // Empty string with spaces
         contact.setBemerkung(""); // Empty string
 
-        when(contactRepository.findByNameAndAddress(anyString(), anyString(), anyString(), anyString(), anyString()))
+        when(contactRepository.findIdByBusinessKey(anyString()))
             .thenReturn(Optional.empty());
         when(contactRepository.save(any(Contact.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
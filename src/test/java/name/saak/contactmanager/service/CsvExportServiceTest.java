@@ -0,0 +1,74 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.repository.ContactExportRow;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvExportServiceTest {
+
+    private final CsvExportService csvExportService = new CsvExportService();
+
+    @Test
+    void shouldWriteHeaderAndRowsWithSharedColumnMapping() throws IOException {
+        // Given
+        List<ContactExportRow> rows = List.of(
+            new ContactExportRow(1L, null, "Frau", "Erika", "Musterfrau", "Nebenstraße 5", "54321", "München"),
+            new ContactExportRow(2L, "Firma", null, "", "Schmidt", "Dorfstraße 10", null, "Hamburg")
+        );
+
+        // When
+        String csv = export(rows);
+
+        // Then
+        assertThat(csv).startsWith("\uFEFF");
+        assertThat(csv.substring(1).split("\r\n")).containsExactly(
+            "Firma;Anrede;Vorname_Name;Straße;PLZ/Ort",
+            ";Frau;Erika Musterfrau;Nebenstraße 5;54321 München",
+            "Firma;;Schmidt;Dorfstraße 10;Hamburg"
+        );
+    }
+
+    @Test
+    void shouldQuoteFieldsWithSeparatorsQuotesAndLineBreaks() throws IOException {
+        // Given
+        List<ContactExportRow> rows = List.of(
+            new ContactExportRow(1L, "Müller; Söhne", null, "Max", "\"Maxi\" Mann", "Zeile 1\nZeile 2", "12345", "Berlin")
+        );
+
+        // When
+        String csv = export(rows);
+
+        // Then
+        assertThat(csv).contains("\"Müller; Söhne\";;\"Max \"\"Maxi\"\" Mann\";\"Zeile 1\nZeile 2\";12345 Berlin\r\n");
+    }
+
+    @Test
+    void shouldNeutralizeFieldsThatStartLikeFormulas() throws IOException {
+        // Given
+        List<ContactExportRow> rows = List.of(
+            new ContactExportRow(1L, "=HYPERLINK(\"http://x\")", "@SUM(A1)", "+49", "Mann", "-1 Weg", "12345",
+                "Berlin"),
+            new ContactExportRow(2L, "\tFirma", null, "Max", "Mann", "\rWeg 1", null, "Ort-Mitte")
+        );
+
+        // When
+        String csv = export(rows);
+
+        // Then: Apostroph davor und in Anführungszeichen, Bindestriche im Feld bleiben unverändert
+        assertThat(csv).contains(
+            "\"'=HYPERLINK(\"\"http://x\"\")\";\"'@SUM(A1)\";\"'+49 Mann\";\"'-1 Weg\";12345 Berlin\r\n");
+        assertThat(csv).contains("\"'\tFirma\";;Max Mann;\"'\rWeg 1\";Ort-Mitte\r\n");
+    }
+
+    private String export(List<ContactExportRow> rows) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        csvExportService.write(rows.iterator(), outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
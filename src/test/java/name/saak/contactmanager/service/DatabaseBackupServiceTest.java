@@ -1,43 +1,85 @@
 package name.saak.contactmanager.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import name.saak.contactmanager.domain.Contact;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.ZipInputStream;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @ActiveProfiles("test")
 @Transactional
 class DatabaseBackupServiceTest {
 
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private BackupProperties backupProperties;
+
+    @Autowired
+    private ContactService contactService;
+
     private DatabaseBackupService backupService;
     private final String testBackupDir = "./test-backup";
 
     @BeforeEach
     void setUp() throws IOException {
         // Test-Service mit eigenem Backup-Verzeichnis erstellen
-        backupService = new DatabaseBackupService(dataSource, testBackupDir, true);
+        backupService = new DatabaseBackupService(dataSourceProperties, meterRegistry, new BackupProperties(
+            testBackupDir, true, false, false, testBackupDir + "/staging", DataSize.ofBytes(0), false, "auto",
+            new BackupProperties.Retention(24, 7, 4, 12)));
 
         // Test-Verzeichnis erstellen
         Path backupPath = Paths.get(testBackupDir);
@@ -46,6 +88,11 @@ class DatabaseBackupServiceTest {
         }
     }
 
+    @AfterTransaction
+    void removeChangeJournalTriggers() throws SQLException {
+        backupService.updateChangeJournalTriggers();
+    }
+
     @AfterEach
     void tearDown() throws IOException {
         // Test-Verzeichnis aufräumen
@@ -105,29 +152,54 @@ class DatabaseBackupServiceTest {
     }
 
     @Test
-    @DisplayName("Should cleanup old backups")
+    @DisplayName("Should thin out old backups into hourly, daily, weekly and monthly ones")
     void testCleanupOldBackups() throws IOException {
-        // Given: Create some test backup files with different ages
-        Path backupPath = Paths.get(testBackupDir);
-
-        // Recent backup (should be kept)
-        Path recentBackup = backupPath.resolve("contactdb-backup-2025-12-28_02-00-00.zip");
-        Files.createFile(recentBackup);
-
-        // Old backup (should be deleted)
-        Path oldBackup = backupPath.resolve("contactdb-backup-2025-11-01_02-00-00.zip");
-        Files.createFile(oldBackup);
-
-        // Set file modification time to 31 days ago
-        Instant oldTime = Instant.now().minus(31, ChronoUnit.DAYS);
-        Files.setLastModifiedTime(oldBackup, FileTime.from(oldTime));
+        // Given: Backups verschiedener Alter (Aufbewahrung 24 Stunden, 7 Tage, 4 Wochen, 12 Monate)
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime threeHoursAgo = now.truncatedTo(ChronoUnit.HOURS).minusHours(3);
+        LocalDateTime threeMonthsAgo = now.truncatedTo(ChronoUnit.DAYS).minusMonths(3).withDayOfMonth(1).withHour(12);
+
+        Path newest = createBackupFile(now.minusMinutes(30));
+        Path sameHourOlder = createBackupFile(threeHoursAgo.plusMinutes(10));
+        Path sameHourNewer = createBackupFile(threeHoursAgo.plusMinutes(40));
+        Path tenDaysAgo = createBackupFile(now.minusDays(10));
+        Path sameMonthOlder = createBackupFile(threeMonthsAgo);
+        Path sameMonthNewer = createBackupFile(threeMonthsAgo.plusDays(1));
+        Path tooOld = createBackupFile(now.minusDays(400));
 
         // When
         backupService.cleanupOldBackups();
 
-        // Then
-        assertThat(Files.exists(recentBackup)).isTrue();
-        assertThat(Files.exists(oldBackup)).isFalse();
+        // Then: je Zeitraum bleibt das neueste Backup
+        assertThat(newest).exists();
+        assertThat(sameHourNewer).exists();
+        assertThat(tenDaysAgo).exists();
+        assertThat(sameMonthNewer).exists();
+        assertThat(sameHourOlder).doesNotExist();
+        assertThat(sameMonthOlder).doesNotExist();
+        assertThat(tooOld).doesNotExist();
+        assertThat(backupService.getBackupStatistics().count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should keep the base backup and earlier deltas of a retained delta")
+    void testRetentionKeepsDeltaChains() {
+        // Given: Basis-Backup und zwei Deltas an zwei Tagen
+        LocalDateTime twoDaysAgo = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).minusDays(2);
+        BackupCatalog.Entry base = catalogEntry("base", BackupCatalog.BackupType.FULL, twoDaysAgo.withHour(10));
+        BackupCatalog.Entry firstDelta = catalogEntry("d1", BackupCatalog.BackupType.INCREMENTAL, twoDaysAgo.withHour(11));
+        BackupCatalog.Entry secondDelta = catalogEntry("d2", BackupCatalog.BackupType.INCREMENTAL,
+            twoDaysAgo.plusDays(1).withHour(10));
+        BackupCatalog.Entry older = catalogEntry("older", BackupCatalog.BackupType.FULL, twoDaysAgo.minusDays(1));
+        BackupCatalog.Entry olderDelta = catalogEntry("older-d1", BackupCatalog.BackupType.INCREMENTAL,
+            twoDaysAgo.minusDays(1).withHour(5));
+
+        // When: nur die Tagesstufe (ohne die Stunden- und Wochenstufe)
+        Set<BackupCatalog.Entry> retained = new BackupRetentionPolicy(0, 2, 0, 0)
+            .retain(List.of(older, olderDelta, base, firstDelta, secondDelta), LocalDateTime.now());
+
+        // Then: das Basis-Backup ist selbst keines der neuesten je Tag, wird für die Deltas aber gebraucht
+        assertThat(retained).containsExactlyInAnyOrder(base, firstDelta, secondDelta);
     }
 
     @Test
@@ -188,10 +260,8 @@ class DatabaseBackupServiceTest {
         // Given: Create backup and other files
         Path backupPath = Paths.get(testBackupDir);
 
-        Path backupFile = backupPath.resolve("contactdb-backup-2025-11-01_02-00-00.zip");
-        Files.createFile(backupFile);
-        Files.setLastModifiedTime(backupFile,
-            FileTime.from(Instant.now().minus(31, ChronoUnit.DAYS)));
+        Path backupFile = createBackupFile(LocalDateTime.now().minusDays(400));
+        Path recentBackup = createBackupFile(LocalDateTime.now());
 
         Path otherFile = backupPath.resolve("other-file.zip");
         Files.createFile(otherFile);
@@ -203,6 +273,7 @@ class DatabaseBackupServiceTest {
 
         // Then
         assertThat(Files.exists(backupFile)).isFalse();  // Backup deleted
+        assertThat(Files.exists(recentBackup)).isTrue();  // Newest backup kept
         assertThat(Files.exists(otherFile)).isTrue();     // Other file kept
     }
 
@@ -210,8 +281,9 @@ class DatabaseBackupServiceTest {
     @DisplayName("Should handle missing backup directory gracefully")
     void testCleanupWithMissingDirectory() throws IOException {
         // Given: Non-existent directory
-        DatabaseBackupService service = new DatabaseBackupService(
-            dataSource, "./non-existent-dir", true);
+        DatabaseBackupService service = new DatabaseBackupService(dataSourceProperties, meterRegistry,
+            new BackupProperties("./non-existent-dir", true, false, false, "./non-existent-dir/staging",
+                DataSize.ofBytes(0), false, "auto", new BackupProperties.Retention(24, 7, 4, 12)));
 
         // When/Then: Should not throw exception
         service.cleanupOldBackups();
@@ -219,4 +291,432 @@ class DatabaseBackupServiceTest {
         DatabaseBackupService.BackupStatistics stats = service.getBackupStatistics();
         assertThat(stats.count()).isZero();
     }
+
+    @Test
+    @DisplayName("Should record native SQL changes in the change journal")
+    void testChangeJournalCapturesNativeUpdates() throws SQLException {
+        // Given
+        Long contactId = jdbcTemplate.queryForObject(
+            "SELECT id FROM contact WHERE nachname = 'Mustermann'", Long.class);
+        Long familieId = jdbcTemplate.queryForObject("SELECT id FROM hashtag WHERE name = '#familie'", Long.class);
+        Long freundeId = jdbcTemplate.queryForObject("SELECT id FROM hashtag WHERE name = '#freunde'", Long.class);
+        incrementalService().updateChangeJournalTriggers();
+        jdbcTemplate.update("DELETE FROM change_journal");
+
+        // When: Bulk-Update und Schlüsseländerung wie beim Zusammenführen von Hashtags
+        jdbcTemplate.update("INSERT INTO contact_hashtag (contact_id, hashtag_id) VALUES (?, ?)", contactId, familieId);
+        jdbcTemplate.update("UPDATE hashtag SET usage_count = usage_count + 1 WHERE id = ?", familieId);
+        jdbcTemplate.update("UPDATE contact_hashtag SET hashtag_id = ? WHERE contact_id = ? AND hashtag_id = ?",
+            freundeId, contactId, familieId);
+
+        // Then
+        List<Map<String, Object>> entries = jdbcTemplate.queryForList(
+            "SELECT table_name, row_id, ref_id, operation FROM change_journal ORDER BY id");
+        assertThat(entries).extracting(e -> e.get("TABLE_NAME") + ":" + e.get("ROW_ID") + ":" + e.get("REF_ID")
+                + ":" + e.get("OPERATION"))
+            .containsExactly(
+                "contact_hashtag:" + contactId + ":" + familieId + ":I",
+                "hashtag:" + familieId + ":null:U",
+                "contact_hashtag:" + contactId + ":" + freundeId + ":U",
+                "contact_hashtag:" + contactId + ":" + familieId + ":D");
+    }
+
+    @Test
+    @DisplayName("Should install change journal triggers only in incremental mode")
+    void testChangeJournalTriggersFollowIncrementalMode() throws SQLException {
+        // Given: Testprofil ohne inkrementelle Backups
+        assertThat(journalTriggerCount()).isZero();
+
+        // When
+        incrementalService().updateChangeJournalTriggers();
+
+        // Then: Trigger und Marker für ein neues Basis-Backup
+        assertThat(journalTriggerCount()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForList("SELECT table_name FROM change_journal", String.class))
+            .containsExactly("*");
+
+        // When: wieder ohne inkrementelle Backups
+        backupService.updateChangeJournalTriggers();
+
+        // Then
+        assertThat(journalTriggerCount()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_journal", Integer.class)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should bind backup settings from app.backup")
+    void testBackupPropertiesBinding() {
+        assertThat(backupProperties.directory()).isEqualTo("target/backup");
+        assertThat(backupProperties.incremental()).isFalse();
+        assertThat(backupProperties.maxWriteRate()).isEqualTo(DataSize.ofBytes(0));
+        assertThat(backupProperties.format()).isEqualTo("auto");
+        assertThat(backupProperties.retention()).isEqualTo(new BackupProperties.Retention(24, 7, 4, 12));
+    }
+
+    @Test
+    @DisplayName("Should reject incremental mode without H2 or with the logical format")
+    void testIncrementalModeRequiresNativeH2() {
+        DataSourceProperties postgres = new DataSourceProperties();
+        postgres.setUrl("jdbc:postgresql://localhost/contactdb");
+
+        assertThatThrownBy(() -> new DatabaseBackupService(postgres, meterRegistry, new BackupProperties(
+                testBackupDir, true, true, false, testBackupDir + "/staging", DataSize.ofBytes(0), false, "auto",
+                new BackupProperties.Retention(24, 7, 4, 12))))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("app.backup.incremental");
+        assertThatThrownBy(() -> new DatabaseBackupService(dataSourceProperties, meterRegistry, new BackupProperties(
+                testBackupDir, true, true, false, testBackupDir + "/staging", DataSize.ofBytes(0), false, "logical",
+                new BackupProperties.Retention(24, 7, 4, 12))))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should leave no partial file when a logical backup fails")
+    void testFailedLogicalBackupLeavesNoPartFile(@TempDir Path tempDir) throws Exception {
+        // Given: Datenbank ohne change_journal, das Lesen des Journals schlägt fehl
+        String url = "jdbc:h2:mem:logical-failing;DB_CLOSE_DELAY=-1";
+        JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(url, "sa", "", true));
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(url);
+        properties.setUsername("sa");
+        properties.setPassword("");
+        Path backupDir = tempDir.resolve("backup");
+        DatabaseBackupService service = new DatabaseBackupService(properties, new SimpleMeterRegistry(),
+            new BackupProperties(backupDir.toString(), true, false, false, tempDir.resolve("staging").toString(),
+                DataSize.ofBytes(0), false, "logical", new BackupProperties.Retention(24, 7, 4, 12)));
+        try {
+            // When/Then
+            assertThatThrownBy(service::createBackup).isInstanceOf(SQLException.class);
+            try (Stream<Path> files = Files.list(backupDir)) {
+                assertThat(files).isEmpty();
+            }
+        } finally {
+            service.shutdown();
+            jdbc.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore base backup plus incremental deltas")
+    void testIncrementalBackupAndRestore(@TempDir Path tempDir) throws Exception {
+        // Given: dateibasierte Datenbank, da H2 BACKUP nur mit persistenten Datenbanken funktioniert
+        String url = "jdbc:h2:file:" + tempDir.resolve("db/contact_manager").toAbsolutePath();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "secret")) {
+            JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            jdbc.execute("CREATE TABLE contact (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "nachname VARCHAR(100) NOT NULL, bemerkung CLOB, updated_at TIMESTAMP)");
+            jdbc.execute("CREATE TABLE hashtag (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "name VARCHAR(50) NOT NULL, gesperrt BOOLEAN DEFAULT FALSE NOT NULL)");
+            jdbc.execute("CREATE TABLE contact_hashtag (contact_id BIGINT NOT NULL, hashtag_id BIGINT NOT NULL, " +
+                "PRIMARY KEY (contact_id, hashtag_id), " +
+                "FOREIGN KEY (contact_id) REFERENCES contact (id) ON DELETE CASCADE, " +
+                "FOREIGN KEY (hashtag_id) REFERENCES hashtag (id))");
+            jdbc.execute("CREATE TABLE hashtag_closure (ancestor_id BIGINT NOT NULL, descendant_id BIGINT NOT NULL, " +
+                "depth INT NOT NULL, PRIMARY KEY (ancestor_id, descendant_id))");
+            jdbc.execute("CREATE TABLE change_journal (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "table_name VARCHAR(30) NOT NULL, row_id BIGINT NOT NULL, ref_id BIGINT, operation CHAR(1) NOT NULL, " +
+                "changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+
+            DataSourceProperties properties = new DataSourceProperties();
+            properties.setUrl(url);
+            properties.setUsername("sa");
+            properties.setPassword("secret");
+            DatabaseBackupService service = new DatabaseBackupService(properties, new SimpleMeterRegistry(),
+                new BackupProperties(tempDir.resolve("backup").toString(), true, true, false,
+                    tempDir.resolve("staging").toString(), DataSize.ofBytes(0), false, "auto",
+                    new BackupProperties.Retention(24, 7, 4, 12)));
+            service.updateChangeJournalTriggers();
+
+            jdbc.update("INSERT INTO contact (nachname, updated_at) VALUES ('Alt', CURRENT_TIMESTAMP)");
+            jdbc.update("INSERT INTO hashtag (name) VALUES ('#familie')");
+            jdbc.update("INSERT INTO contact_hashtag VALUES (1, 1)");
+
+            // When: Basis-Backup, unveränderter Lauf und zwei Deltas
+            Optional<Path> base = service.createIncrementalBackup();
+            assertThat(base).hasValueSatisfying(path ->
+                assertThat(path.getFileName().toString()).startsWith("contactdb-backup-"));
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM change_journal", Integer.class)).isZero();
+            assertThat(service.createIncrementalBackup()).isEmpty();
+
+            // Trigger zwischenzeitlich aus: die Änderung fehlt im Journal, daher erneut ein Basis-Backup
+            jdbc.execute("DROP TRIGGER trg_contact_journal");
+            jdbc.update("UPDATE contact SET nachname = 'Zwischen' WHERE id = 1");
+            service.updateChangeJournalTriggers();
+            assertThat(service.createIncrementalBackup()).hasValueSatisfying(path ->
+                assertThat(path.getFileName().toString()).startsWith("contactdb-backup-"));
+
+            jdbc.update("UPDATE contact SET nachname = 'Neu', bemerkung = ? WHERE id = 1", "O'Brien;\nzweite Zeile");
+            jdbc.update("INSERT INTO contact (nachname) VALUES ('Zwei')");
+            jdbc.update("INSERT INTO contact_hashtag VALUES (2, 1)");
+            Optional<Path> firstDelta = service.createIncrementalBackup();
+
+            jdbc.update("DELETE FROM contact WHERE id = 2");
+            jdbc.update("INSERT INTO contact (nachname) VALUES ('Drei')");
+            jdbc.update("UPDATE hashtag SET gesperrt = TRUE WHERE id = 1");
+            Optional<Path> secondDelta = service.createIncrementalBackup();
+
+            assertThat(firstDelta).hasValueSatisfying(path ->
+                assertThat(path.getFileName().toString()).startsWith("contactdb-delta-"));
+            assertThat(secondDelta).isPresent();
+            assertThat(service.getBackupStatistics().count()).isEqualTo(4);
+
+            Path restored = restore(service, tempDir.resolve("restore"));
+
+            // Then
+            try (Connection restoredConnection = DriverManager.getConnection(
+                    "jdbc:h2:file:" + restored.toAbsolutePath() + ";IFEXISTS=TRUE", "sa", "secret")) {
+                JdbcTemplate restoredJdbc = new JdbcTemplate(new SingleConnectionDataSource(restoredConnection, true));
+                assertThat(restoredJdbc.queryForList("SELECT id, nachname, bemerkung FROM contact ORDER BY id"))
+                    .extracting(row -> row.get("ID") + ":" + row.get("NACHNAME") + ":" + row.get("BEMERKUNG"))
+                    .containsExactly("1:Neu:O'Brien;\nzweite Zeile", "3:Drei:null");
+                assertThat(restoredJdbc.queryForList("SELECT contact_id, hashtag_id FROM contact_hashtag"))
+                    .extracting(row -> row.get("CONTACT_ID") + "-" + row.get("HASHTAG_ID"))
+                    .containsExactly("1-1");
+                assertThat(restoredJdbc.queryForObject("SELECT gesperrt FROM hashtag WHERE id = 1", Boolean.class))
+                    .isTrue();
+                assertThat(restoredJdbc.queryForObject("SELECT COUNT(*) FROM change_journal", Integer.class))
+                    .isZero();
+
+                // Identity-Zähler steht hinter der höchsten wiederhergestellten ID
+                restoredJdbc.update("INSERT INTO contact (nachname) VALUES ('Vier')");
+                assertThat(restoredJdbc.queryForObject(
+                    "SELECT id FROM contact WHERE nachname = 'Vier'", Long.class)).isEqualTo(4L);
+            }
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Should restore deltas with a contact deleted and re-created under the same unique key")
+    void testIncrementalRestoreWithRecreatedContact(@TempDir Path tempDir) throws Exception {
+        // Given: Liquibase-Schema der Tests mit uk_contact_name_address und uk_contact_business_key; ohne
+        // Test-Transaktion, damit das Backup über seine eigene Verbindung die Änderungen sieht
+        DatabaseBackupService service = new DatabaseBackupService(dataSourceProperties, new SimpleMeterRegistry(),
+            new BackupProperties(tempDir.resolve("backup").toString(), true, true, true,
+                tempDir.resolve("staging").toString(), DataSize.ofBytes(0), false, "auto",
+                new BackupProperties.Retention(24, 7, 4, 12)));
+        service.updateChangeJournalTriggers();
+        List<Long> contactIds = new ArrayList<>();
+        try {
+            assertThat(service.createIncrementalBackup()).hasValueSatisfying(path ->
+                assertThat(path.getFileName().toString()).startsWith("contactdb-backup-"));
+            contactIds.add(contactService.createContact(newDeltaContact()).getId());
+            assertThat(service.createIncrementalBackup()).isPresent();
+
+            // When: derselbe Kontakt gelöscht und mit gleichem Namen und gleicher Adresse neu angelegt
+            contactService.deleteContact(contactIds.remove(0));
+            contactIds.add(contactService.createContact(newDeltaContact()).getId());
+            assertThat(service.createIncrementalBackup()).hasValueSatisfying(path ->
+                assertThat(path.getFileName().toString()).startsWith("contactdb-delta-"));
+            Path restored = restore(service, tempDir.resolve("restore"));
+
+            // Then
+            try (Connection connection = DriverManager.getConnection(
+                    "jdbc:h2:file:" + restored.toAbsolutePath() + ";IFEXISTS=TRUE", "sa", "")) {
+                JdbcTemplate restoredJdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                assertThat(restoredJdbc.queryForList(
+                        "SELECT id FROM contact WHERE nachname = 'Neuanlage'", Long.class))
+                    .containsExactlyElementsOf(contactIds);
+            }
+        } finally {
+            contactIds.forEach(contactService::deleteContact);
+            backupService.updateChangeJournalTriggers();
+        }
+    }
+
+    @Test
+    @DisplayName("Should create snapshot-first backup that restores to the current data")
+    void testSnapshotFirstBackup(@TempDir Path tempDir) throws Exception {
+        // Given: SCRIPT funktioniert im Gegensatz zu BACKUP TO auch mit der In-Memory-Datenbank der Tests
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService service = new DatabaseBackupService(dataSourceProperties, registry, new BackupProperties(
+            tempDir.resolve("backup").toString(), true, false, true, tempDir.resolve("staging").toString(),
+            DataSize.ofMegabytes(50), false, "auto", new BackupProperties.Retention(24, 7, 4, 12)));
+        Integer contactCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM contact", Integer.class);
+
+        // When
+        Path backup = service.createBackup();
+
+        // Then: Archiv im Format von BACKUP TO, Staging aufgeräumt
+        try (InputStream in = Files.newInputStream(backup); ZipInputStream zip = new ZipInputStream(in)) {
+            assertThat(zip.getNextEntry().getName()).isEqualTo("testdb.mv.db");
+        }
+        try (Stream<Path> staging = Files.list(tempDir.resolve("staging"))) {
+            assertThat(staging).isEmpty();
+        }
+        assertThat(registry.get("backup.duration").tags("type", "full", "outcome", "success").timer().count())
+            .isEqualTo(1);
+        assertThat(registry.get("backup.bytes.written").counter().count()).isEqualTo(Files.size(backup));
+        assertThat(service.isBackupRunning()).isFalse();
+
+        Path restored = restore(service, tempDir.resolve("restore"));
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:file:" + restored.toAbsolutePath() + ";IFEXISTS=TRUE", "sa", "")) {
+            JdbcTemplate restoredJdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            assertThat(restoredJdbc.queryForObject("SELECT COUNT(*) FROM contact", Integer.class))
+                .isEqualTo(contactCount);
+        }
+    }
+
+    @Test
+    @DisplayName("Should limit the write rate of backup streams")
+    void testThrottledOutputStream() throws IOException {
+        // Given: 256 KB bei 1 MB/s
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        ThrottledOutputStream out = new ThrottledOutputStream(target, 1024 * 1024);
+        long start = System.nanoTime();
+
+        // When
+        out.write(new byte[256 * 1024]);
+
+        // Then
+        assertThat(out.getBytesWritten()).isEqualTo(256 * 1024);
+        assertThat(target.size()).isEqualTo(256 * 1024);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(200_000_000L);
+    }
+
+    @Test
+    @DisplayName("Should store deduplicated backups as manifests sharing chunks")
+    void testDeduplicatedBackup(@TempDir Path tempDir) throws Exception {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService service = new DatabaseBackupService(dataSourceProperties, registry, new BackupProperties(
+            tempDir.resolve("backup").toString(), true, false, true, tempDir.resolve("staging").toString(),
+            DataSize.ofBytes(0), true, "auto", new BackupProperties.Retention(24, 7, 4, 12)));
+        Integer contactCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM contact", Integer.class);
+
+        // When: zwei Backups desselben Datenstands
+        Path first = service.createBackup();
+        Thread.sleep(5);
+        Path second = service.createBackup();
+
+        // Then: Manifeste statt Archiven; die kleine Testdatenbank passt in einen Chunk
+        assertThat(first.getFileName().toString()).startsWith("contactdb-backup-").endsWith(".manifest");
+        assertThat(registry.get("backup.chunks").tag("result", "new").counter().count()).isPositive();
+        DatabaseBackupService.BackupStatistics stats = service.getBackupStatistics();
+        assertThat(stats.count()).isEqualTo(2);
+        assertThat(stats.logicalSizeBytes()).isGreaterThan(stats.totalSizeBytes());
+        assertThat(stats.getDeduplicationRatio()).isGreaterThan(1.0);
+
+        Path restored = restore(service, tempDir.resolve("restore"));
+        assertThat(restored.getFileName().toString()).isEqualTo("testdb");
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:file:" + restored.toAbsolutePath() + ";IFEXISTS=TRUE", "sa", "")) {
+            JdbcTemplate restoredJdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            assertThat(restoredJdbc.queryForObject("SELECT COUNT(*) FROM contact", Integer.class))
+                .isEqualTo(contactCount);
+        }
+        assertThat(second).exists();
+    }
+
+    @Test
+    @DisplayName("Should delete only unreferenced chunks when old manifests expire")
+    void testDeduplicatedGarbageCollection(@TempDir Path tempDir) throws IOException {
+        // Given: zwei Backups, die sich einen Chunk teilen
+        Path backupDir = tempDir.resolve("backup");
+        DeduplicatingBackupStore store = new DeduplicatingBackupStore(backupDir);
+        byte[] shared = randomBytes(1, 200 * 1024);
+        byte[] onlyOld = randomBytes(2, 200 * 1024);
+        Path oldManifest = backupDir.resolve("contactdb-backup-2020-01-01_00-00-00-000.manifest");
+        Path newManifest = backupDir.resolve("contactdb-backup-2099-01-01_00-00-00-000.manifest");
+        Files.createDirectories(backupDir);
+        writeDeduplicated(store, oldManifest, shared, onlyOld);
+        writeDeduplicated(store, newManifest, shared);
+        Files.setLastModifiedTime(oldManifest, FileTime.from(Instant.now().minus(40, ChronoUnit.DAYS)));
+        long physicalBefore = store.physicalSize();
+        assertThat(physicalBefore).isLessThan(3L * 200 * 1024);
+
+        DatabaseBackupService service = new DatabaseBackupService(dataSourceProperties, meterRegistry,
+            new BackupProperties(backupDir.toString(), true, false, false, tempDir.resolve("staging").toString(),
+                DataSize.ofBytes(0), true, "auto", new BackupProperties.Retention(24, 7, 4, 12)));
+
+        // When
+        service.cleanupOldBackups();
+
+        // Then: das alte Manifest und seine eigenen Chunks sind gelöscht, das neue Backup ist vollständig
+        assertThat(oldManifest).doesNotExist();
+        assertThat(store.physicalSize()).isPositive().isLessThan(physicalBefore);
+        List<Path> files = store.restore(newManifest, tempDir.resolve("restore"));
+        assertThat(files).hasSize(1);
+        assertThat(Files.readAllBytes(files.get(0))).isEqualTo(shared);
+    }
+
+    @Test
+    @DisplayName("Should keep chunk boundaries stable after an insertion")
+    void testContentDefinedChunking() throws IOException {
+        // Given
+        byte[] original = randomBytes(3, 1024 * 1024);
+        byte[] modified = new byte[original.length + 100];
+        System.arraycopy(original, 0, modified, 0, 500_000);
+        System.arraycopy(original, 500_000, modified, 500_100, original.length - 500_000);
+
+        // When
+        List<String> originalChunks = chunkHashes(original);
+        List<String> modifiedChunks = chunkHashes(modified);
+
+        // Then: nur der Chunk mit der Einfügung ändert sich
+        assertThat(originalChunks.size()).isGreaterThan(8);
+        assertThat(modifiedChunks.stream().filter(originalChunks::contains).count())
+            .isGreaterThanOrEqualTo(originalChunks.size() - 2L);
+    }
+
+    private static void writeDeduplicated(DeduplicatingBackupStore store, Path manifest, byte[]... contents)
+            throws IOException {
+        DeduplicatingBackupStore.BackupWriter writer = store.newBackup(new WriteRateLimiter(0));
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] part : contents) {
+            content.write(part);
+        }
+        writer.addFile("data.bin", new ByteArrayInputStream(content.toByteArray()));
+        writer.commit(manifest);
+    }
+
+    private static List<String> chunkHashes(byte[] data) throws IOException {
+        List<String> hashes = new ArrayList<>();
+        ContentDefinedChunker.split(new ByteArrayInputStream(data), (chunk, length) ->
+            hashes.add(Arrays.hashCode(Arrays.copyOf(chunk, length)) + ":" + length));
+        return hashes;
+    }
+
+    private static byte[] randomBytes(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static Contact newDeltaContact() {
+        return new Contact("Delta", "Neuanlage", "Journalweg 1", "12345", "Restorehausen");
+    }
+
+    private DatabaseBackupService incrementalService() {
+        return new DatabaseBackupService(dataSourceProperties, meterRegistry, new BackupProperties(
+            testBackupDir, true, true, false, testBackupDir + "/staging", DataSize.ofBytes(0), false, "auto",
+            new BackupProperties.Retention(24, 7, 4, 12)));
+    }
+
+    private Integer journalTriggerCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT trigger_name) FROM information_schema.triggers "
+            + "WHERE trigger_name LIKE 'TRG_%_JOURNAL'", Integer.class);
+    }
+
+    private Path createBackupFile(LocalDateTime timestamp) throws IOException {
+        return Files.createFile(Paths.get(testBackupDir).resolve(
+            "contactdb-backup-" + timestamp.format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS")) + ".zip"));
+    }
+
+    private static BackupCatalog.Entry catalogEntry(String name, BackupCatalog.BackupType type,
+                                                    LocalDateTime timestamp) {
+        return new BackupCatalog.Entry(name, type, timestamp, 1, 1, "");
+    }
+
+    private Path restore(DatabaseBackupService service, Path targetDirectory) throws IOException, SQLException {
+        DatabaseRestoreService restoreService =
+            new DatabaseRestoreService(service, dataSource, new SimpleMeterRegistry(), event -> { },
+                targetDirectory.toString(), 2);
+        try {
+            return restoreService.restore(null, targetDirectory).database();
+        } finally {
+            restoreService.shutdown();
+        }
+    }
 }
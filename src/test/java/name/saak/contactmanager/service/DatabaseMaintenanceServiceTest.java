@@ -0,0 +1,155 @@
+package name.saak.contactmanager.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatabaseMaintenanceServiceTest {
+
+    @Test
+    @DisplayName("Should compact a fragmented database in the quiet window and defragment it at shutdown")
+    void testCompactAndDefragment(@TempDir Path tempDir) throws Exception {
+        // Given: Datei mit vielen veralteten Chunks; ohne Auto-Compact, das sie vorab im Hintergrund aufräumen könnte
+        String url = "jdbc:h2:file:" + tempDir.resolve("db/contact_manager").toAbsolutePath()
+            + ";AUTO_COMPACT_FILL_RATE=0";
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (HikariDataSource pool = pool(url)) {
+            fragment(new JdbcTemplate(pool));
+            DatabaseBackupService backupService = backupService(tempDir, url, registry);
+            // Füllgrad 101% ist nie erreicht: SHUTDOWN COMPACT läuft, Defragmentierung wird vorgemerkt
+            DatabaseMaintenanceService maintenanceService = new DatabaseMaintenanceService(pool, backupService,
+                registry, true, "00:00-00:00", 101, 1000, true, Clock.systemDefaultZone());
+            long fragmentedSize = Files.size(tempDir.resolve("db/contact_manager.mv.db"));
+
+            // When
+            maintenanceService.runMaintenance();
+
+            // Then
+            assertThat(registry.get("database.compaction.duration").tags("mode", "compact", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+            assertThat(Files.size(tempDir.resolve("db/contact_manager.mv.db"))).isLessThan(fragmentedSize);
+            assertThat(new JdbcTemplate(pool).queryForObject("SELECT COUNT(*) FROM note", Integer.class))
+                .isEqualTo(2000);
+            assertThat(registry.get("database.file.size").gauge().value()).isPositive();
+            assertThat(registry.get("database.fill.rate").gauge().value()).isBetween(0.0, 1.0);
+            assertThat(registry.get("database.chunks").gauge().value()).isPositive();
+            assertThat(maintenanceService.isDefragRequested()).isTrue();
+
+            // When: Herunterfahren
+            maintenanceService.shutdown();
+            backupService.shutdown();
+
+            // Then: Datei neu geschrieben, Daten vollständig
+            assertThat(registry.get("database.compaction.duration").tags("mode", "defrag", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+            assertThat(Files.size(tempDir.resolve("db/contact_manager.mv.db"))).isLessThan(fragmentedSize);
+        }
+        try (Connection connection = DriverManager.getConnection(url, "sa", "secret");
+             ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM note")) {
+            rs.next();
+            assertThat(rs.getInt(1)).isEqualTo(2000);
+        }
+    }
+
+    @Test
+    @DisplayName("Should only measure outside the quiet window")
+    void testWaitForQuietWindow(@TempDir Path tempDir) throws Exception {
+        // Given: 12:00 Uhr, Ruhefenster nachts
+        String url = "jdbc:h2:file:" + tempDir.resolve("db/contact_manager").toAbsolutePath();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Clock noon = clockAt(LocalDateTime.of(2026, 3, 2, 12, 0));
+        try (HikariDataSource pool = pool(url)) {
+            fragment(new JdbcTemplate(pool));
+            DatabaseBackupService backupService = backupService(tempDir, url, registry);
+            DatabaseMaintenanceService maintenanceService = new DatabaseMaintenanceService(pool, backupService,
+                registry, true, "02:00-05:00", 101, 1000, true, noon);
+
+            // When
+            maintenanceService.runMaintenance();
+
+            // Then
+            assertThat(registry.find("database.compaction.duration").timer()).isNull();
+            assertThat(registry.get("database.file.size").gauge().value()).isPositive();
+            assertThat(maintenanceService.isDefragRequested()).isFalse();
+            maintenanceService.shutdown();
+            backupService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should handle quiet windows across midnight and databases without a file")
+    void testQuietWindowAndInMemoryDatabase() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleConnectionDataSource memory =
+            new SingleConnectionDataSource("jdbc:h2:mem:maintenance;DB_CLOSE_DELAY=-1", "sa", "", true);
+        try {
+            DatabaseMaintenanceService lateNight = new DatabaseMaintenanceService(memory, null, registry, true,
+                "23:00-01:30", 50, 1000, true,
+                clockAt(LocalDateTime.of(2026, 3, 2, 0, 45)));
+            DatabaseMaintenanceService evening = new DatabaseMaintenanceService(memory, null, registry, true,
+                "23:00-01:30", 50, 1000, true,
+                clockAt(LocalDateTime.of(2026, 3, 2, 22, 59)));
+
+            assertThat(lateNight.isQuietTime()).isTrue();
+            assertThat(evening.isQuietTime()).isFalse();
+            assertThat(lateNight.measure()).isEmpty();
+        } finally {
+            memory.destroy();
+        }
+    }
+
+    private static HikariDataSource pool(String url) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername("sa");
+        pool.setPassword("secret");
+        pool.setAllowPoolSuspension(true);
+        return pool;
+    }
+
+    private static DatabaseBackupService backupService(Path tempDir, String url, SimpleMeterRegistry registry) {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(url);
+        properties.setUsername("sa");
+        properties.setPassword("secret");
+        return new DatabaseBackupService(properties, registry, new BackupProperties(
+            tempDir.resolve("backup").toString(), true, false, false, tempDir.resolve("staging").toString(),
+            DataSize.ofBytes(0), false, "auto", new BackupProperties.Retention(24, 7, 4, 12)));
+    }
+
+    /**
+     * Schreibt denselben Datenbestand mehrfach neu, sodass die Datei überwiegend veraltete Daten enthält.
+     */
+    private static void fragment(JdbcTemplate jdbc) {
+        jdbc.execute("CREATE TABLE note (id INT PRIMARY KEY, text VARCHAR(1000))");
+        for (int round = 0; round < 5; round++) {
+            jdbc.update("DELETE FROM note");
+            jdbc.batchUpdate("INSERT INTO note VALUES (?, REPEAT('x', 500))",
+                IntStream.range(0, 2000).mapToObj(i -> new Object[] {i}).toList());
+            jdbc.execute("CHECKPOINT");
+        }
+    }
+
+    private static Clock clockAt(LocalDateTime time) {
+        return Clock.fixed(time.toInstant(ZoneOffset.UTC), ZoneId.of("UTC"));
+    }
+}
@@ -0,0 +1,379 @@
+package name.saak.contactmanager.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import name.saak.contactmanager.domain.ContactBusinessKey;
+import name.saak.contactmanager.repository.ContactRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DatabaseRestoreServiceTest {
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Should restore a chosen point in time and swap it into the live database")
+    void testRestoreChosenBackupAndSwap(@TempDir Path tempDir) throws Exception {
+        // Given: dateibasierte Datenbank hinter einem Pool, der für den Austausch angehalten werden kann
+        String url = "jdbc:h2:file:" + tempDir.resolve("db/contact_manager").toAbsolutePath();
+        try (HikariDataSource pool = new HikariDataSource()) {
+            pool.setJdbcUrl(url);
+            pool.setUsername("sa");
+            pool.setPassword("secret");
+            pool.setAllowPoolSuspension(true);
+            JdbcTemplate jdbc = new JdbcTemplate(pool);
+            createSchema(jdbc);
+
+            DataSourceProperties properties = new DataSourceProperties();
+            properties.setUrl(url);
+            properties.setUsername("sa");
+            properties.setPassword("secret");
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            DatabaseBackupService backupService = new DatabaseBackupService(properties, registry, new BackupProperties(
+                tempDir.resolve("backup").toString(), true, true, false, tempDir.resolve("staging").toString(),
+                DataSize.ofBytes(0), false, "auto", new BackupProperties.Retention(24, 7, 4, 12)));
+            DatabaseRestoreService restoreService = new DatabaseRestoreService(backupService, pool, registry,
+                event -> { }, tempDir.resolve("restore").toString(), 2);
+
+            try {
+                jdbc.update("INSERT INTO contact (nachname) VALUES ('Alt')");
+                jdbc.update("INSERT INTO hashtag (name) VALUES ('#familie')");
+                jdbc.update("INSERT INTO contact_hashtag VALUES (1, 1)");
+                backupService.createIncrementalBackup();
+                jdbc.update("UPDATE contact SET nachname = 'Neu' WHERE id = 1");
+                Path firstDelta = backupService.createIncrementalBackup().orElseThrow();
+                Thread.sleep(5);
+                jdbc.update("INSERT INTO contact (nachname) VALUES ('Zwei')");
+                backupService.createIncrementalBackup();
+                // Nach dem letzten Backup, geht beim Austausch verloren
+                jdbc.update("INSERT INTO contact (nachname) VALUES ('Drei')");
+
+                // When: Stand nach dem ersten Delta
+                DatabaseRestoreService.RestoreResult pointInTime =
+                    restoreService.restore(firstDelta.getFileName().toString(), tempDir.resolve("point-in-time"));
+
+                // Then
+                assertThat(pointInTime.deltas()).isEqualTo(1);
+                assertThat(pointInTime.integrity().contacts()).isEqualTo(1);
+                assertThat(pointInTime.integrity().contactHashtags()).isEqualTo(1);
+                assertThat(pointInTime.integrity().isConsistent()).isTrue();
+                try (Connection connection = DriverManager.getConnection(
+                        "jdbc:h2:file:" + pointInTime.database() + ";IFEXISTS=TRUE", "sa", "secret")) {
+                    assertThat(new JdbcTemplate(new SingleConnectionDataSource(
+                        connection, true)).queryForObject("SELECT nachname FROM contact", String.class))
+                        .isEqualTo("Neu");
+                }
+
+                // When: neuestes Backup gegen die laufende Datenbank austauschen
+                DatabaseRestoreService.RestoreResult swapped = restoreService.restore(null, true);
+
+                // Then: der Pool arbeitet mit der wiederhergestellten Datei weiter
+                assertThat(swapped.swapped()).isTrue();
+                assertThat(swapped.deltas()).isEqualTo(2);
+                assertThat(jdbc.queryForList("SELECT nachname FROM contact ORDER BY id", String.class))
+                    .containsExactly("Neu", "Zwei");
+                try (Stream<Path> files = Files.list(tempDir.resolve("db"))) {
+                    assertThat(files.map(file -> file.getFileName().toString()))
+                        .anyMatch(name -> name.startsWith("contact_manager.mv.db.before-restore-"))
+                        .noneMatch(name -> name.startsWith("contactdb-restore-"));
+                }
+                assertThat(registry.get("backup.restore.duration").tags("drill", "false", "outcome", "success")
+                    .timer().count()).isEqualTo(2);
+            } finally {
+                restoreService.shutdown();
+                backupService.shutdown();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should rebuild the duplicate check filter after swapping in a restored database")
+    void testDuplicateCheckAfterSwap(@TempDir Path tempDir) throws Exception {
+        // Given: Kontakt im Backup, danach gelöscht und nicht mehr im Filter
+        String url = "jdbc:h2:file:" + tempDir.resolve("db/contact_manager").toAbsolutePath();
+        try (HikariDataSource pool = new HikariDataSource()) {
+            pool.setJdbcUrl(url);
+            pool.setUsername("sa");
+            pool.setPassword("secret");
+            pool.setAllowPoolSuspension(true);
+            JdbcTemplate jdbc = new JdbcTemplate(pool);
+            createSchema(jdbc);
+            jdbc.execute("ALTER TABLE contact ADD COLUMN business_key VARCHAR(500)");
+
+            ContactRepository contactRepository = mock(ContactRepository.class);
+            when(contactRepository.findAllBusinessKeys()).thenAnswer(invocation ->
+                jdbc.queryForList("SELECT business_key FROM contact", String.class));
+            when(contactRepository.findIdByBusinessKey(anyString())).thenAnswer(invocation ->
+                jdbc.queryForList("SELECT id FROM contact WHERE business_key = ?", Long.class,
+                    invocation.getArgument(0, String.class)).stream().findFirst());
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            DuplicateCheckService duplicateCheckService = new DuplicateCheckService(contactRepository, registry, 0.01);
+
+            DataSourceProperties properties = new DataSourceProperties();
+            properties.setUrl(url);
+            properties.setUsername("sa");
+            properties.setPassword("secret");
+            DatabaseBackupService backupService = new DatabaseBackupService(properties, registry, new BackupProperties(
+                tempDir.resolve("backup").toString(), true, false, false, tempDir.resolve("staging").toString(),
+                DataSize.ofBytes(0), false, "auto", new BackupProperties.Retention(24, 7, 4, 12)));
+            DatabaseRestoreService restoreService = new DatabaseRestoreService(backupService, pool, registry,
+                event -> duplicateCheckService.onDatabaseRestored((DatabaseRestoredEvent) event),
+                tempDir.resolve("restore").toString(), 2);
+
+            try {
+                String key = ContactBusinessKey.of("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin");
+                jdbc.update("INSERT INTO contact (nachname, business_key) VALUES ('Mustermann', ?)", key);
+                backupService.createBackup();
+                jdbc.update("DELETE FROM contact");
+                duplicateCheckService.rebuild();
+                assertThat(duplicateCheckService.check("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin", null)
+                    .duplicate()).isFalse();
+
+                // When
+                restoreService.restore(null, true);
+
+                // Then: der wiederhergestellte Kontakt wird als Duplikat erkannt
+                DuplicateCheckService.DuplicateCheckResult result =
+                    duplicateCheckService.check("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin", null);
+                assertThat(result.databaseChecked()).isTrue();
+                assertThat(result.duplicate()).isTrue();
+            } finally {
+                restoreService.shutdown();
+                backupService.shutdown();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a backup whose checksum does not match the catalog")
+    void testTamperedBackupIsRejected(@TempDir Path tempDir) throws Exception {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = snapshotBackupService(tempDir, registry);
+        DatabaseRestoreService restoreService = new DatabaseRestoreService(backupService, dataSource, registry,
+            event -> { }, tempDir.resolve("restore").toString(), 2);
+        try {
+            Path backup = backupService.createBackup();
+            // Angehängte Bytes lassen das Archiv lesbar, ändern aber die Prüfsumme
+            Files.write(backup, new byte[] {0}, StandardOpenOption.APPEND);
+
+            // When/Then
+            assertThatThrownBy(() -> restoreService.restore(null, tempDir.resolve("target")))
+                .isInstanceOf(DatabaseRestoreService.RestoreVerificationException.class)
+                .hasMessageContaining(backup.getFileName().toString());
+            assertThatThrownBy(() -> restoreService.restore("contactdb-backup-unknown.zip", tempDir.resolve("other")))
+                .isInstanceOf(DatabaseRestoreService.BackupNotFoundException.class);
+            assertThat(registry.get("backup.restore.duration").tags("drill", "false", "outcome", "failure")
+                .timer().count()).isEqualTo(2);
+        } finally {
+            restoreService.shutdown();
+            backupService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run a restore drill in the background and record its duration")
+    void testRestoreDrill(@TempDir Path tempDir) throws Exception {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = snapshotBackupService(tempDir, registry);
+        DatabaseRestoreService restoreService = new DatabaseRestoreService(backupService, dataSource, registry,
+            event -> { }, tempDir.resolve("restore").toString(), 2);
+        Long contactCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM contact", Long.class);
+        try {
+            backupService.createBackup();
+
+            // When
+            restoreService.runRestoreDrill();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (restoreService.getLastDrill().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            // Then: geprüft, gemessen und wieder aufgeräumt
+            assertThat(restoreService.getLastDrill()).hasValueSatisfying(drill ->
+                assertThat(drill.integrity().contacts()).isEqualTo(contactCount));
+            assertThat(registry.get("backup.restore.duration").tags("drill", "true", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+            assertThat(registry.get("backup.restore.drill.last.duration").gauge().value()).isGreaterThanOrEqualTo(0);
+            Thread.sleep(100);
+            try (Stream<Path> files = Files.list(tempDir.resolve("restore"))) {
+                assertThat(files).isEmpty();
+            }
+        } finally {
+            restoreService.shutdown();
+            backupService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should write a logical backup and restore it with batched inserts into an empty database")
+    void testLogicalBackupAndRestore(@TempDir Path tempDir) throws Exception {
+        // Given: Hashtag-Hierarchie, in der der Elternteil eine höhere ID hat als sein Kind
+        String url = "jdbc:h2:mem:logical-source;DB_CLOSE_DELAY=-1";
+        SingleConnectionDataSource source = new SingleConnectionDataSource(url, "sa", "", true);
+        SingleConnectionDataSource target =
+            new SingleConnectionDataSource("jdbc:h2:mem:logical-target;DB_CLOSE_DELAY=-1", "sa", "", true);
+        JdbcTemplate sourceJdbc = new JdbcTemplate(source);
+        JdbcTemplate targetJdbc = new JdbcTemplate(target);
+        createSchema(sourceJdbc);
+        createSchema(targetJdbc);
+        sourceJdbc.update("INSERT INTO hashtag (name) VALUES ('#kind')");
+        sourceJdbc.update("INSERT INTO hashtag (name) VALUES ('#eltern')");
+        sourceJdbc.update("UPDATE hashtag SET parent_id = 2 WHERE id = 1");
+        sourceJdbc.update("INSERT INTO hashtag_closure VALUES (1, 1, 0), (2, 2, 0), (2, 1, 1)");
+        sourceJdbc.update("INSERT INTO contact (nachname, bemerkung, updated_at) VALUES (?, ?, ?)",
+            "O'Brien", "Zeile 1\n\"Zeile\" 2 – ü", Timestamp.valueOf("2026-10-19 14:15:16.123"));
+        sourceJdbc.update("INSERT INTO contact (nachname) VALUES ('Ohne')");
+        sourceJdbc.update("INSERT INTO contact_hashtag VALUES (1, 1), (2, 2)");
+
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(url);
+        properties.setUsername("sa");
+        properties.setPassword("");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = new DatabaseBackupService(properties, registry, new BackupProperties(
+            tempDir.resolve("backup").toString(), true, false, false, tempDir.resolve("staging").toString(),
+            DataSize.ofBytes(0), false, "logical", new BackupProperties.Retention(24, 7, 4, 12)));
+        DatabaseRestoreService restoreService = new DatabaseRestoreService(backupService, source, registry,
+            event -> { }, tempDir.resolve("restore").toString(), 2);
+        try {
+            // When
+            Path backup = backupService.createBackup();
+            DatabaseRestoreService.RestoreResult result = restoreService.restoreLogical(null, target);
+
+            // Then: eine Zeile pro Datensatz, vollständig und mit fortgesetzten IDs wiederhergestellt
+            assertThat(backup.getFileName().toString()).startsWith("contactdb-backup-").endsWith(".ndjson.gz");
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(backup)), StandardCharsets.UTF_8))) {
+                List<String> lines = reader.lines().toList();
+                assertThat(lines.get(0)).contains("\"format\":\"contactdb-logical\"");
+                assertThat(lines).hasSize(1 + 4 * 2 + 2 + 2 + 3 + 2);
+            }
+            assertThat(result.database()).isNull();
+            assertThat(result.integrity().contacts()).isEqualTo(2);
+            assertThat(result.integrity().hashtagClosures()).isEqualTo(3);
+            String rows = "SELECT c.nachname, c.bemerkung, c.updated_at, h.name, h.parent_id FROM contact c "
+                + "JOIN contact_hashtag ch ON ch.contact_id = c.id JOIN hashtag h ON h.id = ch.hashtag_id ORDER BY c.id";
+            assertThat(targetJdbc.queryForList(rows)).isEqualTo(sourceJdbc.queryForList(rows));
+            targetJdbc.update("INSERT INTO contact (nachname) VALUES ('Neu')");
+            assertThat(targetJdbc.queryForObject("SELECT MAX(id) FROM contact", Long.class)).isEqualTo(3);
+            assertThat(targetJdbc.queryForObject("SELECT COUNT(*) FROM change_journal", Long.class)).isEqualTo(1);
+
+            // Nur in leere Datenbanken, und nicht als Datenbankdatei
+            assertThatThrownBy(() -> restoreService.restoreLogical(null, target))
+                .isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> restoreService.restore(null, tempDir.resolve("file")))
+                .isInstanceOf(IllegalStateException.class);
+        } finally {
+            restoreService.shutdown();
+            backupService.shutdown();
+            sourceJdbc.execute("SHUTDOWN");
+            targetJdbc.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    @DisplayName("Should leave the target empty when a logical backup is tampered with")
+    void testTamperedLogicalBackupIsRolledBack(@TempDir Path tempDir) throws Exception {
+        // Given
+        SingleConnectionDataSource target =
+            new SingleConnectionDataSource("jdbc:h2:mem:logical-tampered;DB_CLOSE_DELAY=-1", "sa", "", true);
+        JdbcTemplate targetJdbc = new JdbcTemplate(target);
+        targetJdbc.execute("RUNSCRIPT FROM " + DatabaseBackupService.sqlString(
+            schemaScript(tempDir).toAbsolutePath().toString()));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = new DatabaseBackupService(dataSourceProperties, registry,
+            new BackupProperties(tempDir.resolve("backup").toString(), true, false, false,
+                tempDir.resolve("staging").toString(), DataSize.ofBytes(0), false, "logical",
+                new BackupProperties.Retention(24, 7, 4, 12)));
+        DatabaseRestoreService restoreService = new DatabaseRestoreService(backupService, dataSource, registry,
+            event -> { }, tempDir.resolve("restore").toString(), 2);
+        try {
+            Path backup = backupService.createBackup();
+            Files.write(backup, new byte[] {0}, StandardOpenOption.APPEND);
+
+            // When/Then: Zeilen waren schon eingefügt, die Prüfsumme passt aber nicht
+            assertThatThrownBy(() -> restoreService.restoreLogical(null, target))
+                .isInstanceOf(DatabaseRestoreService.RestoreVerificationException.class);
+            assertThat(targetJdbc.queryForObject("SELECT COUNT(*) FROM contact", Long.class)).isZero();
+            assertThat(targetJdbc.queryForObject("SELECT COUNT(*) FROM hashtag", Long.class)).isZero();
+        } finally {
+            restoreService.shutdown();
+            backupService.shutdown();
+            targetJdbc.execute("SHUTDOWN");
+        }
+    }
+
+    /**
+     * Schema der Testdatenbank ohne Daten.
+     */
+    private Path schemaScript(Path tempDir) {
+        Path script = tempDir.resolve("schema.sql");
+        jdbcTemplate.execute("SCRIPT NODATA TO " + DatabaseBackupService.sqlString(script.toAbsolutePath().toString()));
+        return script;
+    }
+
+    private DatabaseBackupService snapshotBackupService(Path tempDir, SimpleMeterRegistry registry) {
+        return new DatabaseBackupService(dataSourceProperties, registry, new BackupProperties(
+            tempDir.resolve("backup").toString(), true, false, true, tempDir.resolve("staging").toString(),
+            DataSize.ofBytes(0), false, "auto", new BackupProperties.Retention(24, 7, 4, 12)));
+    }
+
+    private static void createSchema(JdbcTemplate jdbc) {
+        jdbc.execute("CREATE TABLE contact (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "nachname VARCHAR(100) NOT NULL, bemerkung CLOB, updated_at TIMESTAMP)");
+        jdbc.execute("CREATE TABLE hashtag (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "name VARCHAR(50) NOT NULL, parent_id BIGINT REFERENCES hashtag (id))");
+        jdbc.execute("CREATE TABLE contact_hashtag (contact_id BIGINT NOT NULL, hashtag_id BIGINT NOT NULL, " +
+            "PRIMARY KEY (contact_id, hashtag_id), " +
+            "FOREIGN KEY (contact_id) REFERENCES contact (id) ON DELETE CASCADE, " +
+            "FOREIGN KEY (hashtag_id) REFERENCES hashtag (id))");
+        jdbc.execute("CREATE TABLE hashtag_closure (ancestor_id BIGINT NOT NULL, descendant_id BIGINT NOT NULL, " +
+            "depth INT NOT NULL, PRIMARY KEY (ancestor_id, descendant_id))");
+        jdbc.execute("CREATE TABLE change_journal (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "table_name VARCHAR(30) NOT NULL, row_id BIGINT NOT NULL, ref_id BIGINT, operation CHAR(1) NOT NULL, " +
+            "changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+        for (String table : List.of("contact", "hashtag", "contact_hashtag")) {
+            jdbc.execute("CREATE TRIGGER trg_" + table + "_journal AFTER INSERT, UPDATE, DELETE ON " + table +
+                " FOR EACH ROW CALL 'name.saak.contactmanager.config.ChangeJournalTrigger'");
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package name.saak.contactmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import name.saak.contactmanager.domain.ContactBusinessKey;
+import name.saak.contactmanager.repository.ContactRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DuplicateCheckServiceTest {
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep a key saved during a rebuild whose commit follows the snapshot")
+    void testRegisterDuringRebuild() {
+        // Given
+        ContactRepository contactRepository = mock(ContactRepository.class);
+        when(contactRepository.findAllBusinessKeys()).thenReturn(List.of());
+        DuplicateCheckService service = new DuplicateCheckService(contactRepository, new SimpleMeterRegistry(), 0.01);
+        service.rebuild();
+        String key = ContactBusinessKey.of("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin");
+        when(contactRepository.findIdByBusinessKey(key)).thenReturn(Optional.of(1L));
+
+        // When: Speichern registriert den Schlüssel, der Neuaufbau liest den Bestand vor dem Commit
+        TransactionSynchronizationManager.initSynchronization();
+        service.register(key);
+        service.rebuild();
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        // Then
+        DuplicateCheckService.DuplicateCheckResult result =
+            service.check("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin", null);
+        assertThat(result.databaseChecked()).isTrue();
+        assertThat(result.duplicate()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should not add a key whose transaction rolls back")
+    void testRegisterRolledBack() {
+        // Given
+        ContactRepository contactRepository = mock(ContactRepository.class);
+        when(contactRepository.findAllBusinessKeys()).thenReturn(List.of());
+        DuplicateCheckService service = new DuplicateCheckService(contactRepository, new SimpleMeterRegistry(), 0.01);
+        service.rebuild();
+
+        // When
+        TransactionSynchronizationManager.initSynchronization();
+        service.register(ContactBusinessKey.of("Erika", "Muster", "Weg 2", "54321", "Köln"));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Then
+        assertThat(service.check("Erika", "Muster", "Weg 2", "54321", "Köln", null).databaseChecked()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should add a key saved by another thread while the rebuild reads the keys")
+    void testConcurrentPutDuringRebuild() {
+        // Given
+        ContactRepository contactRepository = mock(ContactRepository.class);
+        DuplicateCheckService service = new DuplicateCheckService(contactRepository, new SimpleMeterRegistry(), 0.01);
+        String key = ContactBusinessKey.of("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin");
+        when(contactRepository.findIdByBusinessKey(key)).thenReturn(Optional.of(1L));
+        when(contactRepository.findAllBusinessKeys()).thenAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> service.register(key)).get(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        // When
+        service.rebuild();
+
+        // Then
+        DuplicateCheckService.DuplicateCheckResult result =
+            service.check("Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin", null);
+        assertThat(result.databaseChecked()).isTrue();
+        assertThat(result.duplicate()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should run the scheduled rebuild on its own thread")
+    void testScheduledRebuildThread() {
+        // Given
+        ContactRepository contactRepository = mock(ContactRepository.class);
+        CompletableFuture<String> rebuildThread = new CompletableFuture<>();
+        when(contactRepository.findAllBusinessKeys()).thenAnswer(invocation -> {
+            rebuildThread.complete(Thread.currentThread().getName());
+            return List.of();
+        });
+        DuplicateCheckService service = new DuplicateCheckService(contactRepository, new SimpleMeterRegistry(), 0.01);
+
+        try {
+            // When
+            service.scheduleRebuild();
+
+            // Then
+            verify(contactRepository, timeout(5000)).findAllBusinessKeys();
+            assertThat(rebuildThread.join()).isEqualTo("duplicate-check-rebuild");
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.domain.Hashtag;
+import name.saak.contactmanager.repository.ContactNameAddress;
+import name.saak.contactmanager.repository.ContactRepository;
+import name.saak.contactmanager.repository.HashtagRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class DuplicateFinderServiceTest {
+
+    @Autowired
+    private DuplicateFinderService duplicateFinderService;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
+    @Test
+    void shouldFindNearDuplicatesWithAbbreviatedStreetAndTypo() {
+        // Given
+        List<ContactNameAddress> contacts = List.of(
+            new ContactNameAddress(1L, "Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin"),
+            new ContactNameAddress(2L, "Max", "Musterman", "Hauptstr. 1", "12345", "Berlin"),
+            new ContactNameAddress(3L, "Erika", "Musterfrau", "Nebenstraße 5", "54321", "München")
+        );
+
+        // When
+        List<DuplicateFinderService.DuplicatePair> pairs = duplicateFinderService.findDuplicates(contacts);
+
+        // Then
+        assertThat(pairs).hasSize(1);
+        assertThat(Set.of(pairs.get(0).first().id(), pairs.get(0).second().id())).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(pairs.get(0).getScorePercent()).isGreaterThanOrEqualTo(90);
+    }
+
+    @Test
+    void shouldNotCompareContactsInDifferentPostalCodes() {
+        // Given
+        List<ContactNameAddress> contacts = List.of(
+            new ContactNameAddress(1L, "Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin"),
+            new ContactNameAddress(2L, "Max", "Mustermann", "Hauptstraße 1", "99999", "Berlin")
+        );
+
+        // When/Then
+        assertThat(duplicateFinderService.findDuplicates(contacts)).isEmpty();
+    }
+
+    @Test
+    void shouldNormalizeStreetAbbreviations() {
+        assertThat(DuplicateFinderService.normalizeStreet("Hauptstr. 1"))
+            .isEqualTo(DuplicateFinderService.normalizeStreet("Hauptstraße 1"));
+        assertThat(DuplicateFinderService.normalizeStreet("Hauptstr.1"))
+            .isEqualTo("hauptstrasse 1");
+    }
+
+    @Test
+    void shouldMergeContactsAndMoveHashtags() {
+        // Given
+        Hashtag familie = hashtagRepository.findByNameIgnoreCase("#familie").orElseThrow();
+        Hashtag freunde = hashtagRepository.findByNameIgnoreCase("#freunde").orElseThrow();
+        Contact keep = contactService.createContact(
+            new Contact("Merge", "Keeper", "Str 1", "12345", "City"), Set.of(familie.getId()));
+        Contact remove = contactService.createContact(
+            new Contact("Merge", "Keepr", "Str. 1", "12345", "City"), Set.of(familie.getId(), freunde.getId()));
+
+        // When
+        contactService.mergeContacts(keep.getId(), remove.getId());
+
+        // Then
+        assertThat(contactRepository.existsById(remove.getId())).isFalse();
+        Contact merged = contactService.findContactById(keep.getId()).orElseThrow();
+        assertThat(merged.getHashtags()).extracting(Hashtag::getName)
+            .containsExactlyInAnyOrder("#familie", "#freunde");
+    }
+}
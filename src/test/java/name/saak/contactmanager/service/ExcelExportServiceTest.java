@@ -1,22 +1,22 @@
 package name.saak.contactmanager.service;
 
-import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.repository.ContactExportRow;
 import name.saak.contactmanager.repository.ContactRepository;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayInputStream;
-import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -34,10 +34,10 @@ class ExcelExportServiceTest {
     @Test
     void shouldExportContactsToExcel() throws IOException {
         // Given
-        List<Contact> contacts = contactRepository.findAllByOrderByNachnameAscVornameAsc();
+        long contactCount = contactRepository.count();
 
         // When
-        byte[] excelData = excelExportService.exportContactsToExcel(contacts);
+        byte[] excelData = export(excelExportService);
 
         // Then
         assertThat(excelData).isNotEmpty();
@@ -58,21 +58,16 @@ class ExcelExportServiceTest {
             assertThat(headerRow.getCell(4).getStringCellValue()).isEqualTo("PLZ/Ort");
 
             // Verify we have data rows (3 test contacts + header)
-            assertThat(sheet.getPhysicalNumberOfRows()).isEqualTo(contacts.size() + 1);
+            assertThat(sheet.getPhysicalNumberOfRows()).isEqualTo(contactCount + 1);
         }
     }
 
     @Test
     void shouldMatchExpectedExcelFormat() throws IOException {
-        // Given
-        List<Contact> contacts = contactRepository.findAllByOrderByNachnameAscVornameAsc();
-
         // When
-        byte[] actualExcelData = excelExportService.exportContactsToExcel(contacts);
-
-        // Then - Verify against expected Excel file
-        String expectedFilePath = "src/test/resources/Export.xlsx";
+        byte[] actualExcelData = export(excelExportService);
 
+        // Then
         try (InputStream actualStream = new ByteArrayInputStream(actualExcelData);
              Workbook actualWorkbook = new XSSFWorkbook(actualStream)) {
 
@@ -109,10 +104,12 @@ class ExcelExportServiceTest {
     @Test
     void shouldExportEmptyListSuccessfully() throws IOException {
         // Given
-        List<Contact> emptyList = List.of();
+        List<ContactExportRow> emptyList = List.of();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 
         // When
-        byte[] excelData = excelExportService.exportContactsToExcel(emptyList);
+        excelExportService.write(emptyList.iterator(), outputStream);
+        byte[] excelData = outputStream.toByteArray();
 
         // Then
         assertThat(excelData).isNotEmpty();
@@ -126,6 +123,40 @@ class ExcelExportServiceTest {
         }
     }
 
+    @Test
+    void shouldStreamAllContactsWithSmallRowWindow() throws IOException {
+        // Given - Fenster kleiner als die Anzahl Kontakte, damit Zeilen ausgelagert werden
+        ExcelExportService streamingService = new ExcelExportService(2);
+        long contactCount = contactRepository.count();
+
+        // When
+        byte[] excelData = export(streamingService);
+
+        // Then
+        try (InputStream inputStream = new ByteArrayInputStream(excelData);
+             Workbook workbook = new XSSFWorkbook(inputStream)) {
+
+            Sheet sheet = workbook.getSheet("Kontakte");
+            assertThat(sheet.getPhysicalNumberOfRows()).isEqualTo(contactCount + 1);
+            assertThat(getCellValueAsString(sheet.getRow(1).getCell(2))).isEqualTo("Erika Musterfrau");
+            assertThat(getCellValueAsString(sheet.getRow(3).getCell(4))).isEqualTo("67890 Hamburg");
+
+            // Spaltenbreite aus der längsten Zeichenkette vorberechnet
+            assertThat(sheet.getColumnWidth(2)).isEqualTo(("Erika Musterfrau".length() + 2) * 256);
+        }
+    }
+
+    /**
+     * Exportiert alle Kontakte wie der Export-Endpunkt: gestreamt aus der Datenbank, sortiert nach Name.
+     */
+    private byte[] export(ExcelExportService service) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (Stream<ContactExportRow> rows = contactRepository.streamExportRows(Sort.by("nachname", "vorname"))) {
+            service.write(rows.iterator(), outputStream);
+        }
+        return outputStream.toByteArray();
+    }
+
     private String getCellValueAsString(Cell cell) {
         if (cell == null) {
             return "";
@@ -0,0 +1,191 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.repository.ContactExportRow;
+import name.saak.contactmanager.service.ContactExportService.ExportRequest;
+import name.saak.contactmanager.service.ExportJobService.ExportJobState;
+import name.saak.contactmanager.service.ExportJobService.ExportJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportJobServiceTest {
+
+    private static final List<ContactExportRow> ROWS = List.of(
+        new ContactExportRow(1L, null, "Frau", "Erika", "Musterfrau", "Nebenstraße 5", "54321", "München"),
+        new ContactExportRow(2L, null, "Herr", "Max", "Mustermann", "Hauptstraße 1", "12345", "Berlin"),
+        new ContactExportRow(3L, null, null, "Hans", "Schmidt", "Dorfstraße 10", "67890", "Hamburg")
+    );
+
+    private static final ExportRequest ALL = new ExportRequest(null, null, null, null);
+
+    @Mock
+    private ContactExportService contactExportService;
+
+    @TempDir
+    Path directory;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch firstRowWritten = new CountDownLatch(1);
+    private ExportJobService exportJobService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        lenient().when(contactExportService.getWriter("txt")).thenReturn(new LineWriter(false));
+        lenient().when(contactExportService.getWriter("slow")).thenReturn(new LineWriter(true));
+        lenient().when(contactExportService.count(any())).thenReturn((long) ROWS.size());
+        lenient().doAnswer(invocation -> {
+            ContactExportWriter writer = invocation.getArgument(0);
+            writer.write(ROWS.iterator(), invocation.getArgument(2));
+            return null;
+        }).when(contactExportService).export(any(), any(), any());
+
+        exportJobService = new ExportJobService(contactExportService, directory.toString(), 1, 1, Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        exportJobService.shutdown();
+    }
+
+    @Test
+    void shouldWriteFileAndServeItOnlyWithToken() throws Exception {
+        // When
+        ExportJobStatus started = exportJobService.startExport("txt", ALL, "user");
+        ExportJobStatus finished = awaitFinished(started.id(), "user");
+
+        // Then
+        assertThat(finished.state()).isEqualTo(ExportJobState.COMPLETED);
+        assertThat(finished.written()).isEqualTo(3);
+        assertThat(finished.getPercent()).isEqualTo(100);
+
+        ExportJobService.ExportDownload download =
+            exportJobService.getDownload(started.id(), finished.downloadToken()).orElseThrow();
+        assertThat(Files.readAllLines(download.file(), StandardCharsets.UTF_8))
+            .containsExactly("Musterfrau", "Mustermann", "Schmidt");
+        assertThat(download.fileName()).isEqualTo("kontakte.txt");
+
+        assertThat(exportJobService.getDownload(started.id(), "falsch")).isEmpty();
+        assertThat(exportJobService.getStatus(started.id(), "anderer")).isEmpty();
+    }
+
+    @Test
+    void shouldRejectJobsBeyondQueueCapacityAndCancelQueuedAndRunningJobs() throws Exception {
+        // Given - ein laufender und ein wartender Job füllen Executor und Warteschlange
+        ExportJobStatus running = exportJobService.startExport("slow", ALL, "user");
+        assertThat(firstRowWritten.await(5, TimeUnit.SECONDS)).isTrue();
+        ExportJobStatus queued = exportJobService.startExport("txt", ALL, "user");
+
+        // When/Then
+        assertThatThrownBy(() -> exportJobService.startExport("txt", ALL, "user"))
+            .isInstanceOf(ExportJobService.ExportQueueFullException.class);
+
+        assertThat(exportJobService.cancel(queued.id(), "user").orElseThrow().state())
+            .isEqualTo(ExportJobState.CANCELLED);
+
+        exportJobService.cancel(running.id(), "user");
+        release.countDown();
+        ExportJobStatus cancelled = awaitFinished(running.id(), "user");
+        assertThat(cancelled.state()).isEqualTo(ExportJobState.CANCELLED);
+        assertThat(cancelled.written()).isEqualTo(1);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldRemoveExpiredJobsAndFiles() throws Exception {
+        // Given
+        ExportJobStatus started = exportJobService.startExport("txt", ALL, "user");
+        ExportJobStatus finished = awaitFinished(started.id(), "user");
+        Path orphan = Files.writeString(directory.resolve("orphan.part"), "x");
+        Files.setLastModifiedTime(orphan, FileTime.fromMillis(0));
+
+        // When - Aufbewahrungszeit 0
+        Thread.sleep(5);
+        exportJobService.cleanupExpiredJobs();
+
+        // Then
+        assertThat(exportJobService.getStatus(started.id(), "user")).isEmpty();
+        assertThat(exportJobService.getDownload(started.id(), finished.downloadToken())).isEmpty();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private ExportJobStatus awaitFinished(String jobId, String owner) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        ExportJobStatus status = exportJobService.getStatus(jobId, owner).orElseThrow();
+        while (!status.state().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = exportJobService.getStatus(jobId, owner).orElseThrow();
+        }
+        return status;
+    }
+
+    /**
+     * Schreibt pro Zeile den Nachnamen; optional wird nach der ersten Zeile auf die Freigabe gewartet.
+     */
+    private class LineWriter implements ContactExportWriter {
+
+        private final boolean blockAfterFirstRow;
+
+        LineWriter(boolean blockAfterFirstRow) {
+            this.blockAfterFirstRow = blockAfterFirstRow;
+        }
+
+        @Override
+        public String getFormat() {
+            return blockAfterFirstRow ? "slow" : "txt";
+        }
+
+        @Override
+        public String getFileName() {
+            return "kontakte.txt";
+        }
+
+        @Override
+        public String getContentType() {
+            return "text/plain";
+        }
+
+        @Override
+        public void write(Iterator<ContactExportRow> rows, OutputStream outputStream) throws IOException {
+            while (rows.hasNext()) {
+                outputStream.write((rows.next().nachname() + "\n").getBytes(StandardCharsets.UTF_8));
+                if (blockAfterFirstRow) {
+                    firstRowWritten.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+            outputStream.flush();
+        }
+    }
+}
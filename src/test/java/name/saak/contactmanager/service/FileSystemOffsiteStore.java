@@ -0,0 +1,168 @@
+package name.saak.contactmanager.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Objektspeicher im Dateisystem mit dem Verhalten von S3-Multipart-Uploads, für Tests der Replikation.
+ * Kann Parts einmalig fehlschlagen lassen und Uploads bis zur Freigabe anhalten.
+ */
+class FileSystemOffsiteStore implements OffsiteStore {
+
+    private final Path root;
+    private final Map<String, String> checksums = new ConcurrentHashMap<>();
+    private final Map<String, String> uploadKeys = new ConcurrentHashMap<>();
+    private final AtomicInteger uploadIds = new AtomicInteger();
+    private final AtomicInteger uploadedParts = new AtomicInteger();
+    private volatile int failingPart;
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    FileSystemOffsiteStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Der nächste Upload dieses Parts schlägt fehl.
+     */
+    void failOnce(int partNumber) {
+        this.failingPart = partNumber;
+    }
+
+    /**
+     * Hält Part-Uploads an, bis der zurückgegebene Latch heruntergezählt wird.
+     */
+    CountDownLatch hold() {
+        gate = new CountDownLatch(1);
+        return gate;
+    }
+
+    int getUploadedParts() {
+        return uploadedParts.get();
+    }
+
+    Path object(String key) {
+        return root.resolve("objects").resolve(key);
+    }
+
+    List<String> keys() throws IOException {
+        Path objects = root.resolve("objects");
+        if (!Files.exists(objects)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(objects)) {
+            return files.filter(Files::isRegularFile)
+                .map(file -> objects.relativize(file).toString().replace('\\', '/'))
+                .sorted()
+                .toList();
+        }
+    }
+
+    @Override
+    public Optional<ObjectInfo> head(String key) throws IOException {
+        Path object = object(key);
+        if (!Files.exists(object)) {
+            return Optional.empty();
+        }
+        return Optional.of(new ObjectInfo(Files.size(object), null, checksums.get(key)));
+    }
+
+    @Override
+    public String putObject(String key, byte[] data) throws IOException {
+        Files.createDirectories(object(key).getParent());
+        Files.write(object(key), data);
+        return md5Hex(data);
+    }
+
+    @Override
+    public Optional<String> findUpload(String key) {
+        return uploadKeys.entrySet().stream()
+            .filter(upload -> upload.getValue().equals(key))
+            .map(Map.Entry::getKey)
+            .findFirst();
+    }
+
+    @Override
+    public String createUpload(String key, String sha256) throws IOException {
+        String uploadId = "upload-" + uploadIds.incrementAndGet();
+        Files.createDirectories(root.resolve("uploads").resolve(uploadId));
+        uploadKeys.put(uploadId, key);
+        checksums.put(key, sha256);
+        return uploadId;
+    }
+
+    @Override
+    public Map<Integer, String> listParts(String key, String uploadId) throws IOException {
+        Map<Integer, String> parts = new ConcurrentHashMap<>();
+        try (Stream<Path> files = Files.list(root.resolve("uploads").resolve(uploadId))) {
+            for (Path part : files.toList()) {
+                parts.put(Integer.parseInt(part.getFileName().toString()), md5Hex(Files.readAllBytes(part)));
+            }
+        }
+        return parts;
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length)
+            throws IOException {
+        try {
+            if (!gate.await(10, TimeUnit.SECONDS)) {
+                throw new IOException("Upload held too long");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if (partNumber == failingPart) {
+            failingPart = 0;
+            throw new IOException("Connection reset during part " + partNumber);
+        }
+        byte[] part = new byte[length];
+        System.arraycopy(data, 0, part, 0, length);
+        Files.write(root.resolve("uploads").resolve(uploadId).resolve(String.valueOf(partNumber)), part);
+        uploadedParts.incrementAndGet();
+        return md5Hex(part);
+    }
+
+    @Override
+    public String completeUpload(String key, String uploadId, SortedMap<Integer, String> parts) throws IOException {
+        Path upload = root.resolve("uploads").resolve(uploadId);
+        List<String> etags = new ArrayList<>();
+        Files.createDirectories(object(key).getParent());
+        try (OutputStream out = Files.newOutputStream(object(key))) {
+            for (Map.Entry<Integer, String> part : parts.entrySet()) {
+                byte[] data = Files.readAllBytes(upload.resolve(String.valueOf(part.getKey())));
+                if (!md5Hex(data).equals(part.getValue())) {
+                    throw new IOException("InvalidPart " + part.getKey());
+                }
+                out.write(data);
+                etags.add(part.getValue());
+            }
+        }
+        uploadKeys.remove(uploadId);
+        DatabaseBackupService.deleteRecursively(upload);
+        return OffsiteReplicationService.multipartEtag(etags);
+    }
+
+    private static String md5Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.domain.Hashtag;
+import name.saak.contactmanager.domain.HashtagView;
+import name.saak.contactmanager.repository.HashtagOverviewRow;
+import name.saak.contactmanager.repository.HashtagRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Ohne @Transactional, damit die Commits den Hashtag-Cache tatsächlich invalidieren.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class HashtagServiceTest {
+
+    @Autowired
+    private HashtagService hashtagService;
+
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
+    @Autowired
+    private HashtagCache hashtagCache;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        // Transaktionale Tests werden ohnehin zurückgerollt
+        if (!TestTransaction.isActive()) {
+            hashtagRepository.findByNameIgnoreCase("#cachetest_neu").ifPresent(hashtagRepository::delete);
+            hashtagRepository.findByNameIgnoreCase("#cachetest").ifPresent(hashtagRepository::delete);
+        }
+        hashtagCache.invalidate();
+    }
+
+    @Test
+    void shouldServeActiveHashtagsFromCacheAsSameSnapshot() {
+        // When
+        var first = hashtagService.findActiveHashtags();
+        var second = hashtagService.findActiveHashtags();
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(first).extracting(HashtagView::name).doesNotContain("#archiv");
+        assertThat(hashtagService.findAllHashtags()).extracting(HashtagView::name).contains("#archiv");
+    }
+
+    @Test
+    void shouldRefreshCacheAfterCreateUpdateLockAndUnlock() {
+        // Given: Cache befüllen
+        hashtagService.findActiveHashtags();
+
+        // Create
+        Hashtag created = hashtagService.createHashtag(new Hashtag("#cachetest"));
+        assertThat(hashtagService.findActiveHashtags()).extracting(HashtagView::name).contains("#cachetest");
+
+        // Update
+        hashtagService.updateHashtag(created.getId(), new Hashtag("#cachetest_neu"));
+        assertThat(hashtagService.findActiveHashtags()).extracting(HashtagView::name)
+            .contains("#cachetest_neu")
+            .doesNotContain("#cachetest");
+
+        // Lock
+        hashtagService.lockHashtag(created.getId());
+        assertThat(hashtagService.findActiveHashtags()).extracting(HashtagView::id).doesNotContain(created.getId());
+        assertThat(hashtagService.findAllHashtags()).extracting(HashtagView::id).contains(created.getId());
+
+        // Unlock
+        hashtagService.unlockHashtag(created.getId());
+        assertThat(hashtagService.findActiveHashtags()).extracting(HashtagView::id).contains(created.getId());
+    }
+
+    @Test
+    @Transactional
+    void shouldMaintainUsageCountAcrossAssignmentPaths() {
+        // Given
+        Hashtag familie = hashtagRepository.findByNameIgnoreCase("#familie").orElseThrow();
+        Hashtag freunde = hashtagRepository.findByNameIgnoreCase("#freunde").orElseThrow();
+        int familieBefore = usageCount(familie.getId());
+        int freundeBefore = usageCount(freunde.getId());
+
+        // Create
+        Contact contact = contactService.createContact(
+            new Contact("Zaehler", "Test", "Str 1", "11111", "Ort"), Set.of(familie.getId()));
+        assertThat(usageCount(familie.getId())).isEqualTo(familieBefore + 1);
+
+        // Update: #familie -> #freunde
+        contactService.updateContact(contact.getId(),
+            new Contact("Zaehler", "Test", "Str 1", "11111", "Ort"), Set.of(freunde.getId()));
+        assertThat(usageCount(familie.getId())).isEqualTo(familieBefore);
+        assertThat(usageCount(freunde.getId())).isEqualTo(freundeBefore + 1);
+
+        // Bulk: bereits zugeordnete Kontakte zählen nicht doppelt
+        contactService.assignHashtagToContacts(List.of(contact.getId()), freunde.getId());
+        contactService.assignHashtagToContacts(List.of(contact.getId()), familie.getId());
+        assertThat(usageCount(freunde.getId())).isEqualTo(freundeBefore + 1);
+        assertThat(usageCount(familie.getId())).isEqualTo(familieBefore + 1);
+
+        contactService.removeHashtagFromContacts(List.of(contact.getId()), familie.getId());
+        assertThat(usageCount(familie.getId())).isEqualTo(familieBefore);
+
+        // Delete
+        contactService.deleteContact(contact.getId());
+        assertThat(usageCount(freunde.getId())).isEqualTo(freundeBefore);
+        assertThat(hashtagRepository.reconcileUsageCounts()).isZero();
+    }
+
+    @Test
+    @Transactional
+    void shouldReconcileDriftedUsageCounts() {
+        // Given
+        Hashtag familie = hashtagRepository.findByNameIgnoreCase("#familie").orElseThrow();
+        int expected = usageCount(familie.getId());
+        jdbcTemplate.update("UPDATE hashtag SET usage_count = 999 WHERE id = ?", familie.getId());
+
+        // When
+        hashtagService.reconcileUsageCounts();
+
+        // Then
+        assertThat(usageCount(familie.getId())).isEqualTo(expected);
+    }
+
+    @Test
+    @Transactional
+    void shouldListUnusedHashtagsAndSortByUsage() {
+        // Given
+        Hashtag unused = hashtagService.createHashtag(new Hashtag("#cachetest"));
+
+        // When
+        List<HashtagOverviewRow> unusedOnly = hashtagService.findHashtagsForOverview(true, false);
+        List<HashtagOverviewRow> byUsage = hashtagService.findHashtagsForOverview(false, true);
+
+        // Then
+        assertThat(unusedOnly).extracting(HashtagOverviewRow::id).contains(unused.getId());
+        assertThat(unusedOnly).allMatch(hashtag -> hashtag.usageCount() == 0);
+        assertThat(byUsage).extracting(HashtagOverviewRow::usageCount)
+            .isSortedAccordingTo((a, b) -> Integer.compare(b, a));
+        assertThat(byUsage).extracting(HashtagOverviewRow::usageCount)
+            .containsExactlyElementsOf(byUsage.stream().map(row -> usageCount(row.id())).toList());
+    }
+
+    @Test
+    @Transactional
+    void shouldMergeHashtagAndDropDuplicateAssignments() {
+        // Given: zwei Kontakte mit #cachetest, einer davon trägt bereits #freunde
+        Hashtag source = hashtagService.createHashtag(new Hashtag("#cachetest"));
+        Hashtag target = hashtagRepository.findByNameIgnoreCase("#freunde").orElseThrow();
+        int targetBefore = usageCount(target.getId());
+        Contact both = contactService.createContact(
+            new Contact("Merge", "Beide", "Str 1", "11111", "Ort"), Set.of(source.getId(), target.getId()));
+        Contact onlySource = contactService.createContact(
+            new Contact("Merge", "Quelle", "Str 2", "11111", "Ort"), Set.of(source.getId()));
+
+        // When
+        HashtagService.MergeResult result = hashtagService.mergeHashtags(source.getId(), target.getId(), false);
+
+        // Then
+        assertThat(result.moved()).isEqualTo(1);
+        assertThat(result.duplicatesDropped()).isEqualTo(1);
+        assertThat(contactService.findContactById(both.getId()).orElseThrow().getHashtags())
+            .extracting(Hashtag::getName).containsExactly("#freunde");
+        assertThat(contactService.findContactById(onlySource.getId()).orElseThrow().getHashtags())
+            .extracting(Hashtag::getName).containsExactly("#freunde");
+        assertThat(usageCount(target.getId())).isEqualTo(targetBefore + 2);
+        assertThat(usageCount(source.getId())).isZero();
+        assertThat(hashtagRepository.findById(source.getId()).orElseThrow().isGesperrt()).isTrue();
+        assertThat(hashtagRepository.reconcileUsageCounts()).isZero();
+    }
+
+    @Test
+    @Transactional
+    void shouldDeleteSourceHashtagAfterMerge() {
+        // Given
+        Hashtag source = hashtagService.createHashtag(new Hashtag("#cachetest"));
+        Hashtag target = hashtagRepository.findByNameIgnoreCase("#familie").orElseThrow();
+        contactService.createContact(
+            new Contact("Merge", "Quelle", "Str 2", "11111", "Ort"), Set.of(source.getId()));
+
+        // When
+        hashtagService.mergeHashtags(source.getId(), target.getId(), true);
+
+        // Then
+        assertThat(hashtagRepository.findById(source.getId())).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    void shouldRejectMergeIntoLockedOrSameHashtag() {
+        Hashtag familie = hashtagRepository.findByNameIgnoreCase("#familie").orElseThrow();
+        Hashtag archiv = hashtagRepository.findByNameIgnoreCase("#archiv").orElseThrow();
+
+        assertThatThrownBy(() -> hashtagService.mergeHashtags(familie.getId(), familie.getId(), false))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> hashtagService.mergeHashtags(familie.getId(), archiv.getId(), false))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("gesperrt");
+    }
+
+    @Test
+    @Transactional
+    void shouldFindContactsOfSubHashtagsViaClosureTable() {
+        // Given: #cachetest -> #cachetest_neu
+        Hashtag parent = hashtagService.createHashtag(new Hashtag("#cachetest"));
+        Hashtag child = hashtagService.createHashtag(new Hashtag("#cachetest_neu"), parent.getId());
+        Contact contact = contactService.createContact(
+            new Contact("Baum", "Kind", "Str 1", "11111", "Ort"), Set.of(child.getId()));
+
+        // When/Then
+        assertThat(contactService.searchByHashtags("#cachetest")).extracting(Contact::getId)
+            .containsExactly(contact.getId());
+        assertThat(contactService.findContactListRows("#cachetest", null, null))
+            .extracting(row -> row.id())
+            .containsExactly(contact.getId());
+        assertThat(hashtagService.findSubtreeIds(parent.getId()))
+            .containsExactlyInAnyOrder(parent.getId(), child.getId());
+
+        // Umhängen zur Wurzel: der übergeordnete Hashtag findet den Kontakt nicht mehr
+        hashtagService.moveHashtag(child.getId(), null);
+        assertThat(contactService.searchByHashtags("#cachetest")).isEmpty();
+        assertThat(hashtagRepository.findById(child.getId()).orElseThrow().getParentId()).isNull();
+    }
+
+    @Test
+    @Transactional
+    void shouldPreventCyclesInHierarchy() {
+        // Given
+        Hashtag parent = hashtagService.createHashtag(new Hashtag("#cachetest"));
+        Hashtag child = hashtagService.createHashtag(new Hashtag("#cachetest_neu"), parent.getId());
+
+        // When/Then
+        assertThatThrownBy(() -> hashtagService.moveHashtag(parent.getId(), child.getId()))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> hashtagService.moveHashtag(parent.getId(), parent.getId()))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> hashtagService.mergeHashtags(parent.getId(), child.getId(), true))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Unter-Hashtags");
+    }
+
+    @Test
+    @Transactional
+    void shouldLockAndUnlockSubtree() {
+        // Given
+        Hashtag parent = hashtagService.createHashtag(new Hashtag("#cachetest"));
+        Hashtag child = hashtagService.createHashtag(new Hashtag("#cachetest_neu"), parent.getId());
+
+        // When/Then
+        assertThat(hashtagService.lockSubtree(parent.getId())).isEqualTo(2);
+        assertThat(hashtagRepository.findById(child.getId()).orElseThrow().isGesperrt()).isTrue();
+
+        assertThat(hashtagService.unlockSubtree(parent.getId())).isEqualTo(2);
+        assertThat(hashtagRepository.findById(parent.getId()).orElseThrow().isGesperrt()).isFalse();
+        assertThat(hashtagRepository.findById(child.getId()).orElseThrow().isGesperrt()).isFalse();
+    }
+
+    private int usageCount(Long hashtagId) {
+        return jdbcTemplate.queryForObject("SELECT usage_count FROM hashtag WHERE id = ?", Integer.class, hashtagId);
+    }
+}
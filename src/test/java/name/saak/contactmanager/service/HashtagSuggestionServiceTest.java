@@ -0,0 +1,188 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.domain.Contact;
+import name.saak.contactmanager.domain.Hashtag;
+import name.saak.contactmanager.domain.HashtagView;
+import name.saak.contactmanager.repository.ContactHashtagAssignment;
+import name.saak.contactmanager.repository.ContactRepository;
+import name.saak.contactmanager.repository.HashtagRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ohne @Transactional, da der Index erst nach dem Commit fortgeschrieben wird.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class HashtagSuggestionServiceTest {
+
+    @Autowired
+    private HashtagSuggestionService hashtagSuggestionService;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
+    private final List<Long> createdContactIds = new ArrayList<>();
+
+    private Hashtag familie;
+    private Hashtag freunde;
+    private Hashtag geschaeftlich;
+
+    @BeforeEach
+    void setUp() {
+        familie = hashtagRepository.findByNameIgnoreCase("#familie").orElseThrow();
+        freunde = hashtagRepository.findByNameIgnoreCase("#freunde").orElseThrow();
+        geschaeftlich = hashtagRepository.findByNameIgnoreCase("#geschaeftlich").orElseThrow();
+        hashtagSuggestionService.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        createdContactIds.forEach(contactService::deleteContact);
+        createdContactIds.clear();
+    }
+
+    @Test
+    void shouldRankSuggestionsByConfidenceAndFollowIncrementalChanges() {
+        // Given
+        Long first = create("Eins", Set.of(familie.getId(), freunde.getId()));
+        Long second = create("Zwei", Set.of(familie.getId(), freunde.getId()));
+        create("Drei", Set.of(familie.getId(), geschaeftlich.getId()));
+
+        // When/Then
+        assertThat(hashtagSuggestionService.suggest(List.of(familie.getId())))
+            .extracting(HashtagSuggestionService.HashtagSuggestion::name)
+            .startsWith("#freunde", "#geschaeftlich");
+
+        // Bulk-Entfernung wird fortgeschrieben
+        contactService.removeHashtagFromContacts(List.of(first, second), freunde.getId());
+        assertThat(hashtagSuggestionService.suggest(List.of(familie.getId())))
+            .extracting(HashtagSuggestionService.HashtagSuggestion::name)
+            .startsWith("#geschaeftlich")
+            .doesNotContain("#freunde");
+    }
+
+    @Test
+    void shouldMatchIncrementalIndexAfterRebuild() {
+        // Given
+        create("Eins", Set.of(familie.getId(), freunde.getId()));
+        Long second = create("Zwei", Set.of(familie.getId()));
+        contactService.assignHashtagToContacts(List.of(second), geschaeftlich.getId());
+        var incremental = hashtagSuggestionService.suggest(List.of(familie.getId()));
+
+        // When
+        hashtagSuggestionService.rebuild();
+
+        // Then
+        assertThat(hashtagSuggestionService.suggest(List.of(familie.getId()))).isEqualTo(incremental);
+    }
+
+    @Test
+    void shouldNotSuggestAlreadySelectedHashtags() {
+        // Given
+        create("Eins", Set.of(familie.getId(), freunde.getId(), geschaeftlich.getId()));
+
+        // When
+        var suggestions = hashtagSuggestionService.suggest(List.of(familie.getId(), freunde.getId()));
+
+        // Then
+        assertThat(suggestions)
+            .extracting(HashtagSuggestionService.HashtagSuggestion::name)
+            .contains("#geschaeftlich")
+            .doesNotContain("#familie", "#freunde");
+    }
+
+    @Test
+    void shouldCountChangesCommittedDuringRebuildOnce() {
+        // Given
+        ContactRepository contactRepository = mock(ContactRepository.class);
+        HashtagCache hashtagCache = mock(HashtagCache.class);
+        when(hashtagCache.getActive()).thenReturn(List.of(
+            new HashtagView(1L, "#a", null, false, null),
+            new HashtagView(2L, "#b", null, false, null),
+            new HashtagView(3L, "#c", null, false, null)));
+        HashtagSuggestionService service = new HashtagSuggestionService(contactRepository, hashtagCache, 1, 5, 0.0);
+        try {
+            when(contactRepository.findAllHashtagAssignments()).thenReturn(List.of());
+            service.rebuild();
+            when(contactRepository.findAllHashtagAssignments()).thenAnswer(invocation -> {
+                // Kontakt 1 ist vor dem Lesen committet und im Stand enthalten, Kontakt 2 erst danach
+                service.recordChange(1L, Set.of(), Set.of(1L, 2L));
+                service.recordChange(2L, Set.of(), Set.of(1L, 3L));
+                service.recordChange(1L, Set.of(1L, 2L), Set.of(1L, 2L, 3L));
+                return List.of(new ContactHashtagAssignment(1L, 1L), new ContactHashtagAssignment(1L, 2L));
+            });
+
+            // When
+            service.rebuild();
+
+            // Then: #a an zwei Kontakten, #b an einem, #c an beiden
+            assertThat(service.suggest(List.of(1L)))
+                .extracting(HashtagSuggestionService.HashtagSuggestion::name,
+                    HashtagSuggestionService.HashtagSuggestion::together)
+                .containsExactly(tuple("#c", 2), tuple("#b", 1));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRebuildOnOwnThreadWithSingleWorkerPool() throws InterruptedException {
+        // Given: ein einzelner Worker im Pool, der Neuaufbau darf ihn nicht selbst belegen
+        ContactRepository contactRepository = mock(ContactRepository.class);
+        HashtagCache hashtagCache = mock(HashtagCache.class);
+        when(hashtagCache.getActive()).thenReturn(List.of(
+            new HashtagView(1L, "#a", null, false, null),
+            new HashtagView(2L, "#b", null, false, null)));
+        CompletableFuture<String> rebuildThread = new CompletableFuture<>();
+        when(contactRepository.findAllHashtagAssignments()).thenAnswer(invocation -> {
+            rebuildThread.complete(Thread.currentThread().getName());
+            return List.of(new ContactHashtagAssignment(1L, 1L), new ContactHashtagAssignment(1L, 2L));
+        });
+        HashtagSuggestionService service = new HashtagSuggestionService(contactRepository, hashtagCache, 1, 5, 0.0);
+        try {
+            // When
+            service.rebuildAfterCommit();
+
+            // Then
+            verify(contactRepository, timeout(5000)).findAllHashtagAssignments();
+            assertThat(rebuildThread.join()).isEqualTo("hashtag-suggestion-rebuild");
+            List<HashtagSuggestionService.HashtagSuggestion> suggestions = service.suggest(List.of(1L));
+            for (int i = 0; i < 100 && suggestions.isEmpty(); i++) {
+                Thread.sleep(50);
+                suggestions = service.suggest(List.of(1L));
+            }
+            assertThat(suggestions)
+                .extracting(HashtagSuggestionService.HashtagSuggestion::name)
+                .containsExactly("#b");
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private Long create(String vorname, Set<Long> hashtagIds) {
+        Contact contact = contactService.createContact(
+            new Contact(vorname, "Vorschlag", "Str 1", "22222", "Ort"), hashtagIds);
+        createdContactIds.add(contact.getId());
+        return contact.getId();
+    }
+}
@@ -0,0 +1,198 @@
+package name.saak.contactmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import name.saak.contactmanager.service.JobService.JobRun;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class JobServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Should record duration and outcome of every run")
+    void testRunHistory() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JobService jobService = jobService(registry, "node-a");
+        try {
+            // When
+            assertThat(jobService.execute("history-job", () -> Thread.sleep(20))).isTrue();
+            assertThat(jobService.execute("history-job", () -> {
+                throw new IllegalStateException("Backup directory not writable");
+            })).isTrue();
+
+            // Then
+            List<JobRun> history = jobService.getHistory("history-job", 10);
+            assertThat(history).extracting(JobRun::outcome).containsExactly("FAILURE", "SUCCESS");
+            assertThat(history.get(0).message()).contains("Backup directory not writable");
+            assertThat(history.get(1).durationMillis()).isGreaterThanOrEqualTo(20);
+            assertThat(history.get(1).node()).isEqualTo("node-a");
+            assertThat(history.get(1).finishedAt()).isNotNull();
+            assertThat(registry.get("jobs.duration").tags("job", "history-job", "outcome", "success").timer().count())
+                .isEqualTo(1);
+            assertThat(registry.get("jobs.duration").tags("job", "history-job", "outcome", "failure").timer().count())
+                .isEqualTo(1);
+            assertThat(registry.get("jobs.last.success").tag("job", "history-job").gauge().value()).isPositive();
+        } finally {
+            jobService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should skip a job that is still running on this node")
+    void testSkipIfRunning() throws Exception {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JobService jobService = jobService(registry, "node-a");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertThat(jobService.submit("slow-job", () -> {
+                started.countDown();
+                release.await();
+            })).isTrue();
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // When / Then
+            assertThat(jobService.submit("slow-job", () -> { })).isFalse();
+            assertThat(registry.get("jobs.skipped").tags("job", "slow-job", "reason", "running").counter().count())
+                .isEqualTo(1);
+            assertThat(registry.get("jobs.active").gauge().value()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            jobService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run a job on only one node at a time")
+    void testClusterLease() throws Exception {
+        // Given: zwei Knoten auf derselben Datenbank
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JobService nodeA = jobService(registry, "node-a");
+        JobService nodeB = jobService(registry, "node-b");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            nodeA.submit("cluster-job", () -> {
+                started.countDown();
+                release.await();
+            });
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // When: Knoten B versucht es, während A läuft
+            assertThat(nodeB.execute("cluster-job", () -> { })).isFalse();
+            assertThat(registry.get("jobs.skipped").tags("job", "cluster-job", "reason", "locked").counter().count())
+                .isEqualTo(1);
+
+            // Then: nach dem Ende von A ist die Lease frei
+            release.countDown();
+            boolean executed = false;
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!executed && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+                executed = nodeB.execute("cluster-job", () -> { });
+            }
+            assertThat(executed).isTrue();
+            assertThat(nodeB.getHistory("cluster-job", 10)).extracting(JobRun::node)
+                .containsExactly("node-b", "node-a");
+        } finally {
+            release.countDown();
+            nodeA.shutdown();
+            nodeB.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should take over an expired lease and prune old history")
+    void testExpiredLeaseAndHistoryRetention() {
+        // Given: abgestürzter Knoten mit abgelaufener Lease, Verlaufseintrag älter als die Aufbewahrung
+        Instant now = Instant.now();
+        jdbcTemplate.update("INSERT INTO job_lock (job_name, owner, locked_at, locked_until) VALUES (?, ?, ?, ?)",
+            "expired-job", "crashed-node", Timestamp.from(now.minus(Duration.ofHours(2))),
+            Timestamp.from(now.minus(Duration.ofHours(1))));
+        jdbcTemplate.update("INSERT INTO job_run (job_name, node, started_at, outcome) VALUES (?, ?, ?, 'RUNNING')",
+            "expired-job", "crashed-node", Timestamp.from(now.minus(Duration.ofDays(40))));
+        JobService jobService = jobService(new SimpleMeterRegistry(), "node-a");
+        try {
+            // When
+            assertThat(jobService.execute("expired-job", () -> { })).isTrue();
+
+            // Then
+            assertThat(jobService.getHistory("expired-job", 10)).extracting(JobRun::node).containsExactly("node-a");
+            assertThat(jdbcTemplate.queryForObject("SELECT locked_until FROM job_lock WHERE job_name = ?",
+                Timestamp.class, "expired-job").toInstant()).isBeforeOrEqualTo(Instant.now());
+        } finally {
+            jobService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should interrupt a job and record it as failed when another node takes over its lease")
+    void testLeaseLost() throws Exception {
+        // Given: kurze Lease, Verlängerung alle 100 ms
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JobService jobService = new JobService(jdbcTemplate, registry, 2, "node-a", Duration.ofMillis(300),
+            Duration.ofDays(30), Clock.systemUTC());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try {
+            jobService.submit("lost-lease-job", () -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            });
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // When: Knoten B übernimmt die Lease, z.B. weil A zu lange stand
+            jdbcTemplate.update("UPDATE job_lock SET owner = 'node-b', locked_until = ? WHERE job_name = ?",
+                Timestamp.from(Instant.now().plus(Duration.ofHours(1))), "lost-lease-job");
+
+            // Then: Lauf unterbrochen und als fehlgeschlagen verbucht, die Lease von B bleibt unangetastet
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            JobRun run = null;
+            long deadline = System.currentTimeMillis() + 5_000;
+            while ((run == null || run.finishedAt() == null) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+                run = jobService.getHistory("lost-lease-job", 1).get(0);
+            }
+            assertThat(run.outcome()).isEqualTo("FAILURE");
+            assertThat(run.message()).startsWith("Lease lost to another node");
+            assertThat(registry.get("jobs.duration").tags("job", "lost-lease-job", "outcome", "failure").timer()
+                .count()).isEqualTo(1);
+            assertThat(jdbcTemplate.queryForObject("SELECT owner FROM job_lock WHERE job_name = ?", String.class,
+                "lost-lease-job")).isEqualTo("node-b");
+            assertThat(jdbcTemplate.queryForObject("SELECT locked_until FROM job_lock WHERE job_name = ?",
+                Timestamp.class, "lost-lease-job").toInstant()).isAfter(Instant.now().plus(Duration.ofMinutes(30)));
+        } finally {
+            jobService.shutdown();
+        }
+    }
+
+    private JobService jobService(SimpleMeterRegistry registry, String node) {
+        return new JobService(jdbcTemplate, registry, 2, node, Duration.ofMinutes(10), Duration.ofDays(30),
+            Clock.systemUTC());
+    }
+}
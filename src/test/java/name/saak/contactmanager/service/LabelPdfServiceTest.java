@@ -0,0 +1,130 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.repository.ContactExportRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LabelPdfServiceTest {
+
+    private final LabelPdfService labelPdfService = new LabelPdfService(4, 2, "3474");
+
+    @AfterEach
+    void tearDown() {
+        labelPdfService.shutdown();
+    }
+
+    @Test
+    void shouldWritePagesInOrderWithValidCrossReferenceTable() throws IOException {
+        // Given - 100 Etiketten = 5 Bögen à 24, Blöcke zu 2 Seiten
+        List<ContactExportRow> rows = IntStream.rangeClosed(1, 100)
+            .mapToObj(i -> new ContactExportRow((long) i, null, null, "Vorname", String.format("Name%03d", i),
+                "Straße " + i, "12345", "Berlin"))
+            .toList();
+
+        // When
+        byte[] pdf = export(rows, LabelLayout.ZWECKFORM_3474);
+
+        // Then
+        String text = new String(pdf, StandardCharsets.ISO_8859_1);
+        assertThat(text).startsWith("%PDF-1.4").endsWith("%%EOF\n");
+        assertThat(text).contains("/Type /Pages /Count 5 ");
+
+        // Jeder xref-Eintrag zeigt auf den Beginn seines Objekts
+        int xref = Integer.parseInt(text.substring(text.lastIndexOf("startxref\n") + 10, text.lastIndexOf("\n%%EOF")));
+        String[] table = text.substring(xref).split("\n");
+        int size = Integer.parseInt(table[1].split(" ")[1]);
+        for (int object = 1; object < size; object++) {
+            int offset = Integer.parseInt(table[2 + object].substring(0, 10));
+            assertThat(text.substring(offset)).startsWith(object + " 0 obj\n");
+        }
+
+        // Seiten in Reihenfolge: erstes Etikett von Seite 1 und letztes von Seite 5
+        List<String> pages = contentStreams(pdf);
+        assertThat(pages).hasSize(5);
+        assertThat(pages.get(0)).contains("(Vorname Name001) Tj");
+        assertThat(pages.get(4)).contains("(Vorname Name100) Tj").doesNotContain("Name096)");
+    }
+
+    @Test
+    void shouldUseAddressLinesOfExcelExportAndEscapeText() throws IOException {
+        // Given
+        List<ContactExportRow> rows = List.of(
+            new ContactExportRow(1L, "Müller (GmbH)", "Frau", "Erika", "Musterfrau", "Nebenstraße 5", "54321", "München"));
+
+        // When
+        String page = contentStreams(export(rows, LabelLayout.AVERY_L7163)).get(0);
+
+        // Then
+        assertThat(page).containsSubsequence(
+            "(Müller \\(GmbH\\)) Tj", "(Frau) Tj", "(Erika Musterfrau) Tj", "(Nebenstraße 5) Tj", "(54321 München) Tj");
+    }
+
+    @Test
+    void shouldWriteSingleEmptyPageWithoutRows() throws IOException {
+        byte[] pdf = export(List.of(), LabelLayout.ZWECKFORM_3475);
+
+        assertThat(new String(pdf, StandardCharsets.ISO_8859_1)).contains("/Type /Pages /Count 1 ");
+    }
+
+    @Test
+    void shouldShortenLinesWiderThanTheLabel() {
+        String shortened = LabelPdfService.fitToWidth("Sehr lange Straßenbezeichnung ".repeat(5), 100);
+
+        assertThat(shortened).endsWith("…").hasSizeLessThan(30);
+        assertThat(LabelPdfService.fitToWidth("Kurz", 100)).isEqualTo("Kurz");
+    }
+
+    @Test
+    void shouldResolveLayoutVariants() {
+        assertThat(labelPdfService.variant("l7163")).hasValueSatisfying(writer ->
+            assertThat(writer.getFileName()).isEqualTo("etiketten-l7163.pdf"));
+        assertThat(labelPdfService.variant("9999")).isEmpty();
+    }
+
+    private byte[] export(List<ContactExportRow> rows, LabelLayout layout) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        labelPdfService.writeLabels(rows.iterator(), layout, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Entpackt alle Content-Streams in Dateireihenfolge.
+     */
+    private static List<String> contentStreams(byte[] pdf) {
+        String text = new String(pdf, StandardCharsets.ISO_8859_1);
+        Matcher matcher = Pattern.compile("/Length (\\d+) /Filter /FlateDecode >>\nstream\n").matcher(text);
+        List<String> streams = new ArrayList<>();
+        while (matcher.find()) {
+            int length = Integer.parseInt(matcher.group(1));
+            Inflater inflater = new Inflater();
+            inflater.setInput(pdf, matcher.end(), length);
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            try {
+                while (!inflater.finished()) {
+                    result.write(buffer, 0, inflater.inflate(buffer));
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                inflater.end();
+            }
+            streams.add(result.toString(Charset.forName("windows-1252")));
+        }
+        return streams;
+    }
+}
@@ -0,0 +1,227 @@
+package name.saak.contactmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OffsiteReplicationServiceTest {
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Test
+    @DisplayName("Should upload backups in verified parts and skip them afterwards")
+    void testReplicateBackups(@TempDir Path tempDir) throws Exception {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = backupService(tempDir, registry, false);
+        FileSystemOffsiteStore store = new FileSystemOffsiteStore(tempDir.resolve("s3"));
+        OffsiteReplicationService replication = replication(backupService, store, registry);
+        try {
+            Path backup = backupService.createBackup();
+            replication.awaitReplication();
+
+            // Then: mehrere Parts, Inhalt identisch, Katalog mitgesichert
+            assertThat(Files.mismatch(store.object("contactdb/" + backup.getFileName()), backup)).isEqualTo(-1);
+            assertThat(store.getUploadedParts()).isGreaterThan(1);
+            assertThat(store.keys()).contains("contactdb/" + BackupCatalog.FILE_NAME);
+            assertThat(Files.readString(tempDir.resolve("backup").resolve(OffsiteReplicationService.STATE_FILE)))
+                .contains("backup\t" + backup.getFileName());
+            assertThat(registry.get("backup.offsite.objects").tag("type", "backup").counter().count()).isEqualTo(1);
+
+            // When: erneuter Lauf ohne neue Backups
+            int parts = store.getUploadedParts();
+            assertThat(replication.replicate()).isZero();
+            assertThat(store.getUploadedParts()).isEqualTo(parts);
+        } finally {
+            replication.shutdown();
+            backupService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should resume an interrupted upload from the acknowledged parts")
+    void testResumeInterruptedUpload(@TempDir Path tempDir) throws Exception {
+        // Given: Part 3 bricht beim ersten Versuch ab
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = backupService(tempDir, registry, false);
+        FileSystemOffsiteStore store = new FileSystemOffsiteStore(tempDir.resolve("s3"));
+        OffsiteReplicationService replication = new OffsiteReplicationService(backupService, store, registry,
+            "contactdb/", DataSize.ofKilobytes(1), 1, true);
+        try {
+            store.failOnce(3);
+            Path backup = backupService.createBackup();
+            replication.awaitReplication();
+            assertThat(store.keys()).doesNotContain("contactdb/" + backup.getFileName());
+
+            // When
+            int uploadedBefore = store.getUploadedParts();
+            assertThat(replication.replicate()).isEqualTo(1);
+
+            // Then: nur die fehlenden Parts wurden erneut übertragen
+            assertThat(Files.mismatch(store.object("contactdb/" + backup.getFileName()), backup)).isEqualTo(-1);
+            assertThat(registry.get("backup.offsite.parts").tag("result", "resumed").counter().count())
+                .isEqualTo(uploadedBefore);
+            assertThat(registry.get("backup.offsite.duration").tag("outcome", "failure").timer().count())
+                .isEqualTo(1);
+        } finally {
+            replication.shutdown();
+            backupService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should not block backups while uploads are in progress")
+    void testReplicationDoesNotBlockBackups(@TempDir Path tempDir) throws Exception {
+        // Given: Uploads hängen
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = backupService(tempDir, registry, false);
+        FileSystemOffsiteStore store = new FileSystemOffsiteStore(tempDir.resolve("s3"));
+        OffsiteReplicationService replication = replication(backupService, store, registry);
+        CountDownLatch release = store.hold();
+        try {
+            // When
+            Path first = backupService.createBackup();
+            Path second = backupService.createBackup();
+
+            // Then: beide Backups fertig, Replikation holt beide nach
+            assertThat(store.keys()).isEmpty();
+            release.countDown();
+            replication.awaitReplication();
+            assertThat(store.keys()).contains("contactdb/" + first.getFileName(), "contactdb/" + second.getFileName());
+        } finally {
+            release.countDown();
+            replication.shutdown();
+            backupService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should upload missing chunks before the manifest of a deduplicated backup")
+    void testReplicateDeduplicatedBackup(@TempDir Path tempDir) throws Exception {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = backupService(tempDir, registry, true);
+        FileSystemOffsiteStore store = new FileSystemOffsiteStore(tempDir.resolve("s3"));
+        OffsiteReplicationService replication = replication(backupService, store, registry);
+        try {
+            // When
+            Path manifest = backupService.createBackup();
+            replication.awaitReplication();
+
+            // Then
+            for (String hash : DeduplicatingBackupStore.chunkHashes(manifest)) {
+                assertThat(store.keys()).contains("contactdb/chunks/" + hash.substring(0, 2) + "/" + hash);
+            }
+            assertThat(store.keys()).contains("contactdb/" + manifest.getFileName());
+        } finally {
+            replication.shutdown();
+            backupService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a part whose ETag does not match its content")
+    void testRejectCorruptedPart(@TempDir Path tempDir) throws Exception {
+        // Given: Speicher bestätigt einen anderen Inhalt
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = backupService(tempDir, registry, false);
+        FileSystemOffsiteStore store = new FileSystemOffsiteStore(tempDir.resolve("s3")) {
+            @Override
+            public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length)
+                    throws IOException {
+                return super.uploadPart(key, uploadId, partNumber, data, length - 1);
+            }
+        };
+        OffsiteReplicationService corrupting = new OffsiteReplicationService(backupService, store, registry,
+            "contactdb/", DataSize.ofKilobytes(1), 2, true);
+        try {
+            Path backup = backupService.createBackup();
+            corrupting.awaitReplication();
+
+            // Then
+            assertThatThrownBy(corrupting::replicate)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Checksum mismatch");
+            assertThat(store.keys()).doesNotContain("contactdb/" + backup.getFileName());
+        } finally {
+            corrupting.shutdown();
+            backupService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should rely on size and SHA-256 when ETags are not the MD5 of the content")
+    void testSkipEtagVerification(@TempDir Path tempDir) throws Exception {
+        // Given: Speicher mit SSE-KMS, dessen ETags kein MD5 sind
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseBackupService backupService = backupService(tempDir, registry, true);
+        FileSystemOffsiteStore store = new FileSystemOffsiteStore(tempDir.resolve("s3")) {
+            @Override
+            public String putObject(String key, byte[] data) throws IOException {
+                return "kms-" + super.putObject(key, data);
+            }
+
+            @Override
+            public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length)
+                    throws IOException {
+                return "kms-" + super.uploadPart(key, uploadId, partNumber, data, length);
+            }
+
+            @Override
+            public String completeUpload(String key, String uploadId, SortedMap<Integer, String> parts)
+                    throws IOException {
+                SortedMap<Integer, String> md5s = new TreeMap<>();
+                parts.forEach((number, etag) -> md5s.put(number, etag.substring("kms-".length())));
+                return "kms-" + super.completeUpload(key, uploadId, md5s);
+            }
+        };
+        OffsiteReplicationService replication = new OffsiteReplicationService(backupService, store, registry,
+            "contactdb/", DataSize.ofKilobytes(1), 2, false);
+        try {
+            // When
+            Path manifest = backupService.createBackup();
+            replication.awaitReplication();
+
+            // Then: hochgeladen und geprüft, der Snapshot ist wieder weg
+            assertThat(Files.mismatch(store.object("contactdb/" + manifest.getFileName()), manifest)).isEqualTo(-1);
+            for (String hash : DeduplicatingBackupStore.chunkHashes(manifest)) {
+                assertThat(store.keys()).contains("contactdb/chunks/" + hash.substring(0, 2) + "/" + hash);
+            }
+            assertThat(tempDir.resolve("backup").resolve(OffsiteReplicationService.SNAPSHOT_DIRECTORY)).doesNotExist();
+        } finally {
+            replication.shutdown();
+            backupService.shutdown();
+        }
+    }
+
+    private DatabaseBackupService backupService(Path tempDir, SimpleMeterRegistry registry, boolean deduplicate) {
+        return new DatabaseBackupService(dataSourceProperties, registry, new BackupProperties(
+            tempDir.resolve("backup").toString(), true, false, true, tempDir.resolve("staging").toString(),
+            DataSize.ofBytes(0), deduplicate, "auto", new BackupProperties.Retention(24, 7, 4, 12)));
+    }
+
+    private static OffsiteReplicationService replication(DatabaseBackupService backupService,
+                                                         FileSystemOffsiteStore store, SimpleMeterRegistry registry) {
+        return new OffsiteReplicationService(backupService, store, registry, "contactdb/", DataSize.ofKilobytes(1), 3,
+            true);
+    }
+}
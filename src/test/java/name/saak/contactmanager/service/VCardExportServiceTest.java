@@ -0,0 +1,65 @@
+package name.saak.contactmanager.service;
+
+import name.saak.contactmanager.repository.ContactExportRow;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VCardExportServiceTest {
+
+    private final VCardExportService vCardExportService = new VCardExportService();
+
+    @Test
+    void shouldWriteOneVCardPerContact() throws IOException {
+        // Given
+        List<ContactExportRow> rows = List.of(
+            new ContactExportRow(1L, null, "Frau", "Erika", "Musterfrau", "Nebenstraße 5", "54321", "München"),
+            new ContactExportRow(2L, "Müller, Söhne", null, null, "Schmidt", "Dorfstraße 10", "67890", "Hamburg")
+        );
+
+        // When
+        String vcf = export(rows);
+
+        // Then
+        assertThat(vcf).isEqualTo(
+            "BEGIN:VCARD\r\nVERSION:4.0\r\n" +
+            "FN:Erika Musterfrau\r\n" +
+            "N:Musterfrau;Erika;;Frau;\r\n" +
+            "ADR:;;Nebenstraße 5;München;;54321;\r\n" +
+            "END:VCARD\r\n" +
+            "BEGIN:VCARD\r\nVERSION:4.0\r\n" +
+            "FN:Schmidt\r\n" +
+            "N:Schmidt;;;;\r\n" +
+            "ORG:Müller\\, Söhne\r\n" +
+            "ADR:;;Dorfstraße 10;Hamburg;;67890;\r\n" +
+            "END:VCARD\r\n");
+    }
+
+    @Test
+    void shouldFoldLinesLongerThan75Octets() throws IOException {
+        // Given - Umlaute belegen in UTF-8 zwei Oktette
+        String firma = "Ä".repeat(60);
+        List<ContactExportRow> rows = List.of(
+            new ContactExportRow(1L, firma, null, "Max", "Mustermann", "Str 1", "12345", "Berlin"));
+
+        // When
+        String vcf = export(rows);
+
+        // Then
+        for (String line : vcf.split("\r\n")) {
+            assertThat(line.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(75);
+        }
+        assertThat(vcf.replace("\r\n ", "")).contains("ORG:" + firma + "\r\n");
+    }
+
+    private String export(List<ContactExportRow> rows) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        vCardExportService.write(rows.iterator(), outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}